@@ -22,7 +22,6 @@
 package org.kapott.hbci.GV;
 
 
-import java.util.Properties;
 
 import org.kapott.hbci.GV_Result.GVRKUms;
 import org.kapott.hbci.manager.HBCIHandler;
@@ -120,23 +119,22 @@ public class GVKUmsAll extends HBCIJobImpl
      */
     protected void extractResults(HBCIMsgStatus msgstatus,String header,int idx)
     {
-        Properties result=msgstatus.getData();
         GVRKUms    umsResult=(GVRKUms)jobResult; 
         
         StringBuffer paramName = new StringBuffer(header).append(".booked");
-        String       rawData = result.getProperty(paramName.toString());
+        String       rawData = msgstatus.getValue(paramName.toString());
         if (rawData!=null) {
             umsResult.appendMT940Data(Swift.decodeUmlauts(rawData));
         }
         
         paramName = new StringBuffer(header).append(".notbooked");
-        rawData = result.getProperty(paramName.toString());
+        rawData = msgstatus.getValue(paramName.toString());
         if (rawData!=null) {
             umsResult.appendMT942Data(Swift.decodeUmlauts(rawData));
         }
         
         // TODO: this is for compatibility reasons only
-        jobResult.storeResult("notbooked",result.getProperty(header+".notbooked"));
+        jobResult.storeResult("notbooked",msgstatus.getValue(header+".notbooked"));
     }
     
     /**
@@ -156,13 +156,12 @@ public class GVKUmsAllCamt extends AbstractSEPAGV
      */
     protected void extractResults(HBCIMsgStatus msgstatus,String header,int idx)
     {
-        Properties data = msgstatus.getData();
         GVRKUms result  = (GVRKUms) jobResult;
-        final String format = data.getProperty(header+".format");
+        final String format = msgstatus.getValue(header+".format");
 
         for (int i=0;;i++)
         {
-          final String booked = data.getProperty(header+".booked."+HBCIUtilsInternal.withCounter("message",i));
+          final String booked = msgstatus.getValue(header+".booked."+HBCIUtilsInternal.withCounter("message",i));
             if (booked == null)
                 break;
             
@@ -189,7 +188,7 @@ public class GVKUmsAllCamt extends AbstractSEPAGV
             }
         }
         
-        final String notbooked = data.getProperty(header+".notbooked");
+        final String notbooked = msgstatus.getValue(header+".notbooked");
         if (notbooked != null)
         {
             try
@@ -0,0 +1,244 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+
+package org.kapott.hbci.GV;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.kapott.hbci.exceptions.HBCI_Exception;
+import org.kapott.hbci.manager.HBCIHandler;
+
+/**
+ * Verzeichnis der Highlevel-Jobs von <em>HBCI4Java</em>.
+ * <p>Die mitgelieferten Jobs sind fest mit ihren Konstruktoren registriert, so dass
+ * beim Erzeugen eines Jobs per {@link HBCIHandler#newJob(String)} keine Reflection
+ * noetig ist (z.Bsp. fuer GraalVM native-image). Jobs, die nicht registriert sind,
+ * werden wie bisher als Klasse <code>org.kapott.hbci.GV.GV&lt;jobname&gt;</code>
+ * gesucht und anschliessend ebenfalls im Verzeichnis abgelegt.</p>
+ */
+public final class GVRegistry
+{
+    private final static ConcurrentMap<String,Entry> jobs = new ConcurrentHashMap<String,Entry>();
+
+    static
+    {
+        register("AccInfo",GVAccInfo::new,GVAccInfo::getLowlevelName);
+        register("CardList",GVCardList::new,GVCardList::getLowlevelName);
+        register("ChangePIN",GVChangePIN::new,GVChangePIN::getLowlevelName);
+        register("CustomMsg",GVCustomMsg::new,GVCustomMsg::getLowlevelName);
+        register("DauerDel",GVDauerDel::new,GVDauerDel::getLowlevelName);
+        register("DauerEdit",GVDauerEdit::new,GVDauerEdit::getLowlevelName);
+        register("DauerLastSEPAList",GVDauerLastSEPAList::new,GVDauerLastSEPAList::getLowlevelName);
+        register("DauerLastSEPANew",GVDauerLastSEPANew::new,GVDauerLastSEPANew::getLowlevelName);
+        register("DauerList",GVDauerList::new,GVDauerList::getLowlevelName);
+        register("DauerNew",GVDauerNew::new,GVDauerNew::getLowlevelName);
+        register("DauerSEPADel",GVDauerSEPADel::new,GVDauerSEPADel::getLowlevelName);
+        register("DauerSEPAEdit",GVDauerSEPAEdit::new,GVDauerSEPAEdit::getLowlevelName);
+        register("DauerSEPAList",GVDauerSEPAList::new,GVDauerSEPAList::getLowlevelName);
+        register("DauerSEPANew",GVDauerSEPANew::new,GVDauerSEPANew::getLowlevelName);
+        register("Donation",GVDonation::new,GVDonation::getLowlevelName);
+        register("FestCondList",GVFestCondList::new,GVFestCondList::getLowlevelName);
+        register("FestList",GVFestList::new,GVFestList::getLowlevelName);
+        register("FestListAll",GVFestListAll::new,GVFestListAll::getLowlevelName);
+        register("InfoList",GVInfoList::new,GVInfoList::getLowlevelName);
+        register("InfoOrder",GVInfoOrder::new,GVInfoOrder::getLowlevelName);
+        register("InstUebSEPA",GVInstUebSEPA::new,GVInstUebSEPA::getLowlevelName);
+        register("KUmsAll",GVKUmsAll::new,GVKUmsAll::getLowlevelName);
+        register("KUmsAllCamt",GVKUmsAllCamt::new,GVKUmsAllCamt::getLowlevelName);
+        register("KUmsNew",GVKUmsNew::new,GVKUmsNew::getLowlevelName);
+        register("KUmsZeitSEPA",GVKUmsZeitSEPA::new,GVKUmsZeitSEPA::getLowlevelName);
+        register("Kontoauszug",GVKontoauszug::new,GVKontoauszug::getLowlevelName);
+        register("KontoauszugPdf",GVKontoauszugPdf::new,GVKontoauszugPdf::getLowlevelName);
+        register("Last",GVLast::new,GVLast::getLowlevelName);
+        register("LastB2BSEPA",GVLastB2BSEPA::new,GVLastB2BSEPA::getLowlevelName);
+        register("LastCOR1SEPA",GVLastCOR1SEPA::new,GVLastCOR1SEPA::getLowlevelName);
+        register("LastSEPA",GVLastSEPA::new,GVLastSEPA::getLowlevelName);
+        register("MultiLast",GVMultiLast::new,GVMultiLast::getLowlevelName);
+        register("MultiLastB2BSEPA",GVMultiLastB2BSEPA::new,GVMultiLastB2BSEPA::getLowlevelName);
+        register("MultiLastCOR1SEPA",GVMultiLastCOR1SEPA::new,GVMultiLastCOR1SEPA::getLowlevelName);
+        register("MultiLastSEPA",GVMultiLastSEPA::new,GVMultiLastSEPA::getLowlevelName);
+        register("MultiUeb",GVMultiUeb::new,GVMultiUeb::getLowlevelName);
+        register("MultiUebSEPA",GVMultiUebSEPA::new,GVMultiUebSEPA::getLowlevelName);
+        register("Receipt",GVReceipt::new,GVReceipt::getLowlevelName);
+        register("SEPAInfo",GVSEPAInfo::new,GVSEPAInfo::getLowlevelName);
+        register("SaldoReq",GVSaldoReq::new,GVSaldoReq::getLowlevelName);
+        register("SaldoReqAll",GVSaldoReqAll::new,GVSaldoReqAll::getLowlevelName);
+        register("Status",GVStatus::new,GVStatus::getLowlevelName);
+        register("StornoLast",GVStornoLast::new,GVStornoLast::getLowlevelName);
+        register("TAN2Step",GVTAN2Step::new,GVTAN2Step::getLowlevelName);
+        register("TANList",GVTANList::new,GVTANList::getLowlevelName);
+        register("TANMediaList",GVTANMediaList::new,GVTANMediaList::getLowlevelName);
+        register("TermMultiUebSEPA",GVTermMultiUebSEPA::new,GVTermMultiUebSEPA::getLowlevelName);
+        register("TermUeb",GVTermUeb::new,GVTermUeb::getLowlevelName);
+        register("TermUebDel",GVTermUebDel::new,GVTermUebDel::getLowlevelName);
+        register("TermUebEdit",GVTermUebEdit::new,GVTermUebEdit::getLowlevelName);
+        register("TermUebList",GVTermUebList::new,GVTermUebList::getLowlevelName);
+        register("TermUebSEPA",GVTermUebSEPA::new,GVTermUebSEPA::getLowlevelName);
+        register("TermUebSEPADel",GVTermUebSEPADel::new,GVTermUebSEPADel::getLowlevelName);
+        register("TermUebSEPAEdit",GVTermUebSEPAEdit::new,GVTermUebSEPAEdit::getLowlevelName);
+        register("TermUebSEPAList",GVTermUebSEPAList::new,GVTermUebSEPAList::getLowlevelName);
+        register("Ueb",GVUeb::new,GVUeb::getLowlevelName);
+        register("UebBZU",GVUebBZU::new,GVUebBZU::getLowlevelName);
+        register("UebEil",GVUebEil::new,GVUebEil::getLowlevelName);
+        register("UebForeign",GVUebForeign::new,GVUebForeign::getLowlevelName);
+        register("UebGar",GVUebGar::new,GVUebGar::getLowlevelName);
+        register("UebSEPA",GVUebSEPA::new,GVUebSEPA::getLowlevelName);
+        register("Umb",GVUmb::new,GVUmb::getLowlevelName);
+        register("UmbSEPA",GVUmbSEPA::new,GVUmbSEPA::getLowlevelName);
+        register("WPDepotList",GVWPDepotList::new,GVWPDepotList::getLowlevelName);
+        register("WPDepotUms",GVWPDepotUms::new,GVWPDepotUms::getLowlevelName);
+    }
+
+    /**
+     * Ein Eintrag im Verzeichnis.
+     */
+    private final static class Entry
+    {
+        private final Function<HBCIHandler,? extends HBCIJobImpl> constructor;
+        private final Supplier<String> lowlevelName;
+
+        /**
+         * ct.
+         * @param constructor der Konstruktor des Jobs.
+         * @param lowlevelName liefert den Lowlevel-Namen des Jobs.
+         */
+        private Entry(Function<HBCIHandler,? extends HBCIJobImpl> constructor, Supplier<String> lowlevelName)
+        {
+            this.constructor = constructor;
+            this.lowlevelName = lowlevelName;
+        }
+    }
+
+    /**
+     * ct.
+     */
+    private GVRegistry()
+    {
+    }
+
+    /**
+     * Registriert einen Job.
+     * @param jobname der Highlevel-Name des Jobs.
+     * @param constructor der Konstruktor des Jobs.
+     * @param lowlevelName liefert den Lowlevel-Namen des Jobs.
+     */
+    private static void register(String jobname, Function<HBCIHandler,? extends HBCIJobImpl> constructor, Supplier<String> lowlevelName)
+    {
+        jobs.put(jobname,new Entry(constructor,lowlevelName));
+    }
+
+    /**
+     * Prueft, ob es einen Job mit diesem Namen gibt.
+     * @param jobname der Highlevel-Name des Jobs.
+     * @return true, wenn es den Job gibt.
+     */
+    public static boolean contains(String jobname)
+    {
+        return get(jobname) != null;
+    }
+
+    /**
+     * Erzeugt einen neuen Job.
+     * @param jobname der Highlevel-Name des Jobs.
+     * @param handler der Handler, fuer den der Job erzeugt wird.
+     * @return der neue Job oder NULL, wenn es keinen Job mit diesem Namen gibt.
+     */
+    public static HBCIJobImpl createJob(String jobname, HBCIHandler handler)
+    {
+        Entry e = get(jobname);
+        return e != null ? e.constructor.apply(handler) : null;
+    }
+
+    /**
+     * Liefert den Lowlevel-Namen des Jobs.
+     * @param jobname der Highlevel-Name des Jobs.
+     * @return der Lowlevel-Name oder NULL, wenn es keinen Job mit diesem Namen gibt.
+     */
+    public static String getLowlevelName(String jobname)
+    {
+        Entry e = get(jobname);
+        return e != null ? e.lowlevelName.get() : null;
+    }
+
+    /**
+     * Liefert die Highlevel-Namen aller bisher bekannten Jobs.
+     * @return sortierte Liste der Highlevel-Namen.
+     */
+    public static Set<String> getJobNames()
+    {
+        return Collections.unmodifiableSet(new TreeSet<String>(jobs.keySet()));
+    }
+
+    /**
+     * Liefert den Eintrag fuer den Job. Nicht registrierte Jobs werden per Reflection gesucht.
+     * @param jobname der Highlevel-Name des Jobs.
+     * @return der Eintrag oder NULL, wenn es keinen Job mit diesem Namen gibt.
+     */
+    private static Entry get(String jobname)
+    {
+        Entry e = jobs.get(jobname);
+        if (e != null)
+            return e;
+
+        final Class<?> cl;
+        try
+        {
+            cl = Class.forName(GVRegistry.class.getPackage().getName() + ".GV" + jobname);
+        }
+        catch (ClassNotFoundException ex)
+        {
+            return null;
+        }
+
+        if (!HBCIJobImpl.class.isAssignableFrom(cl))
+            return null;
+
+        e = new Entry(handler -> {
+            try
+            {
+                return (HBCIJobImpl) cl.getConstructor(HBCIHandler.class).newInstance(handler);
+            }
+            catch (Exception ex)
+            {
+                throw new HBCI_Exception(ex);
+            }
+        },() -> {
+            try
+            {
+                return (String) cl.getMethod("getLowlevelName").invoke(null);
+            }
+            catch (Exception ex)
+            {
+                throw new HBCI_Exception(ex);
+            }
+        });
+
+        Entry existing = jobs.putIfAbsent(jobname,e);
+        return existing != null ? existing : e;
+    }
+}
@@ -27,7 +27,7 @@ import org.kapott.hbci.GV_Result.HBCIJobResultImpl;
 import org.kapott.hbci.manager.HBCIHandler;
 import org.kapott.hbci.manager.HBCIUtils;
 import org.kapott.hbci.manager.HBCIUtilsInternal;
-import org.kapott.hbci.passport.HBCIPassport;
+import org.kapott.hbci.passport.HBCIPassportInternal;
 import org.kapott.hbci.status.HBCIMsgStatus;
 import org.kapott.hbci.tools.StringUtil;
 
@@ -59,7 +59,7 @@ public class GVSEPAInfo
     public void extractResults(HBCIMsgStatus msgstatus,String header,int idx)
     {
         Properties result=msgstatus.getData();
-        HBCIPassport p = getParentHandler().getPassport();
+        HBCIPassportInternal p = (HBCIPassportInternal) getParentHandler().getPassport();
         Properties upd =p.getUPD();
         
         for (int i=0;;i++) {
@@ -113,5 +113,8 @@ public class GVSEPAInfo
         		}
         	}
         }
+        
+        // UPD neu setzen, damit die daraus gecachten Konten verworfen werden
+        p.setUPD(upd);
     }
 }
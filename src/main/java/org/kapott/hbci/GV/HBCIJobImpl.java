@@ -29,6 +29,7 @@ import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -46,12 +47,14 @@ import org.kapott.hbci.manager.HBCIUtils;
 import org.kapott.hbci.manager.HBCIUtilsInternal;
 import org.kapott.hbci.manager.LogFilter;
 import org.kapott.hbci.manager.MsgGen;
+import org.kapott.hbci.passport.BPDIndex;
 import org.kapott.hbci.passport.HBCIPassport;
 import org.kapott.hbci.passport.HBCIPassportInternal;
 import org.kapott.hbci.passport.HBCIPassportList;
 import org.kapott.hbci.protocol.SEG;
 import org.kapott.hbci.protocol.SyntaxElement;
 import org.kapott.hbci.protocol.factory.SEGFactory;
+import org.kapott.hbci.status.HBCIMsgSegment;
 import org.kapott.hbci.status.HBCIMsgStatus;
 import org.kapott.hbci.status.HBCIRetVal;
 import org.kapott.hbci.structures.Konto;
@@ -127,40 +130,9 @@ public abstract class HBCIJobImpl
     /* gibt den segmentcode für diesen job zurück */
     public String getHBCICode()
     {
-        StringBuffer ret=null;
-        
-        // Macht aus z.Bsp. "KUmsZeit5" -> "KUmsZeitPar5.SegHead.code"
-        StringBuffer searchString=new StringBuffer(name);
-        for (int i=searchString.length()-1;i>=0;i--) {
-            if (!(searchString.charAt(i)>='0' && searchString.charAt(i)<='9')) {
-                searchString.insert(i+1,"Par");
-                searchString.append(".SegHead.code");
-                break;
-            }
-        }
-        
-        HBCIPassportInternal passport=getMainPassport();
-        StringBuffer         tempkey=new StringBuffer();
-        
-        // durchsuchen aller param-segmente nach einem job mit dem jobnamen des
-        // aktuellen jobs
-        for (Enumeration i=passport.getBPD().propertyNames();i.hasMoreElements();) {
-            String key=(String)i.nextElement();
-            
-            if (key.indexOf("Params")==0) {
-                tempkey.setLength(0);
-                tempkey.append(key);
-                tempkey.delete(0,tempkey.indexOf(".")+1);
-                
-                if (tempkey.toString().equals(searchString.toString())) {
-                    ret=new StringBuffer(passport.getBPD().getProperty(key));
-                    ret.replace(1,2,"K");
-                    ret.deleteCharAt(ret.length()-1);
-                    break;
-                }
-            }
-        }
-        
+        StringBuffer ret=new StringBuffer(getMainPassport().getBPDIndex().getSegmentCode(this.jobName,Integer.parseInt(this.segVersion)));
+        ret.replace(1,2,"K");
+        ret.deleteCharAt(ret.length()-1);
         return ret.toString();
     }
     
@@ -169,59 +141,33 @@ public abstract class HBCIJobImpl
      */
     private void findSpecNameForGV(String jobnameLL,HBCIHandler handler)
     {
-        int          maxVersion=0;
-        StringBuffer key=new StringBuffer();
+        int maxVersion=0;
         
-        // alle param-segmente durchlaufen
-        Properties bpd = handler.getPassport().getBPD();
-        for (Enumeration i=bpd.propertyNames();i.hasMoreElements();) {
-            String path = (String)i.nextElement();
-            key.setLength(0);
-            key.append(path);
+        // alle von der Bank unterstuetzten Versionen, absteigend sortiert
+        BPDIndex index=((HBCIPassportInternal)handler.getPassport()).getBPDIndex();
+        for (Map.Entry<Integer,String> e:index.getVersions(jobnameLL).entrySet()) {
+            int version=e.getKey().intValue();
             
-            if (key.indexOf("Params")==0) {
-                key.delete(0,key.indexOf(".")+1);
-                // wenn segment mit namen des aktuellen jobs gefunden wurde
-                
-                if (key.indexOf(jobnameLL+"Par")==0 &&
-                    key.toString().endsWith(".SegHead.code")) 
-                {
-                  // willuhn 2011-06-06 Maximal zulaessige Segment-Version ermitteln
-                  // Hintergrund: Es gibt Szenarien, in denen nicht die hoechste verfuegbare
-                  // Versionsnummer verwendet werden kann, weil die Voraussetzungen impliziert,
-                  // die beim User nicht gegeben sind. Mit diesem Parameter kann die maximale
-                  // Version nach oben begrenzt werden. In AbstractPinTanPassport#setBPD() ist
-                  // ein konkretes Beispiel enthalten (Bank macht HITANS5 und damit HHD 1.4, der
-                  // User hat aber nur ein HHD-1.3-tauglichen TAN-Generator)
-                  int maxAllowedVersion = Integer.parseInt(HBCIUtils.getParam("kernel.gv." + bpd.getProperty(path,"default") + ".segversion.max","0"));
-                  
-                  key.delete(0,jobnameLL.length()+("Par").length());
-                    
-                    // extrahieren der versionsnummer aus dem spez-namen
-                    String st=key.substring(0,key.indexOf("."));
-                    int    version=0;
-                    
-                    try {
-                        version=Integer.parseInt(st);
-                    } catch (Exception e) {
-                        HBCIUtils.log("found invalid job version: key="+key+", jobnameLL="+jobnameLL+" (this is a known, but harmless bug)", HBCIUtils.LOG_WARN);
-                    }
-                    
-                    // willuhn 2011-06-06 Segment-Versionen ueberspringen, die groesser als die max. zulaessige sind
-                    if (maxAllowedVersion > 0 && version > maxAllowedVersion)
-                    {
-                      HBCIUtils.log("skipping segment version " + version + " for task " + jobnameLL + ", larger than allowed version " + maxAllowedVersion, HBCIUtils.LOG_DEBUG);
-                      continue;
-                    }
-                    // merken der größten jemals aufgetretenen versionsnummer
-                    if (version!=0) {
-                        HBCIUtils.log("task "+jobnameLL+" is supported with segment version "+st,HBCIUtils.LOG_DEBUG2);
-                        if (version>maxVersion) {
-                            maxVersion=version;
-                        }
-                    }
-                }
+            // willuhn 2011-06-06 Maximal zulaessige Segment-Version ermitteln
+            // Hintergrund: Es gibt Szenarien, in denen nicht die hoechste verfuegbare
+            // Versionsnummer verwendet werden kann, weil die Voraussetzungen impliziert,
+            // die beim User nicht gegeben sind. Mit diesem Parameter kann die maximale
+            // Version nach oben begrenzt werden. In AbstractPinTanPassport#setBPD() ist
+            // ein konkretes Beispiel enthalten (Bank macht HITANS5 und damit HHD 1.4, der
+            // User hat aber nur ein HHD-1.3-tauglichen TAN-Generator)
+            int maxAllowedVersion = HBCIUtils.getConfig().getSegVersionMax(e.getValue());
+            
+            // willuhn 2011-06-06 Segment-Versionen ueberspringen, die groesser als die max. zulaessige sind
+            if (maxAllowedVersion > 0 && version > maxAllowedVersion)
+            {
+              HBCIUtils.log("skipping segment version " + version + " for task " + jobnameLL + ", larger than allowed version " + maxAllowedVersion, HBCIUtils.LOG_DEBUG);
+              continue;
             }
+            
+            // die erste passende ist die groesste
+            HBCIUtils.log("task "+jobnameLL+" is supported with segment version "+version,HBCIUtils.LOG_DEBUG2);
+            maxVersion=version;
+            break;
         }
         
         if (maxVersion==0)
@@ -863,8 +809,7 @@ public abstract class HBCIJobImpl
     */
     public void fillJobResultFromTanJob(HBCIMsgStatus status,String header,int seg)
     {
-        Properties result = status.getData();
-        saveBasicValues(result, seg);
+        saveBasicValues(status, seg);
         saveReturnValues(status, seg);
 
         // wichtig um Parameter wie "content" zu füllen
@@ -884,35 +829,27 @@ public abstract class HBCIJobImpl
             this.haveTan = false;
             this.skip = false;
             this.loopCount++;
-            Properties result=status.getData();
-
             // nachsehen, welche antwortsegmente ueberhaupt
             // zu diesem task gehoeren
             
             // res-num --> segmentheader (wird für sortierung der 
             // antwort-segmente benötigt)
             Hashtable<Integer,String> keyHeaders=new Hashtable<Integer, String>();
-            for (Enumeration i=result.keys();i.hasMoreElements();) {
-                String key=(String)(i.nextElement());
-                if (key.startsWith("GVRes")&&
-                    key.endsWith(".SegHead.ref")) {
-                    
-                    String segref=result.getProperty(key);
-                    if ((Integer.parseInt(segref))-offset==idx) {
-                        // nummer des antwortsegments ermitteln
-                        int resnum=0;
-                        if (key.startsWith("GVRes_")) {
-                            resnum=Integer.parseInt(key.substring(key.indexOf('_')+1,key.indexOf('.')));
-                        }
-                        
-                        keyHeaders.put(
-                            new Integer(resnum),
-                            key.substring(0,key.length()-(".SegHead.ref").length()));
+            for (HBCIMsgSegment seg:status.getSegmentsByRef(idx+offset)) {
+                String header=seg.getPath();
+                if (header.startsWith("GVRes")) {
+                    // nummer des antwortsegments ermitteln
+                    int resnum=0;
+                    if (header.startsWith("GVRes_")) {
+                        int dot=header.indexOf('.');
+                        resnum=Integer.parseInt(header.substring(header.indexOf('_')+1,dot!=-1?dot:header.length()));
                     }
+                    
+                    keyHeaders.put(new Integer(resnum),header);
                 }
             }
             
-            saveBasicValues(result,idx+offset);
+            saveBasicValues(status,idx+offset);
             saveReturnValues(status,idx+offset);
             
             // segment-header-namen der antwortsegmente in der reihenfolge des
@@ -942,16 +879,16 @@ public abstract class HBCIJobImpl
     /* wenn wenigstens ein HBCI-Rückgabewert für den aktuellen GV gefunden wurde,
        so werden im outStore zusätzlich die entsprechenden Dialog-Parameter
        gespeichert (Property @c basic.*) */
-    private void saveBasicValues(Properties result,int ref)
+    private void saveBasicValues(HBCIMsgStatus status,int ref)
     {
         // wenn noch keine basic-daten gespeichert sind
         if (jobResult.getDialogId()==null) {
             // Pfad des originalen MsgHead-Segmentes holen und um "orig_" ergaenzen,
             // um den Key fuer die entsprechenden Daten in das result-Property zu erhalten
-            String msgheadName="orig_"+result.getProperty("1");
+            String msgheadName="orig_"+status.getValue("1");
             
-            jobResult.storeResult("basic.dialogid",result.getProperty(msgheadName+".dialogid"));
-            jobResult.storeResult("basic.msgnum",result.getProperty(msgheadName+".msgnum"));
+            jobResult.storeResult("basic.dialogid",status.getValue(msgheadName+".dialogid"));
+            jobResult.storeResult("basic.msgnum",status.getValue(msgheadName+".msgnum"));
             jobResult.storeResult("basic.segnum",Integer.toString(ref));
 
             HBCIUtils.log("basic values for " + getName() + " set to "
@@ -999,14 +936,11 @@ public abstract class HBCIJobImpl
 
     private void extractPlaintextResults(HBCIMsgStatus status,String header,int idx)
     {
-        Properties result=status.getData();
-        for (Enumeration e=result.keys();e.hasMoreElements();) {
-            String key=(String)(e.nextElement());
-            if (key.startsWith(header+".")) {
-                jobResult.storeResult(HBCIUtilsInternal.withCounter("content",idx)+
-                                      "."+
-                                      key.substring(header.length()+1),result.getProperty(key));
-            }
+        Properties result=status.getData(header+".");
+        for (String key:result.stringPropertyNames()) {
+            jobResult.storeResult(HBCIUtilsInternal.withCounter("content",idx)+
+                                  "."+
+                                  key.substring(header.length()+1),result.getProperty(key));
         }
     }
 
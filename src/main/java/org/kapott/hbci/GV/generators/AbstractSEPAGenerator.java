@@ -1,20 +1,13 @@
 package org.kapott.hbci.GV.generators;
 
-import java.io.File;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.logging.Logger;
 
-import javax.xml.XMLConstants;
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.Marshaller;
-import javax.xml.transform.Source;
-import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
-import javax.xml.validation.SchemaFactory;
 
-import org.kapott.hbci.exceptions.HBCI_Exception;
+import org.kapott.hbci.sepa.SepaJAXBCache;
 import org.kapott.hbci.sepa.SepaVersion;
 
 /**
@@ -40,58 +33,48 @@ public abstract class AbstractSEPAGenerator<T> implements ISEPAGenerator<T>
      */
     protected void marshal(JAXBElement e, OutputStream os, boolean validate) throws Exception
     {
-        JAXBContext jaxbContext = JAXBContext.newInstance(e.getDeclaredType());
-        Marshaller marshaller = jaxbContext.createMarshaller();
-        
-        // Wir verwenden hier hart UTF-8. Siehe http://www.onlinebanking-forum.de/forum/topic.php?p=107420#real107420
-        marshaller.setProperty(Marshaller.JAXB_ENCODING, ENCODING);
+        // JAXB-Context und Schema werden nur einmal je SEPA-Version erzeugt, die
+        // Marshaller wiederverwendet. Siehe SepaJAXBCache
+        SepaJAXBCache cache = SepaJAXBCache.getInstance();
+        Class<?> type = e.getDeclaredType();
+        Marshaller marshaller = cache.borrowMarshaller(type);
 
-        // Siehe https://groups.google.com/d/msg/hbci4java/RYHCai_TzHM/72Bx51B9bXUJ
-        if (System.getProperty("sepa.pain.formatted","false").equalsIgnoreCase("true"))
-            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-
-        SepaVersion version = this.getSepaVersion();
-        if (version != null)
+        try
         {
-            String schemaLocation = version.getSchemaLocation();
-            if (schemaLocation != null)
-            {
-                LOG.fine("appending schemaLocation " + schemaLocation);
-                marshaller.setProperty(Marshaller.JAXB_SCHEMA_LOCATION,schemaLocation);
-            }
+            // Wir verwenden hier hart UTF-8. Siehe http://www.onlinebanking-forum.de/forum/topic.php?p=107420#real107420
+            marshaller.setProperty(Marshaller.JAXB_ENCODING, ENCODING);
 
-            String file = version.getFile();
-            if (file != null)
+            // Siehe https://groups.google.com/d/msg/hbci4java/RYHCai_TzHM/72Bx51B9bXUJ
+            // Der Marshaller kann aus dem Pool kommen, daher auch "false" explizit setzen
+            boolean formatted = System.getProperty("sepa.pain.formatted","false").equalsIgnoreCase("true");
+            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.valueOf(formatted));
+
+            Schema schema = null;
+            SepaVersion version = this.getSepaVersion();
+            if (version != null)
             {
-                if (validate)
+                String schemaLocation = version.getSchemaLocation();
+                if (schemaLocation != null)
                 {
-                    Source source  = null;
-                    InputStream is = this.getClass().getClassLoader().getResourceAsStream(file);
-
-                    if (is != null)
-                    {
-                        source = new StreamSource(is);
-                    }
-                    else
-                    {
-                        // Fallback auf File-Objekt
-                        File f = new File(file);
-                        if (f.isFile() && f.canRead())
-                            source = new StreamSource(f);
-                    }
-
-                    if (source == null)
-                        throw new HBCI_Exception("schema validation activated against " + file + " - but schema file could not be found");
+                    LOG.fine("appending schemaLocation " + schemaLocation);
+                    marshaller.setProperty(Marshaller.JAXB_SCHEMA_LOCATION,schemaLocation);
+                }
 
+                String file = version.getFile();
+                if (file != null && validate)
+                {
                     LOG.fine("activating schema validation against " + file);
-                    SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-                    Schema schema = schemaFactory.newSchema(source);
-                    marshaller.setSchema(schema);
+                    schema = cache.getSchema(file,this.getClass().getClassLoader());
                 }
             }
-        }
+            marshaller.setSchema(schema);
 
-        marshaller.marshal(e, os);
+            marshaller.marshal(e, os);
+        }
+        finally
+        {
+            cache.returnMarshaller(type,marshaller);
+        }
     }
     
     /**
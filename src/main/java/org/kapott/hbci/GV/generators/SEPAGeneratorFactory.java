@@ -1,5 +1,8 @@
 package org.kapott.hbci.GV.generators;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 
 import org.kapott.hbci.GV.AbstractSEPAGV;
@@ -19,6 +22,50 @@ public class SEPAGeneratorFactory
 {
     private final static Logger LOG = Logger.getLogger(SEPAGeneratorFactory.class.getName());
     
+    /**
+     * Die mitgelieferten Generatoren. Diese werden ohne Reflection erzeugt.
+     */
+    private final static Map<String,Supplier<ISEPAGenerator<?>>> generators = new HashMap<String,Supplier<ISEPAGenerator<?>>>();
+    
+    static
+    {
+        register(GenKUmsAllCamt05200107.class,GenKUmsAllCamt05200107::new);
+        register(GenLastSEPA00800101.class,GenLastSEPA00800101::new);
+        register(GenLastSEPA00800102.class,GenLastSEPA00800102::new);
+        register(GenLastSEPA00800108.class,GenLastSEPA00800108::new);
+        register(GenLastSEPA00800110.class,GenLastSEPA00800110::new);
+        register(GenLastSEPA00800201.class,GenLastSEPA00800201::new);
+        register(GenLastSEPA00800202.class,GenLastSEPA00800202::new);
+        register(GenLastSEPA00800302.class,GenLastSEPA00800302::new);
+        register(GenUebSEPA00100102.class,GenUebSEPA00100102::new);
+        register(GenUebSEPA00100103.class,GenUebSEPA00100103::new);
+        register(GenUebSEPA00100109.class,GenUebSEPA00100109::new);
+        register(GenUebSEPA00100111.class,GenUebSEPA00100111::new);
+        register(GenUebSEPA00100202.class,GenUebSEPA00100202::new);
+        register(GenUebSEPA00100203.class,GenUebSEPA00100203::new);
+        register(GenUebSEPA00100303.class,GenUebSEPA00100303::new);
+    }
+    
+    /**
+     * Registriert einen Generator.
+     * @param type die Klasse des Generators.
+     * @param cons der Konstruktor des Generators.
+     */
+    private static void register(Class<? extends ISEPAGenerator<?>> type, Supplier<ISEPAGenerator<?>> cons)
+    {
+        generators.put(type.getName(),cons);
+    }
+    
+    /**
+     * Prueft, ob der Generator mitgeliefert wird.
+     * @param className der Name der Klasse des Generators.
+     * @return true, wenn der Generator mitgeliefert wird.
+     */
+    public static boolean contains(String className)
+    {
+        return generators.containsKey(className);
+    }
+    
 	/**
 	 * Gibt den passenden SEPA Generator für die angegebene PAIN-Version.
 	 * @param job der zu erzeugende Job.
@@ -50,7 +97,11 @@ public class SEPAGeneratorFactory
 
         String className = version.getGeneratorClass(jobname);
         LOG.fine("trying to init SEPA creator: " + className);
-        Class cl = Class.forName(className);
+        Supplier<ISEPAGenerator<?>> cons = generators.get(className);
+        if (cons != null)
+            return cons.get();
+        
+        Class<?> cl = Class.forName(className);
         return (ISEPAGenerator) cl.newInstance();
     }
 	
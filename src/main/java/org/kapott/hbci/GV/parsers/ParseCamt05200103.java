@@ -27,12 +27,11 @@ import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
-import javax.xml.bind.JAXB;
-
 import org.kapott.hbci.GV.SepaUtil;
 import org.kapott.hbci.GV_Result.GVRKUms.BTag;
 import org.kapott.hbci.GV_Result.GVRKUms.UmsLine;
 import org.kapott.hbci.manager.HBCIUtils;
+import org.kapott.hbci.sepa.SepaJAXBCache;
 import org.kapott.hbci.sepa.jaxb.camt_052_001_03.AccountIdentification4Choice;
 import org.kapott.hbci.sepa.jaxb.camt_052_001_03.AccountReport12;
 import org.kapott.hbci.sepa.jaxb.camt_052_001_03.ActiveOrHistoricCurrencyAndAmount;
@@ -74,7 +73,7 @@ public class ParseCamt05200103 extends AbstractCamtParser
     public void parse(InputStream xml, List<BTag> tage)
     {
         
-        Document doc = JAXB.unmarshal(xml, Document.class);
+        Document doc = SepaJAXBCache.getInstance().unmarshal(xml, Document.class);
         BankToCustomerAccountReportV03 container = doc.getBkToCstmrAcctRpt();
 
         // Dokument leer
@@ -0,0 +1,809 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci.GV.parsers;
+
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.kapott.hbci.GV.SepaUtil;
+import org.kapott.hbci.GV_Result.GVRKUms.BTag;
+import org.kapott.hbci.GV_Result.GVRKUms.UmsLine;
+import org.kapott.hbci.exceptions.HBCI_Exception;
+import org.kapott.hbci.manager.HBCIUtils;
+import org.kapott.hbci.sepa.SepaVersion;
+import org.kapott.hbci.sepa.SepaVersion.Type;
+import org.kapott.hbci.structures.Konto;
+import org.kapott.hbci.structures.Saldo;
+import org.kapott.hbci.structures.Value;
+
+/**
+ * Streaming-Parser zum Lesen von Umsaetzen im CAMT.052 Format in den Versionen 001.02 bis 001.09.
+ * Im Gegensatz zu den JAXB-basierten Parsern (ParseCamt052001xx) wird das Dokument nicht komplett
+ * als Objektbaum in den Speicher geladen, sondern per StAX gelesen. Von einer Buchung werden nur die
+ * benoetigten Werte zwischengespeichert, bis die Buchung vollstaendig gelesen ist. Jeder Buchungstag
+ * wird an den Aufrufer uebergeben, sobald der zugehoerige Report gelesen ist.
+ * Die Auswertung entspricht der der JAXB-Parser. Die Unterschiede zwischen den Versionen
+ * (z.B. "BIC" vs. "BICFI" oder der zusaetzliche "Pty"-Knoten bei den Parteien ab 001.07) werden
+ * ueber alternative Pfade abgedeckt.
+ */
+public class ParseCamt052Stax extends AbstractCamtParser
+{
+    private final static XMLInputFactory FACTORY = createFactory();
+
+    // Pfade relativ zu "Ntry"
+    private final static String TX        = "NtryDtls/TxDtls/";
+    private final static String USAGE     = TX + "RmtInf/Ustrd";
+    private final static String REFS      = TX + "Refs/";
+    private final static String RTR_CODE  = TX + "RtrInf/Rsn/Cd";
+    private final static String TX_CODE   = TX + "BkTxCd/Prtry/Cd";
+    private final static String PURPOSE   = TX + "Purp/Cd";
+
+    // Pfade der Gegenpartei - jeweils fuer Soll- und Habenbuchung
+    private final static String[] IBAN        = {TX + "RltdPties/CdtrAcct/Id/IBAN",TX + "RltdPties/DbtrAcct/Id/IBAN"};
+    private final static String[] NAME        = {TX + "RltdPties/Cdtr/Nm",TX + "RltdPties/Dbtr/Nm"};
+    private final static String[] NAME_PTY    = {TX + "RltdPties/Cdtr/Pty/Nm",TX + "RltdPties/Dbtr/Pty/Nm"};
+    private final static String[] CRED_ID     = {TX + "RltdPties/Cdtr/Id/PrvtId/Othr/Id",TX + "RltdPties/Dbtr/Id/PrvtId/Othr/Id"};
+    private final static String[] CRED_ID_PTY = {TX + "RltdPties/Cdtr/Pty/Id/PrvtId/Othr/Id",TX + "RltdPties/Dbtr/Pty/Id/PrvtId/Othr/Id"};
+    private final static String[] NAME2       = {TX + "RltdPties/UltmtCdtr/Nm",TX + "RltdPties/UltmtDbtr/Nm"};
+    private final static String[] NAME2_PTY   = {TX + "RltdPties/UltmtCdtr/Pty/Nm",TX + "RltdPties/UltmtDbtr/Pty/Nm"};
+    private final static String[] BIC         = {TX + "RltdAgts/CdtrAgt/FinInstnId/",TX + "RltdAgts/DbtrAgt/FinInstnId/"};
+
+    private final boolean threePartCode;
+    private final Path root = new Path("");
+    private final Map<String,Date> dates = new HashMap<String,Date>();
+    private DatatypeFactory datatypeFactory;
+
+    /**
+     * Prueft, ob der Streaming-Parser die SEPA-Version unterstuetzt.
+     * @param version die SEPA-Version.
+     * @return true, wenn die Version unterstuetzt wird.
+     */
+    public static boolean supports(SepaVersion version)
+    {
+        return version != null && version.getType() == Type.CAMT_052 && version.compareTo(SepaVersion.CAMT_052_001_02) >= 0;
+    }
+
+    /**
+     * ct.
+     * @param version die SEPA-Version.
+     */
+    public ParseCamt052Stax(SepaVersion version)
+    {
+        // Den 3-teiligen Buchungsschluessel (ohne Prefix) werten die Parser erst ab 001.07 aus
+        this.threePartCode = version.compareTo(SepaVersion.CAMT_052_001_07) >= 0;
+    }
+
+    /**
+     * @see org.kapott.hbci.GV.parsers.ISEPAParser#parse(java.io.InputStream, java.lang.Object)
+     */
+    @Override
+    public void parse(InputStream xml, final List<BTag> tage)
+    {
+        this.parse(xml,new Consumer<BTag>() {
+            public void accept(BTag tag)
+            {
+                tage.add(tag);
+            }
+        });
+    }
+
+    /**
+     * Parst das Dokument und uebergibt jeden Buchungstag an den Consumer, sobald er gelesen ist.
+     * Der Aufrufer muss daher nicht alle Buchungstage gleichzeitig im Speicher halten.
+     * @param xml der Stream mit den XML-Daten.
+     * @param consumer der Empfaenger der Buchungstage.
+     */
+    public void parse(InputStream xml, Consumer<BTag> consumer)
+    {
+        XMLStreamReader reader = null;
+        try
+        {
+            reader = FACTORY.createXMLStreamReader(xml);
+
+            int reports = 0;
+            List<String> path = new ArrayList<String>();
+            while (reader.hasNext())
+            {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT)
+                {
+                    String name = reader.getLocalName();
+                    if (name.equals("Rpt") && path.size() == 2 && path.get(1).equals("BkToCstmrAcctRpt"))
+                    {
+                        consumer.accept(this.parseReport(reader));
+                        reports++;
+                        continue;
+                    }
+                    path.add(name);
+                }
+                else if (event == XMLStreamConstants.END_ELEMENT)
+                {
+                    path.remove(path.size()-1);
+                }
+            }
+
+            if (reports == 0)
+                HBCIUtils.log("camt document empty",HBCIUtils.LOG_WARN);
+        }
+        catch (XMLStreamException e)
+        {
+            throw new HBCI_Exception("unable to parse camt document",e);
+        }
+        finally
+        {
+            if (reader != null)
+            {
+                try
+                {
+                    reader.close();
+                }
+                catch (XMLStreamException e)
+                {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    /**
+     * Liest einen Report - also einen Buchungstag.
+     * Der Reader steht auf dem Start-Element "Rpt" und danach auf dem zugehoerigen End-Element.
+     * @param reader der Reader.
+     * @return der Buchungstag.
+     * @throws XMLStreamException
+     */
+    private BTag parseReport(XMLStreamReader reader) throws XMLStreamException
+    {
+        Map<String,String> header = new HashMap<String,String>();
+        List<Map<String,String>> balances = new ArrayList<Map<String,String>>();
+        BTag tag = null;
+        BigDecimal saldo = null;
+
+        // Werden fuer jede Buchung wiederverwendet
+        Map<String,String> entry = new HashMap<String,String>();
+        List<String> usages = new ArrayList<String>();
+
+        while (true)
+        {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT)
+                break; // Ende von "Rpt"
+
+            if (event != XMLStreamConstants.START_ELEMENT)
+                continue;
+
+            String name = reader.getLocalName();
+            if (name.equals("Bal"))
+            {
+                Map<String,String> bal = new HashMap<String,String>();
+                this.readElement(reader,this.root,bal,null);
+                balances.add(bal);
+            }
+            else if (name.equals("Ntry"))
+            {
+                // Die Salden stehen laut Schema vor den Buchungen
+                if (tag == null)
+                {
+                    tag = this.createDay(header,balances);
+                    saldo = tag.start.value.getBigDecimalValue();
+                }
+
+                entry.clear();
+                usages.clear();
+                boolean hasTx = this.readEntry(reader,entry,usages);
+
+                UmsLine line = this.createLine(entry,usages,hasTx,saldo);
+                if (line != null)
+                {
+                    tag.lines.add(line);
+
+                    // Saldo fortschreiben
+                    saldo = line.saldo.value.getBigDecimalValue();
+                }
+            }
+            else
+            {
+                this.readElement(reader,this.root.child(name),header,null);
+            }
+        }
+
+        if (tag == null)
+            tag = this.createDay(header,balances);
+
+        ////////////////////////////////////////////////////////////////////
+        // Apo-Bank Sonderbehandlung: Wenn wir keinen Start-Saldo, dafuer aber einen End-Saldo haben,
+        // rechnen wir rueckwaerts von dem
+        if (tag.start.timestamp == null && tag.end.timestamp != null)
+        {
+            BigDecimal endSaldo = tag.end.value.getBigDecimalValue();
+            int n = tag.lines.size();
+            while (n > 0)
+            {
+                UmsLine line = tag.lines.get(--n);
+                line.saldo.value.setValue(endSaldo);
+                endSaldo = endSaldo.subtract(line.value.getBigDecimalValue());
+            }
+        }
+        //
+        ////////////////////////////////////////////////////////////////////
+
+        return tag;
+    }
+
+    /**
+     * Liest eine Buchung.
+     * Wie bei den JAXB-Parsern wird nur das erste "NtryDtls" und darin nur das erste "TxDtls" ausgewertet.
+     * @param reader der Reader, positioniert auf dem Start-Element "Ntry".
+     * @param entry Map, in der die Werte unter ihrem Pfad relativ zu "Ntry" gespeichert werden.
+     * @param usages Liste, in der die Verwendungszwecke gespeichert werden.
+     * @return true, wenn die Buchung Transaktionsdetails enthaelt.
+     * @throws XMLStreamException
+     */
+    private boolean readEntry(XMLStreamReader reader, Map<String,String> entry, List<String> usages) throws XMLStreamException
+    {
+        int details = 0;
+        boolean hasTx = false;
+
+        while (true)
+        {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT)
+                break; // Ende von "Ntry"
+
+            if (event != XMLStreamConstants.START_ELEMENT)
+                continue;
+
+            String name = reader.getLocalName();
+            if (!name.equals("NtryDtls"))
+            {
+                this.readElement(reader,this.root.child(name),entry,null);
+                continue;
+            }
+
+            if (details++ > 0)
+            {
+                this.skip(reader);
+                continue;
+            }
+
+            // Erstes "NtryDtls". Darin nur das erste "TxDtls" lesen
+            entry.put("NtryDtls","");
+            while (true)
+            {
+                event = reader.next();
+                if (event == XMLStreamConstants.END_ELEMENT)
+                    break; // Ende von "NtryDtls"
+                if (event != XMLStreamConstants.START_ELEMENT)
+                    continue;
+
+                String child = reader.getLocalName();
+                if (child.equals("TxDtls") && !hasTx)
+                {
+                    hasTx = true;
+                    this.readElement(reader,this.root.child("NtryDtls").child("TxDtls"),entry,usages);
+                }
+                else
+                {
+                    this.skip(reader);
+                }
+            }
+        }
+        return hasTx;
+    }
+
+    /**
+     * Liest das Element, auf dessen Start-Element der Reader steht, inclusive aller Kind-Elemente.
+     * Die Texte aller Blatt-Elemente werden unter ihrem Pfad in der Map gespeichert, sofern dort
+     * noch kein Wert existiert - bei Wiederholungen gewinnt also das erste Vorkommen. Attribute
+     * werden mit "@Name" an den Pfad angehaengt. Die Verwendungszwecke werden stattdessen in der Liste gesammelt.
+     * @param reader der Reader.
+     * @param path der Pfad des Elements.
+     * @param values Map mit den Werten.
+     * @param usages optionale Liste fuer die Verwendungszwecke.
+     * @throws XMLStreamException
+     */
+    private void readElement(XMLStreamReader reader, Path path, Map<String,String> values, List<String> usages) throws XMLStreamException
+    {
+        for (int i=0;i<reader.getAttributeCount();i++)
+        {
+            String key = path.attribute(reader.getAttributeLocalName(i));
+            if (!values.containsKey(key))
+                values.put(key,reader.getAttributeValue(i));
+        }
+
+        String text = null;
+        boolean leaf = true;
+        while (true)
+        {
+            int event = reader.next();
+            switch (event)
+            {
+                case XMLStreamConstants.START_ELEMENT:
+                    leaf = false;
+                    this.readElement(reader,path.child(reader.getLocalName()),values,usages);
+                    break;
+
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    if (leaf)
+                        text = text == null ? reader.getText() : text + reader.getText();
+                    break;
+
+                case XMLStreamConstants.END_ELEMENT:
+                    if (leaf)
+                    {
+                        String value = text != null ? text : "";
+                        if (usages != null && path.path.equals(USAGE))
+                            usages.add(value);
+                        else if (!values.containsKey(path.path))
+                            values.put(path.path,value);
+                    }
+                    return;
+
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Ueberspringt das Element, auf dessen Start-Element der Reader steht.
+     * @param reader der Reader.
+     * @throws XMLStreamException
+     */
+    private void skip(XMLStreamReader reader) throws XMLStreamException
+    {
+        int depth = 1;
+        while (depth > 0)
+        {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT)
+                depth++;
+            else if (event == XMLStreamConstants.END_ELEMENT)
+                depth--;
+        }
+    }
+
+    /**
+     * Erzeugt eine einzelne Umsatzbuchung.
+     * @param entry die Werte der Buchung.
+     * @param usages die Verwendungszwecke.
+     * @param hasTx true, wenn die Buchung Transaktionsdetails hat.
+     * @param currSaldo der aktuelle Saldo vor dieser Buchung.
+     * @return die Umsatzbuchung.
+     */
+    private UmsLine createLine(Map<String,String> entry, List<String> usages, boolean hasTx, BigDecimal currSaldo)
+    {
+        UmsLine line = new UmsLine();
+        line.isSepa = true;
+        line.isCamt = true;
+        line.other = new Konto();
+
+        ////////////////////////////////////////////////////////////////////////
+        // Betrag
+        BigDecimal bd = this.toDecimal(entry.get("Amt"));
+        if (bd == null)
+            bd = BigDecimal.ZERO;
+        String cd = entry.get("CdtDbtInd");
+        line.value = new Value(this.checkDebit(bd,cd));
+        line.value.setCurr(entry.get("Amt@Ccy"));
+        //
+        ////////////////////////////////////////////////////////////////////////
+
+        ////////////////////////////////////////////////////////////////////////
+        // Storno-Kennzeichen
+        // Laut Spezifikation kehrt sich bei Stornobuchungen im Gegensatz zu MT940
+        // nicht das Vorzeichen um. Der Betrag bleibt also gleich
+        line.isStorno = this.toBoolean(entry.get("RvslInd"));
+        //
+        ////////////////////////////////////////////////////////////////////////
+
+        ////////////////////////////////////////////////////////////////////////
+        // Buchungs- und Valuta-Datum
+        line.bdate = this.toDate(entry.get("BookgDt/Dt"));
+        line.valuta = this.toDate(entry.get("ValDt/Dt"));
+
+        // Wenn einer von beiden Werten fehlt, uebernehmen wir dort den jeweils anderen
+        if (line.bdate == null) line.bdate = line.valuta;
+        if (line.valuta == null) line.valuta = line.bdate;
+        //
+        ////////////////////////////////////////////////////////////////////////
+
+        ////////////////////////////////////////////////////////////////////////
+        // Saldo
+        line.saldo = new Saldo();
+        line.saldo.value = new Value(currSaldo.add(line.value.getBigDecimalValue()));
+        line.saldo.value.setCurr(line.value.getCurr());
+        line.saldo.timestamp = line.bdate;
+        //
+        ////////////////////////////////////////////////////////////////////////
+
+        ////////////////////////////////////////////////////////////////////////
+        // Art und Kundenreferenz
+        line.text = trim(entry.get("AddtlNtryInf"));
+        line.customerref = trim(entry.get("AcctSvcrRef"));
+        //
+        ////////////////////////////////////////////////////////////////////////
+
+        if (!entry.containsKey("NtryDtls"))
+        {
+          // Wir packen in dem Fall den Info-Text noch zusätzlich in den Verwendungszweck
+          line.usage.add(trim(entry.get("AddtlNtryInf")));
+          return line;
+        }
+
+        if (!hasTx)
+            return null;
+
+        // Checken, ob es Soll- oder Habenbuchung ist
+        boolean haben = "CRDT".equals(cd);
+
+        // Ist es eine Rueckbuchung?
+        String rsn = entry.get(RTR_CODE);
+        boolean rueckbuchung = rsn != null && rsn.length() > 0;
+        if (rueckbuchung) // Bei Rueckbuchung tauschen wir Creditor und Debitor
+          haben = !haben;
+
+        ////////////////////////////////////////////////////////////////////////
+        // Buchungs-ID
+        if (this.hasChildren(entry,REFS))
+        {
+            line.id = trim(entry.get(REFS + "Prtry/Ref"));
+            // einige Banken verwenden das Account Servicer Reference als eindeutigen Identifier
+            if (line.id == null)
+            {
+                line.id = entry.get("AcctSvcrRef");
+                if (line.id == null)
+                    line.id = entry.get(REFS + "AcctSvcrRef");
+            }
+            line.endToEndId = trim(entry.get(REFS + "EndToEndId"));
+            line.mandateId = trim(entry.get(REFS + "MndtId"));
+        }
+        ////////////////////////////////////////////////////////////////////////
+
+        ////////////////////////////////////////////////////////////////////////
+        // Gegenkonto: IBAN + Name
+        int side = haben ? 1 : 0;
+        line.other.iban = trim(entry.get(IBAN[side]));
+        line.other.name = trim(this.get(entry,NAME[side],NAME_PTY[side]));
+
+        //GläubigerID
+        line.other.creditorid = trim(this.get(entry,CRED_ID[side],CRED_ID_PTY[side]));
+
+        // Abweichender Name, falls vorhanden
+        line.other.name2 = trim(this.get(entry,NAME2[side],NAME2_PTY[side]));
+        //
+        ////////////////////////////////////////////////////////////////////////
+
+        ////////////////////////////////////////////////////////////////////////
+        // Gegenkonto: BIC
+        line.other.bic = trim(this.getBic(entry,BIC[side]));
+        //
+        ////////////////////////////////////////////////////////////////////////
+
+        ////////////////////////////////////////////////////////////////////////
+        // Verwendungszweck
+        if (usages.size() > 0)
+            line.usage.addAll(trim(usages));
+        //
+        ////////////////////////////////////////////////////////////////////////
+
+        ////////////////////////////////////////////////////////////////////////
+        // Primanota, GV-Code und GV-Code-Ergaenzung
+        // Ich weiss nicht, ob das bei allen Banken so codiert ist.
+        // Bei der Sparkasse ist es jedenfalls so.
+        String code = entry.get(TX_CODE);
+        if (code != null && code.contains("+"))
+        {
+            String[] parts = code.split("\\+");
+            if (parts.length == 4)
+            {
+                line.gvcode    = parts[1];
+                line.primanota = parts[2];
+                line.addkey    = parts[3];
+            }
+            else if (parts.length == 3 && this.threePartCode)
+            {
+                line.gvcode    = parts[0];
+                line.primanota = parts[1];
+                line.addkey    = parts[2];
+            }
+        }
+        //
+        ////////////////////////////////////////////////////////////////////////
+
+        ////////////////////////////////////////////////////////////////////////
+        // Purpose-Code
+        line.purposecode = trim(entry.get(PURPOSE));
+        //
+        ////////////////////////////////////////////////////////////////////////
+
+        return line;
+    }
+
+    /**
+     * Erzeugt einen neuen Buchungstag.
+     * @param header die Werte des Reports ausser Salden und Buchungen.
+     * @param balances die Salden.
+     * @return der erzeugte Buchungstag.
+     */
+    private BTag createDay(Map<String,String> header, List<Map<String,String>> balances)
+    {
+        BTag tag = new BTag();
+        tag.starttype = 'F';
+        tag.endtype = 'F';
+
+        // Achtung - die folgenden beiden Werte duerfen nicht NULL sein - auch wenn wir keinen Saldo haben.
+        // Der Aufrufer verlaesst sich darauf. Wuerde dort sonst eine NPE ausloesen
+        tag.start = new Saldo();
+        tag.end = new Saldo();
+
+        ////////////////////////////////////////////////////////////////
+        // Start- un End-Saldo ermitteln
+        final long day = 24 * 60 * 60 * 1000L;
+
+        if (balances.size() > 0)
+        {
+            Map<String,String> firstBal = balances.get(0);
+            String firstCode = firstBal.get("Tp/CdOrPrtry/Cd");
+            if ("PRCD".equalsIgnoreCase(firstCode) || "ITBD".equalsIgnoreCase(firstCode) || "OPBD".equalsIgnoreCase(firstCode))
+            {
+                tag.start.value = new Value(this.checkDebit(this.toDecimal(firstBal.get("Amt")),firstBal.get("CdtDbtInd")));
+                tag.start.value.setCurr(firstBal.get("Amt@Ccy"));
+                if ("PRCD".equalsIgnoreCase(firstCode))
+                {
+                    //  Wir erhoehen noch das Datum um einen Tag, damit aus dem
+                    // Schlusssaldo des Vortages der Startsaldo des aktuellen Tages wird.
+                    tag.start.timestamp = new Date(this.toDate(firstBal.get("Dt/Dt")).getTime() + day);
+                }
+                else
+                {
+                    // bei einem Zwischensaldo ist der Tag derselbe
+                    tag.start.timestamp = new Date(this.toDate(firstBal.get("Dt/Dt")).getTime());
+                }
+            }
+
+            // Zweiter Balance Eintrag ist ein Schlusssaldo oder auch ein Zwischensaldo
+            if (balances.size() > 1)
+            {
+                Map<String,String> secondBal = balances.get(1);
+                String secondCode = secondBal.get("Tp/CdOrPrtry/Cd");
+                if ("CLBD".equalsIgnoreCase(secondCode) || "ITBD".equalsIgnoreCase(secondCode))
+                {
+                    tag.end.value = new Value(this.checkDebit(this.toDecimal(secondBal.get("Amt")),secondBal.get("CdtDbtInd")));
+                    tag.end.value.setCurr(secondBal.get("Amt@Ccy"));
+                    tag.end.timestamp = this.toDate(secondBal.get("Dt/Dt"));
+                }
+            }
+        }
+        //
+        ////////////////////////////////////////////////////////////////
+
+        ////////////////////////////////////////////////////////////////
+        // Das eigene Konto ermitteln
+        tag.my = new Konto();
+        tag.my.iban = trim(header.get("Acct/Id/IBAN"));
+        tag.my.curr = trim(header.get("Acct/Ccy"));
+        if (this.hasChildren(header,"Acct/Svcr/FinInstnId/"))
+            tag.my.bic = trim(this.getBic(header,"Acct/Svcr/FinInstnId/"));
+        ////////////////////////////////////////////////////////////////
+
+        return tag;
+    }
+
+    /**
+     * Liefert einen Wert einer Partei. Ab Version 001.07 steht zwischen der Partei und
+     * ihren Werten noch ein "Pty"-Element.
+     * @param values die Werte.
+     * @param path Pfad des Wertes bis Version 001.06.
+     * @param ptyPath Pfad des Wertes ab Version 001.07.
+     * @return der Wert oder NULL.
+     */
+    private String get(Map<String,String> values, String path, String ptyPath)
+    {
+        String s = values.get(path);
+        return s != null ? s : values.get(ptyPath);
+    }
+
+    /**
+     * Liefert die BIC eines Instituts. Bis Version 001.02 heisst das Element "BIC", danach "BICFI".
+     * @param values die Werte.
+     * @param path Pfad von "FinInstnId" incl. abschliessendem "/".
+     * @return die BIC oder NULL.
+     */
+    private String getBic(Map<String,String> values, String path)
+    {
+        String s = values.get(path + "BICFI");
+        return s != null ? s : values.get(path + "BIC");
+    }
+
+    /**
+     * Prueft, ob es unterhalb des Pfades Werte gibt.
+     * @param values die Werte.
+     * @param prefix der Pfad incl. abschliessendem "/".
+     * @return true, wenn es Werte unterhalb des Pfades gibt.
+     */
+    private boolean hasChildren(Map<String,String> values, String prefix)
+    {
+        for (String key:values.keySet())
+        {
+            if (key.startsWith(prefix))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Prueft, ob es sich um einen Soll-Betrag handelt und setzt in dem Fall ein negatives Vorzeichen vor den Wert.
+     * @param d die zu pruefende Zahl.
+     * @param code das Soll-/Haben-Kennzeichen.
+     * @return der ggf korrigierte Betrag.
+     */
+    private BigDecimal checkDebit(BigDecimal d, String code)
+    {
+        if (d == null || code == null || code.trim().equals("CRDT"))
+            return d;
+
+        return BigDecimal.ZERO.subtract(d);
+    }
+
+    /**
+     * Parst einen Betrag.
+     * @param s der Text.
+     * @return der Betrag oder NULL.
+     */
+    private BigDecimal toDecimal(String s)
+    {
+        if (s == null)
+            return null;
+        s = s.trim();
+        return s.length() > 0 ? new BigDecimal(s) : null;
+    }
+
+    /**
+     * Parst ein Boolean.
+     * @param s der Text.
+     * @return der Wert.
+     */
+    private boolean toBoolean(String s)
+    {
+        if (s == null)
+            return false;
+        s = s.trim();
+        return s.equals("true") || s.equals("1");
+    }
+
+    /**
+     * Parst ein Datum im Format von xs:date.
+     * @param s der Text.
+     * @return das Datum oder NULL.
+     */
+    private Date toDate(String s)
+    {
+        if (s == null || s.trim().length() == 0)
+            return null;
+
+        // In einem Report wiederholen sich die Daten staendig
+        Date d = this.dates.get(s);
+        if (d != null)
+            return new Date(d.getTime());
+
+        try
+        {
+            if (this.datatypeFactory == null)
+                this.datatypeFactory = DatatypeFactory.newInstance();
+            d = SepaUtil.toDate(this.datatypeFactory.newXMLGregorianCalendar(s.trim()));
+            this.dates.put(s,d);
+            return new Date(d.getTime());
+        }
+        catch (Exception e)
+        {
+            throw new HBCI_Exception("invalid date: " + s,e);
+        }
+    }
+
+    /**
+     * Pfad eines Elements relativ zu "Rpt", "Bal" oder "Ntry".
+     * Die Pfade werden je Parser einmal erzeugt und danach nur noch nachgeschlagen,
+     * damit nicht fuer jedes gelesene Element ein neuer String entsteht.
+     */
+    private final static class Path
+    {
+        private final String path;
+        private Map<String,Path> children;
+        private Map<String,String> attributes;
+
+        /**
+         * ct.
+         * @param path der Pfad.
+         */
+        private Path(String path)
+        {
+            this.path = path;
+        }
+
+        /**
+         * Liefert den Pfad des Kind-Elements.
+         * @param name Name des Kind-Elements.
+         * @return der Pfad.
+         */
+        private Path child(String name)
+        {
+            if (this.children == null)
+                this.children = new HashMap<String,Path>();
+
+            Path p = this.children.get(name);
+            if (p == null)
+            {
+                p = new Path(this.path.length() == 0 ? name : this.path + "/" + name);
+                this.children.put(name,p);
+            }
+            return p;
+        }
+
+        /**
+         * Liefert den Pfad des Attributes.
+         * @param name Name des Attributes.
+         * @return der Pfad.
+         */
+        private String attribute(String name)
+        {
+            if (this.attributes == null)
+                this.attributes = new HashMap<String,String>();
+
+            String s = this.attributes.get(name);
+            if (s == null)
+            {
+                s = this.path + "@" + name;
+                this.attributes.put(name,s);
+            }
+            return s;
+        }
+    }
+
+    /**
+     * Erzeugt die Factory fuer die StAX-Reader.
+     * @return die Factory.
+     */
+    private static XMLInputFactory createFactory()
+    {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE,Boolean.TRUE);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD,Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES,Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_COALESCING,Boolean.TRUE);
+        return factory;
+    }
+}
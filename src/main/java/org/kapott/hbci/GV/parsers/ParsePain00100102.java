@@ -4,10 +4,10 @@ import java.io.InputStream;
 import java.util.List;
 import java.util.Properties;
 
-import javax.xml.bind.JAXB;
 import javax.xml.datatype.XMLGregorianCalendar;
 
 import org.kapott.hbci.GV.SepaUtil;
+import org.kapott.hbci.sepa.SepaJAXBCache;
 import org.kapott.hbci.sepa.jaxb.pain_001_001_02.CreditTransferTransactionInformation2;
 import org.kapott.hbci.sepa.jaxb.pain_001_001_02.Document;
 import org.kapott.hbci.sepa.jaxb.pain_001_001_02.EuroMax9Amount;
@@ -26,7 +26,7 @@ public class ParsePain00100102 extends AbstractSepaParser<List<Properties>>
      */
     public  void parse(InputStream xml, List<Properties> sepaResults)
     {
-        Document doc = JAXB.unmarshal(xml, Document.class);
+        Document doc = SepaJAXBCache.getInstance().unmarshal(xml, Document.class);
         Pain00100102 pain = doc.getPain00100102();
         
         if (pain == null)
@@ -4,10 +4,10 @@ import java.io.InputStream;
 import java.util.List;
 import java.util.Properties;
 
-import javax.xml.bind.JAXB;
 import javax.xml.datatype.XMLGregorianCalendar;
 
 import org.kapott.hbci.GV.SepaUtil;
+import org.kapott.hbci.sepa.SepaJAXBCache;
 import org.kapott.hbci.sepa.jaxb.pain_001_001_11.ActiveOrHistoricCurrencyAndAmount;
 import org.kapott.hbci.sepa.jaxb.pain_001_001_11.CreditTransferTransaction54;
 import org.kapott.hbci.sepa.jaxb.pain_001_001_11.CustomerCreditTransferInitiationV11;
@@ -29,7 +29,7 @@ public class ParsePain00100111 extends AbstractSepaParser<List<Properties>>
      */
     public void parse(InputStream xml, List<Properties> sepaResults)
     {
-        Document doc = JAXB.unmarshal(xml, Document.class);
+        Document doc = SepaJAXBCache.getInstance().unmarshal(xml, Document.class);
         CustomerCreditTransferInitiationV11 pain = doc.getCstmrCdtTrfInitn();
         
         if (pain == null)
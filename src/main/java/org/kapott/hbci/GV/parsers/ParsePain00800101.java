@@ -4,10 +4,10 @@ import java.io.InputStream;
 import java.util.List;
 import java.util.Properties;
 
-import javax.xml.bind.JAXB;
 import javax.xml.datatype.XMLGregorianCalendar;
 
 import org.kapott.hbci.GV.SepaUtil;
+import org.kapott.hbci.sepa.SepaJAXBCache;
 import org.kapott.hbci.sepa.jaxb.pain_008_001_01.DirectDebitTransactionInformation2;
 import org.kapott.hbci.sepa.jaxb.pain_008_001_01.Document;
 import org.kapott.hbci.sepa.jaxb.pain_008_001_01.EuroMax9Amount;
@@ -25,7 +25,7 @@ public class ParsePain00800101 extends AbstractSepaParser<List<Properties>>
      */
     public void parse(InputStream xml, List<Properties> sepaResults)
     {
-        Document doc = JAXB.unmarshal(xml, Document.class);
+        Document doc = SepaJAXBCache.getInstance().unmarshal(xml, Document.class);
         Pain00800101 pain = doc.getPain00800101();
         
         if (pain == null)
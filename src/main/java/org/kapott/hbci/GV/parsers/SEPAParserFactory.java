@@ -1,5 +1,10 @@
 package org.kapott.hbci.GV.parsers;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Supplier;
+
 import org.kapott.hbci.exceptions.HBCI_Exception;
 import org.kapott.hbci.manager.HBCIUtils;
 import org.kapott.hbci.manager.HBCIUtilsInternal;
@@ -10,6 +15,58 @@ import org.kapott.hbci.sepa.SepaVersion;
  */
 public class SEPAParserFactory
 {
+    /**
+     * Die mitgelieferten Parser. Diese werden ohne Reflection erzeugt.
+     */
+    private final static Map<String,Supplier<ISEPAParser<?>>> parsers = new HashMap<String,Supplier<ISEPAParser<?>>>();
+    
+    static
+    {
+        register(ParseCamt05200101.class,ParseCamt05200101::new);
+        register(ParseCamt05200102.class,ParseCamt05200102::new);
+        register(ParseCamt05200103.class,ParseCamt05200103::new);
+        register(ParseCamt05200104.class,ParseCamt05200104::new);
+        register(ParseCamt05200105.class,ParseCamt05200105::new);
+        register(ParseCamt05200106.class,ParseCamt05200106::new);
+        register(ParseCamt05200107.class,ParseCamt05200107::new);
+        register(ParseCamt05200108.class,ParseCamt05200108::new);
+        register(ParseCamt05200109.class,ParseCamt05200109::new);
+        register(ParsePain00100102.class,ParsePain00100102::new);
+        register(ParsePain00100103.class,ParsePain00100103::new);
+        register(ParsePain00100109.class,ParsePain00100109::new);
+        register(ParsePain00100111.class,ParsePain00100111::new);
+        register(ParsePain00100202.class,ParsePain00100202::new);
+        register(ParsePain00100203.class,ParsePain00100203::new);
+        register(ParsePain00100303.class,ParsePain00100303::new);
+        register(ParsePain00800101.class,ParsePain00800101::new);
+        register(ParsePain00800102.class,ParsePain00800102::new);
+        register(ParsePain00800108.class,ParsePain00800108::new);
+        register(ParsePain00800110.class,ParsePain00800110::new);
+        register(ParsePain00800201.class,ParsePain00800201::new);
+        register(ParsePain00800202.class,ParsePain00800202::new);
+        register(ParsePain00800302.class,ParsePain00800302::new);
+    }
+    
+    /**
+     * Registriert einen Parser.
+     * @param type die Klasse des Parsers.
+     * @param cons der Konstruktor des Parsers.
+     */
+    private static void register(Class<? extends ISEPAParser<?>> type, Supplier<ISEPAParser<?>> cons)
+    {
+        parsers.put(type.getName(),cons);
+    }
+    
+    /**
+     * Prueft, ob der Parser mitgeliefert wird.
+     * @param className der Name der Klasse des Parsers.
+     * @return true, wenn der Parser mitgeliefert wird.
+     */
+    public static boolean contains(String className)
+    {
+        return parsers.containsKey(className);
+    }
+    
     /**
      * Gibt den passenden SEPA Parser für die angegebene PAIN-Version.
      * @param version die PAIN-Version.
@@ -17,14 +74,29 @@ public class SEPAParserFactory
      */
     public static ISEPAParser get(SepaVersion version)
     {
-        ISEPAParser parser = null;
+        ISEPAParser<?> parser = null;
         
+        // CAMT.052 lesen wir per Default per StAX, statt das ganze Dokument per JAXB in den Speicher zu laden
+        if (ParseCamt052Stax.supports(version) && useStax())
+        {
+            HBCIUtils.log("using streaming parser for " + version,HBCIUtils.LOG_DEBUG);
+            return new ParseCamt052Stax(version);
+        }
+
         String className = version.getParserClass();
         try
         {
             HBCIUtils.log("trying to init SEPA parser: " + className,HBCIUtils.LOG_DEBUG);
-            Class cl = Class.forName(className);
-            parser = (ISEPAParser) cl.newInstance();
+            Supplier<ISEPAParser<?>> cons = parsers.get(className);
+            if (cons != null)
+            {
+                parser = cons.get();
+            }
+            else
+            {
+                Class<?> cl = Class.forName(className);
+                parser = (ISEPAParser) cl.newInstance();
+            }
         }
         catch (Exception e)
         {
@@ -34,4 +106,15 @@ public class SEPAParserFactory
         }
         return parser;
     }
+    
+    /**
+     * Prueft, ob fuer CAMT-Dokumente der Streaming-Parser verwendet werden soll.
+     * @return true, wenn der Streaming-Parser verwendet werden soll.
+     */
+    private static boolean useStax()
+    {
+        // Die Parser werden auch ohne initialisiertes HBCI-System verwendet
+        Properties params = HBCIUtils.getParams();
+        return params == null || !"0".equals(params.getProperty("sepa.parser.stax","1"));
+    }
 }
@@ -26,7 +26,7 @@ import java.util.Hashtable;
 import java.util.Properties;
 
 import org.kapott.hbci.manager.HBCIUtils;
-import org.kapott.hbci.manager.ThreadSyncer;
+import org.kapott.hbci.manager.HBCIExecution;
 import org.kapott.hbci.passport.HBCIPassport;
 import org.kapott.hbci.passport.HBCIPassportInternal;
 
@@ -37,7 +37,8 @@ import org.kapott.hbci.passport.HBCIPassportInternal;
  * Callbacks wie gewohnt von dem "normalen" Callback-Objekt behandelt werden.
  * Bei synchron zu behandelnden Callbacks sorgt diese Callback-Implementierung
  * dafür, dass {@link org.kapott.hbci.manager.HBCIHandler#executeThreaded() hbci.executeThreaded()}
- * terminiert.</p>
+ * terminiert bzw. die von {@link org.kapott.hbci.manager.HBCIHandler#executeAsync(java.util.concurrent.Executor) hbci.executeAsync()}
+ * gelieferte Future abgeschlossen wird.</p>
  * <p>Mehr Informationen sind in der Datei <code>README.ThreadedCallbacks</code>
  * sowie unter {@link HBCICallback#useThreadedCallback(HBCIPassport, int, String, int, StringBuffer)}
  * zu finden.</p> */
@@ -74,9 +75,9 @@ public final class HBCICallbackThreaded
     {
         HBCIUtils.log("hbci thread: threaded callback received", HBCIUtils.LOG_DEBUG);
         
-        ThreadSyncer sync_main=(ThreadSyncer)((HBCIPassportInternal)passport).getPersistentData("thread_syncer_main");
+        HBCIExecution execution=(HBCIExecution)((HBCIPassportInternal)passport).getPersistentData(HBCIExecution.KEY);
         
-        if (sync_main==null) {
+        if (execution==null) {
             // das kommt dann vor, wenn der callback nicht von execute() aus 
             // erzeugt wurde, sondern z.B. via "new HBCIHandler()"
             // der threading-mechanismus ist im moment *nur* für hbci.execute()
@@ -94,34 +95,20 @@ public final class HBCICallbackThreaded
                 Hashtable<String, Object> callbackData=new Hashtable<String, Object>();
                 callbackData.put("method","callback");
                 callbackData.put("passport",passport);
-                callbackData.put("reason",new Integer(reason));
+                callbackData.put("reason",Integer.valueOf(reason));
                 callbackData.put("msg",msg);
-                callbackData.put("dataType",new Integer(datatype));
+                callbackData.put("dataType",Integer.valueOf(datatype));
                 callbackData.put("retData",retData);
                 
-                sync_main.setData("callbackData",callbackData);
-                sync_main.setData("execStatus",null);
-                
-                // damit wird der main-thread wieder angestoßen, um 
-                // hbci.executeThreaded() oder hbci.continueThreaded() zu beenden,
-                // damit die applikation die callback-daten später via 
-                // hbci.continueThreaded() übergeben kann
-                HBCIUtils.log("hbci thread: callback: awaking main thread with callbackData",HBCIUtils.LOG_DEBUG);
-                sync_main.stopWaiting();
-                
-                // neues sync-objekt für das empfangen von callback-antworten erzeugen
-                ThreadSyncer sync_hbci=new ThreadSyncer("sync_hbci");
-                ((HBCIPassportInternal)passport).setPersistentData("thread_syncer_hbci",sync_hbci);
-                
-                // im normalfall dient dieses wait() dazu, auf die callback-daten von
-                // der anwendung zu warten (via hbci.continueThreaded())
-                HBCIUtils.log("hbci thread: callback: waiting for callback response from main thread;",HBCIUtils.LOG_DEBUG);
-                sync_hbci.startWaiting(Integer.parseInt(HBCIUtils.getParam("kernel.threaded.maxwaittime","300")), "no callback data received from main thread - timeout");
-                HBCIUtils.log("hbci thread: callback: got response from main thread - returning callback answer to kernel",HBCIUtils.LOG_DEBUG);
+                // damit wird der aktuelle schritt von hbci.executeAsync() bzw.
+                // hbci.continueAsync() beendet, damit die applikation die
+                // callback-daten später via hbci.continueAsync() übergeben kann.
+                // bis dahin wartet dieser thread auf die antwort
+                String retValue=execution.callback(callbackData);
+                HBCIUtils.log("hbci thread: callback: got response from application - returning callback answer to kernel",HBCIUtils.LOG_DEBUG);
                 
                 if (retData!=null) {
                     retData.setLength(0);
-                    String retValue=(String)sync_hbci.getData("retData");
                     if (retValue!=null) {
                         retData.append(retValue);
                     }
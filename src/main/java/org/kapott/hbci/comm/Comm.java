@@ -22,8 +22,10 @@
 package org.kapott.hbci.comm;
 
 import java.lang.reflect.Constructor;
-import java.util.ArrayList;
-import java.util.StringTokenizer;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
 
 import org.kapott.hbci.callback.HBCICallback;
 import org.kapott.hbci.exceptions.CanNotParseMessageException;
@@ -31,12 +33,15 @@ import org.kapott.hbci.exceptions.HBCI_Exception;
 import org.kapott.hbci.exceptions.ParseErrorException;
 import org.kapott.hbci.manager.HBCIUtils;
 import org.kapott.hbci.manager.HBCIUtilsInternal;
-import org.kapott.hbci.manager.IHandlerData;
 import org.kapott.hbci.manager.MsgGen;
 import org.kapott.hbci.passport.HBCIPassportInternal;
 import org.kapott.hbci.protocol.MSG;
+import org.kapott.hbci.protocol.MsgBuffer;
 import org.kapott.hbci.protocol.factory.MSGFactory;
-import org.kapott.hbci.rewrite.Rewrite;
+import org.kapott.hbci.protocol.syntax.SyntaxDef;
+import org.kapott.hbci.protocol.syntax.SyntaxRef;
+import org.kapott.hbci.rewrite.RewriteContext;
+import org.kapott.hbci.rewrite.RewriterChain;
 
 public abstract class Comm
 {
@@ -45,8 +50,21 @@ public abstract class Comm
      */
     public final static String ENCODING = "ISO-8859-1";
     
+    /**
+     * Die mitgelieferten Implementierungen. Diese werden ohne Reflection erzeugt.
+     */
+    private final static Map<String,Function<HBCIPassportInternal,Comm>> comms=new HashMap<String,Function<HBCIPassportInternal,Comm>>();
+    
+    static
+    {
+        comms.put("Standard",CommStandard::new);
+        comms.put("PinTan",CommPinTan::new);
+        comms.put("PinTanAsync",CommPinTanAsync::new);
+    }
+    
     protected Filter               filter;
     private   HBCIPassportInternal parentPassport;
+    private   final MsgBuffer      sendBuffer=new MsgBuffer(4096);
     
     protected abstract void ping(MSG msg);
     protected abstract StringBuffer pong(MsgGen gen);
@@ -61,60 +79,51 @@ public abstract class Comm
                 HBCIUtilsInternal.getLocMsg("CALLB_NEED_CONN"),HBCICallback.TYPE_NONE,new StringBuffer());
     }
 
-    public MSG pingpong(String msgName, MSG msg)
+    public MSG pingpong(RewriteContext ctx, MSG msg)
     {
-        IHandlerData handler=getParentPassport().getParentHandlerData();
-        MsgGen       gen=handler.getMsgGen();
+        String msgName=ctx.getMsgName();
+        MsgGen gen=ctx.getMsgGen();
         
         // ausgehende nachricht versenden
         HBCIUtilsInternal.getCallback().status(getParentPassport(),HBCICallback.STATUS_MSG_SEND,null);
-        HBCIUtilsInternal.getCallback().status(getParentPassport(),HBCICallback.STATUS_MSG_RAW_SEND,msg.toString(0));
+        sendBuffer.clear();
+        msg.appendTo(sendBuffer);
+        HBCIUtilsInternal.getCallback().status(getParentPassport(),HBCICallback.STATUS_MSG_RAW_SEND,sendBuffer.toString());
         ping(msg);
 
         // nachricht empfangen
         HBCIUtilsInternal.getCallback().status(getParentPassport(),HBCICallback.STATUS_MSG_RECV,null);
-        String st = pong(gen).toString();
+        String st = receive(gen);
         HBCIUtilsInternal.getCallback().status(getParentPassport(),HBCICallback.STATUS_MSG_RAW_RECV_ENCRYPTED,st);
 
-        HBCIUtils.log("received message: "+st,HBCIUtils.LOG_DEBUG2);
+        if (HBCIUtils.isLogEnabled(HBCIUtils.LOG_DEBUG2))
+            HBCIUtils.log("received message: "+st,HBCIUtils.LOG_DEBUG2);
         MSG retmsg=null;
 
         try {
-            // erzeugen der liste aller rewriter
-            String rewriters_st=HBCIUtils.getParam("kernel.rewriter");
-            ArrayList<Rewrite> al=new ArrayList<Rewrite>();
-            StringTokenizer tok=new StringTokenizer(rewriters_st,",");
-            while (tok.hasMoreTokens()) {
-                String rewriterName=tok.nextToken().trim();
-                if (rewriterName.length()!=0) {
-                    Class cl=this.getClass().getClassLoader().loadClass("org.kapott.hbci.rewrite.R"+
-                                                                        rewriterName);
-                    Constructor con=cl.getConstructor((Class[])null);
-                    Rewrite rewriter=(Rewrite)(con.newInstance((Object[])null));
-                    al.add(rewriter);
-                }
-            }
-            Rewrite[] rewriters= al.toArray(new Rewrite[al.size()]);
-    
             // alle rewriter für verschlüsselte nachricht durchlaufen
-            for (int i=0;i<rewriters.length;i++) {
-                st=rewriters[i].incomingCrypted(st,gen);
+            RewriterChain rewriters=RewriterChain.getInstance();
+            st=rewriters.incomingCrypted(st,ctx);
+            
+            // versuche, nachricht als verschlüsselte nachricht zu parsen - aber nur,
+            // wenn das zweite segment ueberhaupt ein verschluesselungskopf ist
+            if (isCrypted(st,gen)) {
+                HBCIUtilsInternal.getCallback().status(getParentPassport(),HBCICallback.STATUS_MSG_PARSE,"CryptedRes");
+                try {
+                    HBCIUtils.log("trying to parse message as crypted message",HBCIUtils.LOG_DEBUG);
+                    retmsg = MSGFactory.getInstance().createMSG("CryptedRes",st,st.length(),gen,MSG.DONT_CHECK_SEQ);
+                } catch (ParseErrorException e) {
+                    // wenn das schiefgeht, dann doch als unverschluesselte nachricht
+                    HBCIUtils.log("message seems not to be encrypted",HBCIUtils.LOG_DEBUG);
+                }
             }
             
-            // versuche, nachricht als verschlüsselte nachricht zu parsen
-            HBCIUtilsInternal.getCallback().status(getParentPassport(),HBCICallback.STATUS_MSG_PARSE,"CryptedRes");
-            try {
-                HBCIUtils.log("trying to parse message as crypted message",HBCIUtils.LOG_DEBUG);
-                retmsg = MSGFactory.getInstance().createMSG("CryptedRes",st,st.length(),gen,MSG.DONT_CHECK_SEQ);
-            } catch (ParseErrorException e) {
-                // wenn das schiefgeht...
-                HBCIUtils.log("message seems not to be encrypted; tring to parse it as "+msgName+"Res message",HBCIUtils.LOG_DEBUG);
+            if (retmsg==null) {
+                HBCIUtils.log("trying to parse message as "+msgName+"Res message",HBCIUtils.LOG_DEBUG);
 
                 // alle rewriter durchlaufen, um nachricht evtl. als unverschlüsselte msg zu parsen
                 gen.set("_origSignedMsg",st);
-                for (int i=0;i<rewriters.length;i++) {
-                    st=rewriters[i].incomingClearText(st,gen);
-                }
+                st=rewriters.incomingClearText(st,ctx);
                 
                 // versuch, nachricht als unverschlüsselte msg zu parsen
                 HBCIUtilsInternal.getCallback().status(getParentPassport(),HBCICallback.STATUS_MSG_PARSE,msgName+"Res");
@@ -127,9 +136,74 @@ public abstract class Comm
         return retmsg;
     }
     
+    /**
+     * Liefert die in {@link #pingpong(RewriteContext, MSG)} serialisierte und mit dem Filter
+     * kodierte Nachricht. Implementierungen von {@link #ping(MSG)} koennen die Daten
+     * damit direkt versenden, ohne die Nachricht erneut zu serialisieren.
+     * Der Inhalt ist nur bis zum naechsten Aufruf von pingpong gueltig.
+     * @return die zu sendenden Daten.
+     */
+    protected ByteBuffer getSendData()
+    {
+        return filter.encode(sendBuffer.asByteBuffer());
+    }
+
+    /**
+     * Empfaengt die Antwort und liefert sie dekodiert zurueck.
+     * Die Default-Implementierung verwendet {@link #pong(MsgGen)}. Implementierungen,
+     * die die Antwort als Bytes empfangen, sollten das ueberschreiben, um die
+     * Zwischenkopien im StringBuffer zu vermeiden.
+     * @param gen der Nachrichten-Generator.
+     * @return die empfangene Nachricht.
+     */
+    protected String receive(MsgGen gen)
+    {
+        return pong(gen).toString();
+    }
+
+    /**
+     * Dekodiert die empfangenen Daten mit dem Filter und liefert sie als String.
+     * @param data die empfangenen Daten.
+     * @return die Nachricht.
+     */
+    protected String decode(ByteBuffer data)
+    {
+        return Filter.toString(filter.decode(data));
+    }
+
+    /* prueft, ob das zweite segment der nachricht (direkt nach dem nachrichtenkopf)
+       ein verschluesselungskopf ist. nur dann lohnt der versuch, die nachricht
+       als "CryptedRes" zu parsen */
+    private boolean isCrypted(String st, MsgGen gen)
+    {
+        SyntaxDef msgdef=gen.getSyntax().getDef("CryptedRes");
+        SyntaxRef cryptHead=(msgdef!=null)?msgdef.getRef("CryptHead"):null;
+        String    code=(cryptHead!=null)?cryptHead.getDef().getValue("SegHead.code"):null;
+        if (code==null) {
+            // keine vorab-pruefung moeglich, also wie frueher einfach versuchen
+            return true;
+        }
+        
+        // ende des nachrichtenkopfes suchen - dabei escapte zeichen ueberspringen
+        int len=st.length();
+        for (int i=0;i<len;i++) {
+            char ch=st.charAt(i);
+            if (ch=='?') {
+                i++;
+            } else if (ch=='\'') {
+                return st.startsWith(code+":",i+1);
+            }
+        }
+        return false;
+    }
+    
     public static Comm getInstance(String name,HBCIPassportInternal passport)
     {
         try {
+            Function<HBCIPassportInternal,Comm> impl=comms.get(name);
+            if (impl!=null)
+                return impl.apply(passport);
+            
             Class cl=Class.forName("org.kapott.hbci.comm.Comm"+name);
             Constructor cons=cl.getConstructor(new Class[] {HBCIPassportInternal.class});
             return (Comm)cons.newInstance(new Object[] {passport});
@@ -26,6 +26,7 @@ import java.io.OutputStream;
 import java.net.Authenticator;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.util.Properties;
 
 import javax.net.ssl.HostnameVerifier;
@@ -39,6 +40,7 @@ import org.kapott.hbci.manager.MsgGen;
 import org.kapott.hbci.passport.AbstractPinTanPassport;
 import org.kapott.hbci.passport.HBCIPassportInternal;
 import org.kapott.hbci.protocol.MSG;
+import org.kapott.hbci.protocol.MsgBuffer;
 
 public final class CommPinTan
     extends Comm
@@ -46,6 +48,7 @@ public final class CommPinTan
     private URL               url;
     private HttpURLConnection conn;
     private boolean           checkCert;
+    private final MsgBuffer   recvBuffer=new MsgBuffer(4096);
     
     // die socket factory, die in jedem fall benutzt wird.
     private SSLSocketFactory   mySocketFactory;
@@ -70,49 +73,63 @@ public final class CommPinTan
         super(parentPassport);
         checkCert=((AbstractPinTanPassport)parentPassport).getCheckCert();
         
-        String trustStore=((AbstractPinTanPassport)parentPassport).getCertFile();
-        if (checkCert && trustStore!=null && trustStore.length()!=0) {
-            System.setProperty("javax.net.ssl.trustStore",trustStore);
-        }
-        
         try {
-            String fullpath=parentPassport.getHost();
-            int    slashIdx=fullpath.indexOf("/");
-            if (slashIdx==-1)
-                slashIdx=fullpath.length();
-            String host=fullpath.substring(0,slashIdx);
-            String path=fullpath.substring(slashIdx);
-            
-            HBCIUtils.log(HBCIUtilsInternal.getLocMsg("LOG_CONNECT",new Object[]{host,parentPassport.getPort(),path}),HBCIUtils.LOG_INFO);
-            this.url=new URL("https",host,parentPassport.getPort().intValue(),path);
+            this.url=init((AbstractPinTanPassport)parentPassport);
 
             // creating instances of modified socket factories etc.
             this.mySocketFactory=new PinTanSSLSocketFactory((AbstractPinTanPassport)parentPassport);
             this.myHostnameVerifier=new PinTanSSLHostnameVerifier();
-            
-            String[] proxyData=((AbstractPinTanPassport)parentPassport).getProxy().split(":");
-            if (proxyData.length==2) {
-                HBCIUtils.log(
-                    "HTTPS connections will be made using proxy "+
-                    proxyData[0]+ "(Port "+proxyData[1]+")",
-                    HBCIUtils.LOG_INFO);
-                
-                Properties sysProps = System.getProperties();
-                sysProps.put("https.proxyHost",proxyData[0]);
-                sysProps.put("https.proxyPort",proxyData[1]);
-                
-                HBCIUtils.log("initializing HBCI4Java proxy authentication callback", HBCIUtils.LOG_DEBUG);
-                Authenticator.setDefault(new PinTanProxyAuthenticator(parentPassport));
-            }
         } catch (Exception e) {
             throw new HBCI_Exception(HBCIUtilsInternal.getLocMsg("EXCMSG_CONNERR"),e);
         }
     }
+    
+    /**
+     * Uebernimmt Truststore und Proxy-Einstellungen des Passports und liefert die URL des Bank-Servers.
+     * Wird auch von {@link CommPinTanAsync} verwendet.
+     * @param passport der Passport.
+     * @return die URL.
+     * @throws Exception
+     */
+    static URL init(AbstractPinTanPassport passport) throws Exception
+    {
+        String trustStore=passport.getCertFile();
+        if (passport.getCheckCert() && trustStore!=null && trustStore.length()!=0) {
+            System.setProperty("javax.net.ssl.trustStore",trustStore);
+        }
+        
+        String fullpath=passport.getHost();
+        int    slashIdx=fullpath.indexOf("/");
+        if (slashIdx==-1)
+            slashIdx=fullpath.length();
+        String host=fullpath.substring(0,slashIdx);
+        String path=fullpath.substring(slashIdx);
+        
+        HBCIUtils.log(HBCIUtilsInternal.getLocMsg("LOG_CONNECT",new Object[]{host,passport.getPort(),path}),HBCIUtils.LOG_INFO);
+        URL url=new URL("https",host,passport.getPort().intValue(),path);
+
+        String[] proxyData=passport.getProxy().split(":");
+        if (proxyData.length==2) {
+            HBCIUtils.log(
+                "HTTPS connections will be made using proxy "+
+                proxyData[0]+ "(Port "+proxyData[1]+")",
+                HBCIUtils.LOG_INFO);
+            
+            Properties sysProps = System.getProperties();
+            sysProps.put("https.proxyHost",proxyData[0]);
+            sysProps.put("https.proxyPort",proxyData[1]);
+            
+            HBCIUtils.log("initializing HBCI4Java proxy authentication callback", HBCIUtils.LOG_DEBUG);
+            Authenticator.setDefault(new PinTanProxyAuthenticator(passport));
+        }
+        
+        return url;
+    }
 
     protected void ping(MSG msg)
     {
         try {
-            byte[] b=filter.encode(msg.toString(0));
+            ByteBuffer b=getSendData();
 
             HBCIUtils.log("connecting to server",HBCIUtils.LOG_DEBUG);
             conn=(HttpURLConnection)url.openConnection();
@@ -142,13 +159,13 @@ public final class CommPinTan
             conn.setDoOutput(true);
             conn.setRequestMethod("POST");
             conn.setRequestProperty("Content-Type", "application/octet-stream");
-            conn.setFixedLengthStreamingMode(b.length);
+            conn.setFixedLengthStreamingMode(b.remaining());
 
             conn.connect();                        
             OutputStream out=conn.getOutputStream();
             
             HBCIUtils.log("writing data to output stream", HBCIUtils.LOG_DEBUG);
-            out.write(b);
+            out.write(b.array(),b.arrayOffset()+b.position(),b.remaining());
             out.flush();
             
             HBCIUtils.log("closing output stream", HBCIUtils.LOG_DEBUG);
@@ -162,14 +179,15 @@ public final class CommPinTan
 
     protected StringBuffer pong(MsgGen gen)
     {
-        try {
-            byte[] b=new byte[1024];
-            StringBuffer ret=new StringBuffer();
+        return new StringBuffer(receive(gen));
+    }
 
+    protected String receive(MsgGen gen)
+    {
+        try {
             HBCIUtils.log(HBCIUtilsInternal.getLocMsg("STATUS_MSG_RECV"),HBCIUtils.LOG_INFO);
 
             int msgsize=conn.getContentLength();
-            int num;
 
             if (msgsize!=-1) {
                 HBCIUtils.log("found messagesize: "+msgsize,HBCIUtils.LOG_DEBUG);
@@ -178,20 +196,14 @@ public final class CommPinTan
             }
             InputStream i=conn.getInputStream();
 
-            while (msgsize!=0 && (num=i.read(b))>0) {
-                HBCIUtils.log("received "+num+" bytes",HBCIUtils.LOG_DEBUG2);
-                ret.append(new String(b,0,num,ENCODING));
-                msgsize-=num;
-                if (msgsize>=0) {
-                    HBCIUtils.log("we still need "+msgsize+" bytes",HBCIUtils.LOG_DEBUG2);
-                } else {
-                    HBCIUtils.log("read "+num+" bytes, looking for more",HBCIUtils.LOG_DEBUG2);
-                }
-            }
+            // direkt in den wiederverwendbaren puffer lesen
+            recvBuffer.clear();
+            recvBuffer.read(i,msgsize);
+            HBCIUtils.log("received "+recvBuffer.length()+" bytes",HBCIUtils.LOG_DEBUG2);
 
             HBCIUtils.log("closing communication line",HBCIUtils.LOG_DEBUG);
             conn.disconnect();
-            return new StringBuffer(filter.decode(ret.toString()));
+            return decode(recvBuffer.asByteBuffer());
         } catch (Exception e) {
             // Die hier marieren wir nicht als fatal - ich meine mich zu erinnern,
             // dass es Banken gibt, die einen anonymen BPD-Abruf mit einem HTTP-Fehlercode quittieren
@@ -0,0 +1,175 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci.comm;
+
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.kapott.hbci.exceptions.HBCI_Exception;
+import org.kapott.hbci.manager.HBCIUtils;
+import org.kapott.hbci.manager.HBCIUtilsInternal;
+import org.kapott.hbci.manager.MsgGen;
+import org.kapott.hbci.passport.AbstractPinTanPassport;
+import org.kapott.hbci.passport.HBCIPassportInternal;
+import org.kapott.hbci.protocol.MSG;
+import org.kapott.hbci.protocol.MsgBuffer;
+
+/**
+ * Asynchrone Variante von {@link CommPinTan}.
+ * Die Nachrichten werden ueber den gemeinsamen {@link PinTanHttpClient} verschickt,
+ * der die HTTPS-Verbindungen zum Bank-Server ueber Dialoge hinweg wiederverwendet.
+ * Aktiviert wird die Klasse ueber den Kernel-Parameter
+ * <code>client.passport.PinTan.comm=PinTanAsync</code>.
+ * <p>Mit {@link #sendAsync(MSG)} kann eine Nachricht auch direkt ohne Blockieren
+ * verschickt werden. Im normalen Dialog-Ablauf wartet der Dialog-Thread dagegen in
+ * {@link #receive(MsgGen)} auf die Antwort. Ab Java 11 ist dabei nur dieser Thread
+ * belegt, nicht aber ein weiterer Thread fuer die Verbindung. Sollen sehr viele Dialoge
+ * gleichzeitig laufen, koennen diese in virtuellen Threads gefuehrt werden (siehe
+ * {@link org.kapott.hbci.concurrent.HBCIVirtualThreadFactory}).</p>
+ * <p>Ist die Zertifikatspruefung deaktiviert, das SSL-Logging aktiv oder ein Proxy
+ * konfiguriert, wird der Request blockierend im aufrufenden Thread ausgefuehrt, da die
+ * dafuer noetige Socket-Factory bzw. die Proxy-Authentifizierung den Callback und das
+ * Logging des HBCI-Threads benoetigen. Die Socket-Factory wird je Bank-Server nur einmal
+ * erzeugt, damit der Keep-Alive-Cache der JVM die Verbindungen wiederverwenden kann.</p>
+ */
+public final class CommPinTanAsync
+    extends Comm
+{
+    /**
+     * Die Socket-Factories je Bank-Server und Zertifikatspruefung. Der Keep-Alive-Cache
+     * der JVM verwendet eine Verbindung nur fuer dieselbe Socket-Factory wieder.
+     */
+    private final static ConcurrentMap<String,PinTanSSLSocketFactory> socketFactories=new ConcurrentHashMap<String,PinTanSSLSocketFactory>();
+    private final static PinTanSSLHostnameVerifier hostnameVerifier=new PinTanSSLHostnameVerifier();
+
+    private final URL     url;
+    private final boolean inline;
+    private CompletableFuture<ByteBuffer> pending;
+
+    /**
+     * ct.
+     * @param parentPassport der Passport.
+     */
+    public CommPinTanAsync(HBCIPassportInternal parentPassport)
+    {
+        super(parentPassport);
+
+        AbstractPinTanPassport passport=(AbstractPinTanPassport)parentPassport;
+        try {
+            this.url=CommPinTan.init(passport);
+        } catch (Exception e) {
+            throw new HBCI_Exception(HBCIUtilsInternal.getLocMsg("EXCMSG_CONNERR"),e);
+        }
+
+        boolean debugging=HBCIUtils.getParam("log.ssl.enable","0").equals("1");
+        boolean proxy=passport.getProxy()!=null && passport.getProxy().split(":").length==2;
+        this.inline=!passport.getCheckCert() || debugging || proxy;
+        HBCIUtils.log("using asynchronous PIN/TAN transport, inline="+this.inline,HBCIUtils.LOG_DEBUG);
+    }
+
+    /**
+     * Verschickt die Nachricht, ohne auf die Antwort zu warten.
+     * @param msg die Nachricht.
+     * @return Future mit der (noch nicht dekodierten) Antwort des Servers.
+     * Bei Fehlern beim Senden wird das Future mit einer
+     * {@link PinTanHttpClient.SendException} abgeschlossen.
+     */
+    public CompletableFuture<ByteBuffer> sendAsync(MSG msg)
+    {
+        MsgBuffer buf=new MsgBuffer();
+        msg.appendTo(buf);
+        return send(filter.encode(buf.asByteBuffer()));
+    }
+
+    /**
+     * Verschickt die bereits kodierten Daten.
+     * @param b die Daten.
+     * @return Future mit der Antwort.
+     */
+    private CompletableFuture<ByteBuffer> send(ByteBuffer b)
+    {
+        if (!this.inline)
+            return PinTanHttpClient.getInstance().post(this.url,b,null,null);
+
+        final AbstractPinTanPassport passport=(AbstractPinTanPassport)getParentPassport();
+        CompletableFuture<ByteBuffer> result=new CompletableFuture<ByteBuffer>();
+        try {
+            String key=this.url.getHost()+":"+this.url.getPort()+":"+passport.getCheckCert();
+            PinTanSSLSocketFactory socketFactory=socketFactories.computeIfAbsent(key,k -> new PinTanSSLSocketFactory(passport));
+            result.complete(PinTanHttpClient.execute(this.url,b,socketFactory,passport.getCheckCert()?null:hostnameVerifier));
+        } catch (Exception e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    protected void ping(MSG msg)
+    {
+        try {
+            this.pending=send(getSendData());
+        } catch (Exception e) {
+            HBCI_Exception he = new HBCI_Exception(HBCIUtilsInternal.getLocMsg("EXCMSG_SENDERR"),e);
+            he.setFatal(true);
+            throw he;
+        }
+    }
+
+    protected StringBuffer pong(MsgGen gen)
+    {
+        return new StringBuffer(receive(gen));
+    }
+
+    protected String receive(MsgGen gen)
+    {
+        CompletableFuture<ByteBuffer> f=this.pending;
+        this.pending=null;
+
+        ByteBuffer b;
+        try {
+            HBCIUtils.log(HBCIUtilsInternal.getLocMsg("STATUS_MSG_RECV"),HBCIUtils.LOG_INFO);
+            b=f.join();
+        } catch (CompletionException e) {
+            Throwable cause=e.getCause()!=null?e.getCause():e;
+            if (cause instanceof PinTanHttpClient.SendException) {
+                HBCI_Exception he = new HBCI_Exception(HBCIUtilsInternal.getLocMsg("EXCMSG_SENDERR"),cause);
+                he.setFatal(true); // Abbruch. Auch dann, wenn es ein anonymer BPD-Abruf war
+                throw he;
+            }
+            throw new HBCI_Exception(HBCIUtilsInternal.getLocMsg("EXCMSG_RECVERR"),cause);
+        }
+
+        try {
+            HBCIUtils.log("received "+b.remaining()+" bytes",HBCIUtils.LOG_DEBUG);
+            return decode(b);
+        } catch (Exception e) {
+            throw new HBCI_Exception(HBCIUtilsInternal.getLocMsg("EXCMSG_RECVERR"),e);
+        }
+    }
+
+    protected void closeConnection()
+    {
+    }
+}
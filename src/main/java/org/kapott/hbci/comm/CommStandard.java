@@ -26,6 +26,7 @@ import java.io.OutputStream;
 import java.net.InetSocketAddress;
 import java.net.Proxy;
 import java.net.Socket;
+import java.nio.ByteBuffer;
 
 import org.kapott.hbci.exceptions.HBCI_Exception;
 import org.kapott.hbci.manager.HBCIUtils;
@@ -89,9 +90,9 @@ public final class CommStandard
     protected void ping(MSG msg)
     {
         try {
-            byte[] b=filter.encode(msg.toString(0));
+            ByteBuffer b=getSendData();
 
-            o.write(b);
+            o.write(b.array(),b.arrayOffset()+b.position(),b.remaining());
             o.flush();
         } catch (Exception ex) {
             throw new HBCI_Exception(HBCIUtilsInternal.getLocMsg("EXCMSG_SENDERR"),ex);
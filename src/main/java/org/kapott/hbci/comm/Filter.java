@@ -22,18 +22,71 @@
 package org.kapott.hbci.comm;
 
 import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
 
 import org.kapott.hbci.exceptions.HBCI_Exception;
 import org.kapott.hbci.manager.HBCIUtilsInternal;
 
 public abstract class Filter
 {
+    /**
+     * Die mitgelieferten Implementierungen. Diese werden ohne Reflection erzeugt.
+     */
+    private final static Map<String,Supplier<Filter>> filters=new HashMap<String,Supplier<Filter>>();
+    
+    static
+    {
+        filters.put("Base64",FilterBase64::new);
+        filters.put("None",FilterNone::new);
+    }
+    
     public abstract byte[] encode(String st);
     public abstract String decode(String st);
+
+    /**
+     * Kodiert die Nachricht fuer den Versand.
+     * Die Default-Implementierung geht ueber {@link #encode(String)}, Filter,
+     * die die Daten nicht veraendern, ueberschreiben das ohne Kopie.
+     * @param data die Nachricht.
+     * @return die zu sendenden Daten.
+     */
+    public ByteBuffer encode(ByteBuffer data)
+    {
+        return ByteBuffer.wrap(encode(toString(data)));
+    }
+
+    /**
+     * Dekodiert die empfangenen Daten.
+     * Die Default-Implementierung geht ueber {@link #decode(String)}.
+     * @param data die empfangenen Daten.
+     * @return die Nachricht.
+     */
+    public ByteBuffer decode(ByteBuffer data)
+    {
+        return ByteBuffer.wrap(decode(toString(data)).getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Liefert den Inhalt des Puffers als String.
+     * @param data der Puffer.
+     * @return der String.
+     */
+    protected static String toString(ByteBuffer data)
+    {
+        return new String(data.array(),data.arrayOffset()+data.position(),data.remaining(),StandardCharsets.ISO_8859_1);
+    }
         
     public static Filter getInstance(String filter)
     {
         try {
+            Supplier<Filter> impl=filters.get(filter);
+            if (impl!=null)
+                return impl.get();
+            
             Class cl=Class.forName("org.kapott.hbci.comm.Filter"+filter);
             Constructor cons=cl.getConstructor((Class[])null);
             return (Filter)cons.newInstance((Object[])null);
@@ -21,6 +21,8 @@
 
 package org.kapott.hbci.comm;
 
+import java.nio.ByteBuffer;
+
 import org.kapott.hbci.exceptions.HBCI_Exception;
 import org.kapott.hbci.manager.HBCIUtils;
 import org.kapott.hbci.manager.HBCIUtilsInternal;
@@ -46,4 +48,20 @@ public final class FilterNone
     {
         return st;
     }
+
+    /**
+     * @see org.kapott.hbci.comm.Filter#encode(java.nio.ByteBuffer)
+     */
+    public ByteBuffer encode(ByteBuffer data)
+    {
+        return data;
+    }
+
+    /**
+     * @see org.kapott.hbci.comm.Filter#decode(java.nio.ByteBuffer)
+     */
+    public ByteBuffer decode(ByteBuffer data)
+    {
+        return data;
+    }
 }
@@ -0,0 +1,235 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci.comm;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+
+import org.kapott.hbci.manager.HBCIUtils;
+import org.kapott.hbci.protocol.MsgBuffer;
+
+/**
+ * HTTP-Client fuer die asynchrone PIN/TAN-Kommunikation ({@link CommPinTanAsync}).
+ * <p>Ab Java 11 werden die Requests ohne eigene Socket-Factory nicht-blockierend
+ * ueber <code>java.net.http</code> verschickt ({@link PinTanHttpTransport}). Waehrend
+ * auf die Antwort der Bank gewartet wird, belegt ein Request dann keinen Thread. Die
+ * Verbindungen werden je Bank-Server gepoolt und ueber Dialoge hinweg wiederverwendet.</p>
+ * <p>Auf aelteren Java-Versionen sowie bei Requests mit eigener Socket-Factory bzw.
+ * eigenem Hostname-Verifier wird der Request blockierend per <code>HttpURLConnection</code>
+ * in einem Thread-Pool ausgefuehrt. Der Pool waechst mit der Anzahl gleichzeitig
+ * laufender Requests, es ist also je Request ein Thread belegt, solange er laeuft.
+ * Die Verbindungen werden nach dem vollstaendigen Lesen der Antwort an den
+ * Keep-Alive-Cache der JVM zurueckgegeben (je Server maximal
+ * <code>http.maxConnections</code>, Default 5).</p>
+ * <p>Die Threads gehoeren keinem {@link org.kapott.hbci.manager.HBCIContext} an. Innerhalb
+ * von {@link #post(URL, ByteBuffer, SSLSocketFactory, HostnameVerifier)} wird daher
+ * weder geloggt noch auf die Kernel-Parameter zugegriffen.</p>
+ */
+public final class PinTanHttpClient
+{
+    /**
+     * Timeout fuer HTTP connect in Millisekunden.
+     */
+    private final static int HTTP_CONNECT_TIMEOUT = 60 * 1000;
+
+    /**
+     * Timeout fuer HTTP Read in Millisekunden.
+     */
+    private final static int HTTP_READ_TIMEOUT    = 5 * HTTP_CONNECT_TIMEOUT;
+
+    private static PinTanHttpClient instance;
+
+    private final PinTanHttpTransport transport;
+    private final ExecutorService executor;
+
+    /**
+     * Liefert die Singleton-Instanz.
+     * @return die Singleton-Instanz.
+     */
+    public static synchronized PinTanHttpClient getInstance()
+    {
+        if (instance==null) {
+            instance=new PinTanHttpClient(PinTanHttpTransport.isAvailable());
+            HBCIUtils.log("creating PIN/TAN http client, non-blocking="+instance.isNonBlocking(),HBCIUtils.LOG_DEBUG);
+        }
+        return instance;
+    }
+
+    /**
+     * ct.
+     * @param nonBlocking true, wenn der nicht-blockierende Transport verwendet werden soll.
+     */
+    PinTanHttpClient(boolean nonBlocking)
+    {
+        this.transport=nonBlocking?new PinTanHttpTransport(HTTP_CONNECT_TIMEOUT,HTTP_READ_TIMEOUT):null;
+
+        final AtomicInteger count=new AtomicInteger();
+        this.executor=Executors.newCachedThreadPool(new ThreadFactory() {
+            public Thread newThread(Runnable r)
+            {
+                Thread t=new Thread(r,"hbci4java-pintan-"+count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Prueft, ob Requests ohne eigene Socket-Factory nicht-blockierend verschickt werden.
+     * @return true, wenn der nicht-blockierende Transport verwendet wird.
+     */
+    public boolean isNonBlocking()
+    {
+        return this.transport!=null;
+    }
+
+    /**
+     * Sendet die Daten asynchron per HTTP-POST an die URL.
+     * @param url die URL.
+     * @param data die zu sendenden Daten. Der Puffer darf bis zum Abschluss des
+     * Futures nicht veraendert werden.
+     * @param socketFactory optionale Socket-Factory. Fuer die Wiederverwendung von
+     * Verbindungen muss das fuer alle Requests an denselben Server dieselbe Instanz
+     * sein. NULL fuer die Default-Factory der JVM.
+     * @param hostnameVerifier optionaler Hostname-Verifier. NULL fuer den Default der JVM.
+     * @return Future mit der Antwort. Schlaegt der Request fehl, wird das Future mit
+     * einer {@link IOException} abgeschlossen, bei Fehlern beim Senden mit einer
+     * {@link SendException}.
+     */
+    public CompletableFuture<ByteBuffer> post(final URL url, final ByteBuffer data, final SSLSocketFactory socketFactory, final HostnameVerifier hostnameVerifier)
+    {
+        if (this.transport!=null && socketFactory==null && hostnameVerifier==null)
+            return this.transport.post(url,data);
+
+        return CompletableFuture.supplyAsync(new Supplier<ByteBuffer>() {
+            public ByteBuffer get()
+            {
+                try {
+                    return execute(url,data,socketFactory,hostnameVerifier);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }
+        },this.executor);
+    }
+
+    /**
+     * Fuehrt den HTTP-POST synchron im aktuellen Thread aus.
+     * @param url die URL.
+     * @param data die zu sendenden Daten.
+     * @param socketFactory optionale Socket-Factory.
+     * @param hostnameVerifier optionaler Hostname-Verifier.
+     * @return die Antwort.
+     * @throws IOException
+     */
+    static ByteBuffer execute(URL url, ByteBuffer data, SSLSocketFactory socketFactory, HostnameVerifier hostnameVerifier) throws IOException
+    {
+        HttpURLConnection conn=null;
+        try {
+            conn=(HttpURLConnection)url.openConnection();
+            conn.setConnectTimeout(HTTP_CONNECT_TIMEOUT);
+            conn.setReadTimeout(HTTP_READ_TIMEOUT);
+
+            if (conn instanceof HttpsURLConnection) {
+                HttpsURLConnection connSSL=(HttpsURLConnection)conn;
+                if (socketFactory!=null)
+                    connSSL.setSSLSocketFactory(socketFactory);
+                if (hostnameVerifier!=null)
+                    connSSL.setHostnameVerifier(hostnameVerifier);
+            }
+
+            conn.setDoOutput(true);
+            conn.setRequestMethod("POST");
+            conn.setRequestProperty("Content-Type", "application/octet-stream");
+            conn.setFixedLengthStreamingMode(data.remaining());
+
+            OutputStream out=conn.getOutputStream();
+            out.write(data.array(),data.arrayOffset()+data.position(),data.remaining());
+            out.close();
+        } catch (IOException e) {
+            throw new SendException(e);
+        }
+
+        // Fehlerseite komplett lesen, damit die Verbindung wiederverwendet werden kann
+        int code=conn.getResponseCode();
+        if (code>=400) {
+            InputStream err=conn.getErrorStream();
+            if (err!=null)
+                readFully(err,-1,new MsgBuffer());
+            throw new IOException("HTTP "+code+" "+conn.getResponseMessage());
+        }
+
+        // Absichtlich kein disconnect() - die Verbindung geht nach dem
+        // vollstaendigen Lesen zurueck in den Keep-Alive-Cache
+        int size=conn.getContentLength();
+        return readFully(conn.getInputStream(),size,new MsgBuffer(size>0?size:8192)).asByteBuffer();
+    }
+
+    /**
+     * Liest den Stream komplett und schliesst ihn.
+     * @param in der Stream.
+     * @param size erwartete Groesse oder -1, wenn unbekannt.
+     * @param buf der Puffer, in den gelesen wird.
+     * @return der Puffer.
+     * @throws IOException
+     */
+    private static MsgBuffer readFully(InputStream in, int size, MsgBuffer buf) throws IOException
+    {
+        try {
+            return buf.read(in,size);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Kennzeichnet Fehler beim Senden der Nachricht.
+     */
+    public final static class SendException extends IOException
+    {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * ct.
+         * @param cause die urspruengliche Exception.
+         */
+        SendException(IOException cause)
+        {
+            super(cause);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+
+package org.kapott.hbci.comm;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Nicht-blockierender Transport fuer den {@link PinTanHttpClient} auf Basis von
+ * <code>java.net.http.HttpClient</code> (ab Java 11).
+ * <p>Die Requests werden per NIO verschickt. Waehrend auf die Antwort der Bank
+ * gewartet wird, ist kein Thread belegt. Der <code>HttpClient</code> haelt die
+ * Verbindungen je Bank-Server in einem eigenen Pool und verwendet sie fuer
+ * Folge-Nachrichten und weitere Dialoge wieder (HTTP/1.1 Keep-Alive).</p>
+ * <p>Die Klasse darf nur geladen werden, wenn {@link #isAvailable()} true liefert.
+ * Sie verwendet die Socket-Factory und den Proxy der JVM und unterstuetzt daher
+ * weder das SSL-Logging noch die deaktivierte Zertifikatspruefung.</p>
+ */
+final class PinTanHttpTransport
+{
+    private final HttpClient client;
+    private final Duration readTimeout;
+
+    /**
+     * ct.
+     * @param connectTimeout Timeout fuer den Verbindungsaufbau in Millisekunden.
+     * @param readTimeout Timeout fuer die Antwort in Millisekunden.
+     */
+    PinTanHttpTransport(int connectTimeout, int readTimeout)
+    {
+        this.client = HttpClient.newBuilder()
+                                .version(HttpClient.Version.HTTP_1_1)
+                                .connectTimeout(Duration.ofMillis(connectTimeout))
+                                .build();
+        this.readTimeout = Duration.ofMillis(readTimeout);
+    }
+
+    /**
+     * Prueft, ob die Java-Version den nicht-blockierenden HTTP-Client mitbringt.
+     * @return true, wenn <code>java.net.http</code> verfuegbar ist.
+     */
+    static boolean isAvailable()
+    {
+        try
+        {
+            Class.forName("java.net.http.HttpClient");
+            return true;
+        }
+        catch (Throwable t)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Sendet die Daten per HTTP-POST an die URL, ohne auf die Antwort zu warten.
+     * @param url die URL.
+     * @param data die zu sendenden Daten.
+     * @return Future mit der Antwort.
+     * @see PinTanHttpClient#post(URL, ByteBuffer, javax.net.ssl.SSLSocketFactory, javax.net.ssl.HostnameVerifier)
+     */
+    CompletableFuture<ByteBuffer> post(URL url, ByteBuffer data)
+    {
+        final HttpRequest request;
+        try
+        {
+            request = HttpRequest.newBuilder(url.toURI())
+                                 .timeout(this.readTimeout)
+                                 .header("Content-Type","application/octet-stream")
+                                 .POST(HttpRequest.BodyPublishers.ofByteArray(data.array(),data.arrayOffset() + data.position(),data.remaining()))
+                                 .build();
+        }
+        catch (URISyntaxException | IllegalArgumentException e)
+        {
+            CompletableFuture<ByteBuffer> f = new CompletableFuture<ByteBuffer>();
+            f.completeExceptionally(new PinTanHttpClient.SendException(new IOException(e)));
+            return f;
+        }
+
+        return this.client.sendAsync(request,HttpResponse.BodyHandlers.ofByteArray()).handle((response,error) -> {
+            if (error != null)
+            {
+                Throwable cause = (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+                // Konnte die Verbindung nicht aufgebaut werden, ist die Nachricht nicht angekommen
+                if (cause instanceof ConnectException || cause instanceof HttpConnectTimeoutException)
+                    throw new CompletionException(new PinTanHttpClient.SendException((IOException) cause));
+                throw new CompletionException(cause);
+            }
+            if (response.statusCode() >= 400)
+                throw new CompletionException(new IOException("HTTP " + response.statusCode()));
+            return ByteBuffer.wrap(response.body());
+        });
+    }
+}
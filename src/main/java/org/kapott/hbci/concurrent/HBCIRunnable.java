@@ -4,6 +4,7 @@ package org.kapott.hbci.concurrent;
 import java.util.Properties;
 
 import org.kapott.hbci.callback.HBCICallback;
+import org.kapott.hbci.manager.HBCIContext;
 import org.kapott.hbci.manager.HBCIHandler;
 import org.kapott.hbci.manager.HBCIUtils;
 import org.kapott.hbci.passport.HBCIPassport;
@@ -17,13 +18,20 @@ import org.kapott.hbci.passport.HBCIPassport;
  * <p>Bei Ausführung einer solchen {@link Runnable} passiert folgendes:</p>
  *
  * <ol>
- * <li>{@link HBCIUtils.initThread(properties, callback)} wird mit den Parametern aus dem Constructor aufgerufen.</li>
+ * <li>Der eigene {@link HBCIContext} wird mit den Parametern aus dem Constructor initialisiert
+ *     und für die restlichen Schritte an den ausführenden Thread gebunden.</li>
  * <li>Das Passport wird von der {@link HBCIPassportFactory} abgefragt und darüber wird der {@link HBCIHandler} erzeugt.</li>
  * <li>{@link #execute()} wird aufgerufen.</li>
  *     {@link HBCIPassport} und {@link HBCIHandler} sind über die Variablen <code>passport</code> bzw. <code>handler</code> verfügbar.</li>
- * <li>Abschließend werden Handler und Passport geschlossen, sowie {@link HBCIUtils#doneThread()} aufgerufen.</li>
+ * <li>Abschließend werden Handler und Passport geschlossen, sowie die Daten des Kontextes freigegeben.</li>
  * </ol>
  *
+ * <p>Da die Daten von <em>HBCI4Java</em> nicht an die <code>ThreadGroup</code> des ausführenden Threads,
+ * sondern an den Kontext gebunden sind, kann die {@link Runnable} in einem beliebigen Thread ausgeführt
+ * werden, z.Bsp. in einem Thread-Pool oder in einem virtuellen Thread (siehe {@link HBCIVirtualThreadFactory}).
+ * Wird kein Callback angegeben, wird das Callback des Kontextes verwendet, in dem die {@link Runnable}
+ * erzeugt wurde.</p>
+ *
  * @author Hendrik Schnepel
  */
 public abstract class HBCIRunnable implements Runnable
@@ -32,6 +40,7 @@ public abstract class HBCIRunnable implements Runnable
     private final Properties properties;
     private final HBCICallback callback;
     private HBCIPassportFactory passportFactory;
+    private final HBCIContext context;
 
     protected HBCIPassport passport = null;
     protected HBCIHandler handler = null;
@@ -41,30 +50,33 @@ public abstract class HBCIRunnable implements Runnable
         this.properties = properties;
         this.callback = callback;
         this.passportFactory = passportFactory;
+        this.context = new HBCIContext();
     }
 
     @Override
     public final void run()
     {
         init();
-        try
-        {
-            prepare();
-            execute();
-        }
-        catch (Exception e)
-        {
-            HBCIUtils.log(e);
-        }
-        finally
-        {
-            done();
-        }
+        context.run(() -> {
+            try
+            {
+                prepare();
+                execute();
+            }
+            catch (Exception e)
+            {
+                HBCIUtils.log(e);
+            }
+            finally
+            {
+                done();
+            }
+        });
     }
 
     private void init()
     {
-        HBCIUtils.initThread(properties, callback);
+        context.init(properties, callback);
     }
 
     private void prepare() throws Exception
@@ -89,7 +101,7 @@ public abstract class HBCIRunnable implements Runnable
         {
             passport.close();
         }
-        HBCIUtils.doneThread();
+        context.done();
     }
 
 }
@@ -9,6 +9,9 @@ import java.util.concurrent.atomic.AtomicLong;
  * Jede Gruppe ist mit {@link ThreadGroup#setDaemon(true)} konfiguriert, so dass mit Ende des einzelnen
  * Threads auch automatisch die Gruppe geschlossen wird.
  *
+ * <p>Fuer {@link HBCIRunnable} ist keine eigene Thread-Gruppe mehr noetig, da diese einen eigenen
+ * {@link org.kapott.hbci.manager.HBCIContext} verwendet. Siehe auch {@link HBCIVirtualThreadFactory}.</p>
+ *
  * @see <code>README.MultiThreading</code>
  * @see <a href="https://groups.google.com/forum/#!msg/hbci4java/cOQrbPDC0Jo/rbm6jgMaMfcJ">https://groups.google.com/forum/#!msg/hbci4java/cOQrbPDC0Jo/rbm6jgMaMfcJ</a>
  * @author Hendrik Schnepel
@@ -0,0 +1,68 @@
+package org.kapott.hbci.concurrent;
+
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Implementierung einer {@link ThreadFactory}, die virtuelle Threads erzeugt, sofern die
+ * Java-Version diese unterstuetzt (ab Java 21). Auf aelteren Java-Versionen werden stattdessen
+ * gewoehnliche Daemon-Threads erzeugt.
+ *
+ * <p>Virtuelle Threads laufen alle in derselben <code>ThreadGroup</code>. Sie eignen sich daher
+ * nur fuer Aufgaben, die einen eigenen {@link org.kapott.hbci.manager.HBCIContext} verwenden,
+ * z.Bsp. {@link HBCIRunnable}.</p>
+ *
+ * @see <code>README.MultiThreading</code>
+ */
+public class HBCIVirtualThreadFactory implements ThreadFactory {
+
+    private static final AtomicLong SEQUENCE = new AtomicLong(0L);
+
+    private final ThreadFactory virtual;
+
+    /**
+     * ct.
+     */
+    public HBCIVirtualThreadFactory() {
+        this.virtual = createVirtual();
+    }
+
+    /**
+     * Prueft, ob virtuelle Threads erzeugt werden.
+     * @return true, wenn virtuelle Threads erzeugt werden, false bei gewoehnlichen Daemon-Threads.
+     */
+    public boolean isVirtual() {
+        return this.virtual != null;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+        String name = "HBCI Thread #" + SEQUENCE.incrementAndGet();
+        if (this.virtual != null) {
+            Thread thread = this.virtual.newThread(runnable);
+            thread.setName(name);
+            return thread;
+        }
+
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Erzeugt per Reflection die Factory fuer virtuelle Threads ueber
+     * <code>Thread.ofVirtual().factory()</code>.
+     * @return die Factory oder NULL, wenn die Java-Version keine virtuellen Threads unterstuetzt.
+     */
+    private static ThreadFactory createVirtual() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> type = Class.forName("java.lang.Thread$Builder");
+            return (ThreadFactory) type.getMethod("factory").invoke(builder);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+}
@@ -21,6 +21,9 @@
 
 package org.kapott.hbci.datatypes;
 
+import org.kapott.hbci.protocol.MsgBuffer;
+import org.kapott.hbci.protocol.ParseCursor;
+
 // Speicherung im orig. Format
 public class SyntaxAN
      extends SyntaxDE
@@ -92,16 +95,46 @@ public class SyntaxAN
         return (st==null)?"":quote(st);
     }
 
+    /** @internal
+        @brief Writes the quoted value directly into the buffer without creating
+               a temporary String
+        @see SyntaxDE
+    */
+    public void appendTo(MsgBuffer buf)
+    {
+        String st=getContent();
+        if (st==null)
+            return;
+
+        int len=st.length();
+        for (int i=0;i<len;i++) {
+            char ch=st.charAt(i);
+
+            switch (ch) {
+                case '+':
+                case ':':
+                case '\'':
+                case '?':
+                case '@':
+                    buf.append('?');
+                    break;
+                default:
+                    break;
+            }
+            buf.append(ch);
+        }
+    }
+
     // --------------------------------------------------------------------------------
     
-    private void initData(StringBuffer res,int minsize,int maxsize)
+    private void initData(ParseCursor res,int minsize,int maxsize)
     {
         int startidx = skipPreDelim(res);
         int endidx = findNextDelim(res, startidx);
         String st = res.substring(startidx, endidx);
 
         setContent(unquote(st),minsize,maxsize);
-        res.delete(0,endidx);
+        res.skip(endidx);
     }
 
     /** @internal
@@ -117,12 +150,12 @@ public class SyntaxAN
         @param maxsize The maximum string length for this element (or zero). 
                        See SyntaxDE::setContent(String,int,int,int).
     */
-    public SyntaxAN(StringBuffer res, int minsize, int maxsize)
+    public SyntaxAN(ParseCursor res, int minsize, int maxsize)
     {
         initData(res,minsize,maxsize);
     }
     
-    public void init(StringBuffer res,int minlen,int maxlen)
+    public void init(ParseCursor res,int minlen,int maxlen)
     {
         initData(res,minlen,maxlen);
     }
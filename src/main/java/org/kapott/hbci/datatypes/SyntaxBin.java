@@ -27,6 +27,8 @@ import org.kapott.hbci.comm.Comm;
 import org.kapott.hbci.exceptions.InvalidArgumentException;
 import org.kapott.hbci.exceptions.InvalidUserDataException;
 import org.kapott.hbci.manager.HBCIUtilsInternal;
+import org.kapott.hbci.protocol.MsgBuffer;
+import org.kapott.hbci.protocol.ParseCursor;
 
 /* @internal
     @brief SyntaxBin enthält Binärdaten.
@@ -119,6 +121,13 @@ public class SyntaxBin
         return header+con;
     }
 
+    /** @see SyntaxDE */
+    public void appendTo(MsgBuffer buf)
+    {
+        String con=getContent();
+        buf.append('@').append(Integer.toString(con.length())).append('@').append(con);
+    }
+
     // --------------------------------------------------------------------------------
 
     /** @internal @brief returns the size of the header
@@ -165,7 +174,7 @@ public class SyntaxBin
         return ret;
     }
     
-    private void initData(StringBuffer res,int minsize,int maxsize)
+    private void initData(ParseCursor res,int minsize,int maxsize)
     {
         int startidx = skipPreDelim(res);
         int endidx = findNextDelim(res, startidx);
@@ -174,16 +183,16 @@ public class SyntaxBin
         String temp = parse(st);
         setContent(temp, minsize, maxsize);
 
-        res.delete(0, endidx);
+        res.skip(endidx);
     }
 
     /** @see SyntaxDE */
-    public SyntaxBin(StringBuffer res, int minsize, int maxsize)
+    public SyntaxBin(ParseCursor res, int minsize, int maxsize)
     {
         initData(res,minsize,maxsize);
     }
 
-    public void init(StringBuffer res, int minsize, int maxsize)
+    public void init(ParseCursor res, int minsize, int maxsize)
     {
         initData(res,minsize,maxsize);
     }
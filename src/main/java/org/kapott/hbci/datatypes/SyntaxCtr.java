@@ -24,6 +24,7 @@ package org.kapott.hbci.datatypes;
 import org.kapott.hbci.exceptions.InvalidUserDataException;
 import org.kapott.hbci.manager.HBCIUtils;
 import org.kapott.hbci.manager.HBCIUtilsInternal;
+import org.kapott.hbci.protocol.ParseCursor;
 
 /* @brief class for storing data of type "country"
 
@@ -206,7 +207,7 @@ public final class SyntaxCtr
         return ret;
     }
     
-    private void initData(StringBuffer res,int minsize,int maxsize)
+    private void initData(ParseCursor res,int minsize,int maxsize)
     {
         int startidx = skipPreDelim(res);
         int endidx = findNextDelim(res, startidx);
@@ -214,15 +215,15 @@ public final class SyntaxCtr
 
         getName(st);
         setContent(st,3,3);
-        res.delete(0,endidx);
+        res.skip(endidx);
     }
 
-    public SyntaxCtr(StringBuffer res, int minsize, int maxsize)
+    public SyntaxCtr(ParseCursor res, int minsize, int maxsize)
     {
         initData(res,minsize,maxsize);
     }
     
-    public void init(StringBuffer res, int minsize, int maxsize)
+    public void init(ParseCursor res, int minsize, int maxsize)
     {
         initData(res,minsize,maxsize);
     }
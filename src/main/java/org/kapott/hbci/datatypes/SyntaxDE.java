@@ -36,6 +36,8 @@ package org.kapott.hbci.datatypes;
 
 import org.kapott.hbci.exceptions.InvalidArgumentException;
 import org.kapott.hbci.manager.HBCIUtilsInternal;
+import org.kapott.hbci.protocol.MsgBuffer;
+import org.kapott.hbci.protocol.ParseCursor;
 
 /* @internal
     @brief Abstract base class for datatypes.
@@ -76,7 +78,7 @@ public abstract class SyntaxDE
         initData(x,minsize,maxsize);
     }
     
-    public void init(StringBuffer x, int minsize, int maxsize)
+    public void init(ParseCursor x, int minsize, int maxsize)
     {
         initData(x.toString(),minsize,maxsize);
     }
@@ -133,6 +135,16 @@ public abstract class SyntaxDE
         return (content!=null)?content:"";
     }
 
+    /** @internal
+        @brief Writes the value of the data element in the form needed in HBCI messages
+
+        @param buf the buffer the HBCI representation of this data element is appended to
+    */
+    public void appendTo(MsgBuffer buf)
+    {
+        buf.append(toString(0));
+    }
+
     /** @internal @brief Returns the current @c content. 
 
         @return den aktuellen Inhalt des SyntaxDE in der intern gespeicherten
@@ -158,7 +170,7 @@ public abstract class SyntaxDE
         @param res A part of an HBCI message to be parsed.
         @return Index into @p res where next token starts.
     */
-    protected static int skipPreDelim(StringBuffer res)
+    protected static int skipPreDelim(ParseCursor res)
     {
         int ret = 0;
 
@@ -187,7 +199,7 @@ public abstract class SyntaxDE
                 next delimiter character, the return value will be the next character
                 after the end of the String @p res (i.e. will equal @c res.length())
     */
-    public static int findNextDelim(StringBuffer res, int startidx)
+    public static int findNextDelim(ParseCursor res, int startidx)
     {
         int ret = startidx;
         boolean quoted = false;
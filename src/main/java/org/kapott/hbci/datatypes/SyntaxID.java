@@ -21,6 +21,8 @@
 
 package org.kapott.hbci.datatypes;
 
+import org.kapott.hbci.protocol.ParseCursor;
+
 /* a special case of the datatype AN, where maxlen is
     predefined to be 30 */
 public final class SyntaxID
@@ -38,12 +40,12 @@ public final class SyntaxID
 
     // --------------------------------------------------------------------------------
 
-    public SyntaxID(StringBuffer res, int minsize, int maxsize)
+    public SyntaxID(ParseCursor res, int minsize, int maxsize)
     {
         super(res, minsize, 30);
     }
     
-    public void init(StringBuffer res, int minsize, int maxsize)
+    public void init(ParseCursor res, int minsize, int maxsize)
     {
         super.init(res, minsize, 30);
     }
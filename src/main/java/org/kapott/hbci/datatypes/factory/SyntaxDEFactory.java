@@ -21,26 +21,21 @@
 
 package org.kapott.hbci.datatypes.factory;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
-import java.util.Enumeration;
-import java.util.Hashtable;
-
 import org.kapott.hbci.datatypes.SyntaxDE;
 import org.kapott.hbci.exceptions.InitializingException;
-import org.kapott.hbci.exceptions.NoSuchConstructorException;
-import org.kapott.hbci.exceptions.NoSuchSyntaxException;
 import org.kapott.hbci.exceptions.ParseErrorException;
-import org.kapott.hbci.manager.HBCIUtils;
 import org.kapott.hbci.manager.HBCIUtilsInternal;
+import org.kapott.hbci.protocol.ParseCursor;
 import org.kapott.hbci.tools.ObjectFactory;
 
+/**
+ * Erzeugt die Syntax-Objekte der Datenelemente und verwaltet deren Objekt-Pools.
+ * Die Syntax-Klassen werden ueber {@link SyntaxDEType} ohne Reflection instanziiert.
+ */
 public class SyntaxDEFactory 
 {
     private static SyntaxDEFactory instance;
     
-    private Hashtable<String, ObjectFactory> factories;
-    
     public static synchronized SyntaxDEFactory getInstance()
     {
         if (instance==null) {
@@ -51,54 +46,27 @@ public class SyntaxDEFactory
     
     private SyntaxDEFactory()
     {
-        factories=new Hashtable<String, ObjectFactory>();
     }
     
     public SyntaxDE createSyntaxDE(String dataType,String path,String value,int minsize,int maxsize)
     {
-        SyntaxDE ret=null;
-        ObjectFactory factory;
-        
-        synchronized(this) {
-        	factory=factories.get(dataType);
+        return createSyntaxDE(SyntaxDEType.forName(dataType,path),path,value,minsize,maxsize);
+    }
 
-        	if (factory==null) {
-        		factory=new ObjectFactory(Integer.parseInt(HBCIUtils.getParam("kernel.objpool.Syntax","1024")));
-        		factories.put(dataType,factory);
-        	}
-        }
+    public SyntaxDE createSyntaxDE(SyntaxDEType type,String path,String value,int minsize,int maxsize)
+    {
+        ObjectFactory factory=type.getPool();
+        SyntaxDE      ret=(SyntaxDE)factory.getFreeObject();
         
-        ret=(SyntaxDE)factory.getFreeObject();
         if (ret==null) {
-            // laden der klasse, die die syntax des de enthaelt
-            Class c;
-            try {
-                c=Class.forName("org.kapott.hbci.datatypes.Syntax"+dataType,false,this.getClass().getClassLoader());
-            } catch (ClassNotFoundException e) {
-                throw new NoSuchSyntaxException(dataType,path);
-            }
-
-            // holen des constructors fuer diese klasse
-            Constructor con;
-            try {
-                con=c.getConstructor(new Class[]{String.class, int.class, int.class});
-            } catch (NoSuchMethodException e) {
-                throw new NoSuchConstructorException(dataType);
-            }
-
             /* anlegen einer neuen instanz der syntaxklasse und initialisieren
              mit dem uebergebenen wert */
             try {
-                ret=(SyntaxDE)(con.newInstance(new Object[]{value, new Integer(minsize), new Integer(maxsize)}));
-            } catch (InstantiationException e) {
-            } catch (IllegalAccessException e) {
-            } catch (InvocationTargetException e) {
-                throw new InitializingException((Exception)e.getCause(),path);
-            }
-            
-            if (ret!=null) {
-                factory.addToUsedPool(ret);
+                ret=type.create(value,minsize,maxsize);
+            } catch (RuntimeException e) {
+                throw new InitializingException(e,path);
             }
+            factory.addToUsedPool(ret);
         } else {
             try {
                 ret.init(value,minsize,maxsize);
@@ -112,58 +80,32 @@ public class SyntaxDEFactory
         return ret;
     }
 
-    public SyntaxDE createSyntaxDE(String dataType,String path,StringBuffer res,int minsize,int maxsize)
+    public SyntaxDE createSyntaxDE(String dataType,String path,ParseCursor res,int minsize,int maxsize)
     {
-        SyntaxDE      ret=null;
-        ObjectFactory factory;
-        
-        synchronized(this) {
-        	factory=factories.get(dataType);
+        return createSyntaxDE(SyntaxDEType.forName(dataType,path),path,res,minsize,maxsize);
+    }
 
-        	if (factory==null) {
-        		factory=new ObjectFactory(Integer.parseInt(HBCIUtils.getParam("kernel.objpool.Syntax","1024")));
-        		factories.put(dataType,factory);
-        	}
-        }
+    public SyntaxDE createSyntaxDE(SyntaxDEType type,String path,ParseCursor res,int minsize,int maxsize)
+    {
+        ObjectFactory factory=type.getPool();
+        SyntaxDE      ret=(SyntaxDE)factory.getFreeObject();
         
-        ret=(SyntaxDE)factory.getFreeObject();
         if (ret==null) {
-            // laden der klasse, die die syntax des de enthaelt
-            Class c;
-            try {
-                c=Class.forName("org.kapott.hbci.datatypes.Syntax"+dataType,false,this.getClass().getClassLoader());
-            } catch (ClassNotFoundException e) {
-                throw new NoSuchSyntaxException(dataType,path);
-            }
-
-            // holen des constructors fuer diese klasse
-            Constructor con;
-            try {
-                con=c.getConstructor(new Class[]{StringBuffer.class, int.class, int.class});
-            } catch (NoSuchMethodException e) {
-                throw new NoSuchConstructorException(dataType);
-            }
-
             /* anlegen einer neuen instanz der syntaxklasse und initialisieren
              mit dem uebergebenen wert */
             try {
-                ret=(SyntaxDE)(con.newInstance(new Object[]{res, new Integer(minsize), new Integer(maxsize)}));
-            } catch (InstantiationException e) {
-            } catch (IllegalAccessException e) {
-            } catch (InvocationTargetException e) {
-                throw new ParseErrorException(HBCIUtilsInternal.getLocMsg("EXCMSG_PROT_ERRSYNDE",path),(Exception)e.getCause());
-            }
-            
-            if (ret!=null) {
-                factory.addToUsedPool(ret);
+                ret=type.create(res,minsize,maxsize);
+            } catch (RuntimeException e) {
+                throw new ParseErrorException(HBCIUtilsInternal.getLocMsg("EXCMSG_PROT_ERRSYNDE",path),e);
             }
+            factory.addToUsedPool(ret);
         } else {
             try {
                 ret.init(res,minsize,maxsize);
                 factory.addToUsedPool(ret);
             } catch (RuntimeException e) {
                 factory.addToFreePool(ret);
-                throw new ParseErrorException(HBCIUtilsInternal.getLocMsg("EXCMSG_PROT_ERRSYNDE",path),(Exception)e.getCause());
+                throw new ParseErrorException(HBCIUtilsInternal.getLocMsg("EXCMSG_PROT_ERRSYNDE",path),e);
             }
         }
         
@@ -171,11 +113,17 @@ public class SyntaxDEFactory
     }
     
     public void unuseObject(SyntaxDE sde,String type)
+    {
+        if (sde!=null) {
+            unuseObject(sde,SyntaxDEType.forName(type));
+        }
+    }
+    
+    public void unuseObject(SyntaxDE sde,SyntaxDEType type)
     {
         if (sde!=null) {
             sde.destroy();
-            ObjectFactory fac=factories.get(type);
-            fac.unuseObject(sde);
+            type.getPool().unuseObject(sde);
         }
     }
     
@@ -183,11 +131,11 @@ public class SyntaxDEFactory
     {
         StringBuffer ret=new StringBuffer();
         
-        for (Enumeration<String> e=factories.keys();e.hasMoreElements();) {
-            String        type=e.nextElement();
-            ObjectFactory fac=factories.get(type);
-            
-            ret.append(type).append(": ").append(fac.toString()).append(System.getProperty("line.separator"));
+        for (SyntaxDEType type:SyntaxDEType.getTypes()) {
+            ObjectFactory fac=type.getPoolIfCreated();
+            if (fac!=null) {
+                ret.append(type.getName()).append(": ").append(fac.toString()).append(System.getProperty("line.separator"));
+            }
         }
         
         return ret.toString().trim();
@@ -0,0 +1,244 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci.datatypes.factory;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.kapott.hbci.datatypes.SyntaxAN;
+import org.kapott.hbci.datatypes.SyntaxBin;
+import org.kapott.hbci.datatypes.SyntaxCode;
+import org.kapott.hbci.datatypes.SyntaxCtr;
+import org.kapott.hbci.datatypes.SyntaxCur;
+import org.kapott.hbci.datatypes.SyntaxDE;
+import org.kapott.hbci.datatypes.SyntaxDTAUS;
+import org.kapott.hbci.datatypes.SyntaxDate;
+import org.kapott.hbci.datatypes.SyntaxDig;
+import org.kapott.hbci.datatypes.SyntaxFloat;
+import org.kapott.hbci.datatypes.SyntaxID;
+import org.kapott.hbci.datatypes.SyntaxJN;
+import org.kapott.hbci.datatypes.SyntaxNum;
+import org.kapott.hbci.datatypes.SyntaxTime;
+import org.kapott.hbci.datatypes.SyntaxWrt;
+import org.kapott.hbci.exceptions.NoSuchSyntaxException;
+import org.kapott.hbci.manager.HBCIUtils;
+import org.kapott.hbci.protocol.ParseCursor;
+import org.kapott.hbci.tools.ObjectFactory;
+
+/**
+ * Ein Datentyp fuer Datenelemente ("AN", "Num", ...) samt den Konstruktoren der
+ * zugehoerigen Syntax-Klasse und deren Objekt-Pool.
+ * Die Datentypen sind fest registriert, sodass beim Erzeugen und Parsen von
+ * Datenelementen weder Reflection noch Boxing noetig ist. Die Aufloesung des
+ * Datentyps erfolgt einmalig beim Uebersetzen der Syntax-Definition.
+ */
+public final class SyntaxDEType
+{
+    /**
+     * Erzeugt ein Datenelement aus einem Wert.
+     */
+    interface ValueConstructor
+    {
+        /**
+         * Erzeugt das Datenelement.
+         * @param value der Wert.
+         * @param minsize minimale Laenge.
+         * @param maxsize maximale Laenge.
+         * @return das Datenelement.
+         */
+        SyntaxDE create(String value, int minsize, int maxsize);
+    }
+
+    /**
+     * Erzeugt ein Datenelement durch Parsen einer Nachricht.
+     */
+    interface ParseConstructor
+    {
+        /**
+         * Erzeugt das Datenelement.
+         * @param res die zu parsende Nachricht.
+         * @param minsize minimale Laenge.
+         * @param maxsize maximale Laenge.
+         * @return das Datenelement.
+         */
+        SyntaxDE create(ParseCursor res, int minsize, int maxsize);
+    }
+
+    private final static Map<String,SyntaxDEType> types = new LinkedHashMap<String,SyntaxDEType>();
+
+    static
+    {
+        register("AN",SyntaxAN::new,SyntaxAN::new);
+        register("Bin",SyntaxBin::new,SyntaxBin::new);
+        register("Code",SyntaxCode::new,SyntaxCode::new);
+        register("Ctr",SyntaxCtr::new,SyntaxCtr::new);
+        register("Cur",SyntaxCur::new,SyntaxCur::new);
+        register("DTAUS",SyntaxDTAUS::new,SyntaxDTAUS::new);
+        register("Date",SyntaxDate::new,SyntaxDate::new);
+        register("Dig",SyntaxDig::new,SyntaxDig::new);
+        register("Float",SyntaxFloat::new,SyntaxFloat::new);
+        register("ID",SyntaxID::new,SyntaxID::new);
+        register("JN",SyntaxJN::new,SyntaxJN::new);
+        register("Num",SyntaxNum::new,SyntaxNum::new);
+        register("Time",SyntaxTime::new,SyntaxTime::new);
+        register("Wrt",SyntaxWrt::new,SyntaxWrt::new);
+    }
+
+    private final String name;
+    private final ValueConstructor valueConstructor;
+    private final ParseConstructor parseConstructor;
+    private volatile ObjectFactory pool;
+
+    /**
+     * ct.
+     * @param name Name des Datentyps.
+     * @param valueConstructor Konstruktor fuer die Erzeugung aus einem Wert.
+     * @param parseConstructor Konstruktor fuer die Erzeugung beim Parsen.
+     */
+    private SyntaxDEType(String name, ValueConstructor valueConstructor, ParseConstructor parseConstructor)
+    {
+        this.name = name;
+        this.valueConstructor = valueConstructor;
+        this.parseConstructor = parseConstructor;
+    }
+
+    /**
+     * Registriert einen Datentyp.
+     * @param name Name des Datentyps.
+     * @param valueConstructor Konstruktor fuer die Erzeugung aus einem Wert.
+     * @param parseConstructor Konstruktor fuer die Erzeugung beim Parsen.
+     */
+    private static void register(String name, ValueConstructor valueConstructor, ParseConstructor parseConstructor)
+    {
+        types.put(name,new SyntaxDEType(name,valueConstructor,parseConstructor));
+    }
+
+    /**
+     * Liefert den Datentyp mit dem angegebenen Namen.
+     * @param name Name des Datentyps, z.Bsp. "AN".
+     * @return der Datentyp oder NULL, wenn er nicht existiert.
+     */
+    public static SyntaxDEType forName(String name)
+    {
+        return types.get(name);
+    }
+
+    /**
+     * Liefert den Datentyp mit dem angegebenen Namen.
+     * @param name Name des Datentyps, z.Bsp. "AN".
+     * @param path Pfad des Datenelements fuer die Fehlermeldung.
+     * @return der Datentyp.
+     * @throws NoSuchSyntaxException wenn der Datentyp nicht existiert.
+     */
+    public static SyntaxDEType forName(String name, String path)
+    {
+        SyntaxDEType type = types.get(name);
+        if (type == null)
+            throw new NoSuchSyntaxException(name,path);
+        return type;
+    }
+
+    /**
+     * Liefert alle registrierten Datentypen.
+     * @return Liste der Datentypen.
+     */
+    public static Collection<SyntaxDEType> getTypes()
+    {
+        return Collections.unmodifiableCollection(types.values());
+    }
+
+    /**
+     * Liefert den Namen des Datentyps.
+     * @return der Name des Datentyps, z.Bsp. "AN".
+     */
+    public String getName()
+    {
+        return this.name;
+    }
+
+    /**
+     * Erzeugt ein neues Datenelement aus einem Wert.
+     * @param value der Wert.
+     * @param minsize minimale Laenge.
+     * @param maxsize maximale Laenge.
+     * @return das Datenelement.
+     */
+    SyntaxDE create(String value, int minsize, int maxsize)
+    {
+        return this.valueConstructor.create(value,minsize,maxsize);
+    }
+
+    /**
+     * Erzeugt ein neues Datenelement durch Parsen.
+     * @param res die zu parsende Nachricht.
+     * @param minsize minimale Laenge.
+     * @param maxsize maximale Laenge.
+     * @return das Datenelement.
+     */
+    SyntaxDE create(ParseCursor res, int minsize, int maxsize)
+    {
+        return this.parseConstructor.create(res,minsize,maxsize);
+    }
+
+    /**
+     * Liefert den Objekt-Pool des Datentyps. Der Pool wird erst bei der ersten
+     * Verwendung angelegt, da seine Groesse aus der Kernel-Konfiguration stammt.
+     * @return der Objekt-Pool.
+     */
+    ObjectFactory getPool()
+    {
+        ObjectFactory result = this.pool;
+        if (result == null)
+        {
+            synchronized (this)
+            {
+                result = this.pool;
+                if (result == null)
+                {
+                    result = new ObjectFactory(HBCIUtils.getConfig().getObjPoolSize("Syntax",1024));
+                    this.pool = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Liefert den Objekt-Pool, falls er bereits angelegt wurde.
+     * @return der Objekt-Pool oder NULL.
+     */
+    ObjectFactory getPoolIfCreated()
+    {
+        return this.pool;
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        return this.name;
+    }
+}
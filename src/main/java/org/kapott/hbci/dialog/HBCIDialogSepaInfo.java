@@ -172,6 +172,7 @@ public class HBCIDialogSepaInfo extends AbstractRawHBCIDialog
         if (p != null && upd != null)
         {
           upd.setProperty(HBCIUser.UPD_KEY_FETCH_SEPAINFO,new Date().toString());
+          p.setUPD(upd); // UPD neu setzen, damit die daraus gecachten Konten verworfen werden
           p.saveChanges(); // Sicherstellen, dass die Aenderungen sofort gespeichert sind
         }
       }
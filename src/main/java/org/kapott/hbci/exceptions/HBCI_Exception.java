@@ -54,7 +54,7 @@ public class HBCI_Exception
     protected static String applyLogFilter(String st) 
     {
         try {
-            int filterLevel=Integer.parseInt(HBCIUtils.getParam("log.filter","2"));
+            int filterLevel=HBCIUtils.getConfig().getLogFilter();
             if (filterLevel!=0) {
                 st=LogFilter.getInstance().filterLine(st,filterLevel);
             }
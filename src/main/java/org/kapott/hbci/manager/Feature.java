@@ -92,7 +92,7 @@ public enum Feature
      */
     public boolean isEnabled()
     {
-        return Boolean.parseBoolean(HBCIUtils.getParam("feature." + this,Boolean.toString(this.getDefault())));
+        return Boolean.parseBoolean(HBCIUtils.getConfig().getParam("feature." + this,Boolean.toString(this.getDefault())));
     }
     
     /**
@@ -0,0 +1,263 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+
+package org.kapott.hbci.manager;
+
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.kapott.hbci.callback.HBCICallback;
+
+/**
+ * Expliziter Kontext fuer die von {@link HBCIUtils} verwalteten Daten
+ * (Kernel-Parameter, Callback, Locale, Log-Einstellungen).
+ * <p>Ohne expliziten Kontext werden diese Daten wie bisher anhand der
+ * <code>ThreadGroup</code> des aktuellen Threads ermittelt. Virtuelle Threads
+ * gehoeren jedoch alle derselben <code>ThreadGroup</code> an, und die Threads
+ * eines Thread-Pools wechseln staendig die Aufgabe. Fuer diese Faelle kann ein
+ * Kontext erzeugt und mit {@link #run(Runnable)} bzw. {@link #call(Callable)}
+ * fuer die Dauer einer Aufgabe an den aktuellen Thread gebunden werden.
+ * Innerhalb dieser Aufgabe verhaelt sich <em>HBCI4Java</em> so, als liefe
+ * der Thread in einer eigenen, fuer diesen Kontext initialisierten
+ * <code>ThreadGroup</code>.</p>
+ * <p>Von <em>HBCI4Java</em> selbst erzeugte Threads (z.Bsp. bei
+ * {@link HBCIHandler#executeAsync(java.util.concurrent.Executor)}) uebernehmen
+ * den Kontext des Aufrufers per {@link #wrap(Runnable)}.</p>
+ *
+ * <pre>
+ * HBCIContext ctx = new HBCIContext("Kunde 4711");
+ * ctx.init(props,callback);
+ * try
+ * {
+ *   ctx.run(() -&gt; { ... HBCI4Java verwenden ... });
+ * }
+ * finally
+ * {
+ *   ctx.done();
+ * }
+ * </pre>
+ */
+public final class HBCIContext
+{
+    private final static AtomicLong SEQUENCE = new AtomicLong(0L);
+
+    /**
+     * Der an den aktuellen Thread gebundene Schluessel. Das ist entweder ein
+     * {@link HBCIContext} oder die per {@link #wrap(Runnable)} uebernommene
+     * <code>ThreadGroup</code> des Aufrufers.
+     */
+    private final static ThreadLocal<Object> bound = new ThreadLocal<Object>();
+
+    private final String name;
+    private final Object parent;
+
+    /**
+     * Erzeugt einen neuen Kontext mit automatisch vergebenem Namen.
+     */
+    public HBCIContext()
+    {
+        this("HBCI Context #" + SEQUENCE.incrementAndGet());
+    }
+
+    /**
+     * Erzeugt einen neuen Kontext. Der aktuelle Kontext des Aufrufers wird als
+     * Eltern-Kontext verwendet. Dessen Callback wird uebernommen, wenn bei
+     * {@link #init(Properties, HBCICallback)} kein Callback angegeben ist.
+     * @param name Name des Kontextes. Wird im Log anstelle des Namens der
+     * <code>ThreadGroup</code> verwendet.
+     */
+    public HBCIContext(String name)
+    {
+        this.name = name;
+        this.parent = currentKey();
+    }
+
+    /**
+     * Liefert den Namen des Kontextes.
+     * @return der Name des Kontextes.
+     */
+    public String getName()
+    {
+        return this.name;
+    }
+
+    /**
+     * Initialisiert <em>HBCI4Java</em> fuer diesen Kontext.
+     * @param props die Kernel-Parameter.
+     * @param callback das Callback-Objekt. Kann NULL sein, dann wird das des
+     * Eltern-Kontextes verwendet.
+     * @see HBCIUtils#initThread(Properties, HBCICallback)
+     */
+    public void init(final Properties props, final HBCICallback callback)
+    {
+        this.run(() -> HBCIUtils.initThread(props,callback));
+    }
+
+    /**
+     * Gibt die Daten dieses Kontextes wieder frei.
+     * @see HBCIUtils#doneThread()
+     */
+    public void done()
+    {
+        this.run(HBCIUtils::doneThread);
+    }
+
+    /**
+     * Fuehrt die Aufgabe im aktuellen Thread innerhalb dieses Kontextes aus.
+     * @param task die Aufgabe.
+     */
+    public void run(Runnable task)
+    {
+        run(this,task);
+    }
+
+    /**
+     * Fuehrt die Aufgabe im aktuellen Thread innerhalb dieses Kontextes aus.
+     * @param task die Aufgabe.
+     * @return das Ergebnis der Aufgabe.
+     * @throws Exception
+     */
+    public <T> T call(Callable<T> task) throws Exception
+    {
+        final Object previous = bind(this);
+        try
+        {
+            return task.call();
+        }
+        finally
+        {
+            bind(previous);
+        }
+    }
+
+    /**
+     * Liefert eine Aufgabe, die in einem beliebigen Thread im Kontext des
+     * Aufrufers dieser Methode ausgefuehrt wird.
+     * @param task die Aufgabe.
+     * @return die Aufgabe mit dem Kontext des Aufrufers.
+     */
+    public static Runnable wrap(final Runnable task)
+    {
+        final Object key = currentKey();
+        return () -> run(key,task);
+    }
+
+    /**
+     * Liefert eine Aufgabe, die in einem beliebigen Thread im Kontext des
+     * Aufrufers dieser Methode ausgefuehrt wird.
+     * @param task die Aufgabe.
+     * @return die Aufgabe mit dem Kontext des Aufrufers.
+     */
+    public static <T> Callable<T> wrap(final Callable<T> task)
+    {
+        final Object key = currentKey();
+        return () -> {
+            final Object previous = bind(key);
+            try
+            {
+                return task.call();
+            }
+            finally
+            {
+                bind(previous);
+            }
+        };
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        return this.name;
+    }
+
+    /**
+     * Fuehrt die Aufgabe mit dem angegebenen Schluessel aus.
+     * @param key der Schluessel.
+     * @param task die Aufgabe.
+     */
+    static void run(Object key, Runnable task)
+    {
+        final Object previous = bind(key);
+        try
+        {
+            task.run();
+        }
+        finally
+        {
+            bind(previous);
+        }
+    }
+
+    /**
+     * Bindet den Schluessel an den aktuellen Thread.
+     * @param key der Schluessel. NULL entfernt die Bindung.
+     * @return der bisher gebundene Schluessel.
+     */
+    private static Object bind(Object key)
+    {
+        final Object previous = bound.get();
+        if (key != null)
+            bound.set(key);
+        else
+            bound.remove();
+        return previous;
+    }
+
+    /**
+     * Liefert den Schluessel, unter dem {@link HBCIUtils} die Daten des aktuellen
+     * Threads verwaltet.
+     * @return der gebundene Kontext oder die <code>ThreadGroup</code> des aktuellen Threads.
+     */
+    static Object currentKey()
+    {
+        final Object key = bound.get();
+        return key != null ? key : Thread.currentThread().getThreadGroup();
+    }
+
+    /**
+     * Liefert den Schluessel des Eltern-Kontextes.
+     * @param key der Schluessel.
+     * @return der Schluessel des Eltern-Kontextes bzw. die Eltern-<code>ThreadGroup</code>.
+     */
+    static Object parentKey(Object key)
+    {
+        if (key instanceof HBCIContext)
+            return ((HBCIContext) key).parent;
+        return ((ThreadGroup) key).getParent();
+    }
+
+    /**
+     * Liefert den Namen des Schluessels fuer Log-Ausgaben.
+     * @param key der Schluessel.
+     * @return der Name des Kontextes bzw. der <code>ThreadGroup</code>.
+     */
+    static String nameOf(Object key)
+    {
+        if (key instanceof HBCIContext)
+            return ((HBCIContext) key).name;
+        return ((ThreadGroup) key).getName();
+    }
+}
@@ -67,6 +67,7 @@ public final class HBCIDialog
     private HBCIMessageQueue queue;
     private Properties listOfGVs = new Properties();
     private HBCIHandler parentHandler;
+    private HBCIKernelImpl kernel;
 
     public HBCIDialog(HBCIHandler parentHandler)
     {
@@ -84,6 +85,25 @@ public final class HBCIDialog
         return this.parentHandler;
     }
 
+    /**
+     * Legt einen eigenen Kernel fuer diesen Dialog fest.
+     * Wird bei der parallelen Ausfuehrung mehrerer Dialoge verwendet.
+     * @param kernel der Kernel des Dialogs.
+     */
+    void setKernel(HBCIKernelImpl kernel)
+    {
+        this.kernel=kernel;
+    }
+
+    /**
+     * Liefert den Kernel des Dialogs.
+     * @return der eigene Kernel des Dialogs oder der des Handlers.
+     */
+    HBCIKernelImpl getKernel()
+    {
+        return (this.kernel!=null)?this.kernel:(HBCIKernelImpl)this.parentHandler.getKernel();
+    }
+
     /** @brief Processing the DialogInit stage and updating institute and user data from the server
                (mid-level API).
 
@@ -97,7 +117,7 @@ public final class HBCIDialog
         
         try {
             HBCIPassportInternal mainPassport=(HBCIPassportInternal)getParentHandler().getPassport();
-            HBCIKernelImpl       kernel=(HBCIKernelImpl)getParentHandler().getKernel();
+            HBCIKernelImpl       kernel=getKernel();
             
             // autosecmech
             HBCIUtils.log("checking whether passport is supported (but ignoring result)",HBCIUtils.LOG_DEBUG);
@@ -188,7 +208,7 @@ public final class HBCIDialog
         HBCIUtils.log(HBCIUtilsInternal.getLocMsg("LOG_PROCESSING_JOBS"),HBCIUtils.LOG_INFO);
         
         final HBCIHandler h = this.getParentHandler();
-        final HBCIKernelImpl k = (HBCIKernelImpl) h.getKernel();
+        final HBCIKernelImpl k = this.getKernel();
         final HBCIPassportInternal p = (HBCIPassportInternal) h.getPassport();
         
         final DialogContext ctx = DialogContext.create(k,p);
@@ -384,15 +404,13 @@ public final class HBCIDialog
      */
     private int findTaskSegment(HBCIMsgStatus msgstatus)
     {
-        final Properties result = msgstatus.getData();
-        
         // searching for first segment number that belongs to the custom_msg
         // we look for entries like {"1","CustomMsg.GV*"} and so on (this data is inserted from the HBCIKernelImpl.rawDoIt() method),
         // until we find the first segment containing a task
         int segnum = 1;
         while (segnum < 1000) // Wir brauchen ja nicht endlos suchen
         {
-            final String path = result.getProperty(Integer.toString(segnum));
+            final String path = msgstatus.getValue(Integer.toString(segnum));
             
             // Wir sind am Ende der Segmente angekommen
             if (path == null)
@@ -423,7 +441,7 @@ public final class HBCIDialog
         
         HBCIHandler          handler=getParentHandler();
         HBCIPassportInternal mainPassport=(HBCIPassportInternal)handler.getPassport();
-        HBCIKernelImpl       kernel=(HBCIKernelImpl)handler.getKernel();
+        HBCIKernelImpl       kernel=getKernel();
         
         try {
             HBCIUtils.log(HBCIUtilsInternal.getLocMsg("LOG_DIALOG_END"),HBCIUtils.LOG_INFO);
@@ -0,0 +1,83 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+
+package org.kapott.hbci.manager;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.kapott.hbci.passport.HBCIPassportInternal;
+
+/**
+ * Sperre fuer parallel ausgefuehrte Dialoge eines {@link HBCIHandler}.
+ * Alle Dialoge des Handlers teilen sich dasselbe Passport. Damit dessen Zustand
+ * (Kunden-ID, Signatur-ID, TAN-Daten, Speichern der Passport-Datei) nicht
+ * gleichzeitig veraendert wird, haelt ein Dialog die Sperre waehrend seiner
+ * gesamten Ausfuehrung und gibt sie nur fuer das Warten auf die Antwort der Bank
+ * frei (siehe {@link HBCIKernelImpl#rawDoIt(org.kapott.hbci.passport.HBCIPassportList, boolean, boolean, boolean)}).
+ * Beim erneuten Erhalt der Sperre wird die Kunden-ID des Dialogs wieder im Passport gesetzt.
+ */
+public final class HBCIDialogLock
+{
+    private final ReentrantLock lock;
+    private final HBCIPassportInternal passport;
+    private final String customerId;
+
+    /**
+     * ct.
+     * @param lock die von allen Dialogen des Handlers gemeinsam genutzte Sperre.
+     * @param passport das gemeinsam genutzte Passport.
+     * @param customerId die Kunden-ID des Dialogs.
+     */
+    public HBCIDialogLock(ReentrantLock lock, HBCIPassportInternal passport, String customerId)
+    {
+        this.lock = lock;
+        this.passport = passport;
+        this.customerId = customerId;
+    }
+
+    /**
+     * Wartet auf die Sperre und setzt anschliessend die Kunden-ID des Dialogs im Passport.
+     */
+    public void acquire()
+    {
+        this.lock.lock();
+        if (this.passport != null)
+            this.passport.setCustomerId(this.customerId);
+    }
+
+    /**
+     * Gibt die Sperre frei.
+     */
+    public void release()
+    {
+        this.lock.unlock();
+    }
+
+    /**
+     * Liefert die Kunden-ID des Dialogs.
+     * @return die Kunden-ID.
+     */
+    public String getCustomerId()
+    {
+        return this.customerId;
+    }
+}
@@ -0,0 +1,164 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+
+package org.kapott.hbci.manager;
+
+import java.util.Hashtable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.kapott.hbci.exceptions.HBCI_Exception;
+import org.kapott.hbci.status.HBCIExecStatus;
+import org.kapott.hbci.status.HBCIExecThreadedStatus;
+
+/**
+ * Eine laufende Ausfuehrung des threaded-callback-Mechanismus
+ * (siehe {@link HBCIHandler#executeAsync(java.util.concurrent.Executor)}).
+ * Verbindet den ausfuehrenden HBCI-Thread mit der Anwendung: Jeder Schritt der
+ * Ausfuehrung endet entweder mit einem synchron zu behandelnden Callback oder mit
+ * dem Ende aller Dialoge und wird der Anwendung als Future geliefert. Die Antwort
+ * auf einen Callback wird per {@link #answer(String)} an den wartenden HBCI-Thread
+ * uebergeben.
+ * Gewartet wird ausschliesslich ueber {@link CompletableFuture} und nicht per
+ * <code>wait()</code> in einem Monitor, so dass auch virtuelle Threads beim Warten
+ * auf die Antwort der Anwendung keinen Traeger-Thread blockieren.
+ */
+public final class HBCIExecution
+{
+    /**
+     * Schluessel, unter dem die laufende Ausfuehrung in den Persistent-Daten
+     * des Passports abgelegt ist.
+     */
+    public final static String KEY = "thread_execution";
+
+    private CompletableFuture<HBCIExecThreadedStatus> next = new CompletableFuture<HBCIExecThreadedStatus>();
+    private CompletableFuture<String> answer = null;
+
+    /**
+     * Liefert das Ergebnis des aktuellen Schritts der Ausfuehrung.
+     * Die zurueckgelieferte Future ist eine Kopie und kann von der Anwendung
+     * nicht vorzeitig abgeschlossen werden.
+     * @return das Ergebnis des aktuellen Schritts.
+     */
+    public synchronized CompletableFuture<HBCIExecThreadedStatus> getNext()
+    {
+        return this.next.thenApply(s -> s);
+    }
+
+    /**
+     * Wird vom HBCI-Thread bei einem synchron zu behandelnden Callback aufgerufen.
+     * Schliesst den aktuellen Schritt mit den Callback-Daten ab und wartet
+     * hoechstens <code>kernel.threaded.maxwaittime</code> Sekunden auf die
+     * Antwort der Anwendung.
+     * @param callbackData die Callback-Daten (siehe {@link HBCIExecThreadedStatus#getCallbackData()}).
+     * @return die Antwort der Anwendung.
+     */
+    public String callback(Hashtable<String,Object> callbackData)
+    {
+        final CompletableFuture<String> a = new CompletableFuture<String>();
+        final CompletableFuture<HBCIExecThreadedStatus> current;
+        synchronized (this)
+        {
+            this.answer = a;
+            current = this.next;
+        }
+
+        HBCIExecThreadedStatus status = new HBCIExecThreadedStatus();
+        status.setCallbackData(callbackData);
+        HBCIUtils.log("hbci thread: callback: returning callbackData to application",HBCIUtils.LOG_DEBUG);
+        current.complete(status);
+
+        try
+        {
+            HBCIUtils.log("hbci thread: callback: waiting for callback response from application",HBCIUtils.LOG_DEBUG);
+            return a.get(HBCIUtils.getConfig().getMaxWaitTime(),TimeUnit.SECONDS);
+        }
+        catch (TimeoutException e)
+        {
+            throw new HBCI_Exception("*** no callback data received from application - timeout",e);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new HBCI_Exception("*** interrupted while waiting for callback data",e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new HBCI_Exception("*** error while waiting for callback data",e.getCause());
+        }
+        finally
+        {
+            synchronized (this)
+            {
+                if (this.answer == a)
+                    this.answer = null;
+            }
+        }
+    }
+
+    /**
+     * Wird vom HBCI-Thread am Ende der Ausfuehrung aufgerufen.
+     * @param status der Status der Dialoge. Kann NULL sein, wenn keine Dialoge
+     * ausgefuehrt wurden (z.Bsp. bei {@link HBCIHandler#initAsync(java.util.concurrent.Executor)}).
+     */
+    public void finish(HBCIExecStatus status)
+    {
+        final CompletableFuture<HBCIExecThreadedStatus> current;
+        synchronized (this)
+        {
+            current = this.next;
+        }
+
+        HBCIExecThreadedStatus result = new HBCIExecThreadedStatus();
+        result.setExecStatus(status);
+        HBCIUtils.log("hbci thread: returning hbci result data to application",HBCIUtils.LOG_DEBUG);
+        current.complete(result);
+    }
+
+    /**
+     * Uebergibt die Antwort der Anwendung auf den aktuellen Callback an den
+     * wartenden HBCI-Thread und beginnt den naechsten Schritt.
+     * @param retData die Antwort auf den Callback.
+     * @return das Ergebnis des naechsten Schritts.
+     */
+    public CompletableFuture<HBCIExecThreadedStatus> answer(String retData)
+    {
+        final CompletableFuture<String> a;
+        final CompletableFuture<HBCIExecThreadedStatus> result;
+        synchronized (this)
+        {
+            if (this.answer == null)
+                throw new HBCI_Exception("*** no callback waiting for an answer");
+
+            a = this.answer;
+            this.answer = null;
+            this.next = new CompletableFuture<HBCIExecThreadedStatus>();
+            result = this.next.thenApply(s -> s);
+        }
+
+        HBCIUtils.log("main thread: awaking hbci thread with callback data from application",HBCIUtils.LOG_DEBUG);
+        a.complete(retData);
+        return result;
+    }
+}
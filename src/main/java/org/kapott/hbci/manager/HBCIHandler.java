@@ -21,20 +21,34 @@
 
 package org.kapott.hbci.manager;
 
-import java.lang.reflect.Constructor;
 import java.security.KeyPair;
+import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
 
+import org.kapott.hbci.GV.GVRegistry;
 import org.kapott.hbci.GV.GVTemplate;
 import org.kapott.hbci.GV.HBCIJob;
 import org.kapott.hbci.GV.HBCIJobImpl;
+import org.kapott.hbci.comm.Comm;
 import org.kapott.hbci.exceptions.HBCI_Exception;
 import org.kapott.hbci.exceptions.InvalidArgumentException;
 import org.kapott.hbci.exceptions.InvalidUserDataException;
+import org.kapott.hbci.passport.AbstractHBCIPassport;
 import org.kapott.hbci.passport.AbstractPinTanPassport;
 import org.kapott.hbci.passport.HBCIPassport;
 import org.kapott.hbci.passport.HBCIPassportInternal;
@@ -87,9 +101,18 @@ public final class HBCIHandler
     public final static int REFRESH_BPD=1;
     public final static int REFRESH_UPD=2;
     
+    /**
+     * Parameter mit der maximalen Anzahl parallel ausgefuehrter Dialoge
+     * verschiedener Kunden-IDs in {@link #execute()}. Wird nur bei PIN/TAN
+     * beruecksichtigt.
+     */
+    public final static String PARAM_PARALLEL="client.execute.parallel";
+    
     private HBCIKernelImpl       kernel;
     private HBCIPassportInternal passport;
     private Map<String, HBCIDialog>                  dialogs;
+    private ExecutorService      executor;
+    private KernelParams         params;
     
     /** Anlegen eines neuen HBCI-Handler-Objektes. Beim Anlegen wird
         überprüft, ob für die angegebene HBCI-Version eine entsprechende
@@ -153,6 +176,7 @@ public final class HBCIHandler
             if (hbciversion.length()==0)
                 throw new InvalidArgumentException(HBCIUtilsInternal.getLocMsg("EXCMSG_NO_HBCIVERSION"));
 
+            this.params=HBCIUtils.getKernelParams();
             this.kernel=new HBCIKernelImpl(this,hbciversion);
 
             this.passport=(HBCIPassportInternal)passport;
@@ -203,71 +227,7 @@ public final class HBCIHandler
     public HBCIExecThreadedStatus initThreaded()
     {
         HBCIUtils.log("main thread: starting new threaded init",HBCIUtils.LOG_DEBUG);
-
-        final ThreadSyncer sync_main=new ThreadSyncer("sync_main");
-        passport.setPersistentData("thread_syncer_main",sync_main);
-
-        new Thread() { public void run() {
-            try {
-                HBCIUtils.log("hbci thread: starting init()",HBCIUtils.LOG_DEBUG);
-
-                if (Feature.INIT_FLIP_USER_INST.isEnabled())
-                {
-                  registerUser();
-                  registerInstitute();
-                }
-                else
-                {
-                  registerInstitute();
-                  registerUser();
-                }
-                
-                sync_main.setData("execStatus",null);
-            } catch (Exception e) {
-                // im fehlerfall muss sicherheitshalber ein noch
-                // im sync-objekt enthaltenes altes execStatus-objekt entfernt
-                // werden
-                sync_main.setData("execStatus",null);
-            } finally {
-                // die existenz von "thread_syncer" im passport entscheidet
-                // in CallbackThreaded darüber, ob der threaded callback mechanimus
-                // verwendet werden soll oder das standard-callback.
-                // der threaded mechanismus wird allerdings *nur* für hbci.init() und
-                // hbci.execute() verwendet, deshalb muss das thread_syncer-Objekt
-                // wieder entfernt werden, wenn hbci.init() beendet ist.
-                passport.setPersistentData("thread_syncer_main",null);
-
-                // egal, wie der hbci-thread beendet wird (fehlerhaft oder nicht),
-                // am ende muss auf jeden fall ein evtl. noch wartender main-thread
-                // wieder aufgeweckt werden (das kann entweder executeThreaded()
-                // oder continueThreaded() sein)
-                HBCIUtils.log("hbci thread: awaking main thread with hbci result data",HBCIUtils.LOG_DEBUG);
-                sync_main.setData("callbackData",null);
-                sync_main.stopWaiting();
-
-                HBCIUtils.log("hbci thread: thread finished",HBCIUtils.LOG_DEBUG);
-            }
-        }}.start();
-
-        // für dieses wait() brauche ich kein timeout, weil der hbci-thread auf
-        // jeden fall ein notify() macht, sobald er beendet wird oder sobald der
-        // hbci-thread callback-daten braucht. die sichere beendigung des
-        // hbci-threads wiederum wird dadurch abgesichert, dass die waits() aus
-        // dem hbci-thread (warten auf callback-daten) mit timeouts versehen sind
-        HBCIUtils.log("main thread: waiting for hbci result or callback data from hbci thread",HBCIUtils.LOG_DEBUG);
-        sync_main.startWaiting(Integer.parseInt(HBCIUtils.getParam("kernel.threaded.maxwaittime","300")), "no response from hbci thread - timeout");
-
-        HBCIExecThreadedStatus threadStatus=new HBCIExecThreadedStatus();
-        threadStatus.setCallbackData((Hashtable<String, Object>)sync_main.getData("callbackData"));
-        threadStatus.setExecStatus((HBCIExecStatus)sync_main.getData("execStatus"));
-
-        HBCIUtils.log(
-                "main thread: received answer from hbci thread, returning status "+
-                        "(isCallback="+threadStatus.isCallback()+
-                        ", isFinished="+threadStatus.isFinished()+")",
-                HBCIUtils.LOG_DEBUG);
-
-        return threadStatus;
+        return awaitThreaded(initAsync(getExecutor()));
     }
 
 
@@ -326,6 +286,13 @@ public final class HBCIHandler
             }
         }
         
+        synchronized (this) {
+            if (executor!=null) {
+                executor.shutdown();
+                executor=null;
+            }
+        }
+        
         passport=null;
         kernel=null;
         dialogs=null;
@@ -402,15 +369,12 @@ public final class HBCIHandler
         if (jobname==null || jobname.length()==0)
             throw new InvalidArgumentException(HBCIUtilsInternal.getLocMsg("EXCMSG_EMPTY_JOBNAME"));
         
-        HBCIJobImpl ret=null;
-        String      className="org.kapott.hbci.GV.GV"+jobname;
+        if (!GVRegistry.contains(jobname))
+            throw new InvalidUserDataException("*** there is no highlevel job named "+jobname+" - need class org.kapott.hbci.GV.GV"+jobname);
 
+        HBCIJobImpl ret=null;
         try {
-            Class cl=Class.forName(className);
-            Constructor cons=cl.getConstructor(new Class[] {HBCIHandler.class});
-            ret=(HBCIJobImpl)cons.newInstance(new Object[] {this});
-        } catch (ClassNotFoundException e) {
-            throw new InvalidUserDataException("*** there is no highlevel job named "+jobname+" - need class "+className);
+            ret=GVRegistry.createJob(jobname,this);
         } catch (Exception e) {
             String msg=HBCIUtilsInternal.getLocMsg("EXCMSG_JOB_CREATE_ERR",jobname);
             if (!HBCIUtilsInternal.ignoreError(null,"client.errors.ignoreCreateJobErrors",msg))
@@ -535,6 +499,18 @@ public final class HBCIHandler
         try {
             HBCIExecStatus ret=new HBCIExecStatus();
             
+            int parallel=params.getConfig().getInt(PARAM_PARALLEL,0);
+            if (parallel>1 && dialogs.size()>1) {
+                // die signatur-id wird bei RDH/DDV mit jeder nachricht hochgezaehlt und
+                // muss bei der bank in aufsteigender reihenfolge ankommen. das ist bei
+                // ueberlappenden dialogen nicht sichergestellt. bei PIN/TAN bleibt sie fest
+                if (passport instanceof AbstractPinTanPassport) {
+                    executeParallel(ret,parallel);
+                } else {
+                    HBCIUtils.log("ignoring "+PARAM_PARALLEL+" - parallel dialogs are only supported for PIN/TAN passports",HBCIUtils.LOG_WARN);
+                }
+            }
+            
             while (!dialogs.isEmpty()) {
                 String customerid=dialogs.keySet().iterator().next();
                 HBCIUtils.log("executing dialog for customerid "+customerid,HBCIUtils.LOG_DEBUG);
@@ -563,6 +539,87 @@ public final class HBCIHandler
         }
     }
     
+    /* fuehrt die dialoge der verschiedenen kunden-ids parallel aus. jeder dialog
+     * erhaelt einen eigenen kernel und eine eigene verbindung. der zustand des
+     * gemeinsamen passports wird ueber die sperre weiterhin nacheinander veraendert,
+     * lediglich das warten auf die antworten der bank ueberlappt sich */
+    private void executeParallel(HBCIExecStatus ret,int maxThreads)
+    {
+        final List<String>   customerIds=new ArrayList<String>(dialogs.keySet());
+        final ReentrantLock  lock=new ReentrantLock();
+        
+        HBCIUtils.log("executing "+customerIds.size()+" dialogs in parallel",HBCIUtils.LOG_DEBUG);
+        ExecutorService executor=Executors.newFixedThreadPool(Math.min(maxThreads,customerIds.size()),
+                                                              r -> new Thread(r,"hbci-dialog"));
+        try {
+            Map<String,Future<HBCIDialogStatus>> results=new LinkedHashMap<String,Future<HBCIDialogStatus>>();
+            for (String customerid:customerIds) {
+                final HBCIDialog     dialog=dialogs.get(customerid);
+                final HBCIDialogLock dialogLock=new HBCIDialogLock(lock,passport,customerid);
+                results.put(customerid,executor.submit(HBCIContext.wrap(() -> executeDialog(dialog,dialogLock))));
+            }
+            
+            for (Map.Entry<String,Future<HBCIDialogStatus>> entry:results.entrySet()) {
+                String customerid=entry.getKey();
+                try {
+                    ret.addDialogStatus(customerid,entry.getValue().get());
+                } catch (ExecutionException e) {
+                    Throwable cause=e.getCause();
+                    ret.addException(customerid,(cause instanceof Exception)?(Exception)cause:e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    ret.addException(customerid,e);
+                } finally {
+                    dialogs.remove(customerid);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    /* fuehrt einen dialog mit eigenem kernel und eigener verbindung aus. die
+     * sperre wird nur waehrend der netzwerk-kommunikation freigegeben */
+    private HBCIDialogStatus executeDialog(HBCIDialog dialog,HBCIDialogLock lock)
+    {
+        lock.acquire();
+        Comm comm=null;
+        try {
+            HBCIUtils.log("executing dialog for customerid "+lock.getCustomerId(),HBCIUtils.LOG_DEBUG);
+            
+            final HBCIKernelImpl k=new HBCIKernelImpl(null,kernel.getHBCIVersion());
+            k.setParentHandlerData(new IHandlerData() {
+                public HBCIPassport getPassport()
+                {
+                    return passport;
+                }
+                public MsgGen getMsgGen()
+                {
+                    return k.getMsgGen();
+                }
+                public void sync(boolean force)
+                {
+                    HBCIHandler.this.sync(force);
+                }
+            });
+            
+            comm=((AbstractHBCIPassport)passport).getCommInstance();
+            k.setDialogComm(comm,lock);
+            dialog.setKernel(k);
+            return dialog.doIt();
+        } finally {
+            try {
+                if (comm!=null)
+                    comm.close();
+            } catch (Exception e) {
+                HBCIUtils.log("nested exception while closing connection: ", HBCIUtils.LOG_ERR);
+                HBCIUtils.log(e);
+            } finally {
+                lock.release();
+            }
+        }
+    }
+    
     /** <p>Entspricht {@link #execute()}, allerdings können Callbacks hier auch synchron
      * behandelt werden. Bei einem Aufruf von <code>executeThreaded()</code>
      * anstelle von <code>execute()</code> wird der eigentliche HBCI-Dialog in einem
@@ -578,62 +635,7 @@ public final class HBCIHandler
     public HBCIExecThreadedStatus executeThreaded()
     {
         HBCIUtils.log("main thread: starting new threaded execute",HBCIUtils.LOG_DEBUG);
-        
-        final ThreadSyncer sync_main=new ThreadSyncer("sync_main");
-        passport.setPersistentData("thread_syncer_main",sync_main);
-        
-        new Thread() { public void run() {
-            try {
-                HBCIUtils.log("hbci thread: starting execute()",HBCIUtils.LOG_DEBUG);
-                
-                HBCIExecStatus execStatus=execute();
-                sync_main.setData("execStatus",execStatus);
-            } catch (Exception e) {
-                // im fehlerfall (der eigentlich nie auftreten sollte, weil execute()
-                // selbst alle exceptions catcht) muss sicherheitshalber ein noch
-                // im sync-objekt enthaltenes altes execStatus-objekt entfernt
-                // werden
-                sync_main.setData("execStatus",null);
-            } finally {
-                // die existenz von "thread_syncer" im passport entscheidet
-                // in CallbackThreaded darüber, ob der threaded callback mechanimus
-                // verwendet werden soll oder das standard-callback.
-                // der threaded mechanismus wird allerdings *nur* für hbci.execute()
-                // verwendet, deshalb muss das thread_syncer-Objekt wieder entfernt
-                // werden, wenn hbci.execute() beendet ist.
-                passport.setPersistentData("thread_syncer_main",null);
-                
-                // egal, wie der hbci-thread beendet wird (fehlerhaft oder nicht),
-                // am ende muss auf jeden fall ein evtl. noch wartender main-thread
-                // wieder aufgeweckt werden (das kann entweder executeThreaded()
-                // oder continueThreaded() sein)
-                HBCIUtils.log("hbci thread: awaking main thread with hbci result data",HBCIUtils.LOG_DEBUG);
-                sync_main.setData("callbackData",null);
-                sync_main.stopWaiting();
-                
-                HBCIUtils.log("hbci thread: thread finished",HBCIUtils.LOG_DEBUG);
-            }
-        }}.start();
-        
-        // für dieses wait() brauche ich kein timeout, weil der hbci-thread auf
-        // jeden fall ein notify() macht, sobald er beendet wird oder sobald der
-        // hbci-thread callback-daten braucht. die sichere beendigung des 
-        // hbci-threads wiederum wird dadurch abgesichert, dass die waits() aus
-        // dem hbci-thread (warten auf callback-daten) mit timeouts versehen sind
-        HBCIUtils.log("main thread: waiting for hbci result or callback data from hbci thread",HBCIUtils.LOG_DEBUG);
-        sync_main.startWaiting(Integer.parseInt(HBCIUtils.getParam("kernel.threaded.maxwaittime","300")), "no response from hbci thread - timeout");
-        
-        HBCIExecThreadedStatus threadStatus=new HBCIExecThreadedStatus();
-        threadStatus.setCallbackData((Hashtable<String, Object>)sync_main.getData("callbackData"));
-        threadStatus.setExecStatus((HBCIExecStatus)sync_main.getData("execStatus"));
-        
-        HBCIUtils.log(
-            "main thread: received answer from hbci thread, returning status "+
-            "(isCallback="+threadStatus.isCallback()+
-            ", isFinished="+threadStatus.isFinished()+")",
-            HBCIUtils.LOG_DEBUG);
-
-        return threadStatus;
+        return awaitThreaded(executeAsync(getExecutor()));
     }
     
     /** <p>Setzt bei Verwendung des threaded-callback-Mechanismus einen noch 
@@ -661,39 +663,152 @@ public final class HBCIHandler
     public HBCIExecThreadedStatus continueThreaded(String retData)
     {
         HBCIUtils.log("main thread: continuing hbci dialog with callback retData",HBCIUtils.LOG_DEBUG);
-        
-        // diese sync-objekte gibt es immer (bei richtiger verwendung des API),
-        // weil continueThreaded() nur nach einem initialen executeThreaded()
-        // ausgeführt werden darf und auch nur dann, wenn bei beiden methoden
-        // noch kein endgültiges hbci-exec-status zurückgegeben wurde
+        return awaitThreaded(continueAsync(retData));
+    }
 
-        // damit wird das wait() im threaded callback wieder aufgeweckt
-        ThreadSyncer sync_hbci=(ThreadSyncer)passport.getPersistentData("thread_syncer_hbci");
-        sync_hbci.setData("retData",retData);
-        
-        HBCIUtils.log("main thread: awaking hbci thread with callback data from application",HBCIUtils.LOG_DEBUG);
-        sync_hbci.stopWaiting();
-        
-        // für dieses wait() brauche ich kein timeout, weil der hbci-thread auf
-        // jeden fall ein notify() macht, sobald er beendet wird oder sobald der
-        // hbci-thread callback-daten braucht. die sichere beendigung des 
-        // hbci-threads wiederum wird dadurch abgesichert, dass die waits() aus
-        // dem hbci-thread (warten auf callback-daten) mit timeouts versehen sind
-        ThreadSyncer sync_main=(ThreadSyncer)passport.getPersistentData("thread_syncer_main");
-        HBCIUtils.log("main thread: waiting for hbci result or new callback data from hbci thread",HBCIUtils.LOG_DEBUG);
-        sync_main.startWaiting(Integer.parseInt(HBCIUtils.getParam("kernel.threaded.maxwaittime","300")), "no response from hbci thread - timeout");
+    /** <p>Asynchrone Variante von {@link #initThreaded()}. Die Abfrage von BPD und
+     * UPD wird im angegebenen Executor ausgeführt. Die zurückgegebene Future wird
+     * abgeschlossen, sobald ein synchron zu behandelnder Callback auftritt oder die
+     * Initialisierung beendet ist.</p>
+     * <p>Die Initialisierung läuft im {@link HBCIContext} des Aufrufers.</p>
+     * @param executor der Executor, in dem die Initialisierung ausgeführt wird.
+     * @return das Ergebnis des ersten Schritts. */
+    public CompletableFuture<HBCIExecThreadedStatus> initAsync(Executor executor)
+    {
+        return startAsync(executor,() -> {
+            HBCIUtils.log("hbci thread: starting init()",HBCIUtils.LOG_DEBUG);
+            if (Feature.INIT_FLIP_USER_INST.isEnabled())
+            {
+              registerUser();
+              registerInstitute();
+            }
+            else
+            {
+              registerInstitute();
+              registerUser();
+            }
+            return null;
+        });
+    }
+
+    /** <p>Asynchrone Variante von {@link #executeThreaded()}. Die HBCI-Dialoge werden
+     * via {@link #execute()} im angegebenen Executor ausgeführt. Die zurückgegebene
+     * Future wird abgeschlossen, sobald ein synchron zu behandelnder Callback auftritt
+     * ({@link HBCIExecThreadedStatus#isCallback()}) oder alle Dialoge beendet sind
+     * ({@link HBCIExecThreadedStatus#isFinished()}). Die Antwort auf einen Callback
+     * wird mit {@link #continueAsync(String)} übergeben.</p>
+     * <p>Im Gegensatz zu {@link #executeThreaded()} blockiert der Aufruf nicht, so dass
+     * eine Anwendung viele Dialoge mit wenigen Threads verwalten kann. Ein Dialog, der
+     * auf die Antwort zu einem Callback wartet, belegt allerdings weiterhin einen Thread
+     * des Executors. Bei einem Executor mit fester Anzahl Threads begrenzt diese also
+     * die Anzahl gleichzeitig auf eine TAN wartender Dialoge.</p>
+     * <p>Die Dialoge laufen im {@link HBCIContext} des Aufrufers, verwenden also
+     * dessen Kernel-Parameter und Callback-Objekt. Die Threads des Executors müssen
+     * daher nicht zu einer für <em>HBCI4Java</em> initialisierten
+     * <code>ThreadGroup</code> gehören, es können z.Bsp. auch virtuelle Threads
+     * verwendet werden.</p>
+     * @param executor der Executor, in dem die Dialoge ausgeführt werden.
+     * @return das Ergebnis des ersten Schritts. */
+    public CompletableFuture<HBCIExecThreadedStatus> executeAsync(Executor executor)
+    {
+        return startAsync(executor,() -> {
+            HBCIUtils.log("hbci thread: starting execute()",HBCIUtils.LOG_DEBUG);
+            return execute();
+        });
+    }
+
+    /** Asynchrone Variante von {@link #continueThreaded(String)}. Übergibt die
+     * Antwort auf den aktuellen Callback an den wartenden HBCI-Thread.
+     * @param retData die Antwort auf den Callback.
+     * @return das Ergebnis des nächsten Schritts. */
+    public CompletableFuture<HBCIExecThreadedStatus> continueAsync(String retData)
+    {
+        // diese ausführung gibt es immer (bei richtiger verwendung des API),
+        // weil continueAsync() nur nach einem initialen executeAsync()
+        // ausgeführt werden darf und auch nur dann, wenn noch kein
+        // endgültiges hbci-exec-status zurückgegeben wurde
+        HBCIExecution execution=(HBCIExecution)passport.getPersistentData(HBCIExecution.KEY);
+        if (execution==null)
+            throw new HBCI_Exception("*** no threaded execution in progress");
+        return execution.answer(retData);
+    }
+
+    /* startet die ausführung im executor und liefert das ergebnis des ersten schritts */
+    private CompletableFuture<HBCIExecThreadedStatus> startAsync(Executor executor,Callable<HBCIExecStatus> task)
+    {
+        final HBCIExecution execution=new HBCIExecution();
+        passport.setPersistentData(HBCIExecution.KEY,execution);
+        CompletableFuture<HBCIExecThreadedStatus> result=execution.getNext();
         
-        HBCIExecThreadedStatus threadStatus=new HBCIExecThreadedStatus();
-        threadStatus.setCallbackData((Hashtable<String, Object>)sync_main.getData("callbackData"));
-        threadStatus.setExecStatus((HBCIExecStatus)sync_main.getData("execStatus"));
+        try {
+            executor.execute(HBCIContext.wrap(() -> {
+                HBCIExecStatus execStatus=null;
+                try {
+                    execStatus=task.call();
+                } catch (Exception e) {
+                    // im fehlerfall (der bei execute() eigentlich nie auftreten sollte,
+                    // weil execute() selbst alle exceptions catcht) wird kein
+                    // execStatus-objekt zurückgegeben
+                    HBCIUtils.log(e);
+                } finally {
+                    // die existenz der ausführung im passport entscheidet
+                    // in CallbackThreaded darüber, ob der threaded callback mechanimus
+                    // verwendet werden soll oder das standard-callback.
+                    // der threaded mechanismus wird allerdings *nur* für hbci.init() und
+                    // hbci.execute() verwendet, deshalb muss die ausführung wieder
+                    // entfernt werden, wenn diese beendet sind.
+                    passport.setPersistentData(HBCIExecution.KEY,null);
+                    
+                    // egal, wie der hbci-thread beendet wird (fehlerhaft oder nicht),
+                    // am ende muss auf jeden fall der aktuelle schritt abgeschlossen werden
+                    execution.finish(execStatus);
+                    HBCIUtils.log("hbci thread: thread finished",HBCIUtils.LOG_DEBUG);
+                }
+            }));
+        } catch (RuntimeException e) {
+            passport.setPersistentData(HBCIExecution.KEY,null);
+            throw e;
+        }
         
-        HBCIUtils.log(
-            "main thread: received answer from hbci thread, returning status "+
-            "(isCallback="+threadStatus.isCallback()+
-            ", isFinished="+threadStatus.isFinished()+")",
-            HBCIUtils.LOG_DEBUG);
-
-        return threadStatus;
+        return result;
+    }
+    
+    /* wartet im main-thread auf das ergebnis eines schritts. die sichere beendigung
+     * des hbci-threads wird dadurch abgesichert, dass das warten auf callback-daten
+     * im hbci-thread mit einem timeout versehen ist */
+    private HBCIExecThreadedStatus awaitThreaded(Future<HBCIExecThreadedStatus> future)
+    {
+        HBCIUtils.log("main thread: waiting for hbci result or callback data from hbci thread",HBCIUtils.LOG_DEBUG);
+        try {
+            HBCIExecThreadedStatus threadStatus=future.get(params.getConfig().getMaxWaitTime(),TimeUnit.SECONDS);
+            HBCIUtils.log(
+                "main thread: received answer from hbci thread, returning status "+
+                "(isCallback="+threadStatus.isCallback()+
+                ", isFinished="+threadStatus.isFinished()+")",
+                HBCIUtils.LOG_DEBUG);
+            return threadStatus;
+        } catch (TimeoutException e) {
+            throw new HBCI_Exception("*** no response from hbci thread - timeout",e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HBCI_Exception("*** interrupted while waiting for hbci thread",e);
+        } catch (ExecutionException e) {
+            throw new HBCI_Exception("*** error in hbci thread",e.getCause());
+        }
+    }
+    
+    /* liefert den executor für executeThreaded(). der kontext des aufrufers
+     * wird in startAsync() an die aufgabe übergeben */
+    private synchronized ExecutorService getExecutor()
+    {
+        if (executor==null) {
+            executor=Executors.newCachedThreadPool(r -> {
+                Thread t=new Thread(r,"hbci-execute");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return executor;
     }
     
     /** <p>Sperren der Nutzerschlüssel. Das ist nur dann sinnvoll, wenn zwei Bedinungen erfüllt sind:</p>
@@ -1028,8 +1143,9 @@ hbciHandle=new HBCIHandle(hbciversion,passport);
             throw new InvalidArgumentException(HBCIUtilsInternal.getLocMsg("EXCMSG_EMPTY_JOBNAME"));
         
         try {
-            Class cl=Class.forName("org.kapott.hbci.GV.GV"+jobnameHL);
-            String lowlevelName=(String)cl.getMethod("getLowlevelName",(Class[])null).invoke(null,(Object[])null);
+            String lowlevelName=GVRegistry.getLowlevelName(jobnameHL);
+            if (lowlevelName==null)
+                throw new InvalidUserDataException("*** there is no highlevel job named "+jobnameHL);
             return getSupportedLowlevelJobs().keySet().contains(lowlevelName);
         } catch (Exception e) {
             throw new HBCI_Exception(HBCIUtilsInternal.getLocMsg("EXCMSG_HANDLER_HLCHECKERR",jobnameHL),e);
@@ -21,32 +21,26 @@
 
 package org.kapott.hbci.manager;
 
-import java.io.InputStream;
-import java.lang.reflect.Constructor;
-import java.util.ArrayList;
-import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.List;
-import java.util.Properties;
-import java.util.StringTokenizer;
 
 import org.kapott.hbci.callback.HBCICallback;
+import org.kapott.hbci.comm.Comm;
 import org.kapott.hbci.exceptions.CanNotParseMessageException;
 import org.kapott.hbci.exceptions.HBCI_Exception;
-import org.kapott.hbci.exceptions.InvalidUserDataException;
 import org.kapott.hbci.passport.HBCIPassport;
 import org.kapott.hbci.passport.HBCIPassportInternal;
 import org.kapott.hbci.passport.HBCIPassportList;
 import org.kapott.hbci.protocol.MSG;
 import org.kapott.hbci.protocol.factory.MSGFactory;
-import org.kapott.hbci.rewrite.Rewrite;
+import org.kapott.hbci.protocol.syntax.SyntaxModel;
+import org.kapott.hbci.rewrite.RewriteContext;
+import org.kapott.hbci.rewrite.RewriterChain;
 import org.kapott.hbci.security.Crypt;
 import org.kapott.hbci.security.Sig;
 import org.kapott.hbci.security.factory.CryptFactory;
 import org.kapott.hbci.security.factory.SigFactory;
 import org.kapott.hbci.status.HBCIMsgStatus;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
 
 public final class HBCIKernelImpl implements HBCIKernel
 {
@@ -62,26 +56,22 @@ public final class HBCIKernelImpl implements HBCIKernel
     private String currentMsgName;   /* name of job currently beeing created */
     
     private IHandlerData parentHandlerData;
+    private Comm comm;               /* eigene verbindung des dialogs, sonst die des passports */
+    private HBCIDialogLock lock;     /* sperre bei parallel ausgefuehrten dialogen */
+    private KernelParams params;     /* kernel-parameter des erzeugenden kontextes */
     
     public HBCIKernelImpl(IHandlerData parentHandlerData,String hbciversion)
     {
         this.parentHandlerData=parentHandlerData;
         this.hbciversion=hbciversion;
+        this.params=HBCIUtils.getKernelParams();
 
-        String xmlpath=HBCIUtils.getParam("kernel.kernel.xmlpath");
-        InputStream syntaxStream=null;
-        if (xmlpath==null) {
-            xmlpath="";
-        }
-
-        ClassLoader cl=this.getClass().getClassLoader();
-        String filename=xmlpath+"hbci-"+hbciversion+".xml";
-        syntaxStream=cl.getResourceAsStream(filename);
-        if (syntaxStream==null)
-            throw new InvalidUserDataException(HBCIUtilsInternal.getLocMsg("EXCMSG_KRNL_CANTLOAD_SYN",filename));
+        // Die Syntax-Spezifikation wird nur beim ersten Mal geladen und dann
+        // von allen Kernel-Instanzen gemeinsam verwendet
+        SyntaxModel syntax=SyntaxCache.getInstance().getSyntax(HBCIUtils.getParam("kernel.kernel.xmlpath"),hbciversion);
         
         try {
-            gen=new MsgGen(syntaxStream);
+            gen=new MsgGen(syntax);
             currentMsgName=null;
         } catch (Exception e) {
             throw new HBCI_Exception(HBCIUtilsInternal.getLocMsg("EXCMSG_MSGGEN_INIT"),e);
@@ -106,21 +96,23 @@ public final class HBCIKernelImpl implements HBCIKernel
         return this.parentHandlerData;
     }
 
+    /**
+     * Legt fest, dass dieser Kernel eine eigene Verbindung verwendet und waehrend
+     * des Wartens auf die Antwort der Bank die Sperre des Dialogs freigibt.
+     * Wird fuer die parallele Ausfuehrung mehrerer Dialoge eines Handlers verwendet.
+     * @param comm die Verbindung des Dialogs.
+     * @param lock die vom Aufrufer gehaltene Sperre des Dialogs.
+     */
+    public void setDialogComm(Comm comm, HBCIDialogLock lock)
+    {
+        this.comm=comm;
+        this.lock=lock;
+    }
+
     public String getHBCIVersion(int dummy)
     {
-        String   ret="";
-        NodeList nodes=gen.getSyntax().getElementById("MsgHeadUser").getElementsByTagName("value");
-        int      len=nodes.getLength();
-        
-        for (int i=0;i<len;i++) {
-            Element node=(Element)nodes.item(i);
-            if (node.getAttribute("path").equals("hbciversion")) {
-                ret=node.getFirstChild().getNodeValue();
-                break;
-            }
-        }
-        
-        return ret;
+        String ret=gen.getSyntax().getDef("MsgHeadUser").getValue("hbciversion");
+        return (ret!=null)?ret:"";
     }
 
     /*  Starts the creation of a new HBCI message (mid-level API).
@@ -153,7 +145,7 @@ public final class HBCIKernelImpl implements HBCIKernel
         @param value String-representation of the new value for that element */
     public void rawSet(String key, String value)
     {
-        HBCIUtils.log("setting raw property "+currentMsgName+"."+key+" to \""+value+"\"",
+        HBCIUtils.log(() -> "setting raw property "+currentMsgName+"."+key+" to \""+value+"\"",
                       HBCIUtils.LOG_DEBUG2);
         
         if (currentMsgName==null)
@@ -208,37 +200,12 @@ public final class HBCIKernelImpl implements HBCIKernel
             // plaintextnachricht erzeugen
             msg=gen.generate(currentMsgName);
             
-            // alle daten für den rewriter setzen
-            Rewrite.setData("passports",passports);
-            Rewrite.setData("msgStatus",ret);
-            Rewrite.setData("msgName",currentMsgName);
-            Rewrite.setData("signIt",Boolean.valueOf(signit));
-            Rewrite.setData("cryptIt",Boolean.valueOf(cryptit));
-
-            // liste der rewriter erzeugen
-            String rewriters_st=HBCIUtils.getParam("kernel.rewriter");
-            ArrayList<Rewrite> al=new ArrayList<Rewrite>();
-            StringTokenizer tok=new StringTokenizer(rewriters_st,",");
-            while (tok.hasMoreTokens()) {
-                String rewriterName=tok.nextToken().trim();
-                if (rewriterName.length()!=0) {
-                    Class cl=this.getClass().getClassLoader().loadClass("org.kapott.hbci.rewrite.R"+
-                                                                        rewriterName);
-                    Constructor con=cl.getConstructor((Class[])null);
-                    Rewrite rewriter=(Rewrite)(con.newInstance((Object[])null));
-                    al.add(rewriter);
-                }
-            }
-            Rewrite[] rewriters=al.toArray(new Rewrite[al.size()]);
+            // kontext und liste der rewriter
+            RewriteContext rewriteCtx=new RewriteContext(gen,currentMsgName,passports,ret,signit,cryptit);
+            RewriterChain  rewriters=RewriterChain.getInstance();
             
             // alle rewriter durchlaufen und plaintextnachricht patchen
-            for (int i=0;i<rewriters.length;i++) {
-                MSG old=msg;
-                msg=rewriters[i].outgoingClearText(old,gen);
-                if (msg!=old) {
-                    MSGFactory.getInstance().unuseObject(old);
-                }
-            }
+            msg=rewriters.outgoingClearText(msg,rewriteCtx);
             
             // HBCIUtils.log("sending msg: "+msg.toString(0));
             
@@ -261,39 +228,22 @@ public final class HBCIKernelImpl implements HBCIKernel
                 }
 
                 // alle rewrites erledigen, die *nach* dem hinzufügen der signatur stattfinden müssen
-                for (int i=0;i<rewriters.length;i++) {
-                    MSG old=msg;
-                    msg=rewriters[i].outgoingSigned(old,gen);
-                    if (msg!=old) {
-                        MSGFactory.getInstance().unuseObject(old);
-                    }
-                }
+                msg=rewriters.outgoingSigned(msg,rewriteCtx);
             }
             
             /* zu jeder SyntaxElement-Referenz (2:3,1)==(SEG:DEG,DE) den Pfad
-               des jeweiligen Elementes speichern */
-            Properties paths=new Properties();
-            msg.getElementPaths(paths,null,null,null);
-            ret.addData(paths);
-            
-            /* für alle Elemente (Pfadnamen) die aktuellen Werte speichern,
+               des jeweiligen Elementes sowie die aktuellen Werte speichern,
                wie sie bei der ausgehenden Nachricht versandt werden */
-            Hashtable<String,String> current=new Hashtable<String,String>();
-            msg.extractValues(current);
-            Properties origs=new Properties();
-            for (Enumeration<String> e=current.keys();e.hasMoreElements();) {
-                String key= e.nextElement();
-                String value= current.get(key);
-                origs.setProperty("orig_"+key,value);
-            }
-            ret.addData(origs);
+            ret.setSentMsg(msg);
             
-            // zu versendene nachricht loggen
-            String outstring=msg.toString(0);
-            HBCIUtils.log("sending message: "+outstring,HBCIUtils.LOG_DEBUG2);
+            // zu versendene nachricht loggen und max. nachrichtengröße aus BPD überprüfen.
+            // die nachricht wird nur dafür serialisiert, wenn es tatsächlich nötig ist
+            int     maxmsgsize=mainPassport.getMaxMsgSizeKB();
+            boolean debug=HBCIUtils.isLogEnabled(HBCIUtils.LOG_DEBUG2);
+            String  outstring=(debug || maxmsgsize!=0)?msg.toString(0):null;
+            if (debug)
+                HBCIUtils.log("sending message: "+outstring,HBCIUtils.LOG_DEBUG2);
 
-            // max. nachrichtengröße aus BPD überprüfen
-            int maxmsgsize=mainPassport.getMaxMsgSizeKB();
             if (maxmsgsize!=0 && (outstring.length()>>10)>maxmsgsize) {
                 String errmsg=HBCIUtilsInternal.getLocMsg("EXCMSG_MSGTOOLARGE",
                                                   new Object[] {Integer.toString(outstring.length()>>10),Integer.toString(maxmsgsize)});
@@ -325,15 +275,10 @@ public final class HBCIKernelImpl implements HBCIKernel
                 }
 
                 // verschlüsselte nachricht patchen
-                for (int i=0;i<rewriters.length;i++) {
-                    MSG oldMsg=msg;
-                    msg=rewriters[i].outgoingCrypted(oldMsg,gen);
-                    if (msg!=oldMsg) {
-                        MSGFactory.getInstance().unuseObject(oldMsg);
-                    }
-                }
+                msg=rewriters.outgoingCrypted(msg,rewriteCtx);
                 
-                HBCIUtils.log("encrypted message to be sent: "+msg.toString(0),HBCIUtils.LOG_DEBUG2);
+                if (HBCIUtils.isLogEnabled(HBCIUtils.LOG_DEBUG2))
+                    HBCIUtils.log("encrypted message to be sent: "+msg.toString(0),HBCIUtils.LOG_DEBUG2);
             }
 
             // basic-values der ausgehenden nachricht merken
@@ -345,7 +290,18 @@ public final class HBCIKernelImpl implements HBCIKernel
             // nachricht versenden und antwortnachricht empfangen
             HBCIUtils.log("communicating dialogid/msgnum "+dialogid+"/"+msgnum,HBCIUtils.LOG_DEBUG);
             MSG old=msg;
-            msg=mainPassport.getComm().pingpong(currentMsgName,old);
+            if (comm!=null) {
+                // paralleler dialog: waehrend der netzwerk-kommunikation koennen
+                // andere dialoge das passport verwenden
+                lock.release();
+                try {
+                    msg=comm.pingpong(rewriteCtx,old);
+                } finally {
+                    lock.acquire();
+                }
+            } else {
+                msg=mainPassport.getComm().pingpong(rewriteCtx,old);
+            }
             if (msg!=old) {
                 MSGFactory.getInstance().unuseObject(old);
             }
@@ -373,10 +329,7 @@ public final class HBCIKernelImpl implements HBCIKernel
                 
                 // alle patches für die unverschlüsselte nachricht durchlaufen
                 HBCIUtils.log("rewriting message",HBCIUtils.LOG_DEBUG);
-                for (int i=0;i<rewriters.length;i++) {
-                    HBCIUtils.log("applying rewriter " + rewriters[i].getClass().getSimpleName(),HBCIUtils.LOG_DEBUG);
-                    newmsgstring=rewriters[i].incomingClearText(newmsgstring,gen);
-                }
+                newmsgstring=rewriters.incomingClearText(newmsgstring,rewriteCtx);
                 HBCIUtils.log("rewriting done",HBCIUtils.LOG_DEBUG);
                 
                 HBCIUtils.log("decrypted message after rewriting: "+newmsgstring,HBCIUtils.LOG_DEBUG2);
@@ -384,7 +337,8 @@ public final class HBCIKernelImpl implements HBCIKernel
                 // nachricht als plaintextnachricht parsen
                 try {
                     HBCIUtilsInternal.getCallback().status(mainPassport,HBCICallback.STATUS_MSG_PARSE,currentMsgName+"Res");
-                    HBCIUtils.log("message to pe parsed: "+msg.toString(0),HBCIUtils.LOG_DEBUG2);
+                    if (HBCIUtils.isLogEnabled(HBCIUtils.LOG_DEBUG2))
+                        HBCIUtils.log("message to pe parsed: "+msg.toString(0),HBCIUtils.LOG_DEBUG2);
                     MSG oldMsg=msg;
                     msg=MSGFactory.getInstance().createMSG(currentMsgName+"Res",newmsgstring,newmsgstring.length(),gen);
                     if (msg!=oldMsg) {
@@ -399,22 +353,15 @@ public final class HBCIKernelImpl implements HBCIKernel
               HBCIUtilsInternal.getCallback().status(mainPassport,HBCICallback.STATUS_MSG_RAW_RECV,msg.toString(0));
             }
             
-            HBCIUtils.log("received message after decryption: "+msg.toString(0),HBCIUtils.LOG_DEBUG2);
+            if (HBCIUtils.isLogEnabled(HBCIUtils.LOG_DEBUG2))
+                HBCIUtils.log("received message after decryption: "+msg.toString(0),HBCIUtils.LOG_DEBUG2);
 
             // alle patches für die plaintextnachricht durchlaufen
-            for (int i=0;i<rewriters.length;i++) {
-                MSG oldMsg=msg;
-                msg=rewriters[i].incomingData(oldMsg,gen);
-                if (msg!=oldMsg) {
-                    MSGFactory.getInstance().unuseObject(oldMsg);
-                }
-            }
+            msg=rewriters.incomingData(msg,rewriteCtx);
             
             // daten aus nachricht in status-objekt einstellen
             HBCIUtils.log("extracting data from received message",HBCIUtils.LOG_DEBUG);
-            Properties p=msg.getData();
-            p.setProperty("_msg", gen.get("_origSignedMsg"));
-            ret.addData(p);
+            ret.setReceivedMsg(msg,gen.get("_origSignedMsg"));
             
             // überprüfen einiger constraints, die in einer antwortnachricht eingehalten werden müssen
             msgPath=msg.getPath();
@@ -474,7 +421,7 @@ public final class HBCIKernelImpl implements HBCIKernel
             // because some credit institutes are buggy regarding HKEND responses
             String paramName="client.errors.ignoreDialogEndErrors";
             if (currentMsgName.startsWith("DialogEnd") && 
- 	            HBCIUtils.getParam(paramName,"no").equals("yes"))
+ 	            params.getConfig().getParam(paramName,"no").equals("yes"))
             {
                 HBCIUtils.log(e,HBCIUtils.LOG_WARN);
                 HBCIUtils.log("error while receiving DialogEnd response - "+
@@ -47,6 +47,9 @@ import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Properties;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
 
 import org.kapott.cryptalgs.CryptAlgs4JavaProvider;
 import org.kapott.hbci.GV_Result.GVRKUms;
@@ -313,6 +316,19 @@ import org.kapott.hbci.swift.Swift;
  * verwendet).
  * </p>
  * </li>
+ * <li><code>client.passport.PinTan.comm</code> (für PIN/TAN-Passports)
+ * <p>
+ * Legt die Kommunikationsschicht für PIN/TAN-Passports fest. Mit dem Default
+ * <code>PinTan</code> wird für jede Nachricht eine eigene, blockierende
+ * HTTPS-Verbindung verwendet. Mit <code>PinTanAsync</code> werden die
+ * HTTPS-Verbindungen zum Bank-Server über Dialoge hinweg wiederverwendet.
+ * Ab Java 11 werden die Nachrichten dabei nicht-blockierend verschickt, so dass
+ * während des Wartens auf die Antwort der Bank nur der Dialog-Thread selbst
+ * belegt ist. Auf älteren Java-Versionen sowie bei deaktivierter
+ * Zertifikatsprüfung, aktivem SSL-Logging oder Proxy ist je laufendem
+ * Request ein Thread blockiert.
+ * </p>
+ * </li>
  * <li><code>client.passport.SIZRDHFile.filename</code> (für
  * SIZRDHFile-Passports)
  * <p>
@@ -388,6 +404,52 @@ import org.kapott.hbci.swift.Swift;
  * Exception geworfen und die weitere Programmausführung unterbrochen wird.
  * </p>
  * </li>
+ * <li><code>client.passport.keycache.timeout</code>
+ * <p>
+ * Beim Lesen und Schreiben von Passport-Dateien im AES-Format wird der Schlüssel
+ * jedesmal aufwändig aus dem Passwort abgeleitet. Ist dieser Parameter auf
+ * einen Wert größer 0 gesetzt, wird der abgeleitete Schlüssel für die angegebene
+ * Anzahl Sekunden im Passport-Objekt zwischengespeichert, sodass wiederholtes
+ * Speichern innerhalb eines Dialoges ohne erneute Ableitung erfolgt. Beim
+ * Schließen des Passports wird der Schlüssel verworfen. Default-Wert ist
+ * <code>0</code> (deaktiviert).
+ * </p>
+ * </li>
+ * <li><code>client.compression.minsize</code>
+ * <p>
+ * Ist hier ein Wert größer 0 angegeben und unterstützt die Bank laut BPD
+ * (Segment HIKPV) eine der Komprimierungsfunktionen "deflate" oder "ZIP", so
+ * werden verschlüsselte Nachrichten ab der hier angegebenen Größe der Nutzdaten
+ * (in Bytes) vor der Verschlüsselung komprimiert. Bei PIN/TAN wird nie
+ * komprimiert, da die Nutzdaten dort nicht verschlüsselt werden. Komprimierte
+ * Antworten der Bank werden unabhängig von diesem Parameter immer entpackt.
+ * Default-Wert ist <code>0</code> (deaktiviert).
+ * </p>
+ * </li>
+ * <li><code>client.compression.maxsize</code>
+ * <p>
+ * Maximale Größe (in Bytes), auf die eine komprimierte Antwort der Bank entpackt
+ * wird. Ist die entpackte Nachricht größer, wird sie mit einem Fehler abgewiesen.
+ * Ein Wert kleiner oder gleich 0 hebt die Begrenzung auf. Default-Wert ist
+ * <code>67108864</code> (64 MB).
+ * </p>
+ * </li>
+ * <li><code>client.execute.parallel</code>
+ * <p>
+ * Enthält die Auftragsliste eines Handlers Aufträge für mehrere Kunden-IDs, so
+ * wird bei {@link HBCIHandler#execute()} für jede Kunden-ID ein eigener Dialog
+ * geführt. Ist dieser Parameter auf einen Wert größer 1 gesetzt, werden bis zu
+ * dieser Anzahl Dialoge gleichzeitig mit jeweils eigener Verbindung ausgeführt.
+ * Zugriffe auf das gemeinsam genutzte Passport (Signatur-ID, TAN-Verfahren,
+ * Speichern der Passport-Datei) und Callbacks mit Benutzereingaben erfolgen
+ * weiterhin nacheinander, parallel läuft nur das Warten auf die Antworten der
+ * Bank. Status-Callbacks können dabei aus verschiedenen Threads aufgerufen werden.
+ * Der Parameter wird nur bei PIN/TAN-Passports berücksichtigt. Bei RDH und DDV
+ * muss die Signatur-ID in aufsteigender Reihenfolge bei der Bank eingehen, dort
+ * werden die Dialoge immer nacheinander ausgeführt.
+ * Default-Wert ist <code>0</code> (Dialoge nacheinander ausführen).
+ * </p>
+ * </li>
  * <li><code>client.connection.localPort</code>
  * <p>
  * Für Anwendungen, die sich hinter einer Firewall befinden, welche nur
@@ -414,6 +476,13 @@ import org.kapott.hbci.swift.Swift;
  * werden soll.
  * </p>
  * </li>
+ * <li><code>sepa.parser.stax</code>
+ * <p>
+ * Legt fest, ob Umsätze im CAMT.052-Format (ab Version 001.02) per StAX
+ * gestreamt gelesen werden (1, Default) oder wie früher komplett per JAXB
+ * in den Speicher geladen werden (0).
+ * </p>
+ * </li>
  * <li><code>bpd.maxage.days</code>
  * <p>
  * Maximales Alter der BPD in Tagen nach deren Ablauf die BPD erneut abgerufen
@@ -474,6 +543,30 @@ import org.kapott.hbci.swift.Swift;
  * "identifizierenden" Daten und alle "geheimen" Daten gefiltert.
  * </p>
  * </li>
+ * <li><code>log.caller</code>
+ * <p>
+ * Legt fest, ob für jede Log-Ausgabe die aufrufende Stelle im Code ermittelt
+ * und an {@link HBCICallback#log(String, int, Date, StackTraceElement)}
+ * übergeben wird (1, Default). Das Ermitteln ist vergleichsweise teuer. Bei 0
+ * wird statt dessen ein Platzhalter übergeben.
+ * </p>
+ * </li>
+ * <li><code>log.async</code>
+ * <p>
+ * Kann auf 1 gesetzt werden, wenn Log-Ausgaben nicht im loggenden Thread,
+ * sondern von einem separaten Thread an das Callback-Objekt übergeben werden
+ * sollen. Der loggende Thread muss dann nicht auf das Callback warten. Die im
+ * Log angezeigten Namen von ThreadGroup und Thread sind in diesem Fall die des
+ * Log-Threads. Default ist 0.
+ * </p>
+ * </li>
+ * <li><code>log.async.capacity</code>
+ * <p>
+ * Maximale Anzahl der bei <code>log.async=1</code> gepufferten Log-Ausgaben.
+ * Ist der Puffer voll, wird die Log-Ausgabe ausnahmsweise synchron an das
+ * Callback-Objekt übergeben. Default ist 4096.
+ * </p>
+ * </li>
  * <li><code>log.ssl.enable</code>
  * <p>
  * Dieser Parameter kann die Werte 0 und 1 annehmen. Ist er auf 1 gesetzt, wird
@@ -615,6 +708,15 @@ import org.kapott.hbci.swift.Swift;
  * Nachrichten) (128 je Datentyp)
  * </p>
  * </li>
+ * <li>
+ * <p>
+ * <code>kernel.objpool.strategy</code> -- Verwaltung der Pools
+ * (<code>synchronized</code>). Mögliche Werte sind <code>synchronized</code>
+ * (gemeinsamer Pool mit Lock), <code>lockfree</code> (gemeinsamer Pool ohne Lock),
+ * <code>threadlocal</code> (freie Objekte je Thread, bis zur Pool-Größe je
+ * Thread) und <code>none</code> (kein Pooling). Der Parameter wird beim ersten Erzeugen der Pools ausgewertet.
+ * </p>
+ * </li>
  * </ul>
  * </li>
  * <li>
@@ -705,7 +807,10 @@ public final class HBCIUtils
 	/** Loglevel für devel-Debugging - nicht benutzen! */
 	public static final int								LOG_INTERN	= 6;
 
-	private static Hashtable<ThreadGroup, Properties>	configs;																							// threadgroup->hashtable(paramname->paramvalue)
+	private static final ConcurrentMap<Object, LogSettings>	logSettings	= new ConcurrentHashMap<Object, LogSettings>();
+	private static final StackTraceElement				UNKNOWN_CALLER	= new StackTraceElement(HBCIUtils.class.getName(), "log", null, -1);
+
+	private static Hashtable<Object, Properties>	configs;																							// threadgroup/context->hashtable(paramname->paramvalue)
 	private static char[]								base64table	= { 'A', 'B', 'C', 'D', 'E', 'F', 'G', 'H', 'I', 'J', 'K', 'L', 'M', 'N', 'O', 'P', 'Q',
 			'R', 'S', 'T', 'U', 'V', 'W', 'X', 'Y', 'Z', 'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'i', 'j', 'k', 'l', 'm', 'n', 'o', 'p', 'q', 'r', 's', 't',
 			'u', 'v', 'w', 'x', 'y', 'z', '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', '+', '/' };
@@ -716,12 +821,13 @@ public final class HBCIUtils
 
 	private static void initDataStructures ( )
 	{
-		configs = new Hashtable<ThreadGroup, Properties>();
-		HBCIUtilsInternal.callbacks = new Hashtable<ThreadGroup, HBCICallback>();
+		configs = new Hashtable<Object, Properties>();
+		logSettings.clear();
+		HBCIUtilsInternal.callbacks = new Hashtable<Object, HBCICallback>();
 		HBCIUtilsInternal.blzs = new Properties();
 		HBCIUtilsInternal.banks = new HashMap<String, BankInfo>();
-		HBCIUtilsInternal.locMsgs = new Hashtable<ThreadGroup, ResourceBundle>();
-		HBCIUtilsInternal.locales = new Hashtable<ThreadGroup, Locale>();
+		HBCIUtilsInternal.locMsgs = new Hashtable<Object, ResourceBundle>();
+		HBCIUtilsInternal.locales = new Hashtable<Object, Locale>();
 	}
 
 	private HBCIUtils ()
@@ -925,6 +1031,11 @@ public final class HBCIUtils
 	 * <code>init()</code> übernommen.
 	 * </p>
 	 * <p>
+	 * Ist an den aktuellen Thread ein expliziter {@link HBCIContext} gebunden
+	 * (z.Bsp. bei virtuellen Threads oder Thread-Pools), so wird statt der
+	 * <code>ThreadGroup</code> dieser Kontext initialisiert.
+	 * </p>
+	 * <p>
 	 * Siehe dazu auch die Datei <code>README.MultiThreading</code> in den
 	 * <em>HBCI4Java</em>-Archiven.
 	 * </p>
@@ -962,7 +1073,7 @@ public final class HBCIUtils
 	 */
 	public static synchronized void initThread ( Properties props, HBCICallback callback )
 	{
-		ThreadGroup threadgroup = Thread.currentThread().getThreadGroup();
+		Object threadgroup = HBCIContext.currentKey();
 
 		if (HBCIUtilsInternal.callbacks.get(threadgroup) != null)
 		{
@@ -973,7 +1084,7 @@ public final class HBCIUtils
 			try
 			{
 				// initialize kernel params
-				Properties config = new Properties();
+				Properties config = new KernelParams();
 				if (props != null)
 				{
 					config.putAll(props);
@@ -992,7 +1103,7 @@ public final class HBCIUtils
 				// initialize callback
 				if (callback == null)
 				{
-					ThreadGroup parent = Thread.currentThread().getThreadGroup().getParent();
+					Object parent = HBCIContext.parentKey(threadgroup);
 					callback = HBCIUtilsInternal.callbacks.get(parent);
 					if (callback == null)
 					{
@@ -1000,16 +1111,17 @@ public final class HBCIUtils
 					}
 				}
 				HBCIUtilsInternal.callbacks.put(threadgroup, callback);
+				logSettings.remove(threadgroup);
 
 				// configure Locale
 				initLocale();
 
-				HBCIUtils.log("initialized HBCI4Java for thread group " + threadgroup.getName(), HBCIUtils.LOG_DEBUG);
+				HBCIUtils.log("initialized HBCI4Java for thread group " + HBCIContext.nameOf(threadgroup), HBCIUtils.LOG_DEBUG);
 
 			}
 			catch (Exception ex)
 			{
-				throw new HBCI_Exception("*** could not init HBCI4Java for thread group " + threadgroup.getName(), ex);
+				throw new HBCI_Exception("*** could not init HBCI4Java for thread group " + HBCIContext.nameOf(threadgroup), ex);
 			}
 		}
 	}
@@ -1073,11 +1185,12 @@ public final class HBCIUtils
 	{
 		HBCIUtils.log("removing all data for current thread", HBCIUtils.LOG_DEBUG);
 
-		ThreadGroup group = Thread.currentThread().getThreadGroup();
+		Object group = HBCIContext.currentKey();
 		HBCIUtilsInternal.callbacks.remove(group);
 		configs.remove(group);
 		HBCIUtilsInternal.locMsgs.remove(group);
 		HBCIUtilsInternal.locales.remove(group);
+		logSettings.remove(group);
 	}
 
 	/**
@@ -1089,6 +1202,14 @@ public final class HBCIUtils
 	public static synchronized void done ( )
 	{
 		HBCIUtils.log("destroying all HBCI4Java resources", HBCIUtils.LOG_DEBUG);
+		try
+		{
+			LogDispatcher.getInstance().flush(1000L);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
 		initDataStructures();
 	}
 
@@ -1123,7 +1244,7 @@ public final class HBCIUtils
 			log("using specified locale " + locale.toString(), HBCIUtils.LOG_DEBUG);
 		}
 
-		ThreadGroup threadgroup = Thread.currentThread().getThreadGroup();
+		Object threadgroup = HBCIContext.currentKey();
 		synchronized (HBCIUtilsInternal.locales)
 		{
 			HBCIUtilsInternal.locales.put(threadgroup, locale);
@@ -1141,7 +1262,7 @@ public final class HBCIUtils
 	 */
 	public static Locale getLocale ( )
 	{
-		ThreadGroup group = Thread.currentThread().getThreadGroup();
+		Object group = HBCIContext.currentKey();
 		return HBCIUtilsInternal.locales.get(group);
 	}
 
@@ -1158,23 +1279,25 @@ public final class HBCIUtils
 	 */
 	public static String getParam ( String st, String def )
 	{
-		ThreadGroup group = Thread.currentThread().getThreadGroup();
+		Object group = HBCIContext.currentKey();
 		Properties config = getParams();
 		if (config == null)
 		{
-			throw new HBCI_Exception(HBCIUtilsInternal.getLocMsg("EXCMSG_THREAD_NOTINIT", group.getName()));
+			throw new HBCI_Exception(HBCIUtilsInternal.getLocMsg("EXCMSG_THREAD_NOTINIT", HBCIContext.nameOf(group)));
 		}
 		return config.getProperty(st, def);
 	}
 
 	/**
 	 * Gibt eine Map aller in der aktuellen ThreadGroup gesetzten
-	 * Kernel-Parameter zurück.
+	 * Kernel-Parameter zurück. Änderungen an der Map und ihren Views verwerfen
+	 * - wie {@link #setParam(String, String)} - den von {@link #getConfig()}
+	 * gelieferten Schnappschuss.
 	 */
 	public static Properties getParams ( )
 	{
 		Properties params;
-		ThreadGroup threadgroup = Thread.currentThread().getThreadGroup();
+		Object threadgroup = HBCIContext.currentKey();
 
 		synchronized (configs)
 		{
@@ -1184,6 +1307,40 @@ public final class HBCIUtils
 		return params;
 	}
 
+	/**
+	 * Liefert einen unveränderlichen Schnappschuss der Kernel-Parameter der
+	 * aktuellen {@link java.lang.ThreadGroup}. Der Schnappschuss wird
+	 * gecached und erst bei einer Änderung via
+	 * {@link #setParam(String, String)} oder direkt an {@link #getParams()}
+	 * neu erstellt. Zahlenwerte werden
+	 * darin nur einmal geparst, so dass sich der Schnappschuss für häufige
+	 * Abfragen im Nachrichten-Code eignet.
+	 *
+	 * @return der Schnappschuss der Kernel-Parameter.
+	 */
+	public static KernelConfig getConfig ( )
+	{
+		return getKernelParams().getConfig();
+	}
+
+	/**
+	 * Liefert die Kernel-Parameter der aktuellen {@link java.lang.ThreadGroup}.
+	 * Wird von {@link HBCIHandler} und {@link HBCIKernelImpl} einmalig beim
+	 * Erzeugen abgefragt, damit deren Zugriffe auf {@link #getConfig()} ohne
+	 * Lookup des Kontextes auskommen.
+	 *
+	 * @return die Kernel-Parameter.
+	 */
+	static KernelParams getKernelParams ( )
+	{
+		Properties params = getParams();
+		if (params == null)
+		{
+			throw new HBCI_Exception(HBCIUtilsInternal.getLocMsg("EXCMSG_THREAD_NOTINIT", HBCIContext.nameOf(HBCIContext.currentKey())));
+		}
+		return (KernelParams) params;
+	}
+
 	/**
 	 * Gibt den aktuellen Wert eines bestimmten HBCI-Parameters zurück. Für jede
 	 * {@link java.lang.ThreadGroup} wird ein separater Satz von HBCI-Parametern
@@ -1498,11 +1655,11 @@ public final class HBCIUtils
 	 */
 	public static void setParam ( String key, String value )
 	{
-		ThreadGroup group = Thread.currentThread().getThreadGroup();
+		Object group = HBCIContext.currentKey();
 		Properties config = getParams();
 		if (config == null)
 		{
-			throw new HBCI_Exception(HBCIUtilsInternal.getLocMsg("EXCMSG_THREAD_NOTINIT", group.getName()));
+			throw new HBCI_Exception(HBCIUtilsInternal.getLocMsg("EXCMSG_THREAD_NOTINIT", HBCIContext.nameOf(group)));
 		}
 
 		synchronized (config)
@@ -1533,27 +1690,150 @@ public final class HBCIUtils
 	 *            <li><code>LOG_CHIPCARD</code> (wird nur intern benutzt)</li>
 	 *            </ul>
 	 */
-	public static synchronized void log ( String st, int level )
+	public static void log ( String st, int level )
 	{
-		if (level <= Integer.parseInt(getParam("log.loglevel.default", "2")))
+		LogSettings settings = getLogSettings();
+		if (level <= settings.level)
 		{
-			StackTraceElement trace = null;
-			try
-			{
-				throw new Exception("");
-			}
-			catch (Exception e)
-			{
-				trace = e.getStackTrace()[1];
-			}
+			write(settings, st, level);
+		}
+	}
+
+	/**
+	 * Ausgabe eines Log-Strings über den Log-Mechanismus des HBCI-Kernels.
+	 * Im Gegensatz zu {@link #log(String, int)} wird die Meldung nur dann
+	 * erzeugt, wenn sie wegen des eingestellten Log-Levels auch tatsächlich
+	 * ausgegeben wird. Sinnvoll für aufwändig zu erzeugende Meldungen, z.B.
+	 * für den Inhalt kompletter Nachrichten.
+	 *
+	 * @param message
+	 *            erzeugt den auszugebenden String
+	 * @param level
+	 *            die "Wichtigkeit" dieser Meldung. Siehe
+	 *            {@link #log(String,int)}
+	 */
+	public static void log ( Supplier<String> message, int level )
+	{
+		LogSettings settings = getLogSettings();
+		if (level <= settings.level)
+		{
+			write(settings, message.get(), level);
+		}
+	}
+
+	/**
+	 * Prüft, ob Meldungen mit dem angegebenen Log-Level ausgegeben werden.
+	 *
+	 * @param level
+	 *            der Log-Level.
+	 * @return true, wenn Meldungen mit diesem Level ausgegeben werden.
+	 */
+	public static boolean isLogEnabled ( int level )
+	{
+		return level <= getLogSettings().level;
+	}
+
+	/**
+	 * Filtert die Meldung und übergibt sie an das Callback-Objekt.
+	 *
+	 * @param settings
+	 *            die Log-Einstellungen der aktuellen ThreadGroup.
+	 * @param st
+	 *            die Meldung.
+	 * @param level
+	 *            der Log-Level.
+	 */
+	private static void write ( LogSettings settings, String st, int level )
+	{
+		StackTraceElement trace = settings.caller ? findCaller() : UNKNOWN_CALLER;
+
+		if (settings.filter != 0)
+		{
+			st = LogFilter.getInstance().filterLine(st, settings.filter);
+		}
+
+		LogDispatcher.getInstance().dispatch(settings.callback, st, level, new Date(), trace, settings.capacity);
+	}
 
-			int filterLevel = Integer.parseInt(HBCIUtils.getParam("log.filter", "2"));
-			if (filterLevel != 0)
+	/**
+	 * Ermittelt die Stelle im Code, von der aus geloggt wurde.
+	 *
+	 * @return die erste Stelle im Stacktrace außerhalb dieser Klasse.
+	 */
+	private static StackTraceElement findCaller ( )
+	{
+		StackTraceElement[] trace = new Throwable().getStackTrace();
+		String name = HBCIUtils.class.getName();
+		for (StackTraceElement e : trace)
+		{
+			if (!name.equals(e.getClassName()))
 			{
-				st = LogFilter.getInstance().filterLine(st, filterLevel);
+				return e;
 			}
+		}
+		return trace.length > 0 ? trace[trace.length - 1] : UNKNOWN_CALLER;
+	}
+
+	/**
+	 * Liefert die Log-Einstellungen der aktuellen ThreadGroup. Diese werden
+	 * beim ersten Log-Aufruf aus den Kernel-Parametern ermittelt und danach
+	 * ohne Synchronisierung aus dem Cache gelesen, solange {@link #getConfig()}
+	 * denselben Schnappschuss liefert, sich die Kernel-Parameter also weder via
+	 * {@link #setParam(String, String)} noch direkt in {@link #getParams()}
+	 * geändert haben.
+	 *
+	 * @return die Log-Einstellungen.
+	 */
+	private static LogSettings getLogSettings ( )
+	{
+		Object group = HBCIContext.currentKey();
+		KernelConfig config = getConfig();
+		LogSettings settings = logSettings.get(group);
+		if (settings != null && settings.config == config)
+		{
+			return settings;
+		}
+
+		HBCICallback callback = HBCIUtilsInternal.callbacks.get(group);
+		settings = new LogSettings(config, callback);
+
+		// Waehrend der Initialisierung der ThreadGroup gibt es noch kein Callback
+		if (callback != null)
+		{
+			logSettings.put(group, settings);
+		}
+		return settings;
+	}
 
-			HBCIUtilsInternal.getCallback().log(st, level, new Date(), trace);
+	/**
+	 * Die aus den Kernel-Parametern ermittelten Log-Einstellungen einer
+	 * ThreadGroup.
+	 */
+	private static final class LogSettings
+	{
+		private final KernelConfig	config;
+		private final int			level;
+		private final int			filter;
+		private final boolean		caller;
+		private final int			capacity;
+		private final HBCICallback	callback;
+
+		/**
+		 * ct.
+		 *
+		 * @param config
+		 *            der Schnappschuss der Kernel-Parameter.
+		 * @param callback
+		 *            das Callback-Objekt.
+		 */
+		private LogSettings ( KernelConfig config, HBCICallback callback )
+		{
+			this.config = config;
+			this.level = config.getInt("log.loglevel.default", 2);
+			this.filter = config.getLogFilter();
+			this.caller = !"0".equals(config.getParam("log.caller", "1"));
+			this.capacity = "1".equals(config.getParam("log.async", "0")) ? config.getInt("log.async.capacity", 4096) : 0;
+			this.callback = callback;
 		}
 	}
 
@@ -1563,7 +1843,7 @@ public final class HBCIUtils
    *
    * @param exceptions die Exception, deren <code>getMessage()</code>-Meldungen geloggt werden sollen.
    */
-  public static synchronized void log(Exception... exceptions)
+  public static void log(Exception... exceptions)
   {
     if (exceptions == null)
       return;
@@ -1632,9 +1912,13 @@ public final class HBCIUtils
 	 *            der Log-Level, mit dem die Meldungen geloggt werden sollen.
 	 *            Siehe dazu auch {@link #log(String,int)}
 	 */
-	public static synchronized void log ( Exception e, int level )
+	public static void log ( Exception e, int level )
 	{
-		log(exception2String(e), level);
+		LogSettings settings = getLogSettings();
+		if (level <= settings.level)
+		{
+			write(settings, exception2String(e), level);
+		}
 	}
 
 	/**
@@ -44,9 +44,9 @@ public class HBCIUtilsInternal
 
     public static Properties blzs;
     public static Map<String,BankInfo> banks = null;
-    public static Hashtable<ThreadGroup, HBCICallback>  callbacks;  // threadgroup->callbackObject
-    public static Hashtable<ThreadGroup, ResourceBundle>  locMsgs;    // threadgroup->resourceBundle
-    public static Hashtable<ThreadGroup, Locale>  locales;    // threadgroup->Locale
+    public static Hashtable<Object, HBCICallback>  callbacks;  // threadgroup/context->callbackObject
+    public static Hashtable<Object, ResourceBundle>  locMsgs;    // threadgroup/context->resourceBundle
+    public static Hashtable<Object, Locale>  locales;    // threadgroup/context->Locale
     
     public static String bigDecimal2String(BigDecimal value)
     {
@@ -105,13 +105,13 @@ public class HBCIUtilsInternal
 
     public static HBCICallback getCallback()
     {
-        ThreadGroup group=Thread.currentThread().getThreadGroup();
+        Object group=HBCIContext.currentKey();
         return callbacks.get(group);
     }
     
     public static String getLocMsg(String key)
     {
-        ThreadGroup group=Thread.currentThread().getThreadGroup();
+        Object group=HBCIContext.currentKey();
         try
         {
             return locMsgs.get(group).getString(key);
@@ -137,7 +137,7 @@ public class HBCIUtilsInternal
     public static boolean ignoreError(HBCIPassport passport,String paramName,String msg)
     {
         boolean ret=false;
-        String  paramValue=HBCIUtils.getParam(paramName,"no");
+        String  paramValue=HBCIUtils.getConfig().getParam(paramName,"no");
         
         if (paramValue.equals("yes")) {
             HBCIUtils.log(msg,HBCIUtils.LOG_ERR);
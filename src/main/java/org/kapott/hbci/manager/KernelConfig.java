@@ -0,0 +1,186 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci.manager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.kapott.hbci.tools.ObjectPool;
+
+/**
+ * Unveraenderlicher Schnappschuss der Kernel-Parameter einer ThreadGroup.
+ * Die Instanz wird von {@link HBCIUtils#getConfig()} geliefert und bei jeder
+ * Aenderung eines Parameters via {@link HBCIUtils#setParam(String, String)}
+ * oder {@link HBCIUtils#getParams()} durch eine neue ersetzt. Zahlen- und Wahrheitswerte werden beim ersten
+ * Zugriff geparst und anschliessend gecached, so dass wiederholte Abfragen
+ * im Nachrichten-Code weder Locks noch erneutes Parsen benoetigen.
+ */
+public final class KernelConfig
+{
+    private final Map<String,String> params;
+
+    private final ConcurrentMap<String,Integer> ints    = new ConcurrentHashMap<String,Integer>();
+    private final ConcurrentMap<String,Boolean> yesno   = new ConcurrentHashMap<String,Boolean>();
+    private final ConcurrentMap<String,Integer> segmax  = new ConcurrentHashMap<String,Integer>();
+
+    /**
+     * ct.
+     * @param config die Kernel-Parameter, von denen ein Schnappschuss erstellt wird.
+     */
+    KernelConfig(Properties config)
+    {
+        Map<String,String> map = new HashMap<String,String>();
+        synchronized (config)
+        {
+            for (String name:config.stringPropertyNames())
+            {
+                map.put(name,config.getProperty(name));
+            }
+        }
+        this.params = map;
+    }
+
+    /**
+     * Liefert den Wert des Parameters.
+     * @param name Name des Parameters.
+     * @param def Default-Wert, falls der Parameter nicht gesetzt ist.
+     * @return der Wert des Parameters.
+     */
+    public String getParam(String name, String def)
+    {
+        String value = this.params.get(name);
+        return value != null ? value : def;
+    }
+
+    /**
+     * Liefert den Wert des Parameters.
+     * @param name Name des Parameters.
+     * @return der Wert des Parameters oder NULL, wenn er nicht gesetzt ist.
+     */
+    public String getParam(String name)
+    {
+        return this.params.get(name);
+    }
+
+    /**
+     * Liefert den Parameter als Zahl.
+     * @param name Name des Parameters.
+     * @param def Default-Wert, falls der Parameter nicht gesetzt ist.
+     * @return der Wert des Parameters.
+     * @throws NumberFormatException wenn der Parameter keine Zahl enthaelt.
+     */
+    public int getInt(String name, int def)
+    {
+        String value = this.params.get(name);
+        if (value == null)
+            return def;
+
+        Integer i = this.ints.get(name);
+        if (i == null)
+        {
+            i = Integer.valueOf(value.trim());
+            this.ints.put(name,i);
+        }
+        return i.intValue();
+    }
+
+    /**
+     * Liefert true, wenn der Parameter "1", "yes" oder "true" enthaelt.
+     * @param name Name des Parameters.
+     * @param def Default-Wert, falls der Parameter nicht gesetzt ist.
+     * @return der Wert des Parameters.
+     */
+    public boolean getBoolean(String name, boolean def)
+    {
+        String value = this.params.get(name);
+        if (value == null)
+            return def;
+
+        Boolean b = this.yesno.get(name);
+        if (b == null)
+        {
+            String s = value.trim();
+            b = Boolean.valueOf(s.equals("1") || s.equalsIgnoreCase("yes") || s.equalsIgnoreCase("true"));
+            this.yesno.put(name,b);
+        }
+        return b.booleanValue();
+    }
+
+    /**
+     * Liefert die Groesse des Objekt-Pools (Parameter <code>kernel.objpool.&lt;type&gt;</code>).
+     * @param type Typ der Objekte, z.Bsp. "Syntax", "DE" oder "MSG".
+     * @param def Default-Groesse.
+     * @return die Groesse des Objekt-Pools.
+     */
+    public int getObjPoolSize(String type, int def)
+    {
+        return this.getInt("kernel.objpool." + type,def);
+    }
+
+    /**
+     * Liefert die Strategie der Objekt-Pools (Parameter <code>kernel.objpool.strategy</code>).
+     * @return die Strategie, Default "synchronized".
+     */
+    public String getObjPoolStrategy()
+    {
+        return this.getParam("kernel.objpool.strategy",ObjectPool.STRATEGY_SYNCHRONIZED).trim();
+    }
+
+    /**
+     * Liefert die maximal zulaessige Segment-Version des Geschaeftsvorfalls
+     * (Parameter <code>kernel.gv.&lt;name&gt;.segversion.max</code>).
+     * @param gv Name des Geschaeftsvorfalls, z.Bsp. "HITANS".
+     * @return die maximal zulaessige Version oder 0, wenn sie nicht begrenzt ist.
+     */
+    public int getSegVersionMax(String gv)
+    {
+        Integer i = this.segmax.get(gv);
+        if (i == null)
+        {
+            i = Integer.valueOf(this.getInt("kernel.gv." + gv + ".segversion.max",0));
+            this.segmax.put(gv,i);
+        }
+        return i.intValue();
+    }
+
+    /**
+     * Liefert den Filter-Level fuer geheime Daten (Parameter <code>log.filter</code>).
+     * @return der Filter-Level.
+     */
+    public int getLogFilter()
+    {
+        return this.getInt("log.filter",2);
+    }
+
+    /**
+     * Liefert die maximale Wartezeit im threaded Modus in Sekunden
+     * (Parameter <code>kernel.threaded.maxwaittime</code>).
+     * @return die maximale Wartezeit in Sekunden.
+     */
+    public int getMaxWaitTime()
+    {
+        return this.getInt("kernel.threaded.maxwaittime",300);
+    }
+}
@@ -0,0 +1,380 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci.manager;
+
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Die Kernel-Parameter einer ThreadGroup bzw. eines {@link HBCIContext}.
+ * Haelt den {@link KernelConfig}-Schnappschuss der Parameter und verwirft
+ * ihn bei jeder Aenderung - egal ob diese ueber
+ * {@link HBCIUtils#setParam(String, String)} oder direkt an dem von
+ * {@link HBCIUtils#getParams()} gelieferten Objekt oder dessen Views
+ * {@link #keySet()}, {@link #entrySet()} und {@link #values()} erfolgt.
+ */
+final class KernelParams extends Properties
+{
+    private static final long serialVersionUID = 1L;
+
+    private transient volatile KernelConfig config;
+
+    /**
+     * Liefert den Schnappschuss der aktuellen Parameter.
+     * Er wird erst nach einer Aenderung neu erstellt.
+     * @return der Schnappschuss.
+     */
+    KernelConfig getConfig()
+    {
+        KernelConfig result = this.config;
+        if (result != null)
+            return result;
+
+        // Die Aenderungen sind unter demselben Lock synchronisiert, so dass
+        // kein veralteter Schnappschuss einen verworfenen ueberschreibt
+        synchronized (this)
+        {
+            result = this.config;
+            if (result == null)
+            {
+                result = new KernelConfig(this);
+                this.config = result;
+            }
+            return result;
+        }
+    }
+
+    @Override
+    public synchronized Object put(Object key, Object value)
+    {
+        this.config = null;
+        return super.put(key, value);
+    }
+
+    @Override
+    public synchronized Object remove(Object key)
+    {
+        this.config = null;
+        return super.remove(key);
+    }
+
+    @Override
+    public synchronized boolean remove(Object key, Object value)
+    {
+        this.config = null;
+        return super.remove(key, value);
+    }
+
+    @Override
+    public synchronized void putAll(Map<?, ?> t)
+    {
+        this.config = null;
+        super.putAll(t);
+    }
+
+    @Override
+    public synchronized void clear()
+    {
+        this.config = null;
+        super.clear();
+    }
+
+    @Override
+    public synchronized Object putIfAbsent(Object key, Object value)
+    {
+        this.config = null;
+        return super.putIfAbsent(key, value);
+    }
+
+    @Override
+    public synchronized Object replace(Object key, Object value)
+    {
+        this.config = null;
+        return super.replace(key, value);
+    }
+
+    @Override
+    public synchronized boolean replace(Object key, Object oldValue, Object newValue)
+    {
+        this.config = null;
+        return super.replace(key, oldValue, newValue);
+    }
+
+    @Override
+    public synchronized void replaceAll(BiFunction<? super Object, ? super Object, ?> function)
+    {
+        this.config = null;
+        super.replaceAll(function);
+    }
+
+    @Override
+    public synchronized Object compute(Object key, BiFunction<? super Object, ? super Object, ?> function)
+    {
+        this.config = null;
+        return super.compute(key, function);
+    }
+
+    @Override
+    public synchronized Object computeIfAbsent(Object key, Function<? super Object, ?> function)
+    {
+        this.config = null;
+        return super.computeIfAbsent(key, function);
+    }
+
+    @Override
+    public synchronized Object computeIfPresent(Object key, BiFunction<? super Object, ? super Object, ?> function)
+    {
+        this.config = null;
+        return super.computeIfPresent(key, function);
+    }
+
+    @Override
+    public synchronized Object merge(Object key, Object value, BiFunction<? super Object, ? super Object, ?> function)
+    {
+        this.config = null;
+        return super.merge(key, value, function);
+    }
+
+    @Override
+    public Set<Object> keySet()
+    {
+        return new ViewSet<Object>(super.keySet());
+    }
+
+    @Override
+    public Set<Map.Entry<Object, Object>> entrySet()
+    {
+        return new ViewSet<Map.Entry<Object, Object>>(super.entrySet())
+        {
+            @Override
+            protected Map.Entry<Object, Object> wrap(Map.Entry<Object, Object> e)
+            {
+                return new ViewEntry(e);
+            }
+        };
+    }
+
+    @Override
+    public Collection<Object> values()
+    {
+        final Collection<Object> values = super.values();
+        return new AbstractCollection<Object>()
+        {
+            @Override
+            public Iterator<Object> iterator()
+            {
+                return new ViewIterator<Object>(values.iterator());
+            }
+
+            @Override
+            public int size()
+            {
+                return values.size();
+            }
+
+            @Override
+            public boolean contains(Object o)
+            {
+                return values.contains(o);
+            }
+
+            @Override
+            public void clear()
+            {
+                KernelParams.this.clear();
+            }
+        };
+    }
+
+    /**
+     * View auf die Schluessel bzw. Eintraege, die den Schnappschuss beim Entfernen verwirft.
+     * @param <E> der Typ der Elemente.
+     */
+    private class ViewSet<E> extends AbstractSet<E>
+    {
+        private final Set<E> set;
+
+        /**
+         * ct.
+         * @param set die View der Properties.
+         */
+        private ViewSet(Set<E> set)
+        {
+            this.set = set;
+        }
+
+        /**
+         * Liefert das Element, wie es vom Iterator zurueckgegeben wird.
+         * @param e das Element.
+         * @return das Element.
+         */
+        protected E wrap(E e)
+        {
+            return e;
+        }
+
+        @Override
+        public Iterator<E> iterator()
+        {
+            return new ViewIterator<E>(this.set.iterator())
+            {
+                @Override
+                public E next()
+                {
+                    return wrap(super.next());
+                }
+            };
+        }
+
+        @Override
+        public int size()
+        {
+            return this.set.size();
+        }
+
+        @Override
+        public boolean contains(Object o)
+        {
+            return this.set.contains(o);
+        }
+
+        @Override
+        public boolean remove(Object o)
+        {
+            synchronized (KernelParams.this)
+            {
+                config = null;
+                return this.set.remove(o);
+            }
+        }
+
+        @Override
+        public void clear()
+        {
+            KernelParams.this.clear();
+        }
+    }
+
+    /**
+     * Iterator, der den Schnappschuss beim Entfernen verwirft.
+     * @param <E> der Typ der Elemente.
+     */
+    private class ViewIterator<E> implements Iterator<E>
+    {
+        private final Iterator<E> it;
+
+        /**
+         * ct.
+         * @param it der Iterator der View.
+         */
+        private ViewIterator(Iterator<E> it)
+        {
+            this.it = it;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return this.it.hasNext();
+        }
+
+        @Override
+        public E next()
+        {
+            return this.it.next();
+        }
+
+        @Override
+        public void remove()
+        {
+            synchronized (KernelParams.this)
+            {
+                config = null;
+                this.it.remove();
+            }
+        }
+    }
+
+    /**
+     * Eintrag, der den Schnappschuss beim Aendern des Wertes verwirft.
+     */
+    private final class ViewEntry implements Map.Entry<Object, Object>
+    {
+        private final Map.Entry<Object, Object> entry;
+
+        /**
+         * ct.
+         * @param entry der Eintrag der View.
+         */
+        private ViewEntry(Map.Entry<Object, Object> entry)
+        {
+            this.entry = entry;
+        }
+
+        @Override
+        public Object getKey()
+        {
+            return this.entry.getKey();
+        }
+
+        @Override
+        public Object getValue()
+        {
+            return this.entry.getValue();
+        }
+
+        @Override
+        public Object setValue(Object value)
+        {
+            synchronized (KernelParams.this)
+            {
+                config = null;
+                return this.entry.setValue(value);
+            }
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            return this.entry.equals(o);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return this.entry.hashCode();
+        }
+
+        @Override
+        public String toString()
+        {
+            return this.entry.toString();
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci.manager;
+
+import java.util.Date;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.kapott.hbci.callback.HBCICallback;
+
+/**
+ * Uebergibt Log-Meldungen an {@link HBCICallback#log(String, int, Date, StackTraceElement)}.
+ * Im synchronen Modus passiert das direkt im aufrufenden Thread. Im asynchronen Modus
+ * (Kernel-Parameter <code>log.async</code>) werden die Meldungen ohne Locks in einen
+ * Puffer begrenzter Groesse gestellt und von einem separaten Daemon-Thread an den Callback
+ * uebergeben. Der loggende Thread wartet dann nicht mehr auf den (meist synchronisierten)
+ * Callback. Ist der Puffer voll, wird die Meldung ausnahmsweise synchron ausgegeben -
+ * es gehen also keine Meldungen verloren.
+ * Der Callback wird auch im asynchronen Modus im {@link HBCIContext} (bzw. der
+ * <code>ThreadGroup</code>) des loggenden Threads aufgerufen.
+ */
+public final class LogDispatcher
+{
+    private static LogDispatcher instance;
+
+    private final AtomicLong async = new AtomicLong();
+    private final AtomicLong sync  = new AtomicLong();
+
+    private final Queue<Entry> queue     = new ConcurrentLinkedQueue<Entry>();
+    private final AtomicInteger pending  = new AtomicInteger();
+    private volatile Thread worker;
+    private volatile boolean idle;
+
+    /**
+     * Liefert die Singleton-Instanz.
+     * @return die Singleton-Instanz.
+     */
+    public static synchronized LogDispatcher getInstance()
+    {
+        if (instance == null)
+            instance = new LogDispatcher();
+        return instance;
+    }
+
+    /**
+     * ct.
+     */
+    private LogDispatcher()
+    {
+    }
+
+    /**
+     * Uebergibt die Meldung an den Callback.
+     * @param callback der Callback.
+     * @param msg die Meldung.
+     * @param level der Log-Level.
+     * @param date der Zeitpunkt der Meldung.
+     * @param trace die Stelle im Code, an der die Meldung erzeugt wurde.
+     * @param capacity Groesse des Puffers. Bei 0 wird die Meldung synchron ausgegeben.
+     */
+    public void dispatch(HBCICallback callback, String msg, int level, Date date, StackTraceElement trace, int capacity)
+    {
+        if (capacity > 0)
+        {
+            if (this.pending.incrementAndGet() <= capacity)
+            {
+                this.queue.offer(new Entry(HBCIContext.currentKey(),callback,msg,level,date,trace));
+                this.async.incrementAndGet();
+
+                Thread t = this.getWorker();
+                if (this.idle)
+                    LockSupport.unpark(t);
+                return;
+            }
+            this.pending.decrementAndGet();
+        }
+
+        // Synchron oder Puffer voll
+        this.sync.incrementAndGet();
+        callback.log(msg,level,date,trace);
+    }
+
+    /**
+     * Wartet, bis alle asynchron gepufferten Meldungen an die Callbacks uebergeben wurden.
+     * @param timeout maximale Wartezeit in Millisekunden.
+     * @return true, wenn alle Meldungen ausgegeben wurden.
+     * @throws InterruptedException
+     */
+    public boolean flush(long timeout) throws InterruptedException
+    {
+        long end = System.currentTimeMillis() + timeout;
+        synchronized (this.pending)
+        {
+            while (this.pending.get() > 0)
+            {
+                long wait = end - System.currentTimeMillis();
+                if (wait <= 0)
+                    return false;
+                this.pending.wait(Math.min(wait,10L));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Liefert die Anzahl der asynchron ausgegebenen Meldungen.
+     * @return die Anzahl der asynchron ausgegebenen Meldungen.
+     */
+    public long getAsyncCount()
+    {
+        return this.async.get();
+    }
+
+    /**
+     * Liefert die Anzahl der synchron ausgegebenen Meldungen.
+     * @return die Anzahl der synchron ausgegebenen Meldungen.
+     */
+    public long getSyncCount()
+    {
+        return this.sync.get();
+    }
+
+    /**
+     * Liefert den Worker-Thread und startet ihn beim ersten Aufruf.
+     * @return der Worker-Thread.
+     */
+    private Thread getWorker()
+    {
+        Thread t = this.worker;
+        if (t != null)
+            return t;
+
+        synchronized (this)
+        {
+            if (this.worker == null)
+            {
+                t = new Thread(new Runnable() {
+                    public void run()
+                    {
+                        drain();
+                    }
+                },"hbci4java-log");
+                t.setDaemon(true);
+                t.start();
+                this.worker = t;
+            }
+            return this.worker;
+        }
+    }
+
+    /**
+     * Uebergibt die gepufferten Meldungen an die Callbacks.
+     */
+    private void drain()
+    {
+        while (!Thread.currentThread().isInterrupted())
+        {
+            Entry e = this.queue.poll();
+            if (e == null)
+            {
+                this.idle = true;
+                // Nochmal pruefen, sonst koennte ein unpark verloren gehen
+                if (this.queue.isEmpty())
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100L));
+                this.idle = false;
+                continue;
+            }
+
+            try
+            {
+                HBCIContext.run(e.context,() -> e.callback.log(e.msg,e.level,e.date,e.trace));
+            }
+            catch (RuntimeException re)
+            {
+                // Ein fehlerhafter Callback darf das Logging nicht beenden. Den Fehler
+                // koennen wir nicht ueber den Callback melden, daher wie bei einem
+                // unbehandelten Fehler an den Handler des Threads
+                Thread t = Thread.currentThread();
+                t.getUncaughtExceptionHandler().uncaughtException(t,re);
+            }
+            finally
+            {
+                if (this.pending.decrementAndGet() == 0)
+                {
+                    synchronized (this.pending)
+                    {
+                        this.pending.notifyAll();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Eine gepufferte Meldung.
+     */
+    private final static class Entry
+    {
+        private final Object context;
+        private final HBCICallback callback;
+        private final String msg;
+        private final int level;
+        private final Date date;
+        private final StackTraceElement trace;
+
+        /**
+         * ct.
+         * @param context der Kontext des loggenden Threads.
+         * @param callback der Callback.
+         * @param msg die Meldung.
+         * @param level der Log-Level.
+         * @param date der Zeitpunkt.
+         * @param trace die Stelle im Code.
+         */
+        private Entry(Object context, HBCICallback callback, String msg, int level, Date date, StackTraceElement trace)
+        {
+            this.context = context;
+            this.callback = callback;
+            this.msg = msg;
+            this.level = level;
+            this.date = date;
+            this.trace = trace;
+        }
+    }
+}
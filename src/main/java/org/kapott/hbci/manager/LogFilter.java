@@ -23,12 +23,23 @@ package org.kapott.hbci.manager;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
-// TODO: doku fehlt
+/**
+ * Filtert geheime Daten (PINs, TANs, Kontonummern, ...) aus Log-Ausgaben.
+ * Die registrierten Daten werden in einen Aho-Corasick-Automaten uebersetzt,
+ * so dass eine Zeile unabhaengig von der Anzahl der registrierten Daten in
+ * einem einzigen Durchlauf maskiert wird. Der Automat wird nach Aenderungen
+ * beim naechsten Filtern neu erzeugt und ist danach unveraenderlich - das
+ * Filtern selbst benoetigt also keinen Lock.
+ */
 public class LogFilter 
 {
     public static final int FILTER_NONE=0;
@@ -40,6 +51,9 @@ public class LogFilter
 	
 	private Map<Integer,List<String[]>> secretDataByLevel;
 	
+	// null, wenn der Automat nach einer Aenderung neu erzeugt werden muss
+	private volatile Matcher matcher;
+	
 	public static synchronized LogFilter getInstance()
 	{
 		if (_instance==null) {
@@ -56,6 +70,7 @@ public class LogFilter
 	public synchronized void clearSecretData()
 	{
 		this.secretDataByLevel.clear();
+		this.matcher=null;
 	}
 	
 	public synchronized void addSecretData(String secret, String replacement, int level)
@@ -101,42 +116,263 @@ public class LogFilter
 	            }
 
 	            secretData.add(new String[] {secret,replacement});
+	            this.matcher=null;
 	        }
 	    }
 	}
 	
-	public synchronized String filterLine(String line, int filterLevel)
+	/**
+	 * Maskiert alle registrierten Daten bis einschliesslich des angegebenen Levels.
+	 * Ueberlappen sich mehrere Treffer, werden alle betroffenen Zeichen maskiert.
+	 * @param line die zu filternde Zeile.
+	 * @param filterLevel der Filter-Level.
+	 * @return die gefilterte Zeile.
+	 */
+	public String filterLine(String line, int filterLevel)
 	{
-		String ret=null;
-		if (line!=null) {
-			StringBuffer line2=new StringBuffer(line);
-
-			for (int level=filterLevel; level>0; level--) {
-				List<String[]> secretData= secretDataByLevel.get(new Integer(level));
-				if (secretData==null) {
-					continue;
+		if (line==null) {
+			return null;
+		}
+		
+		Matcher m=this.matcher;
+		if (m==null) {
+			m=this.compile();
+		}
+		return m.filter(line,filterLevel);
+	}
+	
+	/**
+	 * Erzeugt den Automaten aus den aktuell registrierten Daten.
+	 * @return der Automat.
+	 */
+	private synchronized Matcher compile()
+	{
+		if (this.matcher==null) {
+			// Reihenfolge wie beim frueheren Ersetzen: absteigender Level, dann Reihenfolge der Registrierung
+			List<Integer> levels=new ArrayList<Integer>(this.secretDataByLevel.keySet());
+			Collections.sort(levels,Collections.reverseOrder());
+			
+			List<String[]> entries=new ArrayList<String[]>();
+			List<Integer>  entryLevels=new ArrayList<Integer>();
+			for (Integer level:levels) {
+				for (String[] entry:this.secretDataByLevel.get(level)) {
+					entries.add(entry);
+					entryLevels.add(level);
 				}
+			}
+			this.matcher=new Matcher(entries,entryLevels);
+		}
+		return this.matcher;
+	}
+	
+	/**
+	 * Unveraenderlicher Aho-Corasick-Automat ueber alle registrierten Daten.
+	 */
+	private static final class Matcher
+	{
+		private final char[][] keys;     // je Zustand: sortierte Zeichen der Uebergaenge
+		private final int[][]  next;     // je Zustand: Folgezustaende zu keys
+		private final int[]    fail;     // je Zustand: Fehler-Uebergang
+		private final int[][]  out;      // je Zustand: Indizes der hier endenden Daten
+		
+		private final String[] secrets;
+		private final String[] replacements;
+		private final int[]    levels;
+		
+		/**
+		 * ct.
+		 * @param entries die Daten in der Reihenfolge ihrer Prioritaet.
+		 * @param entryLevels die Filter-Level der Daten.
+		 */
+		private Matcher(List<String[]> entries, List<Integer> entryLevels)
+		{
+			int size=entries.size();
+			this.secrets=new String[size];
+			this.replacements=new String[size];
+			this.levels=new int[size];
+			
+			// Trie aufbauen
+			List<TreeMap<Character,Integer>> trie=new ArrayList<TreeMap<Character,Integer>>();
+			List<List<Integer>> outs=new ArrayList<List<Integer>>();
+			trie.add(new TreeMap<Character,Integer>());
+			outs.add(new ArrayList<Integer>());
+			
+			for (int i=0;i<size;i++) {
+				String[] entry=entries.get(i);
+				this.secrets[i]=entry[0];
+				this.replacements[i]=entry[1];
+				this.levels[i]=entryLevels.get(i).intValue();
 				
-				for (Iterator<String[]> i = secretData.iterator(); i.hasNext();) {
-					String[] entry = i.next();
-
-					String secret=entry[0];
-					String replacement=entry[1];
-
-					if (secret.isEmpty()) {
+				int state=0;
+				for (int k=0;k<entry[0].length();k++) {
+					Character c=Character.valueOf(entry[0].charAt(k));
+					Integer n=trie.get(state).get(c);
+					if (n==null) {
+						n=Integer.valueOf(trie.size());
+						trie.get(state).put(c,n);
+						trie.add(new TreeMap<Character,Integer>());
+						outs.add(new ArrayList<Integer>());
+					}
+					state=n.intValue();
+				}
+				outs.get(state).add(Integer.valueOf(i));
+			}
+			
+			int states=trie.size();
+			this.keys=new char[states][];
+			this.next=new int[states][];
+			this.fail=new int[states];
+			this.out=new int[states][];
+			for (int n=0;n<states;n++) {
+				TreeMap<Character,Integer> t=trie.get(n);
+				this.keys[n]=new char[t.size()];
+				this.next[n]=new int[t.size()];
+				int k=0;
+				for (Map.Entry<Character,Integer> e:t.entrySet()) {
+					this.keys[n][k]=e.getKey().charValue();
+					this.next[n][k]=e.getValue().intValue();
+					k++;
+				}
+			}
+			
+			// Fehler-Uebergaenge per Breitensuche. Die Treffer des Fehler-Zustandes
+			// werden uebernommen, da sie ebenfalls an dieser Stelle enden
+			LinkedList<Integer> queue=new LinkedList<Integer>();
+			this.out[0]=toArray(outs.get(0));
+			for (int k=0;k<this.next[0].length;k++) {
+				int child=this.next[0][k];
+				this.fail[child]=0;
+				queue.add(Integer.valueOf(child));
+			}
+			while (!queue.isEmpty()) {
+				int state=queue.removeFirst().intValue();
+				List<Integer> o=outs.get(state);
+				for (int f:this.out[this.fail[state]]) {
+					o.add(Integer.valueOf(f));
+				}
+				this.out[state]=toArray(o);
+				
+				for (int k=0;k<this.keys[state].length;k++) {
+					char c=this.keys[state][k];
+					int child=this.next[state][k];
+					this.fail[child]=this.step(this.fail[state],c);
+					queue.add(Integer.valueOf(child));
+				}
+			}
+		}
+		
+		/**
+		 * Fuehrt einen Zustandsuebergang aus.
+		 * @param state der aktuelle Zustand.
+		 * @param c das gelesene Zeichen.
+		 * @return der neue Zustand.
+		 */
+		private int step(int state, char c)
+		{
+			while (true) {
+				int idx=Arrays.binarySearch(this.keys[state],c);
+				if (idx>=0) {
+					return this.next[state][idx];
+				}
+				if (state==0) {
+					return 0;
+				}
+				state=this.fail[state];
+			}
+		}
+		
+		/**
+		 * Maskiert die Zeile.
+		 * @param line die Zeile.
+		 * @param filterLevel der Filter-Level.
+		 * @return die maskierte Zeile.
+		 */
+		private String filter(String line, int filterLevel)
+		{
+			if (this.secrets.length==0 || filterLevel<=0) {
+				return line;
+			}
+			
+			char[]      buf=null;       // Ergebnis der laengenerhaltenden Ersetzungen
+			int[]       owner=null;     // je Zeichen: Index der maskierenden Daten
+			List<int[]> replaces=null;  // Ersetzungen mit abweichender Laenge
+			
+			int state=0;
+			int len=line.length();
+			for (int i=0;i<len;i++) {
+				state=this.step(state,line.charAt(i));
+				int[] o=this.out[state];
+				for (int k=0;k<o.length;k++) {
+					int e=o[k];
+					if (this.levels[e]<1 || this.levels[e]>filterLevel) {
 						continue;
 					}
-
-					int posi=0;
-					while ((posi=line2.indexOf(secret,posi))!=-1) {
-						line2.replace(posi,posi+secret.length(),replacement);
-						posi+=replacement.length();
+					
+					String replacement=this.replacements[e];
+					int    start=i+1-this.secrets[e].length();
+					if (replacement.length()==this.secrets[e].length()) {
+						if (buf==null) {
+							buf=line.toCharArray();
+							owner=new int[len];
+							Arrays.fill(owner,Integer.MAX_VALUE);
+						}
+						for (int p=start;p<=i;p++) {
+							if (e<owner[p]) {
+								owner[p]=e;
+								buf[p]=replacement.charAt(p-start);
+							}
+						}
+					} else {
+						if (replaces==null) {
+							replaces=new ArrayList<int[]>();
+						}
+						replaces.add(new int[] {start,i+1,e});
 					}
 				}
 			}
+			
+			if (buf==null && replaces==null) {
+				return line;
+			}
+			
+			String masked=(buf!=null)?new String(buf):line;
+			if (replaces==null) {
+				return masked;
+			}
+			
+			// Ersetzungen mit abweichender Laenge: von links nach rechts, bei gleichem
+			// Beginn gewinnen die Daten mit der hoeheren Prioritaet
+			Collections.sort(replaces,new Comparator<int[]>() {
+				public int compare(int[] a, int[] b)
+				{
+					return (a[0]!=b[0])?Integer.compare(a[0],b[0]):Integer.compare(a[2],b[2]);
+				}
+			});
+			StringBuilder ret=new StringBuilder(len);
+			int pos=0;
+			for (int[] r:replaces) {
+				if (r[0]<pos) {
+					continue;
+				}
+				ret.append(masked,pos,r[0]).append(this.replacements[r[2]]);
+				pos=r[1];
+			}
+			ret.append(masked,pos,len);
+			return ret.toString();
+		}
 		
-			ret=line2.toString();
+		/**
+		 * Wandelt die Liste in ein Array.
+		 * @param list die Liste.
+		 * @return das Array.
+		 */
+		private static int[] toArray(List<Integer> list)
+		{
+			int[] ret=new int[list.size()];
+			for (int i=0;i<ret.length;i++) {
+				ret[i]=list.get(i).intValue();
+			}
+			return ret;
 		}
-		return ret;
 	}
 }
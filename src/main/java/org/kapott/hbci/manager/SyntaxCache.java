@@ -0,0 +1,175 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci.manager;
+
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.kapott.hbci.exceptions.InvalidUserDataException;
+import org.kapott.hbci.protocol.syntax.SyntaxModel;
+
+/**
+ * Prozessweiter Cache fuer die HBCI-Syntax-Spezifikationen (hbci-*.xml).
+ * Jede Syntax-Datei wird nur ein einziges Mal eingelesen, validiert und in ein
+ * {@link SyntaxModel} kompiliert. Alle Instanzen von {@link MsgGen} - und damit
+ * alle HBCIHandler - teilen sich anschliessend dasselbe Modell.
+ * Das Modell ist unveraenderlich und darf daher von mehreren Threads gleichzeitig
+ * verwendet werden.
+ */
+public final class SyntaxCache
+{
+    private static SyntaxCache instance;
+
+    private final ConcurrentMap<String,SyntaxModel> cache = new ConcurrentHashMap<String,SyntaxModel>();
+
+    private final AtomicLong hits     = new AtomicLong();
+    private final AtomicLong loads    = new AtomicLong();
+    private final AtomicLong loadTime = new AtomicLong();
+
+    /**
+     * Liefert die Singleton-Instanz des Caches.
+     * @return die Singleton-Instanz.
+     */
+    public static synchronized SyntaxCache getInstance()
+    {
+        if (instance==null) {
+            instance=new SyntaxCache();
+        }
+        return instance;
+    }
+
+    /**
+     * ct.
+     */
+    private SyntaxCache()
+    {
+    }
+
+    /**
+     * Liefert die Syntax-Spezifikation fuer die angegebene HBCI-Version.
+     * Beim ersten Aufruf fuer eine Kombination aus Pfad und Version wird die Datei
+     * geladen, bei allen folgenden Aufrufen das bereits kompilierte Modell geliefert.
+     * @param xmlpath optionaler Pfad-Prefix im Classpath (Kernel-Parameter "kernel.kernel.xmlpath").
+     * @param hbciversion die HBCI-Version.
+     * @return die kompilierte Syntax.
+     */
+    public SyntaxModel getSyntax(String xmlpath, final String hbciversion)
+    {
+        final String filename=(xmlpath!=null ? xmlpath : "")+"hbci-"+hbciversion+".xml";
+
+        SyntaxModel syntax=cache.get(filename);
+        if (syntax!=null) {
+            hits.incrementAndGet();
+            return syntax;
+        }
+
+        // computeIfAbsent stellt sicher, dass die Datei auch bei gleichzeitigen
+        // Zugriffen nur einmal geladen wird
+        return cache.computeIfAbsent(filename,name -> load(name));
+    }
+
+    /**
+     * Laedt und kompiliert die Syntax-Datei.
+     * @param filename Name der Datei im Classpath.
+     * @return die kompilierte Syntax.
+     */
+    private SyntaxModel load(String filename)
+    {
+        final long started=System.currentTimeMillis();
+
+        InputStream syntaxStream=SyntaxCache.class.getClassLoader().getResourceAsStream(filename);
+        if (syntaxStream==null)
+            throw new InvalidUserDataException(HBCIUtilsInternal.getLocMsg("EXCMSG_KRNL_CANTLOAD_SYN",filename));
+
+        SyntaxModel syntax=new SyntaxModel(MsgGen.parseSyntax(syntaxStream));
+
+        long used=System.currentTimeMillis()-started;
+        loads.incrementAndGet();
+        loadTime.addAndGet(used);
+        HBCIUtils.log("loaded syntax "+filename+" in "+used+" millis ("+this+")",HBCIUtils.LOG_DEBUG);
+        return syntax;
+    }
+
+    /**
+     * Entfernt alle geladenen Syntax-Spezifikationen aus dem Cache.
+     * Bereits erzeugte MsgGen-Instanzen behalten ihr Modell.
+     */
+    public void clear()
+    {
+        cache.clear();
+    }
+
+    /**
+     * Liefert die Anzahl der Abrufe, die aus dem Cache bedient werden konnten.
+     * @return die Anzahl der Cache-Treffer.
+     */
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    /**
+     * Liefert die Anzahl der tatsaechlich geladenen Syntax-Dateien.
+     * @return die Anzahl der Ladevorgaenge.
+     */
+    public long getLoads()
+    {
+        return loads.get();
+    }
+
+    /**
+     * Liefert die Summe der Ladezeiten aller Syntax-Dateien.
+     * @return die Ladezeit in Millisekunden.
+     */
+    public long getLoadTime()
+    {
+        return loadTime.get();
+    }
+
+    /**
+     * Liefert die geschaetzte Zeit, die durch den Cache eingespart wurde. Das ist die
+     * durchschnittliche Ladezeit multipliziert mit der Anzahl der Cache-Treffer.
+     * @return die eingesparte Zeit in Millisekunden.
+     */
+    public long getSavedTime()
+    {
+        long count=loads.get();
+        return count==0 ? 0 : (loadTime.get()/count)*hits.get();
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        StringBuffer ret=new StringBuffer();
+        ret.append("cached:").append(cache.size())
+           .append(" loads:").append(getLoads())
+           .append(" hits:").append(getHits())
+           .append(" loadtime:").append(getLoadTime()).append("ms")
+           .append(" saved:").append(getSavedTime()).append("ms");
+        return ret.toString();
+    }
+}
@@ -26,7 +26,6 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.Properties;
 
@@ -43,6 +42,7 @@ import org.kapott.hbci.manager.HBCIUtils;
 import org.kapott.hbci.manager.HBCIUtilsInternal;
 import org.kapott.hbci.manager.IHandlerData;
 import org.kapott.hbci.manager.LogFilter;
+import org.kapott.hbci.passport.storage.format.AESFormat;
 import org.kapott.hbci.structures.Konto;
 import org.kapott.hbci.structures.Limit;
 import org.kapott.hbci.structures.Value;
@@ -59,6 +59,8 @@ public abstract class AbstractHBCIPassport
 
     private Properties bpd;     
     private Properties upd;     
+    private transient BPDIndex bpdIndex;
+    private transient Konto[]  accounts;
     private String     hbciversion;
     private String     country; 
     private String     blz;     
@@ -210,6 +212,11 @@ public abstract class AbstractHBCIPassport
         }
     }
 
+    /**
+     * Liefert die BPD. Der {@link BPDIndex} wird nur von {@link #setBPD(Properties)}
+     * verworfen; nach direkten Aenderungen muessen die BPD daher erneut gesetzt werden.
+     * @see org.kapott.hbci.passport.HBCIPassport#getBPD()
+     */
     public final Properties getBPD()
     {
         return bpd;
@@ -225,6 +232,11 @@ public abstract class AbstractHBCIPassport
         return (hbciversion!=null)?hbciversion:"";
     }
     
+    /**
+     * Liefert die UPD. Die gecachten Konten werden nur von {@link #setUPD(Properties)}
+     * verworfen; nach direkten Aenderungen muessen die UPD daher erneut gesetzt werden.
+     * @see org.kapott.hbci.passport.HBCIPassport#getUPD()
+     */
     public final Properties getUPD()
     {
         return upd;
@@ -241,6 +253,63 @@ public abstract class AbstractHBCIPassport
     }
     
     public final Konto[] getAccounts()
+    {
+        Konto[] list=getAccountList();
+        Konto[] ret=new Konto[list.length];
+        for (int i=0;i<list.length;i++) {
+            ret[i]=copy(list[i]);
+        }
+        return ret;
+    }
+    
+    /**
+     * Liefert die einmalig aus den UPD geparsten Konten.
+     * Die Objekte werden gecached und duerfen daher nicht veraendert werden.
+     * Der Cache wird in {@link #setUPD(Properties)} verworfen. Code, der die
+     * UPD direkt aendert, muss sie daher anschliessend erneut setzen.
+     * @return die Konten.
+     */
+    private Konto[] getAccountList()
+    {
+        Konto[] list=this.accounts;
+        if (list==null) {
+            list=parseAccounts();
+            this.accounts=list;
+        }
+        return list;
+    }
+    
+    /**
+     * Erzeugt eine Kopie des Kontos, damit der Aufrufer den Cache nicht veraendern kann.
+     * @param k das Konto.
+     * @return die Kopie.
+     */
+    private static Konto copy(Konto k)
+    {
+        Konto ret=new Konto();
+        ret.country=k.country;
+        ret.blz=k.blz;
+        ret.number=k.number;
+        ret.subnumber=k.subnumber;
+        ret.acctype=k.acctype;
+        ret.type=k.type;
+        ret.curr=k.curr;
+        ret.customerid=k.customerid;
+        ret.name=k.name;
+        ret.name2=k.name2;
+        ret.limit=k.limit;
+        ret.allowedGVs=k.allowedGVs!=null?new ArrayList<Object>(k.allowedGVs):null;
+        ret.bic=k.bic;
+        ret.iban=k.iban;
+        ret.creditorid=k.creditorid;
+        return ret;
+    }
+    
+    /**
+     * Parst die Konten aus den UPD.
+     * @return die Konten.
+     */
+    private Konto[] parseAccounts()
     {
         ArrayList<Konto> ret=new ArrayList<Konto>();
         
@@ -311,7 +380,7 @@ public abstract class AbstractHBCIPassport
         boolean haveSubNumber = (subNumber!=null && subNumber.length()!=0);
         boolean haveIBAN   = (iban!=null && iban.length()!=0);
         
-        Konto[] accounts = getAccounts();
+        Konto[] accounts = getAccountList();
         
         for (int i=0;i<accounts.length;i++)
         {
@@ -611,6 +680,24 @@ public abstract class AbstractHBCIPassport
     public void setBPD(Properties bpd)
     {
         this.bpd=bpd;
+        this.bpdIndex=null;
+    }
+    
+    /**
+     * Liefert den Index ueber die Parameter-Segmente der BPD. Er wird beim
+     * ersten Aufruf nach {@link #setBPD(Properties)} erzeugt. Wer die BPD
+     * direkt veraendert, muss sie daher anschliessend erneut per
+     * {@link #setBPD(Properties)} setzen.
+     * @see org.kapott.hbci.passport.HBCIPassportInternal#getBPDIndex()
+     */
+    public final BPDIndex getBPDIndex()
+    {
+        BPDIndex index=this.bpdIndex;
+        if (index==null) {
+            index=new BPDIndex(bpd);
+            this.bpdIndex=index;
+        }
+        return index;
     }
     
     public final void clearUPD()
@@ -621,6 +708,7 @@ public abstract class AbstractHBCIPassport
     public final void setUPD(Properties upd)
     {
         this.upd=upd;
+        this.accounts=null;
     }
 
     public final void setCountry(String country)
@@ -794,47 +882,12 @@ public abstract class AbstractHBCIPassport
     public void close()
     {
         closeComm();
+        AESFormat.clearKeyCache(this);
     }
     
     public Properties getParamSegmentNames()
     {
-        Properties ret=new Properties();
-        
-        for (Enumeration e=bpd.propertyNames();e.hasMoreElements();) {
-            String key=(String)e.nextElement();
-            
-            if (key.startsWith("Params") &&
-                key.endsWith(".SegHead.code")) {
-                int dotPos=key.indexOf('.');
-                int dotPos2=key.indexOf('.',dotPos+1);
-                
-                String gvname=key.substring(dotPos+1,dotPos2);
-                int    len=gvname.length();
-                int    versionPos=-1;
-                
-                for (int i=len-1;i>=0;i--) {
-                    char ch=gvname.charAt(i);
-                    if (!(ch>='0' && ch<='9')) {
-                        versionPos=i+1;
-                        break;
-                    }
-                }
-                
-                String version=gvname.substring(versionPos);
-                if (version.length()!=0) {
-                    gvname=gvname.substring(0,versionPos-3); // remove version and "Par"
-
-                    String knownVersion=(String)ret.get(gvname);
-
-                    if (knownVersion==null ||
-                        Integer.parseInt(version)>Integer.parseInt(knownVersion)) {
-                        ret.setProperty(gvname,version);
-                    }
-                }
-            }
-        }
-        
-        return ret;
+        return getBPDIndex().getParamSegmentNames();
     }
 
     public Properties getJobRestrictions(String specname)
@@ -853,22 +906,11 @@ public abstract class AbstractHBCIPassport
     
     public Properties getJobRestrictions(String gvname,String version)
     {
-        Properties result=new Properties();
-
-        String searchstring=gvname+"Par"+version;
-        for (Enumeration e=bpd.propertyNames();e.hasMoreElements();) {
-            String key=(String)e.nextElement();
-
-            if (key.startsWith("Params")&&
-                key.indexOf("."+searchstring+".Par")!=-1) {
-                int searchIdx=key.indexOf(searchstring);
-                result.setProperty(key.substring(key.indexOf(".",
-                                                             searchIdx+searchstring.length()+4)+1),
-                                   bpd.getProperty(key));
-            }
+        try {
+            return getBPDIndex().getJobRestrictions(gvname,Integer.parseInt(version));
+        } catch (NumberFormatException e) {
+            return new Properties();
         }
-
-        return result;
     }
     
     public void setPersistentData(String id,Object o)
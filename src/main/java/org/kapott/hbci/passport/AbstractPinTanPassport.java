@@ -167,7 +167,7 @@ public abstract class AbstractPinTanPassport extends AbstractHBCIPassport
             // kein HHD 1.4 beherrscht. Mit dem folgenden Parameter kann die Maximal-Version
             // des HITANS-Segments nach oben begrenzt werden, so dass z.Bsp. HITANS5 ausgefiltert
             // wird.
-            int maxAllowedVersion = Integer.parseInt(HBCIUtils.getParam("kernel.gv.HITANS.segversion.max","0"));
+            int maxAllowedVersion = HBCIUtils.getConfig().getSegVersionMax("HITANS");
 
             for (Enumeration e=p.propertyNames();e.hasMoreElements();) {
                 String key=(String)e.nextElement();
@@ -655,7 +655,7 @@ public abstract class AbstractPinTanPassport extends AbstractHBCIPassport
         {
             HBCIUtils.log("HKTAN step 1 for SCA sent, checking for HITAN response [step: " + scaStep + "]",HBCIUtils.LOG_DEBUG);
 
-            Properties props = ParameterFinder.find(status.getData(),"TAN2StepRes*.");
+            Properties props = ParameterFinder.find(status.getData("TAN2StepRes"),"TAN2StepRes*.");
             if (props == null || props.size() == 0)
             {
               HBCIUtils.log("no hitan reponse data found",HBCIUtils.LOG_DEBUG);
@@ -692,7 +692,7 @@ public abstract class AbstractPinTanPassport extends AbstractHBCIPassport
         {
             ctx.getMeta().remove(CACHE_KEY_SCA_STEP); // Geschafft
             HBCIUtils.log("HKTAN step 2 for SCA sent, checking for HITAN response [step: " + scaStep + "]",HBCIUtils.LOG_DEBUG);
-            Properties props = ParameterFinder.find(status.getData(),"TAN2StepRes*.");
+            Properties props = ParameterFinder.find(status.getData("TAN2StepRes"),"TAN2StepRes*.");
             if (props.size() > 0)
                 HBCIUtils.log("final SCA HITAN response found",HBCIUtils.LOG_DEBUG);
         }
@@ -703,7 +703,7 @@ public abstract class AbstractPinTanPassport extends AbstractHBCIPassport
      */
     public Comm getCommInstance()
     {
-        return Comm.getInstance("PinTan",this);
+        return Comm.getInstance(HBCIUtils.getParam("client.passport.PinTan.comm","PinTan"),this);
     }
     
     /**
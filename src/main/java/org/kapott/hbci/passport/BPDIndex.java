@@ -0,0 +1,230 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci.passport;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Index ueber die Parameter-Segmente der BPD.
+ * Die BPD enthalten oft tausende Eintraege der Form
+ * <code>Params_3.KUmsZeitPar5.ParKUmsZeit.maxnum</code>. Statt diese beim Anlegen
+ * jedes Jobs komplett zu durchsuchen, werden sie hier einmalig nach Geschaeftsvorfall
+ * und Segment-Version gruppiert. Der Index wird vom Passport beim ersten Zugriff nach
+ * {@link HBCIPassportInternal#setBPD(Properties)} erzeugt.
+ */
+public final class BPDIndex
+{
+    private final Map<String,NavigableMap<Integer,Segment>> jobs = new HashMap<String,NavigableMap<Integer,Segment>>();
+    private final Map<String,Segment> segments = new HashMap<String,Segment>();
+
+    /**
+     * ct.
+     * @param bpd die BPD. Kann NULL sein.
+     */
+    BPDIndex(Properties bpd)
+    {
+        if (bpd == null)
+            return;
+
+        for (Enumeration<?> e=bpd.propertyNames();e.hasMoreElements();)
+        {
+            String key = (String) e.nextElement();
+            if (!key.startsWith("Params"))
+                continue;
+
+            // "Params_3.KUmsZeitPar5.ParKUmsZeit.maxnum"
+            int dot1 = key.indexOf('.');
+            if (dot1 == -1)
+                continue;
+            int dot2 = key.indexOf('.',dot1+1);
+            if (dot2 == -1)
+                continue;
+
+            String specname = key.substring(dot1+1,dot2);
+            Segment seg = this.segments.get(specname);
+            if (seg == null)
+            {
+                seg = Segment.create(specname);
+                if (seg == null)
+                    continue;
+                this.segments.put(specname,seg);
+
+                NavigableMap<Integer,Segment> versions = this.jobs.get(seg.gvname);
+                if (versions == null)
+                {
+                    versions = new TreeMap<Integer,Segment>();
+                    this.jobs.put(seg.gvname,versions);
+                }
+                versions.put(seg.version,seg);
+            }
+
+            String rest = key.substring(dot2);
+            String value = bpd.getProperty(key);
+            if (rest.equals(".SegHead.code"))
+            {
+                seg.code = value;
+            }
+            else if (rest.startsWith(".Par"))
+            {
+                // Der Name der Restriktion beginnt hinter "ParKUmsZeit."
+                int pos = key.indexOf('.',dot2+4);
+                seg.restrictions.setProperty(key.substring(pos+1),value);
+            }
+        }
+    }
+
+    /**
+     * Liefert die von der Bank unterstuetzten Segment-Versionen eines Geschaeftsvorfalls.
+     * Es werden nur Versionen beruecksichtigt, zu denen ein Segment-Code existiert.
+     * @param gvname Lowlevel-Name des Geschaeftsvorfalls, z.Bsp. "KUmsZeit".
+     * @return Map mit den Versionsnummern und den zugehoerigen Segment-Codes
+     * (z.Bsp. "HIKAZS"), absteigend sortiert. Nie NULL.
+     */
+    public NavigableMap<Integer,String> getVersions(String gvname)
+    {
+        NavigableMap<Integer,Segment> versions = this.jobs.get(gvname);
+        if (versions == null)
+            return Collections.emptyNavigableMap();
+
+        NavigableMap<Integer,String> result = new TreeMap<Integer,String>(Collections.reverseOrder());
+        for (Segment seg:versions.values())
+        {
+            if (seg.code != null)
+                result.put(seg.version,seg.code);
+        }
+        return result;
+    }
+
+    /**
+     * Liefert zu jedem Geschaeftsvorfall die hoechste von der Bank unterstuetzte Segment-Version.
+     * @return Geschaeftsvorfall-Name und Versionsnummer.
+     */
+    public Properties getParamSegmentNames()
+    {
+        Properties result = new Properties();
+        for (NavigableMap<Integer,Segment> versions:this.jobs.values())
+        {
+            for (Segment seg:versions.descendingMap().values())
+            {
+                if (seg.code != null)
+                {
+                    result.setProperty(seg.gvname,Integer.toString(seg.version));
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Liefert den Segment-Code (BPD-Code, z.Bsp. "HIKAZS") des Parameter-Segments.
+     * @param gvname Lowlevel-Name des Geschaeftsvorfalls, z.Bsp. "KUmsZeit".
+     * @param version die Segment-Version.
+     * @return der Segment-Code oder NULL, wenn das Segment nicht existiert.
+     */
+    public String getSegmentCode(String gvname, int version)
+    {
+        Segment seg = this.getSegment(gvname,version);
+        return seg != null ? seg.code : null;
+    }
+
+    /**
+     * Liefert die Restriktionen des Geschaeftsvorfalls in der angegebenen Version.
+     * @param gvname Lowlevel-Name des Geschaeftsvorfalls, z.Bsp. "KUmsZeit".
+     * @param version die Segment-Version.
+     * @return eine Kopie der Restriktionen. Nie NULL.
+     */
+    public Properties getJobRestrictions(String gvname, int version)
+    {
+        Properties result = new Properties();
+        Segment seg = this.getSegment(gvname,version);
+        if (seg != null)
+            result.putAll(seg.restrictions);
+        return result;
+    }
+
+    /**
+     * Liefert das Segment.
+     * @param gvname Name des Geschaeftsvorfalls.
+     * @param version Segment-Version.
+     * @return das Segment oder NULL.
+     */
+    private Segment getSegment(String gvname, int version)
+    {
+        NavigableMap<Integer,Segment> versions = this.jobs.get(gvname);
+        return versions != null ? versions.get(version) : null;
+    }
+
+    /**
+     * Ein Parameter-Segment in einer bestimmten Version.
+     */
+    private final static class Segment
+    {
+        private final String gvname;
+        private final int version;
+        private final Properties restrictions = new Properties();
+        private String code;
+
+        /**
+         * ct.
+         * @param gvname Name des Geschaeftsvorfalls.
+         * @param version Segment-Version.
+         */
+        private Segment(String gvname, int version)
+        {
+            this.gvname = gvname;
+            this.version = version;
+        }
+
+        /**
+         * Erzeugt das Segment aus dem Namen in der Syntax-Spezifikation.
+         * @param specname der Name, z.Bsp. "KUmsZeitPar5".
+         * @return das Segment oder NULL, wenn der Name nicht dem Schema
+         * "&lt;gvname&gt;Par&lt;version&gt;" entspricht.
+         */
+        private static Segment create(String specname)
+        {
+            int versionPos = specname.length();
+            while (versionPos > 0 && Character.isDigit(specname.charAt(versionPos-1)))
+                versionPos--;
+
+            if (versionPos == specname.length() || versionPos < 4 || !specname.startsWith("Par",versionPos-3))
+                return null;
+
+            try
+            {
+                int version = Integer.parseInt(specname.substring(versionPos));
+                return new Segment(specname.substring(0,versionPos-3),version);
+            }
+            catch (NumberFormatException e)
+            {
+                return null;
+            }
+        }
+    }
+}
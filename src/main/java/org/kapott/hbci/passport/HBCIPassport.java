@@ -77,6 +77,9 @@ public interface HBCIPassport
     /** Gibt die gespeicherten BPD zurück. Die Auswertung der BPD seitens einer HBCI-Anwendung
         auf direktem Weg wird nicht empfohlen, da es keine Dokumentation über die
         Namensgebung der einzelnen Einträge gibt.
+        Der interne Index über die Parameter-Segmente wird nur beim Setzen der BPD
+        per {@link HBCIPassportInternal#setBPD(Properties)} neu aufgebaut. Wird das
+        Property-Objekt direkt geändert, muss es anschließend erneut gesetzt werden.
         @return die Bankparamterdaten oder <code>null</code>, falls diese nicht im
                 Passport vorhanden sind */
     public Properties getBPD();
@@ -95,6 +98,10 @@ public interface HBCIPassport
     /** Gibt die gespeicherten UPD (User-Parameter-Daten) zurück. Eine direkte
         Auswertung des Inhalts dieses Property-Objektes wird nicht empfohlen, da
         die Benennung der einzelnen Einträge nicht explizit dokumentiert ist.
+        Die Konten für {@link #getAccounts()} werden nur beim Setzen der UPD per
+        {@link HBCIPassportInternal#setUPD(Properties)} neu ermittelt. Wird das
+        Property-Objekt direkt geändert, muss es anschließend erneut gesetzt werden,
+        damit {@link #getAccounts()} die Änderungen berücksichtigt.
         @return die Userparameterdaten oder <code>null</code>, falls diese nicht im
                 Passport vorhanden sind */
     public Properties getUPD();
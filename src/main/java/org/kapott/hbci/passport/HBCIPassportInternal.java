@@ -105,6 +105,11 @@ public interface HBCIPassportInternal
     public byte[][] encrypt(byte[] plainMsg);
     public byte[] decrypt(byte[] cryptedKey,byte[] encryptedMsg);
     
+    /**
+     * Liefert den Index ueber die Parameter-Segmente der BPD.
+     * @return der Index. Nie NULL.
+     */
+    public BPDIndex getBPDIndex();
     public Properties getParamSegmentNames();
     public Properties getJobRestrictions(String specname);
     public Properties getJobRestrictions(String gvname,String version);
@@ -66,6 +66,32 @@ public class AESFormat extends AbstractFormat
     private final static int CIPHER_ITERATIONS  = 64 * 1024;
     private final static int KEY_SIZE           = 256;
     private final static int SALT_SIZE          = 8;
+    
+    private final static String KEY_CACHE       = "__cached_aeskey__";
+    private final static String PARAM_KEY_CACHE = "client.passport.keycache.timeout";
+    
+    /**
+     * Ein im Passport zwischengespeicherter, bereits abgeleiteter Schluessel samt Salt.
+     */
+    private final static class CachedKey
+    {
+        private final byte[] salt;
+        private final SecretKey key;
+        private final long expires;
+        
+        /**
+         * ct.
+         * @param salt das Salt.
+         * @param key der daraus abgeleitete Schluessel.
+         * @param expires Zeitpunkt in Millisekunden, ab dem der Schluessel nicht mehr verwendet wird.
+         */
+        private CachedKey(byte[] salt, SecretKey key, long expires)
+        {
+            this.salt = salt;
+            this.key = key;
+            this.expires = expires;
+        }
+    }
 
     /**
      * @see org.kapott.hbci.passport.storage.format.PassportFormat#load(org.kapott.hbci.passport.HBCIPassport, byte[])
@@ -145,12 +171,17 @@ public class AESFormat extends AbstractFormat
             try
             {
                 final Cipher cipher = this.getCipher();
-                final SecretKey key = this.getPassportKey(passport, salt, false);
+                SecretKey key = this.getCachedKey(passport,salt);
+                if (key == null)
+                    key = this.getPassportKey(passport, salt, false);
                 cipher.init(Cipher.DECRYPT_MODE, key, new IvParameterSpec(iv));
                 
                 is = new ObjectInputStream(new CipherInputStream(new ByteArrayInputStream(Arrays.copyOfRange(data,pos,data.length)),cipher));
                 PassportData result = (PassportData) is.readObject();
                 
+                // Schluessel ist korrekt, dann koennen wir ihn uns fuer die naechsten Zugriffe merken
+                this.putCachedKey(passport,salt,key);
+                
                 HBCIUtils.log("used time for decrypting " + data.length + " bytes: " + (System.currentTimeMillis() - started) + " millis",HBCIUtils.LOG_DEBUG);
                 return result;
             }
@@ -160,11 +191,13 @@ public class AESFormat extends AbstractFormat
             }
             catch (HBCI_Exception e)
             {
+                clearKeyCache(passport);
                 if (retries-- <= 0)
                     throw e;
             }
             catch (Exception ex)
             {
+                clearKeyCache(passport);
                 if (retries-- <= 0)
                     throw new HBCI_Exception("unable to load passport data",ex);
             }
@@ -191,12 +224,27 @@ public class AESFormat extends AbstractFormat
         {
             final Cipher cipher = this.getCipher();
             
-            // Neues Salt generieren
-            final byte[] salt = new byte[SALT_SIZE];
-            RAND.nextBytes(salt);
+            // Wenn wir noch einen gueltigen Schluessel haben, verwenden wir ihn samt Salt erneut.
+            // Der IV wird trotzdem bei jedem Speichern neu erzeugt.
+            final CachedKey cached = this.getCachedKey(passport);
+            final byte[] salt;
+            final SecretKey key;
+            if (cached != null)
+            {
+                HBCIUtils.log("using cached passport key, skipping key derivation",HBCIUtils.LOG_DEBUG);
+                salt = cached.salt;
+                key  = cached.key;
+            }
+            else
+            {
+                // Neues Salt generieren
+                salt = new byte[SALT_SIZE];
+                RAND.nextBytes(salt);
 
-            // Secret Key erzeugen
-            final SecretKey key = this.getPassportKey(passport,salt,true);
+                // Secret Key erzeugen
+                key = this.getPassportKey(passport,salt,true);
+                this.putCachedKey(passport,salt,key);
+            }
             cipher.init(Cipher.ENCRYPT_MODE, key);
             final AlgorithmParameters params = cipher.getParameters();
             
@@ -327,11 +375,13 @@ public class AESFormat extends AbstractFormat
     {
         try
         {
+            final long started = System.nanoTime();
             final String provider = CryptUtils.getSecurityProvider();
             final SecretKeyFactory fac = provider != null ? SecretKeyFactory.getInstance(KEY_ALG_NAME,provider) : SecretKeyFactory.getInstance(KEY_ALG_NAME);
             final KeySpec spec = new PBEKeySpec(password, salt, CIPHER_ITERATIONS, KEY_SIZE);
             final SecretKey tmp = fac.generateSecret(spec);
             final SecretKey secret = new SecretKeySpec(tmp.getEncoded(),KEY_ALG);
+            HBCIUtils.log("used time for key derivation: " + ((System.nanoTime() - started) / 1000000L) + " millis",HBCIUtils.LOG_DEBUG);
             return secret;
         }
         catch (NoSuchAlgorithmException e)
@@ -340,4 +390,71 @@ public class AESFormat extends AbstractFormat
             throw new UnsupportedOperationException("AES-Format not supported in this Java version");
         }
     }
+
+    /**
+     * Liefert den im Passport zwischengespeicherten Schluessel, wenn er zum Salt passt.
+     * @param passport der Passport.
+     * @param salt das Salt aus der Passport-Datei.
+     * @return der Schluessel oder NULL, wenn keiner vorhanden, er abgelaufen ist oder
+     * das Salt nicht passt.
+     */
+    private SecretKey getCachedKey(final HBCIPassport passport, final byte[] salt)
+    {
+        final CachedKey cached = this.getCachedKey(passport);
+        if (cached == null || !Arrays.equals(cached.salt,salt))
+            return null;
+        
+        HBCIUtils.log("using cached passport key, skipping key derivation",HBCIUtils.LOG_DEBUG);
+        return cached.key;
+    }
+    
+    /**
+     * Liefert den im Passport zwischengespeicherten Schluessel.
+     * @param passport der Passport.
+     * @return der Schluessel oder NULL, wenn keiner vorhanden oder er abgelaufen ist.
+     */
+    private CachedKey getCachedKey(final HBCIPassport passport)
+    {
+        final CachedKey cached = (CachedKey) passport.getClientData(KEY_CACHE);
+        if (cached == null)
+            return null;
+        
+        if (cached.expires < System.currentTimeMillis())
+        {
+            clearKeyCache(passport);
+            return null;
+        }
+        return cached;
+    }
+    
+    /**
+     * Speichert den Schluessel im Passport zwischen, wenn das per Parameter
+     * <code>client.passport.keycache.timeout</code> aktiviert ist.
+     * @param passport der Passport.
+     * @param salt das Salt.
+     * @param key der Schluessel.
+     */
+    private void putCachedKey(final HBCIPassport passport, final byte[] salt, final SecretKey key)
+    {
+        final int timeout = HBCIUtils.getConfig().getInt(PARAM_KEY_CACHE,0);
+        if (timeout <= 0)
+            return;
+        
+        final CachedKey cached = (CachedKey) passport.getClientData(KEY_CACHE);
+        if (cached != null && cached.key == key)
+            return; // haben wir schon
+        
+        passport.setClientData(KEY_CACHE,new CachedKey(salt.clone(),key,System.currentTimeMillis() + timeout * 1000L));
+    }
+    
+    /**
+     * Entfernt den zwischengespeicherten Schluessel aus dem Passport.
+     * Wird beim Schliessen des Passports aufgerufen.
+     * @param passport der Passport.
+     */
+    public static void clearKeyCache(final HBCIPassport passport)
+    {
+        if (passport != null)
+            passport.setClientData(KEY_CACHE,null);
+    }
 }
@@ -25,29 +25,29 @@ import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.List;
-import java.util.Properties;
 
 import org.kapott.hbci.datatypes.SyntaxDE;
 import org.kapott.hbci.datatypes.factory.SyntaxDEFactory;
+import org.kapott.hbci.datatypes.factory.SyntaxDEType;
 import org.kapott.hbci.exceptions.NoValidValueException;
 import org.kapott.hbci.exceptions.NoValueGivenException;
 import org.kapott.hbci.exceptions.OverwriteException;
 import org.kapott.hbci.exceptions.ParseErrorException;
 import org.kapott.hbci.exceptions.PredelimErrorException;
 import org.kapott.hbci.manager.HBCIUtilsInternal;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
+import org.kapott.hbci.protocol.syntax.SyntaxModel;
+import org.kapott.hbci.protocol.syntax.SyntaxRef;
 
 public final class DE
     extends SyntaxElement
 {
     private SyntaxDE value;
+    private SyntaxDEType deType;
     private int minsize;
     private int maxsize;
     private List<String> valids;
 
-    protected MultipleSyntaxElements createNewChildContainer(Node dedef, Document syntax)
+    protected MultipleSyntaxElements createNewChildContainer(SyntaxRef dedef, SyntaxModel syntax)
     {
         return null;
     }
@@ -73,7 +73,7 @@ public final class DE
                 }
                 
                 // ansonsten den alten Wert löschen
-                SyntaxDEFactory.getInstance().unuseObject(value,getType());
+                SyntaxDEFactory.getInstance().unuseObject(value,deType);
             }
 
             setValue(valueString);
@@ -103,33 +103,25 @@ public final class DE
         return ret;
     }
 
-    private void initData(Node dedef, String name, String path, int idx, Document syntax)
+    private void initData(SyntaxRef dedef, String name, String path, int idx, SyntaxModel syntax)
     {
         this.value=null;
         this.valids=new ArrayList<String>();
+        this.deType=dedef.getDEType();
 
-        String st;
-
-        minsize = 1;
-        st = ((Element)dedef).getAttribute("minsize");
-        if (st.length() != 0)
-            minsize = Integer.parseInt(st);
-
-        maxsize = 0;
-        st = ((Element)dedef).getAttribute("maxsize");
-        if (st.length() != 0)
-            maxsize = Integer.parseInt(st);
+        minsize = dedef.getMinSize();
+        maxsize = dedef.getMaxSize();
     }
     
-    public DE(Node dedef, String name, String path, int idx, Document syntax)
+    public DE(SyntaxRef dedef, String name, String path, int idx, SyntaxModel syntax)
     {
-        super(((Element)dedef).getAttribute("type"),name,path,idx,null);
+        super(dedef.getType(),name,path,idx,null);
         initData(dedef,name,path,idx,syntax);
     }
 
-    public void init(Node dedef, String name, String path, int idx, Document syntax)
+    public void init(SyntaxRef dedef, String name, String path, int idx, SyntaxModel syntax)
     {
-        super.init(((Element)dedef).getAttribute("type"),name,path,idx,null);
+        super.init(dedef.getType(),name,path,idx,null);
         initData(dedef,name,path,idx,syntax);
     }
 
@@ -180,7 +172,7 @@ public final class DE
 
     public void setValue(String st)
     {
-        this.value=SyntaxDEFactory.getInstance().createSyntaxDE(getType(),getPath(),st,minsize,maxsize);
+        this.value=SyntaxDEFactory.getInstance().createSyntaxDE(getDEType(),getPath(),st,minsize,maxsize);
     }
     
     public SyntaxDE getValue()
@@ -188,9 +180,17 @@ public final class DE
         return value;
     }
 
+    /** liefert den beim uebersetzen der syntax aufgeloesten datentyp */
+    private SyntaxDEType getDEType()
+    {
+        if (deType==null)
+            deType=SyntaxDEType.forName(getType(),getPath());
+        return deType;
+    }
+
     // ---------------------------------------------------------------------------------------------------------------
 
-    protected MultipleSyntaxElements parseNewChildContainer(Node deref, char predelim0, char predelim1, StringBuffer res, int fullResLen,Document syntax, Hashtable<String, String> predefs,Hashtable<String, String> valids)
+    protected MultipleSyntaxElements parseNewChildContainer(SyntaxRef deref, char predelim0, char predelim1, ParseCursor res, int fullResLen,SyntaxModel syntax, Hashtable<String, String> predefs,Hashtable<String, String> valids)
     {
         return null;
     }
@@ -202,13 +202,12 @@ public final class DE
 
     /** anlegen eines de beim parsen funktioniert analog zum
         anlegen eines de bei der message-synthese */
-    private void parseValue(StringBuffer res,Hashtable<String,String> predefs,Hashtable<String,String> valids)
+    private void parseValue(ParseCursor res,Hashtable<String,String> predefs,Hashtable<String,String> valids)
     {
-        String temp=res.toString();
-        int len=temp.length();
+        int len=res.length();
         char preDelim=getPreDelim();
         
-        if (preDelim!=(char)0 && temp.charAt(0)!=preDelim) {
+        if (preDelim!=(char)0 && (len==0 || res.charAt(0)!=preDelim)) {
             if (len==0) {
                 throw new ParseErrorException(HBCIUtilsInternal.getLocMsg("EXCMSG_ENDOFSTRG",getPath()));
             } 
@@ -216,10 +215,10 @@ public final class DE
             // HBCIUtils.log("error string: "+res.toString(),HBCIUtils.LOG_ERR);
             // HBCIUtils.log("current: "+getPath()+":"+type+"("+minsize+","+maxsize+")="+value,HBCIUtils.LOG_ERR);
             // HBCIUtils.log("predelimiter mismatch (required:"+getPreDelim()+" found:"+temp.charAt(0)+")",HBCIUtils.LOG_ERR);
-            throw new PredelimErrorException(getPath(),Character.toString(preDelim),Character.toString(temp.charAt(0)));
+            throw new PredelimErrorException(getPath(),Character.toString(preDelim),Character.toString(res.charAt(0)));
         }
 
-        this.value=SyntaxDEFactory.getInstance().createSyntaxDE(getType(),getPath(),res,minsize,maxsize);
+        this.value=SyntaxDEFactory.getInstance().createSyntaxDE(getDEType(),getPath(),res,minsize,maxsize);
 
         String valueString=value.toString(0);
         String predefined = predefs.get(getPath());
@@ -256,43 +255,35 @@ public final class DE
         }
     }
 
-    private void initData(Node dedef, String name, String path, char predelim, int idx, StringBuffer res, int fullResLen, Document syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
+    private void initData(SyntaxRef dedef, String name, String path, char predelim, int idx, ParseCursor res, int fullResLen, SyntaxModel syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
     {
         setValid(false);
 
         value = null;
         this.valids=new ArrayList<String>();
+        this.deType=dedef.getDEType();
 
-        String st;
-
-        minsize = 1;
-        st = ((Element)dedef).getAttribute("minsize");
-        if (st.length() != 0)
-            minsize = Integer.parseInt(st);
-
-        maxsize = 0;
-        st = ((Element)dedef).getAttribute("maxsize");
-        if (st.length() != 0)
-            maxsize = Integer.parseInt(st);
+        minsize = dedef.getMinSize();
+        maxsize = dedef.getMaxSize();
 
         try {
             parseValue(res,predefs,valids);
             setValid(true);
         } catch (RuntimeException e) {
-            SyntaxDEFactory.getInstance().unuseObject(value,getType());
+            SyntaxDEFactory.getInstance().unuseObject(value,deType);
             throw e;
         }
     }
     
-    public DE(Node dedef, String name, String path, char predelim, int idx, StringBuffer res, int fullResLen, Document syntax, Hashtable<String, String> predefs,Hashtable<String, String> valids)
+    public DE(SyntaxRef dedef, String name, String path, char predelim, int idx, ParseCursor res, int fullResLen, SyntaxModel syntax, Hashtable<String, String> predefs,Hashtable<String, String> valids)
     {
-        super(((Element)dedef).getAttribute("type"),name,path,predelim,idx,res,fullResLen,null,predefs,valids);
+        super(dedef.getType(),name,path,predelim,idx,res,fullResLen,null,predefs,valids);
         initData(dedef,name,path,predelim,idx,res,fullResLen,syntax,predefs,valids);
     }
 
-    public void init(Node dedef, String name, String path, char predelim, int idx, StringBuffer res, int fullResLen, Document syntax, Hashtable<String, String> predefs,Hashtable<String, String> valids)
+    public void init(SyntaxRef dedef, String name, String path, char predelim, int idx, ParseCursor res, int fullResLen, SyntaxModel syntax, Hashtable<String, String> predefs,Hashtable<String, String> valids)
     {
-        super.init(((Element)dedef).getAttribute("type"),name,path,predelim,idx,res,fullResLen,null,predefs,valids);
+        super.init(dedef.getType(),name,path,predelim,idx,res,fullResLen,null,predefs,valids);
         initData(dedef,name,path,predelim,idx,res,fullResLen,syntax,predefs,valids);
     }
 
@@ -307,26 +298,26 @@ public final class DE
         return isValid()?value.toString(0):"";
     }
 
-    public void getElementPaths(Properties p,int[] segref,int[] degref,int[] deref)
+    public void appendTo(MsgBuffer buf)
+    {
+        if (isValid())
+            value.appendTo(buf);
+    }
+
+    public void getElementPaths(ElementRefs p,int[] segref,int[] degref,int[] deref)
     {
         if (deref==null) {
-            p.setProperty(Integer.toString(segref[0])+
-                          ":"+Integer.toString(degref[0]),getPath());
+            p.add(segref[0],degref[0],0,getPath());
             degref[0]++;
         } else {
-            p.setProperty(Integer.toString(segref[0])+
-                          ":"+
-                          Integer.toString(degref[0])+
-                          ","+
-                          Integer.toString(deref[0]),
-                          getPath());
+            p.add(segref[0],degref[0],deref[0],getPath());
             deref[0]++;
         }
     }
 
     public void destroy()
     {
-        SyntaxDEFactory.getInstance().unuseObject(value,getType());
+        SyntaxDEFactory.getInstance().unuseObject(value,deType);
         value=null;
         valids.clear();
         valids=null;
@@ -24,13 +24,11 @@ package org.kapott.hbci.protocol;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
-import java.util.ListIterator;
-import java.util.Properties;
 
 import org.kapott.hbci.protocol.factory.MultipleDEGsFactory;
 import org.kapott.hbci.protocol.factory.MultipleDEsFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
+import org.kapott.hbci.protocol.syntax.SyntaxModel;
+import org.kapott.hbci.protocol.syntax.SyntaxRef;
 
 public final class DEG
     extends SyntaxElement
@@ -40,46 +38,53 @@ public final class DEG
         return "DEG";
     }
 
-    protected MultipleSyntaxElements createNewChildContainer(Node ref, Document syntax)
+    protected MultipleSyntaxElements createNewChildContainer(SyntaxRef ref, SyntaxModel syntax)
     {
         MultipleSyntaxElements ret=null;
 
-        if ((ref.getNodeName()).equals("DE"))
+        if (ref.getKind()==SyntaxRef.Kind.DE)
             ret=MultipleDEsFactory.getInstance().createMultipleDEs(ref, ':', getPath(), syntax);
-        else if ((ref.getNodeName()).equals("DEG"))
+        else if (ref.getKind()==SyntaxRef.Kind.DEG)
             ret=MultipleDEGsFactory.getInstance().createMultipleDEGs(ref, ':', getPath(), syntax);
 
         return ret;
     }
 
-    public DEG(String type, String name, String path, int idx, Document syntax)
+    public DEG(String type, String name, String path, int idx, SyntaxModel syntax)
     {
         super(type,name,path,idx,syntax);
     }
 
-    public void init(String type, String name, String path, int idx, Document syntax)
+    public void init(String type, String name, String path, int idx, SyntaxModel syntax)
     {
         super.init(type,name,path,idx,syntax);
     }
 
     public String toString(int zero)
     {
-        StringBuffer ret = new StringBuffer(128);
+        MsgBuffer buf=new MsgBuffer(128);
+        appendTo(buf);
+        return buf.toString();
+    }
+
+    public void appendTo(MsgBuffer buf)
+    {
         boolean first = true;
 
         if (isValid()) {
             int tooMuch=0;
             int saveLen;
-            for (ListIterator<MultipleSyntaxElements> i = getChildContainers().listIterator(); i.hasNext(); ) {
+            List<MultipleSyntaxElements> childs=getChildContainers();
+            for (int i=0;i<childs.size();i++) {
                 if (!first)
-                    ret.append(':');
+                    buf.append(':');
 
-                saveLen=ret.length();
-                MultipleSyntaxElements dataList = i.next();
+                saveLen=buf.length();
+                MultipleSyntaxElements dataList = childs.get(i);
                 if (dataList != null)
-                    ret.append(dataList.toString(0));
-                
-                if (ret.length()==saveLen && !first) {
+                    dataList.appendTo(buf);
+
+                if (buf.length()==saveLen && !first) {
                     tooMuch++;
                 } else {
                     tooMuch=0;
@@ -90,23 +95,20 @@ public final class DEG
             // das auslassen von leeren elementen am ende darf nur erfolgen, wenn
             // es nicht um eine DEG innerhalb einer anderen DEG handelt
             if (getParent().getParent().getInDelim()!=':') {
-                int retlen=ret.length();
-                ret.delete(retlen-tooMuch,retlen);
+                buf.setLength(buf.length()-tooMuch);
             }
         }
-
-        return ret.toString();
     }
 
     // ---------------------------------------------------------------------------------------------------------------
 
-    protected MultipleSyntaxElements parseNewChildContainer(Node dataref, char predelim0, char predelim1, StringBuffer res, int fullResLen,Document syntax, Hashtable<String, String> predefs,Hashtable<String, String> valids)
+    protected MultipleSyntaxElements parseNewChildContainer(SyntaxRef dataref, char predelim0, char predelim1, ParseCursor res, int fullResLen,SyntaxModel syntax, Hashtable<String, String> predefs,Hashtable<String, String> valids)
     {
         MultipleSyntaxElements ret=null;
 
-        if ((dataref.getNodeName()).equals("DEG"))
+        if (dataref.getKind()==SyntaxRef.Kind.DEG)
             ret=MultipleDEGsFactory.getInstance().createMultipleDEGs(dataref, ':', getPath(), predelim0, predelim1, res, fullResLen, syntax, predefs,valids);
-        else if ((dataref.getNodeName()).equals("DE"))
+        else if (dataref.getKind()==SyntaxRef.Kind.DE)
             ret=MultipleDEsFactory.getInstance().createMultipleDEs(dataref, ':', getPath(), predelim0, predelim1, res, fullResLen, syntax, predefs,valids);
 
         return ret;
@@ -117,21 +119,20 @@ public final class DEG
         return ':';
     }
 
-    public DEG(String type, String name, String path, char predelim, int idx, StringBuffer res, int fullResLen, Document syntax, Hashtable<String, String> predefs,Hashtable<String, String> valids)
+    public DEG(String type, String name, String path, char predelim, int idx, ParseCursor res, int fullResLen, SyntaxModel syntax, Hashtable<String, String> predefs,Hashtable<String, String> valids)
     {
         super(type, name, path, predelim, idx, res, fullResLen, syntax, predefs,valids);
     }
 
-    public void init(String type, String name, String path, char predelim, int idx, StringBuffer res, int fullResLen, Document syntax, Hashtable<String, String> predefs,Hashtable<String,String> valids)
+    public void init(String type, String name, String path, char predelim, int idx, ParseCursor res, int fullResLen, SyntaxModel syntax, Hashtable<String, String> predefs,Hashtable<String,String> valids)
     {
         super.init(type, name, path, predelim, idx, res, fullResLen, syntax, predefs,valids);
     }
 
-    public void getElementPaths(Properties p,int[] segref,int[] degref,int[] deref)
+    public void getElementPaths(ElementRefs p,int[] segref,int[] degref,int[] deref)
     {
         if (deref==null) {
-            p.setProperty(Integer.toString(segref[0])+
-                          ":"+Integer.toString(degref[0]),getPath());
+            p.add(segref[0],degref[0],0,getPath());
         
             deref=new int[1];
             deref[0]=1;
@@ -145,12 +146,7 @@ public final class DEG
             
             degref[0]++;
         } else {
-            p.setProperty(Integer.toString(segref[0])+
-                          ":"+
-                          Integer.toString(degref[0])+
-                          ","+
-                          Integer.toString(deref[0]),
-                          getPath());
+            p.add(segref[0],degref[0],deref[0],getPath());
             deref[0]++;
         }
     }
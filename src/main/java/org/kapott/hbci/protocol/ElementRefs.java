@@ -0,0 +1,132 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) 2001-2008 Stefan Palme
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+
+package org.kapott.hbci.protocol;
+
+import java.util.Arrays;
+import java.util.Properties;
+
+/** Kompakte Liste der Element-Referenzen einer Nachricht. Jeder Eintrag
+    ordnet einer Referenz der Form <code>seg</code>, <code>seg:deg</code>
+    oder <code>seg:deg,de</code> den Pfad des jeweiligen Syntaxelementes
+    zu. Die Referenzen werden als Zahlen gespeichert, die Schluessel-Strings
+    werden erst in {@link #copyTo(Properties)} erzeugt. */
+public final class ElementRefs
+{
+    private int[]    refs=new int[48];
+    private String[] paths=new String[16];
+    private int      size;
+    
+    void add(int seg,int deg,int de,String path)
+    {
+        if (size==paths.length) {
+            refs=Arrays.copyOf(refs,refs.length<<1);
+            paths=Arrays.copyOf(paths,paths.length<<1);
+        }
+        refs[3*size]=seg;
+        refs[3*size+1]=deg;
+        refs[3*size+2]=de;
+        paths[size++]=path;
+    }
+    
+    /** Gibt die Anzahl der gespeicherten Referenzen zurueck. */
+    public int size()
+    {
+        return size;
+    }
+    
+    /** Gibt den Pfad zu einer Referenz der Form <code>seg</code>,
+        <code>seg:deg</code> oder <code>seg:deg,de</code> zurueck.
+        @param ref die Referenz
+        @return der Pfad oder <code>null</code>, wenn <code>ref</code>
+                keine gespeicherte Referenz ist */
+    public String getPath(String ref)
+    {
+        int[] parsed=parse(ref);
+        if (parsed!=null) {
+            for (int i=size-1;i>=0;i--) {
+                if (refs[3*i]==parsed[0] && refs[3*i+1]==parsed[1] && refs[3*i+2]==parsed[2]) {
+                    return paths[i];
+                }
+            }
+        }
+        return null;
+    }
+    
+    /** Kopiert alle Referenzen mit den zugehoerigen Pfaden nach <code>p</code>. */
+    public void copyTo(Properties p)
+    {
+        copyTo(p,null);
+    }
+    
+    /** Kopiert die Referenzen, die mit <code>prefix</code> beginnen, mit den
+        zugehoerigen Pfaden nach <code>p</code>.
+        @param p Ziel
+        @param prefix Prefix der Referenzen, <code>null</code> fuer alle */
+    public void copyTo(Properties p,String prefix)
+    {
+        for (int i=0;i<size;i++) {
+            String ref=getRef(i);
+            if (prefix==null || ref.startsWith(prefix))
+                p.setProperty(ref,paths[i]);
+        }
+    }
+    
+    private String getRef(int i)
+    {
+        StringBuilder ref=new StringBuilder(8).append(refs[3*i]);
+        if (refs[3*i+1]!=0) {
+            ref.append(':').append(refs[3*i+1]);
+            if (refs[3*i+2]!=0) {
+                ref.append(',').append(refs[3*i+2]);
+            }
+        }
+        return ref.toString();
+    }
+    
+    /* zerlegt eine Referenz in ihre drei Zahlen; fehlende Teile werden
+       als 0 zurueckgegeben, ungueltige Referenzen als null */
+    private static int[] parse(String ref)
+    {
+        int[] ret=new int[3];
+        int   part=0;
+        int   start=0;
+        int   len=ref.length();
+        
+        for (int i=0;i<=len;i++) {
+            char c=(i<len)?ref.charAt(i):0;
+            if (c>='0' && c<='9') {
+                if (i==start && c=='0' || ret[part]>99999) {
+                    return null;
+                }
+                ret[part]=ret[part]*10+(c-'0');
+            } else {
+                if (i==start || c!=0 && (part==0 && c!=':' || part==1 && c!=',' || part==2)) {
+                    return null;
+                }
+                part++;
+                start=i+1;
+            }
+        }
+        return ret;
+    }
+}
@@ -35,8 +35,8 @@ import org.kapott.hbci.manager.HBCIUtils;
 import org.kapott.hbci.manager.MsgGen;
 import org.kapott.hbci.protocol.factory.MultipleSEGsFactory;
 import org.kapott.hbci.protocol.factory.MultipleSFsFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
+import org.kapott.hbci.protocol.syntax.SyntaxModel;
+import org.kapott.hbci.protocol.syntax.SyntaxRef;
 
 public final class MSG
     extends SyntaxElement
@@ -46,13 +46,15 @@ public final class MSG
     public final static boolean CHECK_VALIDS=true;
     public final static boolean DONT_CHECK_VALIDS=false;
     
-    protected MultipleSyntaxElements createNewChildContainer(Node ref, Document syntax)
+    private int backtracks;
+    
+    protected MultipleSyntaxElements createNewChildContainer(SyntaxRef ref, SyntaxModel syntax)
     {
         MultipleSyntaxElements ret=null;
         
-        if ((ref.getNodeName()).equals("SEG"))
+        if (ref.getKind()==SyntaxRef.Kind.SEG)
             ret=MultipleSEGsFactory.getInstance().createMultipleSEGs(ref, getPath(), syntax);
-        else if ((ref.getNodeName()).equals("SF"))
+        else if (ref.getKind()==SyntaxRef.Kind.SF)
             ret=MultipleSFsFactory.getInstance().createMultipleSFs(ref, getPath(), syntax);
         
         return ret;
@@ -125,6 +127,7 @@ public final class MSG
     
     private void initData(String type,MsgGen gen,Hashtable<String,String> clientValues)
     {
+        backtracks=0;
         propagateUserData(getName(), clientValues);
 
         enumerateSegs(0,DONT_ALLOW_OVERWRITE);
@@ -136,30 +139,41 @@ public final class MSG
 
     public String toString(int zero)
     {
-        StringBuffer ret = new StringBuffer(1024);
+        MsgBuffer buf=new MsgBuffer(1024);
+        appendTo(buf);
+        return buf.toString();
+    }
 
-        if (isValid())
-            for (Iterator<MultipleSyntaxElements> i = getChildContainers().listIterator(); i.hasNext(); ) {
-                MultipleSyntaxElements list = i.next();
+    public void appendTo(MsgBuffer buf)
+    {
+        if (isValid()) {
+            List<MultipleSyntaxElements> childs=getChildContainers();
+            for (int i=0;i<childs.size();i++) {
+                MultipleSyntaxElements list = childs.get(i);
 
                 if (list != null)
-                    ret.append(list.toString(0));
+                    list.appendTo(buf);
             }
-
-        return ret.toString();
+        }
     }
 
     // -------------------------------------------------------------------------------------------
     
-    private void initData(String type,String res,int fullResLen,MsgGen gen,boolean checkSeq,boolean checkValids)
+    private void initData(String type,ParseCursor res,int fullResLen,MsgGen gen,boolean checkSeq,boolean checkValids)
     {
+        backtracks=res.getBacktracks();
         if (checkSeq)
             checkSegSeq(1);
     }
 
     public MSG(String type,String res,int fullResLen,MsgGen gen,boolean checkSeq,boolean checkValids)
     {
-        super(type,type,null,(char)0,0,new StringBuffer(res),fullResLen,
+        this(type,new ParseCursor(res),fullResLen,gen,checkSeq,checkValids);
+    }
+    
+    private MSG(String type,ParseCursor res,int fullResLen,MsgGen gen,boolean checkSeq,boolean checkValids)
+    {
+        super(type,type,null,(char)0,0,res,fullResLen,
                 gen.getSyntax(),
                 new Hashtable<String, String>(),
                 checkValids?new Hashtable<String, String>():null);
@@ -168,10 +182,18 @@ public final class MSG
     
     public void init(String type,String res,int fullResLen,MsgGen gen,boolean checkSeq,boolean checkValids)
     {
-        super.init(type,type,null,(char)0,0,new StringBuffer(res),fullResLen,
+        ParseCursor cursor=new ParseCursor(res);
+        super.init(type,type,null,(char)0,0,cursor,fullResLen,
                 gen.getSyntax(),new Hashtable<String, String>(),
                 checkValids?new Hashtable<String, String>():null);
-        initData(type,res,fullResLen,gen,checkSeq,checkValids);
+        initData(type,cursor,fullResLen,gen,checkSeq,checkValids);
+    }
+    
+    /** liefert beim parsen die anzahl der fehlgeschlagenen parse-versuche, nach
+        denen wieder zurueckgesetzt werden musste. dient nur der diagnose */
+    public int getBacktracks()
+    {
+        return backtracks;
     }
 
     protected char getInDelim()
@@ -179,13 +201,13 @@ public final class MSG
         return '\'';
     }
 
-    protected MultipleSyntaxElements parseNewChildContainer(Node segref, char predelim0, char predelim1, StringBuffer res, int fullResLen, Document syntax, Hashtable<String, String> predefs,Hashtable<String, String> valids)
+    protected MultipleSyntaxElements parseNewChildContainer(SyntaxRef segref, char predelim0, char predelim1, ParseCursor res, int fullResLen, SyntaxModel syntax, Hashtable<String, String> predefs,Hashtable<String, String> valids)
     {
         MultipleSyntaxElements ret=null;
 
-        if ((segref.getNodeName()).equals("SEG"))
+        if (segref.getKind()==SyntaxRef.Kind.SEG)
             ret=MultipleSEGsFactory.getInstance().createMultipleSEGs(segref, getPath(), predelim0, predelim1, res, fullResLen, syntax, predefs,valids);
-        else if ((segref.getNodeName()).equals("SF"))
+        else if (segref.getKind()==SyntaxRef.Kind.SF)
             ret=MultipleSFsFactory.getInstance().createMultipleSFs(segref, getPath(), predelim0, predelim1, res, fullResLen, syntax, predefs,valids);
         
         return ret;
@@ -229,7 +251,7 @@ public final class MSG
         return p;
     }
 
-    public void getElementPaths(Properties p,int[] segref,int[] degref,int[] deref)
+    public void getElementPaths(ElementRefs p,int[] segref,int[] degref,int[] deref)
     {
         segref=new int[1];
         segref[0]=1;
@@ -0,0 +1,204 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci.protocol;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Wiederverwendbarer Byte-Puffer fuer HBCI-Nachrichten.
+ * HBCI-Nachrichten sind ISO-8859-1-kodiert, jedes Zeichen belegt also genau ein Byte.
+ * Die Syntax-Elemente schreiben sich mit {@link SyntaxElement#appendTo(MsgBuffer)}
+ * direkt in den Puffer, statt auf jeder Ebene einen eigenen String zu erzeugen.
+ * Nach {@link #clear()} kann der Puffer fuer die naechste Nachricht wiederverwendet
+ * werden, das Array waechst nur bei Bedarf.
+ * Die Klasse ist nicht thread-safe.
+ */
+public final class MsgBuffer
+{
+    private byte[] data;
+    private int    length;
+
+    /**
+     * ct.
+     */
+    public MsgBuffer()
+    {
+        this(1024);
+    }
+
+    /**
+     * ct.
+     * @param capacity initiale Groesse.
+     */
+    public MsgBuffer(int capacity)
+    {
+        this.data=new byte[Math.max(capacity,16)];
+    }
+
+    /**
+     * Haengt ein Zeichen an.
+     * Zeichen ausserhalb von ISO-8859-1 werden wie bei {@link String#getBytes(String)}
+     * durch '?' ersetzt.
+     * @param ch das Zeichen.
+     * @return der Puffer.
+     */
+    public MsgBuffer append(char ch)
+    {
+        ensure(1);
+        data[length++]=(ch<256)?(byte)ch:(byte)'?';
+        return this;
+    }
+
+    /**
+     * Haengt einen String an.
+     * @param st der String.
+     * @return der Puffer.
+     */
+    public MsgBuffer append(String st)
+    {
+        int len=st.length();
+        ensure(len);
+        for (int i=0;i<len;i++) {
+            char ch=st.charAt(i);
+            data[length++]=(ch<256)?(byte)ch:(byte)'?';
+        }
+        return this;
+    }
+
+    /**
+     * Haengt Bytes an.
+     * @param b die Bytes.
+     * @param off Offset.
+     * @param len Anzahl.
+     * @return der Puffer.
+     */
+    public MsgBuffer append(byte[] b, int off, int len)
+    {
+        ensure(len);
+        System.arraycopy(b,off,data,length,len);
+        length+=len;
+        return this;
+    }
+
+    /**
+     * Liest den Stream bis zum Ende bzw. bis die angegebene Anzahl Bytes gelesen ist
+     * und haengt die Daten an.
+     * @param in der Stream.
+     * @param size Anzahl der zu lesenden Bytes oder -1, wenn bis zum Ende gelesen werden soll.
+     * @return der Puffer.
+     * @throws IOException
+     */
+    public MsgBuffer read(InputStream in, int size) throws IOException
+    {
+        int remaining=size;
+        while (remaining!=0) {
+            ensure(remaining>0?remaining:1024);
+            int max=data.length-length;
+            if (remaining>0)
+                max=Math.min(max,remaining);
+
+            int num=in.read(data,length,max);
+            if (num==-1)
+                break;
+            length+=num;
+            if (remaining>0)
+                remaining-=num;
+        }
+        return this;
+    }
+
+    /**
+     * Liefert die Anzahl der Bytes im Puffer.
+     * @return die Anzahl der Bytes.
+     */
+    public int length()
+    {
+        return length;
+    }
+
+    /**
+     * Kuerzt den Puffer.
+     * @param length die neue Laenge. Darf nicht groesser als die aktuelle sein.
+     */
+    public void setLength(int length)
+    {
+        if (length<0 || length>this.length)
+            throw new IndexOutOfBoundsException("invalid length "+length+", current length "+this.length);
+        this.length=length;
+    }
+
+    /**
+     * Leert den Puffer, damit er fuer die naechste Nachricht verwendet werden kann.
+     */
+    public void clear()
+    {
+        this.length=0;
+    }
+
+    /**
+     * Liefert eine Sicht auf den Inhalt ohne Kopie.
+     * Die Sicht ist nur bis zur naechsten Aenderung des Puffers gueltig.
+     * @return die Sicht auf den Inhalt.
+     */
+    public ByteBuffer asByteBuffer()
+    {
+        return ByteBuffer.wrap(data,0,length);
+    }
+
+    /**
+     * Liefert eine Kopie des Inhaltes.
+     * @return Kopie des Inhaltes.
+     */
+    public byte[] toByteArray()
+    {
+        byte[] b=new byte[length];
+        System.arraycopy(data,0,b,0,length);
+        return b;
+    }
+
+    /**
+     * Liefert den Inhalt als String.
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        return new String(data,0,length,StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Stellt sicher, dass noch die angegebene Anzahl Bytes in den Puffer passt.
+     * @param count Anzahl der Bytes.
+     */
+    private void ensure(int count)
+    {
+        if (length+count<=data.length)
+            return;
+
+        byte[] b=new byte[Math.max(data.length*2,length+count)];
+        System.arraycopy(data,0,b,0,length);
+        data=b;
+    }
+}
@@ -24,19 +24,17 @@ package org.kapott.hbci.protocol;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
-import java.util.ListIterator;
-import java.util.Properties;
 
 import org.kapott.hbci.protocol.factory.DEGFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
+import org.kapott.hbci.protocol.syntax.SyntaxModel;
+import org.kapott.hbci.protocol.syntax.SyntaxRef;
 
 public final class MultipleDEGs
      extends MultipleSyntaxElements
 {
     private char delimiter;
 
-    protected SyntaxElement createAndAppendNewElement(Node ref, String path, int idx, Document syntax)
+    protected SyntaxElement createAndAppendNewElement(SyntaxRef ref, String path, int idx, SyntaxModel syntax)
     {
         SyntaxElement ret=null;
 
@@ -44,18 +42,18 @@ public final class MultipleDEGs
         return ret;
     }
 
-    private void initData(Node degref, char delimiter, String path, Document syntax)
+    private void initData(SyntaxRef degref, char delimiter, String path, SyntaxModel syntax)
     {
         this.delimiter = delimiter;
     }
     
-    public MultipleDEGs(Node degref, char delimiter, String path, Document syntax)
+    public MultipleDEGs(SyntaxRef degref, char delimiter, String path, SyntaxModel syntax)
     {
         super(degref, path, syntax);
         initData(degref,delimiter,path,syntax);
     }
 
-    public void init(Node degref, char delimiter, String path, Document syntax)
+    public void init(SyntaxRef degref, char delimiter, String path, SyntaxModel syntax)
     {
         super.init(degref, path, syntax);
         initData(degref,delimiter,path,syntax);
@@ -63,49 +61,54 @@ public final class MultipleDEGs
 
     public String toString(int zero)
     {
-        StringBuffer ret=new StringBuffer(128);
+        MsgBuffer buf=new MsgBuffer(128);
+        appendTo(buf);
+        return buf.toString();
+    }
+
+    public void appendTo(MsgBuffer buf)
+    {
         boolean first = true;
 
-        for (ListIterator<SyntaxElement> i = getElements().listIterator(); i.hasNext(); ) {
+        List<SyntaxElement> elements=getElements();
+        for (int i=0;i<elements.size();i++) {
             if (!first)
-                ret.append(delimiter);
+                buf.append(delimiter);
             first=false;
 
-            DEG deg = (DEG)(i.next());
+            DEG deg = (DEG)(elements.get(i));
             if (deg != null)
-                ret.append(deg.toString(0));
+                deg.appendTo(buf);
         }
-
-        return ret.toString();
     }
 
     // --------------------------------------------------------------------------------------------------------------
 
-    protected SyntaxElement parseAndAppendNewElement(Node ref, String path, char predelim, int idx, StringBuffer res, int fullResLen, Document syntax, Hashtable<String, String> predefs,Hashtable<String, String> valids)
+    protected SyntaxElement parseAndAppendNewElement(SyntaxRef ref, String path, char predelim, int idx, ParseCursor res, int fullResLen, SyntaxModel syntax, Hashtable<String, String> predefs,Hashtable<String, String> valids)
     {
         SyntaxElement ret=null;
         addElement((ret=DEGFactory.getInstance().createDEG(getType(), getName(), path, predelim, idx, res, fullResLen, syntax, predefs,valids)));
         return ret;
     }
     
-    private void initData(Node degref, char delimiter, String path, char predelim0, char predelim1, StringBuffer res, int fullResLen, Document syntax, Hashtable<?, ?> predefs,Hashtable<?, ?> valids)
+    private void initData(SyntaxRef degref, char delimiter, String path, char predelim0, char predelim1, ParseCursor res, int fullResLen, SyntaxModel syntax, Hashtable<?, ?> predefs,Hashtable<?, ?> valids)
     {
         this.delimiter = delimiter;
     }
 
-    public MultipleDEGs(Node degref, char delimiter, String path, char predelim0, char predelim1, StringBuffer res, int fullResLen, Document syntax, Hashtable<String, String> predefs,Hashtable<String, String> valids)
+    public MultipleDEGs(SyntaxRef degref, char delimiter, String path, char predelim0, char predelim1, ParseCursor res, int fullResLen, SyntaxModel syntax, Hashtable<String, String> predefs,Hashtable<String, String> valids)
     {
         super(degref, path, predelim0, predelim1, res, fullResLen, syntax, predefs,valids);
         initData(degref,delimiter,path,predelim0,predelim1,res,fullResLen,syntax,predefs,valids);
     }
 
-    public void init (Node degref, char delimiter, String path, char predelim0, char predelim1, StringBuffer res, int fullResLen,Document syntax, Hashtable<String, String> predefs,Hashtable<String, String> valids)
+    public void init (SyntaxRef degref, char delimiter, String path, char predelim0, char predelim1, ParseCursor res, int fullResLen,SyntaxModel syntax, Hashtable<String, String> predefs,Hashtable<String, String> valids)
     {
         super.init(degref, path, predelim0, predelim1, res, fullResLen, syntax, predefs,valids);
         initData(degref,delimiter,path,predelim0,predelim1,res,fullResLen,syntax,predefs,valids);
     }
 
-    public void getElementPaths(Properties p,int[] segref,int[] degref,int[] deref)
+    public void getElementPaths(ElementRefs p,int[] segref,int[] degref,int[] deref)
     {
         if (getElements().size()!=0) {
             for (Iterator<SyntaxElement> i=getElements().iterator();i.hasNext();) {
@@ -116,16 +119,10 @@ public final class MultipleDEGs
             }
         } else {
             if (deref==null) {
-                p.setProperty(Integer.toString(segref[0])+
-                              ":"+Integer.toString(degref[0]),getPath());
+                p.add(segref[0],degref[0],0,getPath());
                 degref[0]++;
             } else {
-                p.setProperty(Integer.toString(segref[0])+
-                              ":"+
-                              Integer.toString(degref[0])+
-                              ","+
-                              Integer.toString(deref[0]),
-                              getPath());
+                p.add(segref[0],degref[0],deref[0],getPath());
                 deref[0]++;
             }
         }
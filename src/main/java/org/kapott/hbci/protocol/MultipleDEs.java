@@ -26,13 +26,13 @@ import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
-import java.util.ListIterator;
-import java.util.Properties;
 
+import org.kapott.hbci.exceptions.ParseErrorException;
+import org.kapott.hbci.exceptions.PredelimErrorException;
 import org.kapott.hbci.manager.HBCIUtilsInternal;
 import org.kapott.hbci.protocol.factory.DEFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
+import org.kapott.hbci.protocol.syntax.SyntaxModel;
+import org.kapott.hbci.protocol.syntax.SyntaxRef;
 
 public final class MultipleDEs
      extends MultipleSyntaxElements
@@ -40,26 +40,26 @@ public final class MultipleDEs
     private char delimiter;
     private List<String> valids;
 
-    protected SyntaxElement createAndAppendNewElement(Node deref, String path, int idx, Document syntax)
+    protected SyntaxElement createAndAppendNewElement(SyntaxRef deref, String path, int idx, SyntaxModel syntax)
     {
         SyntaxElement ret=null;
         addElement((ret=DEFactory.getInstance().createDE(deref, getName(), path, idx, syntax)));
         return ret;
     }
     
-    private void initData(Node dedef, char delimiter, String path, Document syntax)
+    private void initData(SyntaxRef dedef, char delimiter, String path, SyntaxModel syntax)
     {
         this.delimiter = delimiter;
         this.valids=new ArrayList<String>();
     }
 
-    public MultipleDEs(Node dedef, char delimiter, String path, Document syntax)
+    public MultipleDEs(SyntaxRef dedef, char delimiter, String path, SyntaxModel syntax)
     {
         super(dedef, path, syntax);
         initData(dedef,delimiter,path,syntax);
     }
 
-    public void init(Node dedef, char delimiter, String path, Document syntax)
+    public void init(SyntaxRef dedef, char delimiter, String path, SyntaxModel syntax)
     {
         super.init(dedef, path, syntax);
         initData(dedef,delimiter,path,syntax);
@@ -86,25 +86,30 @@ public final class MultipleDEs
 
     public String toString(int zero)
     {
-        StringBuffer ret = new StringBuffer(128);
+        MsgBuffer buf=new MsgBuffer(128);
+        appendTo(buf);
+        return buf.toString();
+    }
+
+    public void appendTo(MsgBuffer buf)
+    {
         boolean first=true;
 
-        for (ListIterator<SyntaxElement> i = getElements().listIterator(); i.hasNext(); ) {
+        List<SyntaxElement> elements=getElements();
+        for (int i=0;i<elements.size();i++) {
             if (!first)
-                ret.append(delimiter);
+                buf.append(delimiter);
             first=false;
 
-            DE de = (DE)(i.next());
+            DE de = (DE)(elements.get(i));
             if (de != null)
-                ret.append(de.toString(0));
+                de.appendTo(buf);
         }
-
-        return ret.toString();
     }
 
     // -------------------------------------------------------------------------------------------------------
 
-    protected SyntaxElement parseAndAppendNewElement(Node ref, String path, char predelim, int idx, StringBuffer res, int fullResLen,Document syntax, Hashtable<String, String> predefs,Hashtable<String, String> valids)
+    protected SyntaxElement parseAndAppendNewElement(SyntaxRef ref, String path, char predelim, int idx, ParseCursor res, int fullResLen,SyntaxModel syntax, Hashtable<String, String> predefs,Hashtable<String, String> valids)
     {
         SyntaxElement ret=null;
         
@@ -129,25 +134,46 @@ public final class MultipleDEs
         return ret;
     }
     
-    private void initData(Node deref, char delimiter, String path, char predelim0, char predelim1, StringBuffer res, int fullResLen,Document syntax, Hashtable<?, ?> predefs,Hashtable<?, ?> valids)
+    protected Lookahead lookahead(SyntaxRef ref, char predelim, ParseCursor res)
+    {
+        // entspricht der pruefung in DE.parseValue() - so muss fuer fehlende
+        // optionale DEs keine exception erzeugt werden
+        if (predelim!=(char)0) {
+            if (res.length()==0)
+                return Lookahead.NO_MATCH;
+            if (res.charAt(0)!=predelim)
+                return Lookahead.PREDELIM_MISMATCH;
+        }
+        return Lookahead.CANDIDATE;
+    }
+
+    protected ParseErrorException createLookaheadException(SyntaxRef ref, char predelim, int idx, ParseCursor res)
+    {
+        if (res.length()==0)
+            return super.createLookaheadException(ref,predelim,idx,res);
+        return new PredelimErrorException(HBCIUtilsInternal.withCounter(getPath(),idx),
+                                          Character.toString(predelim),Character.toString(res.charAt(0)));
+    }
+    
+    private void initData(SyntaxRef deref, char delimiter, String path, char predelim0, char predelim1, ParseCursor res, int fullResLen,SyntaxModel syntax, Hashtable<?, ?> predefs,Hashtable<?, ?> valids)
     {
         this.delimiter=delimiter;
         this.valids=new ArrayList<String>();
     }
 
-    public MultipleDEs(Node deref, char delimiter, String path, char predelim0, char predelim1, StringBuffer res, int fullResLen, Document syntax, Hashtable<String, String> predefs,Hashtable<String, String> valids)
+    public MultipleDEs(SyntaxRef deref, char delimiter, String path, char predelim0, char predelim1, ParseCursor res, int fullResLen, SyntaxModel syntax, Hashtable<String, String> predefs,Hashtable<String, String> valids)
     {
         super(deref, path, predelim0, predelim1, res, fullResLen, syntax, predefs,valids);
         initData(deref,delimiter,path,predelim0,predelim1,res,fullResLen,syntax,predefs,valids);
     }
 
-    public void init(Node deref, char delimiter, String path, char predelim0, char predelim1, StringBuffer res, int fullResLen, Document syntax, Hashtable<String, String> predefs,Hashtable<String, String> valids)
+    public void init(SyntaxRef deref, char delimiter, String path, char predelim0, char predelim1, ParseCursor res, int fullResLen, SyntaxModel syntax, Hashtable<String, String> predefs,Hashtable<String, String> valids)
     {
         super.init(deref, path, predelim0, predelim1, res, fullResLen, syntax, predefs,valids);
         initData(deref,delimiter,path,predelim0,predelim1,res,fullResLen,syntax,predefs,valids);
     }
 
-    public void getElementPaths(Properties p,int[] segref,int[] degref,int[] deref)
+    public void getElementPaths(ElementRefs p,int[] segref,int[] degref,int[] deref)
     {
         if (getElements().size()!=0) {
             for (Iterator<SyntaxElement> i=getElements().iterator();i.hasNext();) {
@@ -158,16 +184,10 @@ public final class MultipleDEs
             }
         } else {
             if (deref==null) {
-                p.setProperty(Integer.toString(segref[0])+
-                              ":"+Integer.toString(degref[0]),getPath());
+                p.add(segref[0],degref[0],0,getPath());
                 degref[0]++;
             } else {
-                p.setProperty(Integer.toString(segref[0])+
-                              ":"+
-                              Integer.toString(degref[0])+
-                              ","+
-                              Integer.toString(deref[0]),
-                              getPath());
+                p.add(segref[0],degref[0],deref[0],getPath());
                 deref[0]++;
             }
         }
@@ -24,66 +24,99 @@ package org.kapott.hbci.protocol;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
-import java.util.ListIterator;
-import java.util.Properties;
 
+import org.kapott.hbci.exceptions.ParseErrorException;
+import org.kapott.hbci.manager.HBCIUtilsInternal;
 import org.kapott.hbci.protocol.factory.SEGFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
+import org.kapott.hbci.protocol.syntax.SyntaxModel;
+import org.kapott.hbci.protocol.syntax.SyntaxRef;
 
 public final class MultipleSEGs
      extends MultipleSyntaxElements
 {
-    protected SyntaxElement createAndAppendNewElement(Node ref, String path, int idx, Document syntax)
+    protected SyntaxElement createAndAppendNewElement(SyntaxRef ref, String path, int idx, SyntaxModel syntax)
     {
         SyntaxElement ret=null;
         addElement((ret=SEGFactory.getInstance().createSEG(getType(), getName(), path, idx, syntax)));
         return ret;
     }
 
-    public MultipleSEGs(Node segref, String path, Document syntax)
+    public MultipleSEGs(SyntaxRef segref, String path, SyntaxModel syntax)
     {
         super(segref, path, syntax);
     }
 
-    public void init(Node segref, String path, Document syntax)
+    public void init(SyntaxRef segref, String path, SyntaxModel syntax)
     {
         super.init(segref, path, syntax);
     }
 
     public String toString(int zero)
     {
-        StringBuffer ret = new StringBuffer(256);
+        MsgBuffer buf=new MsgBuffer(256);
+        appendTo(buf);
+        return buf.toString();
+    }
 
-        for (ListIterator<SyntaxElement> i = getElements().listIterator(); i.hasNext(); ) {
-            SEG seg = (SEG)(i.next());
+    public void appendTo(MsgBuffer buf)
+    {
+        List<SyntaxElement> elements=getElements();
+        for (int i=0;i<elements.size();i++) {
+            SEG seg = (SEG)(elements.get(i));
             if (seg != null)
-                ret.append(seg.toString(0));
+                seg.appendTo(buf);
         }
-
-        return ret.toString();
     }
 
     // ---------------------------------------------------------------------------------------------------------------
 
-    public MultipleSEGs(Node segref, String path, char predelim0, char predelim1, StringBuffer res, int fullResLen, Document syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
+    public MultipleSEGs(SyntaxRef segref, String path, char predelim0, char predelim1, ParseCursor res, int fullResLen, SyntaxModel syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
     {
         super(segref, path, predelim0, predelim1, res, fullResLen, syntax, predefs,valids);
     }
 
-    public void init(Node segref, String path, char predelim0, char predelim1, StringBuffer res, int fullResLen, Document syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
+    public void init(SyntaxRef segref, String path, char predelim0, char predelim1, ParseCursor res, int fullResLen, SyntaxModel syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
     {
         super.init(segref, path, predelim0, predelim1, res, fullResLen, syntax, predefs,valids);
     }
 
-    protected SyntaxElement parseAndAppendNewElement(Node ref, String path, char predelim, int idx, StringBuffer res, int fullResLen, Document syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
+    protected SyntaxElement parseAndAppendNewElement(SyntaxRef ref, String path, char predelim, int idx, ParseCursor res, int fullResLen, SyntaxModel syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
     {
         SyntaxElement ret=null;
         addElement((ret=SEGFactory.getInstance().createSEG(getType(), getName(), path, predelim, idx, res, fullResLen, syntax, predefs,valids)));
         return ret;
     }
 
-    public void getElementPaths(Properties p,int[] segref,int[] degref,int[] deref)
+    protected Lookahead lookahead(SyntaxRef ref, char predelim, ParseCursor res)
+    {
+        // stimmen segment-code und -version des naechsten segmentes nicht mit
+        // denen aus der syntax-spez. ueberein, braucht das parsen gar nicht
+        // erst versucht werden
+        String[] refId=SEG.getRefSegId(ref);
+        if (refId[0].length()==0 || refId[1].length()==0)
+            return Lookahead.CANDIDATE;
+        
+        String[] nextId=SEG.extractSegId(res);
+        if (refId[0].equals(nextId[0]) && refId[1].equals(nextId[1]))
+            return Lookahead.CANDIDATE;
+        return Lookahead.NO_MATCH;
+    }
+
+    protected ParseErrorException createLookaheadException(SyntaxRef ref, char predelim, int idx, ParseCursor res)
+    {
+        String[] refId=SEG.getRefSegId(ref);
+        String[] nextId=SEG.extractSegId(res);
+        String   path=HBCIUtilsInternal.withCounter(getPath(),idx)+".SegHead.";
+        
+        if (!refId[0].equals(nextId[0])) {
+            return new ParseErrorException(HBCIUtilsInternal.getLocMsg("EXCMSG_PREDEFERR",
+                                                                       new Object[] {path+"code",refId[0],nextId[0]}));
+        }
+        return new ParseErrorException(HBCIUtilsInternal.getLocMsg("EXCMSG_PREDEFERR",
+                                                                   new Object[] {path+"version",refId[1],nextId[1]}));
+    }
+
+    public void getElementPaths(ElementRefs p,int[] segref,int[] degref,int[] deref)
     {
         for (Iterator<SyntaxElement> i=getElements().iterator();i.hasNext();) {
             SyntaxElement e= i.next();
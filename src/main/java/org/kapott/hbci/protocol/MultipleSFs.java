@@ -24,66 +24,68 @@ package org.kapott.hbci.protocol;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
-import java.util.ListIterator;
-import java.util.Properties;
 
 import org.kapott.hbci.protocol.factory.SFFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
+import org.kapott.hbci.protocol.syntax.SyntaxModel;
+import org.kapott.hbci.protocol.syntax.SyntaxRef;
 
 public final class MultipleSFs
      extends MultipleSyntaxElements
 {
-    protected SyntaxElement createAndAppendNewElement(Node ref, String path, int idx, Document syntax)
+    protected SyntaxElement createAndAppendNewElement(SyntaxRef ref, String path, int idx, SyntaxModel syntax)
     {
         SyntaxElement ret=null;
         addElement((ret=SFFactory.getInstance().createSF(getType(), getName(), path, idx, syntax)));
         return ret;
     }
 
-    public MultipleSFs(Node sfref, String path, Document syntax)
+    public MultipleSFs(SyntaxRef sfref, String path, SyntaxModel syntax)
     {
         super(sfref, path, syntax);
     }
 
-    public void init(Node sfref, String path, Document syntax)
+    public void init(SyntaxRef sfref, String path, SyntaxModel syntax)
     {
         super.init(sfref, path, syntax);
     }
 
     public String toString(int zero)
     {
-        StringBuffer ret = new StringBuffer(256);
+        MsgBuffer buf=new MsgBuffer(256);
+        appendTo(buf);
+        return buf.toString();
+    }
 
-        for (ListIterator<SyntaxElement> i = getElements().listIterator(); i.hasNext(); ) {
-            SF sf = (SF)(i.next());
+    public void appendTo(MsgBuffer buf)
+    {
+        List<SyntaxElement> elements=getElements();
+        for (int i=0;i<elements.size();i++) {
+            SF sf = (SF)(elements.get(i));
             if (sf != null)
-                ret.append(sf.toString(0));
+                sf.appendTo(buf);
         }
-
-        return ret.toString();
     }
 
     // ---------------------------------------------------------------------------------------------------------------
 
-    public MultipleSFs(Node sfref, String path, char predelim0, char predelim1, StringBuffer res, int fullResLen, Document syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
+    public MultipleSFs(SyntaxRef sfref, String path, char predelim0, char predelim1, ParseCursor res, int fullResLen, SyntaxModel syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
     {
         super(sfref, path, predelim0, predelim1, res, fullResLen, syntax, predefs,valids);
     }
 
-    public void init(Node sfref, String path, char predelim0, char predelim1, StringBuffer res, int fullResLen, Document syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
+    public void init(SyntaxRef sfref, String path, char predelim0, char predelim1, ParseCursor res, int fullResLen, SyntaxModel syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
     {
         super.init(sfref, path, predelim0, predelim1, res, fullResLen, syntax, predefs,valids);
     }
 
-    protected SyntaxElement parseAndAppendNewElement(Node ref, String path, char predelim, int idx, StringBuffer res, int fullResLen, Document syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
+    protected SyntaxElement parseAndAppendNewElement(SyntaxRef ref, String path, char predelim, int idx, ParseCursor res, int fullResLen, SyntaxModel syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
     {
         SyntaxElement ret=null;
         addElement((ret=SFFactory.getInstance().createSF(getType(), getName(), path, predelim, idx, res, fullResLen, syntax, predefs,valids)));
         return ret;
     }
 
-    public void getElementPaths(Properties p,int[] segref,int[] degref,int[] deref)
+    public void getElementPaths(ElementRefs p,int[] segref,int[] degref,int[] deref)
     {
         for (Iterator<SyntaxElement> i=getElements().iterator();i.hasNext();) {
             SyntaxElement e= i.next();
@@ -33,13 +33,13 @@ import org.kapott.hbci.exceptions.ParseErrorException;
 import org.kapott.hbci.exceptions.PredelimErrorException;
 import org.kapott.hbci.exceptions.TooMuchElementsException;
 import org.kapott.hbci.manager.HBCIUtils;
+import org.kapott.hbci.manager.HBCIUtilsInternal;
 import org.kapott.hbci.protocol.factory.DEFactory;
 import org.kapott.hbci.protocol.factory.DEGFactory;
 import org.kapott.hbci.protocol.factory.SEGFactory;
 import org.kapott.hbci.protocol.factory.SFFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
+import org.kapott.hbci.protocol.syntax.SyntaxModel;
+import org.kapott.hbci.protocol.syntax.SyntaxRef;
 
 /* die child-elemente von strukturierten syntaxelementen (msg, seg, sg, deg)
     werden nicht direkt als listenelemente der uebergeordneten
@@ -65,26 +65,53 @@ public abstract class MultipleSyntaxElements
     private int maxnum;
     private int syntaxIdx; // die Position dieses Container innerhalb
                            // der Syntax-Definition des Eltern-Elementes
-    private Document syntax;
-    private Node ref;
+    private SyntaxModel syntax;
+    private SyntaxRef ref;
     private SyntaxElement parent;
 
     /** erzeugt einen neuen eintrag in der elements liste; dabei wird ein
-        syntaxelement erzeugt, das im xml-node ref referenziert wird;
+        syntaxelement erzeugt, das durch die syntax-referenz ref beschrieben wird;
         idx ist die indexnummer des zu erzeugenden syntaxelementes
         innerhalb der elementlist */
-    protected abstract SyntaxElement createAndAppendNewElement(Node ref, String path, int idx, Document syntax);
+    protected abstract SyntaxElement createAndAppendNewElement(SyntaxRef ref, String path, int idx, SyntaxModel syntax);
 
     /** siehe SyntaxElement::parseElementList() */
-    protected abstract SyntaxElement parseAndAppendNewElement(Node ref, String path, char predelim, int idx, StringBuffer res, int fullResLen,Document syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids);
+    protected abstract SyntaxElement parseAndAppendNewElement(SyntaxRef ref, String path, char predelim, int idx, ParseCursor res, int fullResLen,SyntaxModel syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids);
 
-    private void initData(Node ref, String path, Document syntax)
+    /** ergebnis der vorab-pruefung beim parsen, siehe lookahead() */
+    protected static enum Lookahead
     {
-        type=((Element)ref).getAttribute("type");
-        name=((Element)ref).getAttribute("name");
-        if (name.length()==0) {
-            name=type;
-        }
+        /** an der aktuellen position kann ein element beginnen, der
+            parse-versuch muss zeigen, ob es wirklich passt */
+        CANDIDATE,
+        /** an der aktuellen position kann kein element beginnen */
+        NO_MATCH,
+        /** an der aktuellen position kann kein element beginnen, weil
+            schon der predelimiter nicht stimmt */
+        PREDELIM_MISMATCH
+    }
+
+    /** beim parsen: prueft anhand der naechsten zeichen im reststring 'res', ob
+        dort ueberhaupt ein element dieses containers beginnen kann. nur wenn das
+        der fall ist, wird ein (evtl. mit exception endender) parse-versuch
+        unternommen. 'res' darf dabei nicht veraendert werden. die default-
+        implementierung ueberlaesst die entscheidung dem parse-versuch */
+    protected Lookahead lookahead(SyntaxRef ref, char predelim, ParseCursor res)
+    {
+        return Lookahead.CANDIDATE;
+    }
+
+    /** beim parsen: erzeugt die ursache fuer den fall, dass lookahead() ein
+        pflicht-element abgelehnt hat */
+    protected ParseErrorException createLookaheadException(SyntaxRef ref, char predelim, int idx, ParseCursor res)
+    {
+        return new ParseErrorException(HBCIUtilsInternal.getLocMsg("EXCMSG_ENDOFSTRG",HBCIUtilsInternal.withCounter(getPath(),idx)));
+    }
+
+    private void initData(SyntaxRef ref, String path, SyntaxModel syntax)
+    {
+        type=ref.getType();
+        name=ref.getName();
         
         this.elements=new ArrayList<SyntaxElement>();
         this.parent=null;
@@ -98,17 +125,8 @@ public abstract class MultipleSyntaxElements
         temppath.append(name);
         this.path=temppath.toString();
 
-        String st;
-
-        minnum = 1;
-        st = ((Element)ref).getAttribute("minnum");
-        if (st.length() != 0)
-            minnum = Integer.parseInt(st);
-
-        maxnum = 1;
-        st = ((Element)ref).getAttribute("maxnum");
-        if (st.length() != 0)
-            maxnum = Integer.parseInt(st);
+        minnum = ref.getMinNum();
+        maxnum = ref.getMaxNum();
 
         try {
             // anlegen mindestens eines syntaxelementes
@@ -146,13 +164,13 @@ public abstract class MultipleSyntaxElements
     }
     
     /** anlegen eines neuen syntaxelementarrays fuer ein syntaxelement;
-        ref ist eine xml-node-referenz auf das syntaxelement */
-    protected MultipleSyntaxElements(Node ref, String path, Document syntax)
+        ref ist die syntax-referenz auf das syntaxelement */
+    protected MultipleSyntaxElements(SyntaxRef ref, String path, SyntaxModel syntax)
     {
         initData(ref,path,syntax);
     }
 
-    protected void init(Node ref, String path, Document syntax)
+    protected void init(SyntaxRef ref, String path, SyntaxModel syntax)
     {
         initData(ref,path,syntax);
     }
@@ -351,17 +369,14 @@ public abstract class MultipleSyntaxElements
 
     // ---------------------------------------------------------------------------------------------------------------
 
-    private void initData(Node ref, String path, char predelim0, char predelim1, StringBuffer res, int fullResLen,Document syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
+    private void initData(SyntaxRef ref, String path, char predelim0, char predelim1, ParseCursor res, int fullResLen,SyntaxModel syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
     {
         this.ref=null;
         this.syntax=null;
         this.syntaxIdx=-1;
         this.elements = new ArrayList<SyntaxElement>();
-        this.type = ((Element)ref).getAttribute("type");
-        this.name = ((Element)ref).getAttribute("name");
-        if (name.length()==0) {
-            this.name=this.type;
-        }
+        this.type = ref.getType();
+        this.name = ref.getName();
         this.parent=null;
 
         StringBuffer temppath=new StringBuffer(128);
@@ -370,40 +385,52 @@ public abstract class MultipleSyntaxElements
         temppath.append(name);
         this.path=temppath.toString();
 
-        String st;
-
-        minnum = 1;
-        st = ((Element)ref).getAttribute("minnum");
-        if (st.length() != 0)
-            minnum = Integer.parseInt(st);
-
-        maxnum = 1;
-        st = ((Element)ref).getAttribute("maxnum");
-        if (st.length() != 0)
-            maxnum = Integer.parseInt(st);
+        minnum = ref.getMinNum();
+        maxnum = ref.getMaxNum();
 
         int     idx = 0;
         boolean ready = false;
 
         try {
             while (!ready) {
-                // sichern des reststrings
-                StringBuffer save=new StringBuffer(res.toString());
+                // sichern der aktuellen position im reststring
+                int          save=res.getPos();
                 boolean      emptyElementFound=false;
+                char         predelim=(idx==0)?predelim0:predelim1;
+
+                // vorab pruefen, ob an der aktuellen position ueberhaupt ein
+                // passendes element beginnen kann. ist das nicht der fall, wird
+                // das genauso behandelt wie ein fehlgeschlagener parse-versuch,
+                // nur dass dafuer keine exception erzeugt werden muss
+                Lookahead           look=lookahead(ref,predelim,res);
+                ParseErrorException error=null;
+                boolean             predelimError=(look==Lookahead.PREDELIM_MISMATCH);
+
+                if (look==Lookahead.CANDIDATE) {
+                    try {
+                        // versuch, ein weiteres syntaxelement zu erzeugen
+                        SyntaxElement child=parseAndAppendNewElement(ref,path, 
+                                predelim, 
+                                idx,res,fullResLen,syntax,predefs,valids);
+                        if (child!=null)
+                            child.setParent(this);
+                    } catch (ParseErrorException e) {
+                        
+                        // [willuhn 2012-03-06, BUG 1129] weiterwerfen, wenn sie als fatal eingestuft ist
+                        if (e.isFatal())
+                          throw e;
+                        
+                        error=e;
+                        predelimError=(e instanceof PredelimErrorException);
+                        res.countBacktrack();
+                    }
+                } else if (idx<minnum) {
+                    // das fehlen des elementes ist ein echter fehler - nur in
+                    // diesem fall wird eine exception mit der ursache erzeugt
+                    error=createLookaheadException(ref,predelim,idx,res);
+                }
 
-                try {
-                    // versuch, ein weiteres syntaxelement zu erzeugen
-                    SyntaxElement child=parseAndAppendNewElement(ref,path, 
-                            (idx==0)?predelim0:predelim1, 
-                            idx,res,fullResLen,syntax,predefs,valids);
-                    if (child!=null)
-                        child.setParent(this);
-                } catch (ParseErrorException e) {
-                  
-                    // [willuhn 2012-03-06, BUG 1129] weiterwerfen, wenn sie als fatal eingestuft ist
-                    if (e.isFatal())
-                      throw e;
-                    
+                if (look!=Lookahead.CANDIDATE || error!=null) {
                     // wenn das nicht klappt, dann reststring zuruecksetzen, aber nur, 
                     //   wenn naechstes zeichen nicht wieder ein delimiter ist
                     //   dann war naemlich das zu generierende DE leer!!!
@@ -415,15 +442,20 @@ public abstract class MultipleSyntaxElements
                     // (so dass es so aussieht, als wurde das leere syntaxelement
                     // irgendwie richtig geparst)
                     
-                    // die exception kann entweder durch einen syntax-fehler oder durch
+                    // der fehlschlag kann entweder durch einen syntax-fehler oder durch
                     // ein leeres element (was ein spezieller fall eines syntax-fehlers ist)
                     // ausgeloest worden sein.
                     // da das entfernen von leeren elementen optional ist (und manchmal sogar
-                    // sinvollerweise gar nicht stattfindet), muessen die exceptions, die wegen
-                    // leerer elemente geworfen wurden, als OK akzeptiert werden, solange die
+                    // sinvollerweise gar nicht stattfindet), muessen die fehlschlaege, die wegen
+                    // leerer elemente aufgetreten sind, als OK akzeptiert werden, solange die
                     // mindestanzahl bereits gefuellter elemente erreicht ist
                     
-                    if (save.length()>1) {
+                    // zuruecksetzen auf die gesicherte position, ab hier
+                    // verhaelt sich res also wie der gesicherte reststring
+                    int failed=res.getPos();
+                    res.setPos(save);
+                    
+                    if (res.length()>1) {
                         
                         //////////////////////////////////////////////////////////////////////
                         // Dirty-Hack fuer Sonderfall optionale MultipleDEGs. Also eine Liste vieler DEGs,
@@ -439,27 +471,28 @@ public abstract class MultipleSyntaxElements
                         if ((this instanceof MultipleDEGs) && this.minnum == 0 && this.maxnum > 1 && idx > 1)
                         {
                             int size = this.maxnum-idx;
-                            if (size > save.length())
-                                size = save.length();
-                            String rest = save.substring(0,size);
+                            if (size > res.length())
+                                size = res.length();
+                            String rest = res.substring(0,size);
                             if (containsOnly(rest,'+'))
                             {
                                 HBCIUtils.log("applying shortcut for optional MultipleDEGs, have no more content in according range",HBCIUtils.LOG_DEBUG);
-                                res.replace(0,res.length(),res.substring(size-1)); // Wir schneiden die "+++++..." alle weg
+                                res.setPos(failed);
+                                res.skip(size-1); // Wir schneiden die "+++++..." alle weg
                                 ready = true;
                                 continue;
                             }
                         }
                         //////////////////////////////////////////////////////////////////////
                         
-                        char secondChar=save.charAt(1);
+                        char secondChar=res.charAt(1);
 
                         if (secondChar=='+' || secondChar==':' || secondChar=='\'') {
                             // nur wenn der Fehler nicht durch einen predelimiter-error
                             // verursacht wurde, darf der delimiter (der also offensichtlich richtig
                             // und erwartet war) geloescht werden
-                            if (!(e instanceof PredelimErrorException)) { 
-                                save.deleteCharAt(0);
+                            if (!predelimError) { 
+                                save++;
                             }
 
                             emptyElementFound=true;
@@ -468,12 +501,12 @@ public abstract class MultipleSyntaxElements
                         emptyElementFound=true;
                     }
                     
-                    res.replace(0,res.length(),save.toString());
+                    res.setPos(save);
 
                     /* wenn bisher weniger als die mindestanzahl geklappt hat,
                      dann exception werfen */
                     if (idx<minnum)
-                        throw new ParseErrorException("reststring in "+getPath()+": "+res.toString(),e);
+                        throw new ParseErrorException("reststring in "+getPath()+": "+res.toString(),error);
 
                     // es wird nur dann aufgehoert, weitere elemente dem aktuellen container hinzu-
                     // zufuegen, wenn ein element gefunden wurde, was offentsichlich nicht mehr dazu-
@@ -495,7 +528,7 @@ public abstract class MultipleSyntaxElements
                  reststring gleich sind; minnum ist aber erreicht),
                  dann diesen container normal beenden */
                 if ((maxnum!=0 && idx>=maxnum) ||
-                        (maxnum==0 && save.toString().equals(res.toString()) && !emptyElementFound))
+                        (maxnum==0 && save==res.getPos() && !emptyElementFound))
                 {
                     ready = true;
                 }
@@ -518,7 +551,7 @@ public abstract class MultipleSyntaxElements
     }
 
     /** anlegen einer neuen syntaxelementlist beim parsen des strings res;
-        - ref ist dabei die referenz auf einen xml-node, der das 
+        - ref ist dabei die syntax-referenz, die das 
           syntaxelement festlegt, fuer den die syntaxelementlist erzeugt werden soll; 
         - predefs siehe SyntaxElement() 
         - predelim0 ist der delimiter, der vor dem ersten element innerhalb dieser
@@ -529,12 +562,12 @@ public abstract class MultipleSyntaxElements
           propagiert wird (z.b. wenn die syntaxelementlist selbst das erste syntaxelement 
           einer msg repraesentiert), predelim1 ist allerdings immer der delimiter, 
           der fuer das aktuell uebergeordnete syntaxelement zu verwenden ist) */
-    protected MultipleSyntaxElements(Node ref, String path, char predelim0, char predelim1, StringBuffer res, int fullResLen, Document syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
+    protected MultipleSyntaxElements(SyntaxRef ref, String path, char predelim0, char predelim1, ParseCursor res, int fullResLen, SyntaxModel syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
     {
         initData(ref,path,predelim0,predelim1,res,fullResLen,syntax,predefs,valids);
     }
     
-    protected void init(Node ref, String path, char predelim0, char predelim1, StringBuffer res, int fullResLen, Document syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
+    protected void init(SyntaxRef ref, String path, char predelim0, char predelim1, ParseCursor res, int fullResLen, SyntaxModel syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
     {
         initData(ref,path,predelim0,predelim1,res,fullResLen,syntax,predefs,valids);
     }
@@ -563,7 +596,25 @@ public abstract class MultipleSyntaxElements
         return toString();
     }
 
+    /** schreibt alle elemente in hbci-form in den puffer
+        @see SyntaxElement#appendTo(MsgBuffer) */
+    public void appendTo(MsgBuffer buf)
+    {
+        buf.append(toString(0));
+    }
+
+    /** Sammelt die Element-Referenzen dieses Elementes in <code>p</code>.
+        Die Schluessel werden erst beim Kopieren der {@link ElementRefs}
+        erzeugt.
+        @see #getElementPaths(ElementRefs,int[],int[],int[]) */
     public void getElementPaths(Properties p,int[] segref,int[] degref,int[] deref)
+    {
+        ElementRefs refs=new ElementRefs();
+        getElementPaths(refs,segref,degref,deref);
+        refs.copyTo(p);
+    }
+    
+    public void getElementPaths(ElementRefs p,int[] segref,int[] degref,int[] deref)
     {
     }
     
@@ -0,0 +1,150 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci.protocol;
+
+/**
+ * Lese-Position innerhalb einer zu parsenden HBCI-Nachricht.
+ * Die Nachricht selbst wird nie veraendert oder kopiert. Verarbeitete Token werden
+ * durch Weiterschieben der Position "verbraucht" ({@link #skip(int)}), fuer das
+ * Zuruecksetzen nach einem fehlgeschlagenen Parse-Versuch genuegt es, die vorher
+ * gemerkte Position wiederherzustellen ({@link #getPos()} / {@link #setPos(int)}).
+ * Alle Index-Angaben der Zugriffsmethoden sind relativ zur aktuellen Position -
+ * aus Sicht des Aufrufers verhaelt sich die Klasse also wie der noch zu parsende
+ * Rest der Nachricht.
+ */
+public final class ParseCursor
+{
+    private final String text;
+    private int pos;
+    private int backtracks;
+
+    /**
+     * ct.
+     * @param text die zu parsende Nachricht.
+     */
+    public ParseCursor(String text)
+    {
+        this.text=text;
+        this.pos=0;
+    }
+
+    /**
+     * Liefert die aktuelle Position, bezogen auf den Anfang der Nachricht.
+     * @return die aktuelle Position.
+     */
+    public int getPos()
+    {
+        return pos;
+    }
+
+    /**
+     * Setzt die aktuelle Position, bezogen auf den Anfang der Nachricht.
+     * @param pos die neue Position.
+     */
+    public void setPos(int pos)
+    {
+        if (pos<0 || pos>text.length())
+            throw new IndexOutOfBoundsException("invalid position "+pos+", length "+text.length());
+        this.pos=pos;
+    }
+
+    /**
+     * Verbraucht die naechsten Zeichen.
+     * @param count Anzahl der Zeichen.
+     */
+    public void skip(int count)
+    {
+        setPos(pos+count);
+    }
+
+    /**
+     * Zaehlt einen fehlgeschlagenen Parse-Versuch, nach dem die Position
+     * zurueckgesetzt werden musste.
+     */
+    public void countBacktrack()
+    {
+        backtracks++;
+    }
+
+    /**
+     * Liefert die Anzahl der fehlgeschlagenen Parse-Versuche, nach denen die
+     * Position zurueckgesetzt werden musste. Dient nur der Diagnose.
+     * @return Anzahl der Backtracks.
+     */
+    public int getBacktracks()
+    {
+        return backtracks;
+    }
+
+    /**
+     * Liefert die Laenge des noch nicht verbrauchten Restes.
+     * @return die Restlaenge.
+     */
+    public int length()
+    {
+        return text.length()-pos;
+    }
+
+    /**
+     * Liefert ein Zeichen des Restes.
+     * @param idx Index relativ zur aktuellen Position.
+     * @return das Zeichen.
+     */
+    public char charAt(int idx)
+    {
+        return text.charAt(pos+idx);
+    }
+
+    /**
+     * Liefert einen Teil des Restes.
+     * @param start Start-Index relativ zur aktuellen Position.
+     * @param end End-Index (exklusiv) relativ zur aktuellen Position.
+     * @return der Teil-String.
+     */
+    public String substring(int start, int end)
+    {
+        return text.substring(pos+start,pos+end);
+    }
+
+    /**
+     * Sucht ein Zeichen im Rest.
+     * @param ch das zu suchende Zeichen.
+     * @param from Start-Index relativ zur aktuellen Position.
+     * @return der Index relativ zur aktuellen Position oder -1.
+     */
+    public int indexOf(char ch, int from)
+    {
+        int idx=text.indexOf(ch,pos+from);
+        return idx==-1 ? -1 : idx-pos;
+    }
+
+    /**
+     * Liefert den noch nicht verbrauchten Rest der Nachricht.
+     * Erzeugt eine Kopie und sollte daher nur fuer Fehlermeldungen verwendet werden.
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        return text.substring(pos);
+    }
+}
@@ -24,8 +24,6 @@ package org.kapott.hbci.protocol;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
-import java.util.ListIterator;
-import java.util.Properties;
 
 import org.kapott.hbci.exceptions.InvalidSegSeqException;
 import org.kapott.hbci.exceptions.NoSuchPathException;
@@ -33,8 +31,9 @@ import org.kapott.hbci.manager.HBCIUtilsInternal;
 import org.kapott.hbci.manager.MsgGen;
 import org.kapott.hbci.protocol.factory.MultipleDEGsFactory;
 import org.kapott.hbci.protocol.factory.MultipleDEsFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
+import org.kapott.hbci.protocol.syntax.SyntaxDef;
+import org.kapott.hbci.protocol.syntax.SyntaxModel;
+import org.kapott.hbci.protocol.syntax.SyntaxRef;
 
 public final class SEG
      extends SyntaxElement
@@ -44,46 +43,53 @@ public final class SEG
         return "SEG";
     }
 
-    protected MultipleSyntaxElements createNewChildContainer(Node ref, Document syntax)
+    protected MultipleSyntaxElements createNewChildContainer(SyntaxRef ref, SyntaxModel syntax)
     {
         MultipleSyntaxElements ret=null;
 
-        if ((ref.getNodeName()).equals("DE"))
+        if (ref.getKind()==SyntaxRef.Kind.DE)
             ret=MultipleDEsFactory.getInstance().createMultipleDEs(ref, '+', getPath(), syntax);
-        else if ((ref.getNodeName()).equals("DEG"))
+        else if (ref.getKind()==SyntaxRef.Kind.DEG)
             ret=MultipleDEGsFactory.getInstance().createMultipleDEGs(ref, '+', getPath(), syntax);
 
         return ret;
     }
 
-    public SEG(String type, String name, String path, int idx, Document syntax)
+    public SEG(String type, String name, String path, int idx, SyntaxModel syntax)
     {
         super(type, name, path, idx, syntax);
     }
 
-    public void init(String type, String name, String path, int idx, Document syntax)
+    public void init(String type, String name, String path, int idx, SyntaxModel syntax)
     {
         super.init(type, name, path, idx, syntax);
     }
 
     public String toString(int zero)
     {
-        StringBuffer ret = new StringBuffer(256);
+        MsgBuffer buf=new MsgBuffer(256);
+        appendTo(buf);
+        return buf.toString();
+    }
+
+    public void appendTo(MsgBuffer buf)
+    {
         boolean first=true;
 
         if (isValid()) {
             int tooMuch=0;
             int saveLen;
-            for (ListIterator<MultipleSyntaxElements> i = getChildContainers().listIterator(); i.hasNext(); ) {
+            List<MultipleSyntaxElements> childs=getChildContainers();
+            for (int i=0;i<childs.size();i++) {
                 if (!first)
-                    ret.append('+');
+                    buf.append('+');
 
-                saveLen=ret.length();
-                MultipleSyntaxElements dataList = i.next();
+                saveLen=buf.length();
+                MultipleSyntaxElements dataList = childs.get(i);
                 if (dataList != null)
-                    ret.append(dataList.toString(0));
-                
-                if (ret.length()==saveLen && !first) {
+                    dataList.appendTo(buf);
+
+                if (buf.length()==saveLen && !first) {
                     tooMuch++;
                 } else {
                     tooMuch=0;
@@ -91,12 +97,9 @@ public final class SEG
                 first=false;
             }
 
-            int retlen = ret.length();
-            ret.delete(retlen-tooMuch,retlen);
-            ret.append('\'');
+            buf.setLength(buf.length()-tooMuch);
+            buf.append('\'');
         }
-
-        return ret.toString();
     }
 
     public void setSeq(int idx,boolean allowOverwrite)
@@ -132,13 +135,65 @@ public final class SEG
 
     // ---------------------------------------------------------------------------------------------------------------
 
-    protected MultipleSyntaxElements parseNewChildContainer(Node dataref, char predelim0, char predelim1, StringBuffer res, int fullResLen, Document syntax, Hashtable<String, String> predefs,Hashtable<String, String> valids)
+    // Diese Methode wird beim Parsen als Vorab-Pruefung verwendet. Sie extrahiert
+    // Segment-Code und -Version des naechsten zu parsenden Segments aus dem
+    // Antwort-String, ohne diesen zu veraendern. Stimmen diese nicht mit dem
+    // naechsten eigentlich zu parsenden <SEG type="..."> ueberein, wird gar
+    // nicht erst *versucht*, dieses <SEG> anzuwenden
+    static String[] extractSegId(ParseCursor res)
+    {
+        String[] ret=new String[] {"",""};
+        
+        if (res.length()>1) {
+            int  startpos=0;
+            char ch=res.charAt(0);
+            if (ch=='+' || ch==':' || ch=='\'')
+                startpos++;
+            
+            // die erste DEG (segmentkopf) endet am naechsten "+" oder, wenn das
+            // segment nur aus dem kopf besteht, am segment-ende. wir brauchen
+            // daraus nur das erste (code) und das dritte DE (version)
+            int len=res.length();
+            int field=0;
+            int fieldStart=startpos;
+            for (int i=startpos;i<=len && field<3;i++) {
+                ch=(i<len)?res.charAt(i):'\'';
+                if (ch==':' || ch=='+' || ch=='\'') {
+                    if (field==0)
+                        ret[0]=res.substring(fieldStart,i); // segcode
+                    else if (field==2)
+                        ret[1]=res.substring(fieldStart,i); // segversion
+                    field++;
+                    fieldStart=i+1;
+                    if (ch!=':')
+                        break;
+                }
+            }
+        }
+        
+        return ret;
+    }
+    
+    // siehe extractSegId(). Diese Methode holt sich Code und Version des mit
+    // <SEG ...> referenzierten Segments aus der Syntax-Spez. Beide liegen in
+    // der kompilierten Syntax bereits als vorgegebene Werte der Segment-
+    // Definition vor. Ist fuer das Segment kein konkreter Wert vorgegeben,
+    // wird ein Leerstring geliefert
+    static String[] getRefSegId(SyntaxRef segref)
+    {
+        SyntaxDef segdef=segref.getDef();
+        String    code=segdef.getValue("SegHead.code");
+        String    version=segdef.getValue("SegHead.version");
+        return new String[] {code!=null?code:"",version!=null?version:""};
+    }
+
+    protected MultipleSyntaxElements parseNewChildContainer(SyntaxRef dataref, char predelim0, char predelim1, ParseCursor res, int fullResLen, SyntaxModel syntax, Hashtable<String, String> predefs,Hashtable<String, String> valids)
     {
         MultipleSyntaxElements ret=null;
 
-        if ((dataref.getNodeName()).equals("DEG"))
+        if (dataref.getKind()==SyntaxRef.Kind.DEG)
             ret=MultipleDEGsFactory.getInstance().createMultipleDEGs(dataref, '+', getPath(), predelim0, predelim1, res, fullResLen, syntax, predefs,valids);
-        else if ((dataref.getNodeName()).equals("DE"))
+        else if (dataref.getKind()==SyntaxRef.Kind.DE)
             ret=MultipleDEsFactory.getInstance().createMultipleDEs(dataref, '+', getPath(), predelim0, predelim1, res, fullResLen, syntax, predefs,valids);
 
         return ret;
@@ -149,12 +204,12 @@ public final class SEG
         return '+';
     }
 
-    public SEG(String type, String name, String path, char predelim, int idx, StringBuffer res, int fullResLen,Document syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
+    public SEG(String type, String name, String path, char predelim, int idx, ParseCursor res, int fullResLen,SyntaxModel syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
     {
         super(type, name, path, predelim, idx, res, fullResLen, syntax, predefs,valids);
     }
 
-    public void init(String type, String name, String path, char predelim, int idx, StringBuffer res, int fullResLen, Document syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
+    public void init(String type, String name, String path, char predelim, int idx, ParseCursor res, int fullResLen, SyntaxModel syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
     {
         super.init(type, name, path, predelim, idx, res, fullResLen, syntax, predefs,valids);
     }
@@ -170,10 +225,10 @@ public final class SEG
         return value+1;
     }
 
-    public void getElementPaths(Properties p,int[] segref,int[] degref,int[] deref)
+    public void getElementPaths(ElementRefs p,int[] segref,int[] degref,int[] deref)
     {
         if (isValid()) {
-            p.setProperty(Integer.toString(segref[0]),getPath());
+            p.add(segref[0],0,0,getPath());
             degref=new int[1];
             degref[0]=1;
 
@@ -24,27 +24,24 @@ package org.kapott.hbci.protocol;
 import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
-import java.util.ListIterator;
-import java.util.Properties;
 
 import org.kapott.hbci.manager.HBCIUtils;
 import org.kapott.hbci.protocol.factory.MultipleSEGsFactory;
 import org.kapott.hbci.protocol.factory.MultipleSFsFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import org.kapott.hbci.protocol.syntax.SyntaxDef;
+import org.kapott.hbci.protocol.syntax.SyntaxModel;
+import org.kapott.hbci.protocol.syntax.SyntaxRef;
 
 public final class SF
      extends SyntaxElement
 {
-    protected MultipleSyntaxElements createNewChildContainer(Node ref, Document syntax)
+    protected MultipleSyntaxElements createNewChildContainer(SyntaxRef ref, SyntaxModel syntax)
     {
         MultipleSyntaxElements ret=null;
 
-        if ((ref.getNodeName()).equals("SEG"))
+        if (ref.getKind()==SyntaxRef.Kind.SEG)
             ret=MultipleSEGsFactory.getInstance().createMultipleSEGs(ref, getPath(), syntax);
-        else if ((ref.getNodeName()).equals("SF"))
+        else if (ref.getKind()==SyntaxRef.Kind.SF)
             ret=MultipleSFsFactory.getInstance().createMultipleSFs(ref, getPath(), syntax);
 
         return ret;
@@ -54,12 +51,12 @@ public final class SF
     // nicht erzeugt werden, wenn die Segmentfolge selbst optional ist. Das ist praktisch
     // nur bei den SFs GV, GVRes und GVParams der Fall (und funktioniert auch nur bei
     // diesen).
-    protected MultipleSyntaxElements createAndAppendNewChildContainer(Node ref, Document syntax) 
+    protected MultipleSyntaxElements createAndAppendNewChildContainer(SyntaxRef ref, SyntaxModel syntax) 
     {
         MultipleSyntaxElements ret=null;
         
-        if (((Element)ref).getAttribute("minnum").equals("0")) {
-            HBCIUtils.log("will not create container "+getPath()+" -> "+((Element)ref).getAttribute("type")+" with minnum=0",
+        if (ref.getMinNum()==0) {
+            HBCIUtils.log("will not create container "+getPath()+" -> "+ref.getType()+" with minnum=0",
                     HBCIUtils.LOG_INTERN);
         } else {
             ret=super.createAndAppendNewChildContainer(ref, syntax);
@@ -73,39 +70,44 @@ public final class SF
         return "SF";
     }
 
-    public SF(String type, String name, String path, int idx, Document syntax)
+    public SF(String type, String name, String path, int idx, SyntaxModel syntax)
     {
         super(type, name, path, idx, syntax);
     }
 
-    public void init(String type, String name, String path, int idx, Document syntax)
+    public void init(String type, String name, String path, int idx, SyntaxModel syntax)
     {
         super.init(type,name,path,idx,syntax);
     }
 
     public String toString(int zero)
     {
-        StringBuffer ret = new StringBuffer(256);
+        MsgBuffer buf=new MsgBuffer(256);
+        appendTo(buf);
+        return buf.toString();
+    }
 
-        if (isValid())
-            for (ListIterator<MultipleSyntaxElements> i = getChildContainers().listIterator(); i.hasNext(); ) {
-                MultipleSyntaxElements list = (i.next());
+    public void appendTo(MsgBuffer buf)
+    {
+        if (isValid()) {
+            List<MultipleSyntaxElements> childs=getChildContainers();
+            for (int i=0;i<childs.size();i++) {
+                MultipleSyntaxElements list = childs.get(i);
 
                 if (list != null)
-                    ret.append(list.toString(0));
+                    list.appendTo(buf);
             }
-
-        return ret.toString();
+        }
     }
 
     // -------------------------------------------------------------------------------------------
 
-    public SF(String type, String name, String path, char predelim, int idx, StringBuffer res, int fullResLen, Document syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
+    public SF(String type, String name, String path, char predelim, int idx, ParseCursor res, int fullResLen, SyntaxModel syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
     {
         super(type,name,path,predelim,idx,res,fullResLen,syntax,predefs,valids);
     }
 
-    public void init(String type, String name, String path, char predelim, int idx, StringBuffer res, int fullResLen,Document syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
+    public void init(String type, String name, String path, char predelim, int idx, ParseCursor res, int fullResLen,SyntaxModel syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
     {
         super.init(type,name,path,predelim,idx,res,fullResLen,syntax,predefs,valids);
     }
@@ -115,94 +117,36 @@ public final class SF
         return '\'';
     }
     
-    // Diese Methode wird von einem dirty hack beim Parsen verwendet. Sie extrahiert
-    // den Segment-Code des nächsten zu parsenden Segments aus dem Antwort-String.
-    // Stimmt dieser Segment-Code nicht mit dem nächsten eigentlich zu parsenden
-    // <SEG type="..." minnum="0"> überein, wird gar nicht erst *versucht*, das
-    // dieses <SEG> anzuwenden
-    private String[] extractSegId(StringBuffer sb)
-    {
-        String[] ret=new String[] {"",""};
-        
-        if (sb.length()>1) {
-            int  startpos=0;
-            char ch=sb.charAt(0);
-            if (ch=='+' || ch==':' || ch=='\'')
-                startpos++;
-            
-            // erste DEG extrahieren
-            int endpos=sb.indexOf("+",startpos);
-            if (endpos==-1) {
-            	endpos=sb.length();
-            }
-            // code und version aus der ersten DEG extrahieren
-            String[] des=sb.substring(startpos,endpos).split(":");
-            ret[0] = des[0]; // segcode
-            ret[1] = des[2]; // segversion
-        }
-        
-        return ret;
-    }
-    
-    // siehe extractSegCode(). Diese Methode holt sich den SegCode des nächsten
-    // mit <SEG ...> referenzierten Segments aus der Syntax-Spez. Der gefundene
-    // SegCode wird in HBCIUtils.params gecacht, so dass diese Suche nur einmal
-    // erfolgen muss.
-    private String[] getRefSegId(Node segref,Document syntax)
-    {    	
-        String segname=((Element)segref).getAttribute("type");
-        String segnameCacheParam="segid_"+segname;
-        
-        // versuch, daten aus dem cache zu lesen
-    	String[] ret=new String[] {"",""};
-        ret[0]=HBCIUtils.getParam(segnameCacheParam+"_code","");
-        ret[1]=HBCIUtils.getParam(segnameCacheParam+"_version","");
-        
-        if (ret[0].equals("")) {
-        	// segid noch nicht im cache
-            Element segdef=syntax.getElementById(segname);
-            NodeList valueElems=segdef.getElementsByTagName("value");
-            int len=valueElems.getLength();
-            for (int i=0;i<len;i++) {
-            	// alle value-elemente durchlaufen und seghead.code und 
-            	// seghead.version ermitteln
-                Node valueNode=valueElems.item(i);
-                if (valueNode.getNodeType()==Node.ELEMENT_NODE) {
-                    String pathAttr=((Element)valueNode).getAttribute("path");
-                    if (pathAttr.equals("SegHead.code")) {
-                    	// code gefunden
-                        ret[0]=valueNode.getFirstChild().getNodeValue();
-                        HBCIUtils.setParam(segnameCacheParam+"_code",ret[0]);
-                    } else if (pathAttr.equals("SegHead.version")) {
-                    	// version gefunden
-                        ret[1]=valueNode.getFirstChild().getNodeValue();
-                        HBCIUtils.setParam(segnameCacheParam+"_version",ret[1]);
-                    }
-                }
-            }
-        }
-        
-        return ret;
-    }
-
-    protected MultipleSyntaxElements parseNewChildContainer(Node segref, char predelim0, char predelim1, StringBuffer res, int fullResLen, Document syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
+    protected MultipleSyntaxElements parseNewChildContainer(SyntaxRef segref, char predelim0, char predelim1, ParseCursor res, int fullResLen, SyntaxModel syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
     {
         MultipleSyntaxElements ret=null;
 
-        if ((segref.getNodeName()).equals("SEG")) {
+        if (segref.getKind()==SyntaxRef.Kind.SEG) {
             ret=MultipleSEGsFactory.getInstance().createMultipleSEGs(segref, getPath(), predelim0, predelim1, res, fullResLen, syntax, predefs,valids);
-        } else if ((segref.getNodeName()).equals("SF")) {
+        } else if (segref.getKind()==SyntaxRef.Kind.SF) {
             ret=MultipleSFsFactory.getInstance().createMultipleSFs(segref, getPath(), predelim0, predelim1, res, fullResLen, syntax, predefs,valids);
         }
 
         return ret;
     }
 
-    protected MultipleSyntaxElements parseAndAppendNewChildContainer(Node segref, char predelim0, char predelim1, StringBuffer res, int fullResLen, Document syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
+    protected int nextChildRef(SyntaxDef def, int from, ParseCursor res)
+    {
+        // anhand von code und version des naechsten segmentes direkt zur
+        // naechsten referenz springen, die dieses segment aufnehmen kann.
+        // alle referenzen dazwischen wuerden in parseAndAppendNewChildContainer()
+        // ohnehin nicht geparst werden
+        if (from>=def.getRefs().size())
+            return from;
+        String[] nextSegId=SEG.extractSegId(res);
+        return def.getNextSegCandidate(from,nextSegId[0],nextSegId[1]);
+    }
+
+    protected MultipleSyntaxElements parseAndAppendNewChildContainer(SyntaxRef segref, char predelim0, char predelim1, ParseCursor res, int fullResLen, SyntaxModel syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
     {
         MultipleSyntaxElements ret=null;
 
-        if ((segref.getNodeName()).equals("SEG")) {
+        if (segref.getKind()==SyntaxRef.Kind.SEG) {
             // TODO: this is a hack to speed up parsing of segments
             // (params, customres); das funktioniert so, dass zunächst aus dem zu parsenden
             // string der nächste seghead.code extrahiert wird (string-operationen); außerdem
@@ -210,12 +154,11 @@ public final class SF
             // nächste response-token *eigentlich* geparst werden soll. stimmen die beiden codes
             // nicht überein, so kann das nächste response-token mit sicherheit nicht als
             // segref-segment geparst werden, und es wird erst gar nicht versucht.
-            // die zuordnung "segref"-->"seghead.code" wird nicht jedesmal neu durch nachsehen
-            // in der syntax-spez aufgelöst, sondern es ist ein entsprechender cache
-            // implementiert (hashtable:segname-->seghead.code).
+            // die zuordnung "segref"-->"seghead.code" ist in der kompilierten syntax-spez
+            // direkt hinterlegt.
             
-            String[] nextSegId=extractSegId(res);
-            String[] segRefId=getRefSegId(segref,syntax);
+            String[] nextSegId=SEG.extractSegId(res);
+            String[] segRefId=SEG.getRefSegId(segref);
             
             if (segRefId[0].equals(nextSegId[0]) && segRefId[1].equals(nextSegId[1])
             		|| segRefId[0].equals("") 
@@ -245,14 +188,14 @@ public final class SF
                     ret=super.parseAndAppendNewChildContainer(segref,predelim0,predelim1,res,fullResLen,syntax,predefs,valids);
                 }
             }
-        } else if ((segref.getNodeName()).equals("SF")) {
+        } else if (segref.getKind()==SyntaxRef.Kind.SF) {
             ret=super.parseAndAppendNewChildContainer(segref,predelim0,predelim1,res,fullResLen,syntax,predefs,valids);
         }
 
         return ret;
     }
 
-    public void getElementPaths(Properties p,int[] segref,int[] degref,int[] deref)
+    public void getElementPaths(ElementRefs p,int[] segref,int[] degref,int[] deref)
     {
         if (isValid()) {
             for (Iterator<MultipleSyntaxElements> i=getChildContainers().iterator();i.hasNext();) {
@@ -26,6 +26,7 @@ import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
 import java.util.Properties;
 
 import org.kapott.hbci.exceptions.HBCI_Exception;
@@ -36,10 +37,9 @@ import org.kapott.hbci.protocol.factory.MultipleDEGsFactory;
 import org.kapott.hbci.protocol.factory.MultipleDEsFactory;
 import org.kapott.hbci.protocol.factory.MultipleSEGsFactory;
 import org.kapott.hbci.protocol.factory.MultipleSFsFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import org.kapott.hbci.protocol.syntax.SyntaxDef;
+import org.kapott.hbci.protocol.syntax.SyntaxModel;
+import org.kapott.hbci.protocol.syntax.SyntaxRef;
 
 /* ein syntaxelement ist ein strukturelement einer hbci-nachricht (die nachricht
     selbst, eine segmentfolge, ein einzelnes segment, eine deg oder 
@@ -64,8 +64,8 @@ public abstract class SyntaxElement
     // Verändern ein neues MSG-Objekt erzeugt).
     private int posInMsg;
     
-    private Document syntax;
-    private Node     def;
+    private SyntaxModel syntax;
+    private SyntaxDef   def;
     
     public final static boolean TRY_TO_CREATE=true;
     public final static boolean DONT_TRY_TO_CREATE=false;
@@ -82,21 +82,21 @@ public abstract class SyntaxElement
     protected abstract char getInDelim();
     
     /** erzeugt einen neuen Child-Container, welcher durch den
-    xml-knoten 'ref' identifiziert wird; wird beim erzeugen von elementen
+    syntax-referenz 'ref' identifiziert wird; wird beim erzeugen von elementen
     benutzt */
-    protected abstract MultipleSyntaxElements createNewChildContainer(Node ref, Document syntax);
+    protected abstract MultipleSyntaxElements createNewChildContainer(SyntaxRef ref, SyntaxModel syntax);
     
     // TODO: aus konsistenz-gründen auch in MultipleSyntaxElements create und
     // createAndAdd trennen
     /** beim parsen: haengt an die 'childElements' ein neues Element an. der
-     xml-knoten 'ref' gibt an, um welches element es sich dabei handelt; aus
+     syntax-referenz 'ref' gibt an, um welches element es sich dabei handelt; aus
      'res' (der zu parsende String) wird der wert fuer das element ermittelt
      (falls es sich um ein de handelt); in 'predefined' ist der wert des
      elementes zu finden, der laut syntaxdefinition ('syntax') an dieser stelle
      auftauchen mueste (optional; z.b. fuer segmentcodes); 'predelim*' geben
      die delimiter an, die direkt vor dem zu erzeugenden syntaxelement
      auftauchen muessten */
-    protected abstract MultipleSyntaxElements parseNewChildContainer(Node ref, char predelim0, char predelim1, StringBuffer res, int fullResLen, Document syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids);
+    protected abstract MultipleSyntaxElements parseNewChildContainer(SyntaxRef ref, char predelim0, char predelim1, ParseCursor res, int fullResLen, SyntaxModel syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids);
     
     
     /** wird fuer datenelemente benoetigt, die sonst unbeabsichtigt generiert werden koennten.
@@ -146,7 +146,7 @@ public abstract class SyntaxElement
     private boolean needsRequestTag;
     private boolean haveRequestTag;
     
-    private void initData(String type, String name, String ppath, int idx, Document syntax)
+    private void initData(String type, String name, String ppath, int idx, SyntaxModel syntax)
     {
         if (getElementTypeName().equals("SEG"))
             HBCIUtils.log("creating segment "+ppath+" -> "+name+"("+idx+")", HBCIUtils.LOG_INTERN);
@@ -176,26 +176,20 @@ public abstract class SyntaxElement
             this.def=getSyntaxDef(type,syntax);
             
             // erzeugen der child-elemente
-            String requestTag=((Element)def).getAttribute("needsRequestTag");
-            if (requestTag!=null && requestTag.equals("1"))
-                needsRequestTag=true;
+            needsRequestTag=def.needsRequestTag();
 
             try {
-                int syntaxIdx=0;
-                for (Node ref=def.getFirstChild(); ref!=null; ref=ref.getNextSibling()) {
-                    if (ref.getNodeType()==Node.ELEMENT_NODE) {
-                        MultipleSyntaxElements child=createAndAppendNewChildContainer(ref, syntax);
-                        if (child!=null) {
-                            child.setParent(this);
-                            // TODO: überprüfen, ob noch an anderen Stellen Container
-                            // erzeugt werden - diese müssten dann auch die richtige
-                            // syntaxIdx bekommen
-                            child.setSyntaxIdx(syntaxIdx);
-                            
-                            if (getElementTypeName().equals("MSG"))
-                                HBCIUtils.log("child container "+child.getPath()+" has syntaxIdx="+child.getSyntaxIdx(), HBCIUtils.LOG_INTERN);
-                        }
-                        syntaxIdx++;
+                for (SyntaxRef ref:def.getRefs()) {
+                    MultipleSyntaxElements child=createAndAppendNewChildContainer(ref, syntax);
+                    if (child!=null) {
+                        child.setParent(this);
+                        // TODO: überprüfen, ob noch an anderen Stellen Container
+                        // erzeugt werden - diese müssten dann auch die richtige
+                        // syntaxIdx bekommen
+                        child.setSyntaxIdx(ref.getIndex());
+                        
+                        if (getElementTypeName().equals("MSG"))
+                            HBCIUtils.log("child container "+child.getPath()+" has syntaxIdx="+child.getSyntaxIdx(), HBCIUtils.LOG_INTERN);
                     }
                 }
 
@@ -211,35 +205,20 @@ public abstract class SyntaxElement
                 // wird nur für Segmentfolgen angewendet. Und in Segmentfolgen-
                 // Definitionen sind keine values oder valids angegeben, so dass
                 // dieser Code hier gar keine Relevanz für Segmentfolgen hat
-                NodeList valueNodes = ((Element)def).getElementsByTagName("value");
-                int      len=valueNodes.getLength();
-                String   dottedPath = this.path+".";
-                for (int i=0; i<len; i++) {
-                    Node   valueNode = valueNodes.item(i);
-                    String valuePath = ((Element)valueNode).getAttribute("path");
-                    String value     = (valueNode.getFirstChild()).getNodeValue();
-                    String destpath  = dottedPath+valuePath;
+                String dottedPath = this.path+".";
+                for (Map.Entry<String,String> entry:def.getValues().entrySet()) {
+                    String destpath = dottedPath+entry.getKey();
                     
-                    if (!propagateValue(destpath,value,TRY_TO_CREATE,DONT_ALLOW_OVERWRITE))
+                    if (!propagateValue(destpath,entry.getValue(),TRY_TO_CREATE,DONT_ALLOW_OVERWRITE))
                         throw new NoSuchPathException(destpath);
                 }
 
                 /* durchlaufen aller "valids"-knoten und speichern der valid-values */
                 // TODO: das hier ebenfalls später machen, siehe "values"
-                NodeList validNodes=((Element)def).getElementsByTagName("valids");
-                len = validNodes.getLength();
-                dottedPath = getPath()+".";
-                for (int i=0;i<len;i++) {
-                    Node validNode=validNodes.item(i);
-                    String valuePath=((Element)(validNode)).getAttribute("path");
-                    String absPath=dottedPath+valuePath;
-
-                    NodeList validvalueNodes=((Element)(validNode)).getElementsByTagName("validvalue");
-                    int len2=validvalueNodes.getLength();
-                    for (int j=0;j<len2;j++) {
-                        Node validvalue=validvalueNodes.item(j);
-                        String value=(validvalue.getFirstChild()).getNodeValue();
+                for (Map.Entry<String,List<String>> entry:def.getValids().entrySet()) {
+                    String absPath=dottedPath+entry.getKey();
 
+                    for (String value:entry.getValue()) {
                         storeValidValueInDE(absPath,value);
                     }
                 }
@@ -265,17 +244,17 @@ public abstract class SyntaxElement
         diesem element wird in 'path' uebergeben; 'idx' ist die nummer dieses
         elementes innerhalb der syntaxelementliste fuer dieses element (falls ein
         bestimmtes syntaxelement mehr als einmal auftreten kann) */
-    protected SyntaxElement(String type, String name, String path, int idx, Document syntax)
+    protected SyntaxElement(String type, String name, String path, int idx, SyntaxModel syntax)
     {
         initData(type,name,path,idx,syntax);
     }
 
-    protected void init(String type, String name, String path, int idx, Document syntax)
+    protected void init(String type, String name, String path, int idx, SyntaxModel syntax)
     {
         initData(type,name,path,idx,syntax);
     }
     
-    protected MultipleSyntaxElements createAndAppendNewChildContainer(Node ref, Document syntax)
+    protected MultipleSyntaxElements createAndAppendNewChildContainer(SyntaxRef ref, SyntaxModel syntax)
     {
         MultipleSyntaxElements ret=createNewChildContainer(ref,syntax);
         if (ret!=null)
@@ -320,7 +299,7 @@ public abstract class SyntaxElement
 
     // -------------------------------------------------------------------------------------------
     
-    private void initData(String type, String name, String ppath, char predelim, int idx, StringBuffer res, int fullResLen,Document syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
+    private void initData(String type, String name, String ppath, char predelim, int idx, ParseCursor res, int fullResLen,SyntaxModel syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
     {
         this.type=type;
         this.name=name;
@@ -350,67 +329,53 @@ public abstract class SyntaxElement
             
             /* fuellen der 'predefs'-tabelle mit den in der
              syntaxbeschreibung vorgegebenen werten */
-            NodeList valueNodes = ((Element)def).getElementsByTagName("value");
             String dottedPath = getPath() + ".";
-            int len=valueNodes.getLength();
-            for (int i = 0; i < len; i++) {
-                Node valueNode = valueNodes.item(i);
-                String valuePath = ((Element)valueNode).getAttribute("path");
-                String value = (valueNode.getFirstChild()).getNodeValue();
-
-                predefs.put(dottedPath + valuePath, value);
+            for (Map.Entry<String,String> entry:def.getValues().entrySet()) {
+                predefs.put(dottedPath + entry.getKey(), entry.getValue());
             }
 
             if (valids!=null) {
                 /* durchlaufen aller "valids"-knoten und speichern der valid-values */
-                NodeList validNodes=((Element)def).getElementsByTagName("valids");
-                len=validNodes.getLength();
-                for (int i=0;i<len;i++) {
-                    Node validNode=validNodes.item(i);
-                    String valuePath=((Element)(validNode)).getAttribute("path");
-                    String absPath=dottedPath+valuePath;
+                for (Map.Entry<String,List<String>> entry:def.getValids().entrySet()) {
+                    String       absPath=dottedPath+entry.getKey();
+                    List<String> values=entry.getValue();
                     
-                    NodeList validvalueNodes=((Element)(validNode)).getElementsByTagName("validvalue");
-                    int len2=validvalueNodes.getLength();
-                    for (int j=0;j<len2;j++) {
-                        Node validvalue=validvalueNodes.item(j);
-                        String value=(validvalue.getFirstChild()).getNodeValue();
-                        valids.put(HBCIUtilsInternal.withCounter(absPath+".value",j),value);
+                    for (int j=0;j<values.size();j++) {
+                        valids.put(HBCIUtilsInternal.withCounter(absPath+".value",j),values.get(j));
                     }
                 }
             }
 
             try {
                 // anlegen der child-elemente
-                int counter=0;
-                for (Node ref=def.getFirstChild();ref!=null;ref=ref.getNextSibling()) {
-                	if (ref.getNodeType()==Node.ELEMENT_NODE) {
-                		MultipleSyntaxElements child=parseAndAppendNewChildContainer(ref,
-                				((counter++)==0)?predelim:getInDelim(),
-                						getInDelim(),
-                						res,fullResLen,syntax,predefs,valids);
-
-                		if (child!=null) {
-                			child.setParent(this);
-
-                			// TODO: this is a very very dirty hack to fix the problem with the params-template;
-                			// bei der SF "Params", die mit <SF type="Params" maxnum="0"/> referenziert wird, 
-                			// soll nach jedem erfolgreich in die SF aufgenommenen Param-Segment eine neue
-                			// SF begonnen werden, damit das Problem mit dem am Ende der SF stehenden Template-
-                			// Param-Segment nicht mehr auftritt
-                			// dazu wird beim hinzufuegen von segmenten zur sf ueberprueft, ob diese evtl. bereits
-                			// segmente enthaelt (hasValidChilds()). falls das der fall ist, so wird
-                			// kein neues segment hinzugefuegt
-                			// analoges gilt für die SF "GVRes" - hier muss dafür gesorgt werden, dass jede
-                			// antwort in ein eigenes GVRes kommt, damit die zuordnung reihenfolge-erkennung
-                			// der empfangenen GVRes-segmente funktioniert (in HBCIJobImpl.fillJobResult())
-                			if ((this instanceof SF) && 
-                					(getName().equals("Params") || getName().equals("GVRes")) &&
-                					((MultipleSEGs)child).hasValidChilds()) {
-                				break;
-                			}
-                		}
-                	}
+                List<SyntaxRef> refs=def.getRefs();
+                for (int counter=nextChildRef(def,0,res);counter<refs.size();counter=nextChildRef(def,counter+1,res)) {
+                    SyntaxRef ref=refs.get(counter);
+                    MultipleSyntaxElements child=parseAndAppendNewChildContainer(ref,
+                            (counter==0)?predelim:getInDelim(),
+                                    getInDelim(),
+                                    res,fullResLen,syntax,predefs,valids);
+
+                    if (child!=null) {
+                        child.setParent(this);
+
+                        // TODO: this is a very very dirty hack to fix the problem with the params-template;
+                        // bei der SF "Params", die mit <SF type="Params" maxnum="0"/> referenziert wird, 
+                        // soll nach jedem erfolgreich in die SF aufgenommenen Param-Segment eine neue
+                        // SF begonnen werden, damit das Problem mit dem am Ende der SF stehenden Template-
+                        // Param-Segment nicht mehr auftritt
+                        // dazu wird beim hinzufuegen von segmenten zur sf ueberprueft, ob diese evtl. bereits
+                        // segmente enthaelt (hasValidChilds()). falls das der fall ist, so wird
+                        // kein neues segment hinzugefuegt
+                        // analoges gilt für die SF "GVRes" - hier muss dafür gesorgt werden, dass jede
+                        // antwort in ein eigenes GVRes kommt, damit die zuordnung reihenfolge-erkennung
+                        // der empfangenen GVRes-segmente funktioniert (in HBCIJobImpl.fillJobResult())
+                        if ((this instanceof SF) && 
+                                (getName().equals("Params") || getName().equals("GVRes")) &&
+                                ((MultipleSEGs)child).hasValidChilds()) {
+                            break;
+                        }
+                    }
                 }
             } catch (RuntimeException e) {
                 for (Iterator<MultipleSyntaxElements> i=getChildContainers().iterator();i.hasNext();) {
@@ -442,17 +407,26 @@ public abstract class SyntaxElement
         der zu parsende String 'predefs' soll eine menge von pfad-wert-paaren
         enthalten, die fuer einige syntaxelemente den wert angeben, den diese
         elemente zwingend haben muessen (z.b. ein bestimmter segmentcode o.ae.) */
-    protected SyntaxElement(String type, String name, String path, char predelim, int idx, StringBuffer res, int fullResLen,Document syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
+    protected SyntaxElement(String type, String name, String path, char predelim, int idx, ParseCursor res, int fullResLen,SyntaxModel syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
     {
         initData(type,name,path,predelim,idx,res,fullResLen,syntax,predefs,valids);
     }
     
-    protected void init(String type, String name, String path, char predelim, int idx, StringBuffer res, int fullResLen,Document syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
+    protected void init(String type, String name, String path, char predelim, int idx, ParseCursor res, int fullResLen,SyntaxModel syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
     {
         initData(type,name,path,predelim,idx,res,fullResLen,syntax,predefs,valids);
     }
 
-    protected MultipleSyntaxElements parseAndAppendNewChildContainer(Node ref, char predelim0, char predelim1, StringBuffer res, int fullResLen, Document syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
+    /** beim parsen: liefert die position der naechsten child-referenz ab 'from',
+        fuer die ein parse-versuch unternommen werden soll. referenzen dazwischen
+        koennen an der aktuellen position im reststring 'res' mit sicherheit
+        nicht auftreten. die default-implementierung ueberspringt nichts */
+    protected int nextChildRef(SyntaxDef def, int from, ParseCursor res)
+    {
+        return from;
+    }
+
+    protected MultipleSyntaxElements parseAndAppendNewChildContainer(SyntaxRef ref, char predelim0, char predelim1, ParseCursor res, int fullResLen, SyntaxModel syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
     {
         MultipleSyntaxElements ret=parseNewChildContainer(ref,predelim0,predelim1,res,fullResLen,syntax,predefs,valids);
         if (ret!=null)
@@ -552,28 +526,13 @@ public abstract class SyntaxElement
                     }
                     
                     if (!found) {
-                        // jetzt durch alle child-elemente des definierenden XML-Knotens
-                        // loopen und den ref-Knoten suchen, der das fehlende Element
-                        // beschreibt
-                        int     newChildIdx=0;
-                        Node    ref=null;
-                        found=false;
-                        for (ref=def.getFirstChild(); ref!=null; ref=ref.getNextSibling()) {
-                            if (ref.getNodeType()==Node.ELEMENT_NODE) {
-                                String type=((Element)ref).getAttribute("type");
-                                String name=((Element)ref).getAttribute("name");
-                                if (name.length()==0) {
-                                    name=type;
-                                }
-                                if (name.equals(subType)) {
-                                    found=true;
-                                    break;
-                                }
-                                newChildIdx++;
-                            }
-                        }
+                        // in der definition die referenz suchen, die das fehlende
+                        // Element beschreibt
+                        SyntaxRef ref=def.getRef(subType);
+
+                        if (ref!=null) {
+                            int newChildIdx=ref.getIndex();
 
-                        if (found) {
                             // entsprechenden child-container erzeugen
                             MultipleSyntaxElements child=createNewChildContainer(ref,syntax);
                             child.setParent(this);
@@ -707,10 +666,10 @@ public abstract class SyntaxElement
     
     /** @param type the name of the syntaxelement to be returned
         @param syntax the structure containing the current syntaxdefinition
-        @return a XML-node with the definition of the requested syntaxelement */
-    public final Node getSyntaxDef(String type, Document syntax)
+        @return the compiled definition of the requested syntaxelement */
+    public final SyntaxDef getSyntaxDef(String type, SyntaxModel syntax)
     {
-        Node ret = syntax.getElementById(type);
+        SyntaxDef ret = syntax.getDef(type);
         if (ret == null)
             throw new org.kapott.hbci.exceptions.NoSuchElementException(getElementTypeName(), type);
         return ret;
@@ -724,6 +683,14 @@ public abstract class SyntaxElement
         return toString();
     }
 
+    /** schreibt das syntaxelement in hbci-form in den puffer. abgeleitete
+        klassen ueberschreiben das, um ihre kind-elemente direkt in den puffer
+        zu schreiben, statt auf jeder ebene einen string zu erzeugen */
+    public void appendTo(MsgBuffer buf)
+    {
+        buf.append(toString(0));
+    }
+
     protected final void setValid(boolean valid)
     {
         this.valid = valid;
@@ -762,7 +729,18 @@ public abstract class SyntaxElement
         }
     }
 
+    /** Sammelt die Element-Referenzen dieses Elementes in <code>p</code>.
+        Die Schluessel werden erst beim Kopieren der {@link ElementRefs}
+        erzeugt.
+        @see #getElementPaths(ElementRefs,int[],int[],int[]) */
     public void getElementPaths(Properties p,int[] segref,int[] degref,int[] deref)
+    {
+        ElementRefs refs=new ElementRefs();
+        getElementPaths(refs,segref,degref,deref);
+        refs.copyTo(p);
+    }
+    
+    public void getElementPaths(ElementRefs p,int[] segref,int[] degref,int[] deref)
     {
     }
     
@@ -26,8 +26,9 @@ import java.util.Hashtable;
 import org.kapott.hbci.manager.HBCIUtils;
 import org.kapott.hbci.protocol.DE;
 import org.kapott.hbci.tools.ObjectFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
+import org.kapott.hbci.protocol.ParseCursor;
+import org.kapott.hbci.protocol.syntax.SyntaxModel;
+import org.kapott.hbci.protocol.syntax.SyntaxRef;
 
 public class DEFactory 
     extends ObjectFactory 
@@ -44,10 +45,10 @@ public class DEFactory
     
     private DEFactory()
     {
-        super(Integer.parseInt(HBCIUtils.getParam("kernel.objpool.DE","1024")));
+        super(HBCIUtils.getConfig().getObjPoolSize("DE",1024));
     }
     
-    public DE createDE(Node dedef, String name, String path, char predelim, int idx, StringBuffer res, int fullResLen, Document syntax, Hashtable<String, String> predefs,Hashtable<String, String> valids)
+    public DE createDE(SyntaxRef dedef, String name, String path, char predelim, int idx, ParseCursor res, int fullResLen, SyntaxModel syntax, Hashtable<String, String> predefs,Hashtable<String, String> valids)
     {
         DE ret=(DE)getFreeObject();
         
@@ -69,7 +70,7 @@ public class DEFactory
         return ret;
     }
     
-    public DE createDE(Node dedef, String name, String path, int idx, Document syntax)
+    public DE createDE(SyntaxRef dedef, String name, String path, int idx, SyntaxModel syntax)
     {
         DE ret=(DE)getFreeObject();
         
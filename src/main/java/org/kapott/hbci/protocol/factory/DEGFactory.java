@@ -26,7 +26,8 @@ import java.util.Hashtable;
 import org.kapott.hbci.manager.HBCIUtils;
 import org.kapott.hbci.protocol.DEG;
 import org.kapott.hbci.tools.ObjectFactory;
-import org.w3c.dom.Document;
+import org.kapott.hbci.protocol.ParseCursor;
+import org.kapott.hbci.protocol.syntax.SyntaxModel;
 
 public class DEGFactory 
     extends ObjectFactory 
@@ -43,10 +44,10 @@ public class DEGFactory
     
     private DEGFactory()
     {
-    	super(Integer.parseInt(HBCIUtils.getParam("kernel.objpool.DEG","512")));
+    	super(HBCIUtils.getConfig().getObjPoolSize("DEG",512));
     }
     
-    public DEG createDEG(String type, String name, String path, char predelim, int idx, StringBuffer res, int fullResLen, Document syntax, Hashtable<String, String> predefs,Hashtable<String, String> valids)
+    public DEG createDEG(String type, String name, String path, char predelim, int idx, ParseCursor res, int fullResLen, SyntaxModel syntax, Hashtable<String, String> predefs,Hashtable<String, String> valids)
     {
         DEG ret=(DEG)getFreeObject();
         
@@ -68,7 +69,7 @@ public class DEGFactory
         return ret;
     }
     
-    public DEG createDEG(String type, String name, String path, int idx, Document syntax)
+    public DEG createDEG(String type, String name, String path, int idx, SyntaxModel syntax)
     {
         DEG ret=(DEG)getFreeObject();
         
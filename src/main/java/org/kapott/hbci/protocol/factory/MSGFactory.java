@@ -43,7 +43,7 @@ public class MSGFactory
     
     private MSGFactory()
     {
-    	super(Integer.parseInt(HBCIUtils.getParam("kernel.objpool.MSG","8")));
+    	super(HBCIUtils.getConfig().getObjPoolSize("MSG",8));
     }
     
     public MSG createMSG(String type,MsgGen gen,Hashtable<String,String> clientValues)
@@ -97,6 +97,7 @@ public class MSGFactory
             }
         }
 
+        HBCIUtils.log("parsed "+type+" message, "+ret.getBacktracks()+" backtracks",HBCIUtils.LOG_DEBUG2);
         return ret;
     }
     
@@ -26,8 +26,9 @@ import java.util.Hashtable;
 import org.kapott.hbci.manager.HBCIUtils;
 import org.kapott.hbci.protocol.MultipleDEGs;
 import org.kapott.hbci.tools.ObjectFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
+import org.kapott.hbci.protocol.ParseCursor;
+import org.kapott.hbci.protocol.syntax.SyntaxModel;
+import org.kapott.hbci.protocol.syntax.SyntaxRef;
 
 public class MultipleDEGsFactory 
     extends ObjectFactory 
@@ -44,10 +45,10 @@ public class MultipleDEGsFactory
     
     private MultipleDEGsFactory()
     {
-    	super(Integer.parseInt(HBCIUtils.getParam("kernel.objpool.DEG","512")));
+    	super(HBCIUtils.getConfig().getObjPoolSize("DEG",512));
     }
     
-    public MultipleDEGs createMultipleDEGs(Node sfref, char delimiter, String path, char predelim0, char predelim1, StringBuffer res, int fullResLen,Document syntax, Hashtable<String, String> predefs,Hashtable<String, String> valids)
+    public MultipleDEGs createMultipleDEGs(SyntaxRef sfref, char delimiter, String path, char predelim0, char predelim1, ParseCursor res, int fullResLen,SyntaxModel syntax, Hashtable<String, String> predefs,Hashtable<String, String> valids)
     {
         MultipleDEGs ret=(MultipleDEGs)getFreeObject();
         
@@ -69,7 +70,7 @@ public class MultipleDEGsFactory
         return ret;
     }
 
-    public MultipleDEGs createMultipleDEGs(Node sfref, char delimiter,String path, Document syntax)
+    public MultipleDEGs createMultipleDEGs(SyntaxRef sfref, char delimiter,String path, SyntaxModel syntax)
     {
         MultipleDEGs ret=(MultipleDEGs)getFreeObject();
         
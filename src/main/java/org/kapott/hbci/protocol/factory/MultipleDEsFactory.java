@@ -26,8 +26,9 @@ import java.util.Hashtable;
 import org.kapott.hbci.manager.HBCIUtils;
 import org.kapott.hbci.protocol.MultipleDEs;
 import org.kapott.hbci.tools.ObjectFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
+import org.kapott.hbci.protocol.ParseCursor;
+import org.kapott.hbci.protocol.syntax.SyntaxModel;
+import org.kapott.hbci.protocol.syntax.SyntaxRef;
 
 public class MultipleDEsFactory 
     extends ObjectFactory 
@@ -44,10 +45,10 @@ public class MultipleDEsFactory
     
     private MultipleDEsFactory()
     {
-    	super(Integer.parseInt(HBCIUtils.getParam("kernel.objpool.DE","1024")));
+    	super(HBCIUtils.getConfig().getObjPoolSize("DE",1024));
     }
     
-    public MultipleDEs createMultipleDEs(Node sfref, char delimiter, String path, char predelim0, char predelim1, StringBuffer res, int fullResLen, Document syntax, Hashtable<String, String> predefs,Hashtable<String, String> valids)
+    public MultipleDEs createMultipleDEs(SyntaxRef sfref, char delimiter, String path, char predelim0, char predelim1, ParseCursor res, int fullResLen, SyntaxModel syntax, Hashtable<String, String> predefs,Hashtable<String, String> valids)
     {
         MultipleDEs ret=(MultipleDEs)getFreeObject();
         
@@ -69,7 +70,7 @@ public class MultipleDEsFactory
         return ret;
     }
 
-    public MultipleDEs createMultipleDEs(Node sfref, char delimiter,String path, Document syntax)
+    public MultipleDEs createMultipleDEs(SyntaxRef sfref, char delimiter,String path, SyntaxModel syntax)
     {
         MultipleDEs ret=(MultipleDEs)getFreeObject();
         
@@ -26,8 +26,9 @@ import java.util.Hashtable;
 import org.kapott.hbci.manager.HBCIUtils;
 import org.kapott.hbci.protocol.MultipleSEGs;
 import org.kapott.hbci.tools.ObjectFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
+import org.kapott.hbci.protocol.ParseCursor;
+import org.kapott.hbci.protocol.syntax.SyntaxModel;
+import org.kapott.hbci.protocol.syntax.SyntaxRef;
 
 public class MultipleSEGsFactory 
     extends ObjectFactory 
@@ -44,10 +45,10 @@ public class MultipleSEGsFactory
     
     private MultipleSEGsFactory()
     {
-    	super(Integer.parseInt(HBCIUtils.getParam("kernel.objpool.SEG","128")));
+    	super(HBCIUtils.getConfig().getObjPoolSize("SEG",128));
     }
     
-    public MultipleSEGs createMultipleSEGs(Node sfref, String path, char predelim0, char predelim1, StringBuffer res, int fullResLen, Document syntax, Hashtable<String, String> predefs,Hashtable<String, String> valids)
+    public MultipleSEGs createMultipleSEGs(SyntaxRef sfref, String path, char predelim0, char predelim1, ParseCursor res, int fullResLen, SyntaxModel syntax, Hashtable<String, String> predefs,Hashtable<String, String> valids)
     {
         MultipleSEGs ret=(MultipleSEGs)getFreeObject();
         
@@ -69,7 +70,7 @@ public class MultipleSEGsFactory
         return ret;
     }
 
-    public MultipleSEGs createMultipleSEGs(Node sfref, String path, Document syntax)
+    public MultipleSEGs createMultipleSEGs(SyntaxRef sfref, String path, SyntaxModel syntax)
     {
         MultipleSEGs ret=(MultipleSEGs)getFreeObject();
         
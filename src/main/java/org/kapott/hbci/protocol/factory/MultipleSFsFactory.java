@@ -26,8 +26,9 @@ import java.util.Hashtable;
 import org.kapott.hbci.manager.HBCIUtils;
 import org.kapott.hbci.protocol.MultipleSFs;
 import org.kapott.hbci.tools.ObjectFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
+import org.kapott.hbci.protocol.ParseCursor;
+import org.kapott.hbci.protocol.syntax.SyntaxModel;
+import org.kapott.hbci.protocol.syntax.SyntaxRef;
 
 public class MultipleSFsFactory 
     extends ObjectFactory 
@@ -44,10 +45,10 @@ public class MultipleSFsFactory
     
     private MultipleSFsFactory()
     {
-    	super(Integer.parseInt(HBCIUtils.getParam("kernel.objpool.SF","128")));
+    	super(HBCIUtils.getConfig().getObjPoolSize("SF",128));
     }
  
-    public MultipleSFs createMultipleSFs(Node sfref, String path, char predelim0, char predelim1, StringBuffer res, int fullResLen, Document syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
+    public MultipleSFs createMultipleSFs(SyntaxRef sfref, String path, char predelim0, char predelim1, ParseCursor res, int fullResLen, SyntaxModel syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
     {
         MultipleSFs ret=(MultipleSFs)getFreeObject();
         
@@ -69,7 +70,7 @@ public class MultipleSFsFactory
         return ret;
     }
 
-    public MultipleSFs createMultipleSFs(Node sfref, String path, Document syntax)
+    public MultipleSFs createMultipleSFs(SyntaxRef sfref, String path, SyntaxModel syntax)
     {
         MultipleSFs ret=(MultipleSFs)getFreeObject();
         
@@ -26,7 +26,8 @@ import java.util.Hashtable;
 import org.kapott.hbci.manager.HBCIUtils;
 import org.kapott.hbci.protocol.SEG;
 import org.kapott.hbci.tools.ObjectFactory;
-import org.w3c.dom.Document;
+import org.kapott.hbci.protocol.ParseCursor;
+import org.kapott.hbci.protocol.syntax.SyntaxModel;
 
 public class SEGFactory 
     extends ObjectFactory 
@@ -43,10 +44,10 @@ public class SEGFactory
     
     private SEGFactory()
     {
-    	super(Integer.parseInt(HBCIUtils.getParam("kernel.objpool.SEG","128")));
+    	super(HBCIUtils.getConfig().getObjPoolSize("SEG",128));
     }
     
-    public SEG createSEG(String type, String name, String path, char predelim, int idx, StringBuffer res, int fullResLen, Document syntax, Hashtable<String, String> predefs,Hashtable<String, String> valids)
+    public SEG createSEG(String type, String name, String path, char predelim, int idx, ParseCursor res, int fullResLen, SyntaxModel syntax, Hashtable<String, String> predefs,Hashtable<String, String> valids)
     {
         SEG ret=(SEG)getFreeObject();
         
@@ -68,7 +69,7 @@ public class SEGFactory
         return ret;
     }
     
-    public SEG createSEG(String type, String name, String path, int idx, Document syntax)
+    public SEG createSEG(String type, String name, String path, int idx, SyntaxModel syntax)
     {
         SEG ret=(SEG)getFreeObject();
         
@@ -26,7 +26,8 @@ import java.util.Hashtable;
 import org.kapott.hbci.manager.HBCIUtils;
 import org.kapott.hbci.protocol.SF;
 import org.kapott.hbci.tools.ObjectFactory;
-import org.w3c.dom.Document;
+import org.kapott.hbci.protocol.ParseCursor;
+import org.kapott.hbci.protocol.syntax.SyntaxModel;
 
 public class SFFactory 
     extends ObjectFactory 
@@ -43,10 +44,10 @@ public class SFFactory
     
     private SFFactory()
     {
-    	super(Integer.parseInt(HBCIUtils.getParam("kernel.objpool.SF","128")));
+    	super(HBCIUtils.getConfig().getObjPoolSize("SF",128));
     }
     
-    public SF createSF(String type, String name, String path, char predelim, int idx, StringBuffer res, int fullResLen, Document syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
+    public SF createSF(String type, String name, String path, char predelim, int idx, ParseCursor res, int fullResLen, SyntaxModel syntax, Hashtable<String,String> predefs,Hashtable<String,String> valids)
     {
         SF ret=(SF)getFreeObject();
         
@@ -68,7 +69,7 @@ public class SFFactory
         return ret;
     }
     
-    public SF createSF(String type, String name, String path, int idx, Document syntax)
+    public SF createSF(String type, String name, String path, int idx, SyntaxModel syntax)
     {
         SF ret=(SF)getFreeObject();
         
@@ -0,0 +1,294 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci.protocol.syntax;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Eine Syntax-Definition. Entspricht den Elementen <code>&lt;MSGdef&gt;</code>,
+ * <code>&lt;SFdef&gt;</code>, <code>&lt;SEGdef&gt;</code> und <code>&lt;DEGdef&gt;</code>
+ * der XML-Spezifikation - inclusive der darin enthaltenen Referenzen, der
+ * vorgegebenen Werte ("value") und der gueltigen Werte ("valids").
+ * Instanzen sind unveraenderlich und duerfen von mehreren Threads gleichzeitig
+ * verwendet werden.
+ */
+public final class SyntaxDef
+{
+    /**
+     * Die Arten von Definitionen.
+     */
+    public static enum Kind
+    {
+        /** Nachricht. */
+        MSG,
+        /** Segmentfolge. */
+        SF,
+        /** Segment. */
+        SEG,
+        /** Datenelementgruppe. */
+        DEG
+    }
+
+    private final String id;
+    private final Kind kind;
+    private final boolean needsRequestTag;
+    private final boolean dontSign;
+    private final boolean dontCrypt;
+    private final List<SyntaxRef> refs;
+    private final Map<String,SyntaxRef> refsByName;
+    private final Map<String,String> values;
+    private final Map<String,List<String>> valids;
+
+    // Index der Segment-Referenzen nach "code:version", siehe buildSegIndex()
+    private Map<String,int[]> segIndex;
+    private int[] segWildcards;
+
+    /**
+     * ct.
+     * @param id die ID der Definition.
+     * @param kind die Art der Definition.
+     * @param needsRequestTag true, wenn das Attribut "needsRequestTag" gesetzt ist.
+     * @param dontSign true, wenn das Attribut "dontsign" gesetzt ist.
+     * @param dontCrypt true, wenn das Attribut "dontcrypt" gesetzt ist.
+     * @param refs die Referenzen in der Reihenfolge der Spezifikation.
+     * @param values die vorgegebenen Werte (relativer Pfad -&gt; Wert) in der Reihenfolge der Spezifikation.
+     * @param valids die gueltigen Werte (relativer Pfad -&gt; Liste der Werte) in der Reihenfolge der Spezifikation.
+     */
+    SyntaxDef(String id, Kind kind, boolean needsRequestTag, boolean dontSign, boolean dontCrypt,
+              List<SyntaxRef> refs, Map<String,String> values, Map<String,List<String>> valids)
+    {
+        this.id=id;
+        this.kind=kind;
+        this.needsRequestTag=needsRequestTag;
+        this.dontSign=dontSign;
+        this.dontCrypt=dontCrypt;
+        this.refs=Collections.unmodifiableList(refs);
+        this.values=Collections.unmodifiableMap(values);
+        this.valids=Collections.unmodifiableMap(valids);
+
+        // bei mehrfach vorkommenden Namen gewinnt - wie bisher bei der
+        // Suche im DOM - die erste Referenz
+        Map<String,SyntaxRef> byName=new HashMap<String,SyntaxRef>();
+        for (SyntaxRef ref:refs) {
+            if (!byName.containsKey(ref.getName()))
+                byName.put(ref.getName(),ref);
+        }
+        this.refsByName=byName;
+    }
+
+    /**
+     * Liefert die ID der Definition.
+     * @return die ID.
+     */
+    public String getId()
+    {
+        return id;
+    }
+
+    /**
+     * Liefert die Art der Definition.
+     * @return die Art der Definition.
+     */
+    public Kind getKind()
+    {
+        return kind;
+    }
+
+    /**
+     * Prueft, ob das Element explizit als "requested" markiert werden muss.
+     * @return true, wenn das Attribut "needsRequestTag" gesetzt ist.
+     */
+    public boolean needsRequestTag()
+    {
+        return needsRequestTag;
+    }
+
+    /**
+     * Prueft, ob Nachrichten dieses Typs nicht signiert werden.
+     * @return true, wenn das Attribut "dontsign" gesetzt ist.
+     */
+    public boolean isDontSign()
+    {
+        return dontSign;
+    }
+
+    /**
+     * Prueft, ob Nachrichten dieses Typs nicht verschluesselt werden.
+     * @return true, wenn das Attribut "dontcrypt" gesetzt ist.
+     */
+    public boolean isDontCrypt()
+    {
+        return dontCrypt;
+    }
+
+    /**
+     * Liefert die Referenzen in der Reihenfolge der Spezifikation.
+     * @return Liste der Referenzen.
+     */
+    public List<SyntaxRef> getRefs()
+    {
+        return refs;
+    }
+
+    /**
+     * Liefert die Referenz mit dem angegebenen Namen.
+     * @param name der Name der Referenz.
+     * @return die Referenz oder NULL, wenn sie nicht existiert.
+     */
+    public SyntaxRef getRef(String name)
+    {
+        return refsByName.get(name);
+    }
+
+    /**
+     * Liefert die vorgegebenen Werte.
+     * @return Map mit relativem Pfad als Key und dem Wert als Value.
+     */
+    public Map<String,String> getValues()
+    {
+        return values;
+    }
+
+    /**
+     * Liefert den vorgegebenen Wert fuer den angegebenen relativen Pfad.
+     * @param path der relative Pfad (z.B. "SegHead.code").
+     * @return der Wert oder NULL.
+     */
+    public String getValue(String path)
+    {
+        return values.get(path);
+    }
+
+    /**
+     * Liefert die gueltigen Werte.
+     * @return Map mit relativem Pfad als Key und der Liste der gueltigen Werte als Value.
+     */
+    public Map<String,List<String>> getValids()
+    {
+        return valids;
+    }
+
+    /**
+     * Baut den Index der Segment-Referenzen auf. Darf erst aufgerufen werden,
+     * nachdem alle Referenzen aufgeloest sind.
+     * Referenzen auf Segmente mit vorgegebenem Code und Version werden unter
+     * "code:version" abgelegt. Alle anderen Referenzen (Segmentfolgen oder
+     * Segmente ohne vorgegebenen Code) koennen jedes Segment enthalten und
+     * werden als "Wildcards" gesondert gefuehrt.
+     */
+    void buildSegIndex()
+    {
+        Map<String,List<Integer>> index=new HashMap<String,List<Integer>>();
+        List<Integer> wildcards=new ArrayList<Integer>();
+
+        for (SyntaxRef ref:refs) {
+            String code=null;
+            String version=null;
+            if (ref.getKind()==SyntaxRef.Kind.SEG) {
+                code=ref.getDef().getValue("SegHead.code");
+                version=ref.getDef().getValue("SegHead.version");
+            }
+
+            if (code==null || version==null) {
+                wildcards.add(ref.getIndex());
+                continue;
+            }
+
+            String key=code+":"+version;
+            List<Integer> list=index.get(key);
+            if (list==null) {
+                list=new ArrayList<Integer>();
+                index.put(key,list);
+            }
+            list.add(ref.getIndex());
+        }
+
+        Map<String,int[]> segIndex=new HashMap<String,int[]>();
+        for (Map.Entry<String,List<Integer>> entry:index.entrySet()) {
+            segIndex.put(entry.getKey(),toArray(entry.getValue()));
+        }
+        this.segIndex=segIndex;
+        this.segWildcards=toArray(wildcards);
+    }
+
+    /**
+     * Liefert die Position der naechsten Referenz ab "from", die ein Segment mit
+     * dem angegebenen Code und der angegebenen Version aufnehmen kann. Alle
+     * Referenzen dazwischen verweisen auf Segmente mit anderem Code und koennen
+     * beim Parsen uebersprungen werden.
+     * @param from Position, ab der gesucht wird.
+     * @param code Segment-Code des naechsten Segments in der Nachricht.
+     * @param version Segment-Version des naechsten Segments in der Nachricht.
+     * @return Position der naechsten passenden Referenz oder Anzahl der Referenzen,
+     * wenn keine mehr passt.
+     */
+    public int getNextSegCandidate(int from, String code, String version)
+    {
+        int ret=next(segWildcards,from);
+        int[] exact=segIndex.get(code+":"+version);
+        if (exact!=null)
+            ret=Math.min(ret,next(exact,from));
+        return ret;
+    }
+
+    /**
+     * Liefert den ersten Wert aus dem sortierten Array, der nicht kleiner als "from" ist.
+     * @param sorted sortiertes Array.
+     * @param from Untergrenze.
+     * @return der Wert oder die Anzahl der Referenzen, wenn keiner existiert.
+     */
+    private int next(int[] sorted, int from)
+    {
+        int pos=Arrays.binarySearch(sorted,from);
+        if (pos<0)
+            pos=-pos-1;
+        return pos<sorted.length ? sorted[pos] : refs.size();
+    }
+
+    /**
+     * Wandelt die Liste in ein Array.
+     * @param list die Liste.
+     * @return das Array.
+     */
+    private static int[] toArray(List<Integer> list)
+    {
+        int[] ret=new int[list.size()];
+        for (int i=0;i<ret.length;i++) {
+            ret[i]=list.get(i);
+        }
+        return ret;
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        return kind+"def:"+id;
+    }
+}
@@ -0,0 +1,202 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci.protocol.syntax;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.kapott.hbci.exceptions.HBCI_Exception;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Kompilierte Form einer HBCI-Syntax-Spezifikation (hbci-*.xml).
+ * Das XML-Dokument wird genau einmal durchlaufen und in einen Graphen aus
+ * {@link SyntaxDef} und {@link SyntaxRef} uebersetzt. Alle Attribute
+ * (minnum, maxnum, minsize, maxsize, type, ...) liegen danach bereits geparst vor,
+ * Referenzen sind direkt aufgeloest, Segment-Referenzen zusaetzlich nach
+ * Segment-Code indiziert. Die Message-Engine muss damit zur Laufzeit
+ * weder im DOM suchen noch Attribute parsen.
+ * Das Modell ist unveraenderlich und darf von mehreren Threads gleichzeitig
+ * verwendet werden.
+ */
+public final class SyntaxModel
+{
+    private final Map<String,SyntaxDef> defs;
+
+    /**
+     * Kompiliert das Syntax-Dokument.
+     * @param syntax das (validierte) Syntax-Dokument.
+     */
+    public SyntaxModel(Document syntax)
+    {
+        Map<String,SyntaxDef> defs=new LinkedHashMap<String,SyntaxDef>();
+        List<SyntaxRef> refs=new ArrayList<SyntaxRef>();
+
+        // Schritt 1: alle Definitionen einlesen
+        for (Node group=syntax.getDocumentElement().getFirstChild();group!=null;group=group.getNextSibling()) {
+            if (group.getNodeType()!=Node.ELEMENT_NODE)
+                continue;
+
+            for (Node node=group.getFirstChild();node!=null;node=node.getNextSibling()) {
+                if (node.getNodeType()!=Node.ELEMENT_NODE)
+                    continue;
+
+                SyntaxDef def=compileDef((Element)node,refs);
+                defs.put(def.getId(),def);
+            }
+        }
+
+        // Schritt 2: Referenzen aufloesen
+        for (SyntaxRef ref:refs) {
+            if (ref.getKind()==SyntaxRef.Kind.DE)
+                continue;
+
+            SyntaxDef def=defs.get(ref.getType());
+            if (def==null)
+                throw new HBCI_Exception("unresolved syntax reference "+ref);
+            ref.resolve(def);
+        }
+
+        // Schritt 3: Segment-Indizes aufbauen
+        for (SyntaxDef def:defs.values()) {
+            def.buildSegIndex();
+        }
+
+        this.defs=Collections.unmodifiableMap(defs);
+    }
+
+    /**
+     * Uebersetzt ein einzelnes *def-Element.
+     * @param elem das Element.
+     * @param allRefs Liste, in der alle erzeugten Referenzen gesammelt werden.
+     * @return die Definition.
+     */
+    private static SyntaxDef compileDef(Element elem, List<SyntaxRef> allRefs)
+    {
+        String nodeName=elem.getNodeName();
+        SyntaxDef.Kind kind=SyntaxDef.Kind.valueOf(nodeName.substring(0,nodeName.length()-"def".length()));
+
+        List<SyntaxRef> refs=new ArrayList<SyntaxRef>();
+        Map<String,String> values=new LinkedHashMap<String,String>();
+        Map<String,List<String>> valids=new LinkedHashMap<String,List<String>>();
+
+        for (Node node=elem.getFirstChild();node!=null;node=node.getNextSibling()) {
+            if (node.getNodeType()!=Node.ELEMENT_NODE)
+                continue;
+
+            Element child=(Element)node;
+            String  name=child.getNodeName();
+
+            if (name.equals("value")) {
+                values.put(child.getAttribute("path"),child.getFirstChild().getNodeValue());
+            } else if (name.equals("valids")) {
+                List<String> list=new ArrayList<String>();
+                for (Node v=child.getFirstChild();v!=null;v=v.getNextSibling()) {
+                    if (v.getNodeType()==Node.ELEMENT_NODE)
+                        list.add(v.getFirstChild().getNodeValue());
+                }
+                valids.put(child.getAttribute("path"),Collections.unmodifiableList(list));
+            } else {
+                SyntaxRef ref=compileRef(child,refs.size());
+                refs.add(ref);
+                allRefs.add(ref);
+            }
+        }
+
+        return new SyntaxDef(elem.getAttribute("id"),kind,
+                             elem.getAttribute("needsRequestTag").equals("1"),
+                             elem.getAttribute("dontsign").equals("1"),
+                             elem.getAttribute("dontcrypt").equals("1"),
+                             refs,values,valids);
+    }
+
+    /**
+     * Uebersetzt eine einzelne Referenz.
+     * @param elem das Element.
+     * @param index Position innerhalb der Definition.
+     * @return die Referenz.
+     */
+    private static SyntaxRef compileRef(Element elem, int index)
+    {
+        String type=elem.getAttribute("type");
+        String name=elem.getAttribute("name");
+        if (name.length()==0)
+            name=type;
+
+        return new SyntaxRef(SyntaxRef.Kind.valueOf(elem.getNodeName()),type,name,index,
+                             getInt(elem,"minnum",1),getInt(elem,"maxnum",1),
+                             getInt(elem,"minsize",1),getInt(elem,"maxsize",0));
+    }
+
+    /**
+     * Liest ein numerisches Attribut.
+     * @param elem das Element.
+     * @param attr der Name des Attributes.
+     * @param def Default-Wert, wenn das Attribut fehlt.
+     * @return der Wert.
+     */
+    private static int getInt(Element elem, String attr, int def)
+    {
+        String st=elem.getAttribute(attr);
+        return st.length()!=0 ? Integer.parseInt(st) : def;
+    }
+
+    /**
+     * Liefert die Definition mit der angegebenen ID.
+     * @param id die ID.
+     * @return die Definition oder NULL, wenn sie nicht existiert.
+     */
+    public SyntaxDef getDef(String id)
+    {
+        return defs.get(id);
+    }
+
+    /**
+     * Liefert alle Definitionen in der Reihenfolge der Spezifikation.
+     * @return alle Definitionen.
+     */
+    public Collection<SyntaxDef> getDefs()
+    {
+        return defs.values();
+    }
+
+    /**
+     * Liefert alle Definitionen der angegebenen Art in der Reihenfolge der Spezifikation.
+     * @param kind die Art.
+     * @return Liste der Definitionen.
+     */
+    public List<SyntaxDef> getDefs(SyntaxDef.Kind kind)
+    {
+        List<SyntaxDef> ret=new ArrayList<SyntaxDef>();
+        for (SyntaxDef def:defs.values()) {
+            if (def.getKind()==kind)
+                ret.add(def);
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,197 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci.protocol.syntax;
+
+import org.kapott.hbci.datatypes.factory.SyntaxDEType;
+
+/**
+ * Eine Referenz innerhalb einer Syntax-Definition. Entspricht den Elementen
+ * <code>&lt;DE&gt;</code>, <code>&lt;DEG&gt;</code>, <code>&lt;SEG&gt;</code> und
+ * <code>&lt;SF&gt;</code> der XML-Spezifikation. Alle Attribute liegen bereits
+ * geparst vor, die referenzierte Definition ist aufgeloest.
+ * Instanzen sind unveraenderlich und duerfen von mehreren Threads gleichzeitig
+ * verwendet werden.
+ */
+public final class SyntaxRef
+{
+    /**
+     * Die Arten von Referenzen.
+     */
+    public static enum Kind
+    {
+        /** Datenelement. */
+        DE,
+        /** Datenelementgruppe. */
+        DEG,
+        /** Segment. */
+        SEG,
+        /** Segmentfolge. */
+        SF
+    }
+
+    private final Kind kind;
+    private final String type;
+    private final String name;
+    private final int index;
+    private final int minnum;
+    private final int maxnum;
+    private final int minsize;
+    private final int maxsize;
+    private final SyntaxDEType deType;
+
+    // wird erst aufgeloest, nachdem alle Definitionen eingelesen sind
+    private SyntaxDef def;
+
+    /**
+     * ct.
+     * @param kind Art der Referenz.
+     * @param type Wert des Attributes "type". Bei DEs der Datentyp, sonst die ID der Definition.
+     * @param name effektiver Name (Attribut "name" oder - falls nicht angegeben - "type").
+     * @param index Position der Referenz innerhalb der umgebenden Definition.
+     * @param minnum minimale Anzahl.
+     * @param maxnum maximale Anzahl (0=unbegrenzt).
+     * @param minsize minimale Laenge (nur bei DEs).
+     * @param maxsize maximale Laenge (nur bei DEs, 0=unbegrenzt).
+     */
+    SyntaxRef(Kind kind, String type, String name, int index, int minnum, int maxnum, int minsize, int maxsize)
+    {
+        this.kind=kind;
+        this.type=type;
+        this.name=name;
+        this.index=index;
+        this.minnum=minnum;
+        this.maxnum=maxnum;
+        this.minsize=minsize;
+        this.maxsize=maxsize;
+        this.deType=(kind==Kind.DE)?SyntaxDEType.forName(type):null;
+    }
+
+    /**
+     * Loest die referenzierte Definition auf.
+     * @param def die Definition.
+     */
+    void resolve(SyntaxDef def)
+    {
+        this.def=def;
+    }
+
+    /**
+     * Liefert die Art der Referenz.
+     * @return die Art der Referenz.
+     */
+    public Kind getKind()
+    {
+        return kind;
+    }
+
+    /**
+     * Liefert den Typ. Bei DEs ist das der Datentyp ("AN", "Num", ...), bei allen
+     * anderen Referenzen die ID der referenzierten Definition.
+     * @return der Typ.
+     */
+    public String getType()
+    {
+        return type;
+    }
+
+    /**
+     * Liefert den Namen, unter dem das Element im Pfad erscheint.
+     * @return der Name.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Liefert die Position der Referenz innerhalb der umgebenden Definition.
+     * @return die Position, beginnend bei 0.
+     */
+    public int getIndex()
+    {
+        return index;
+    }
+
+    /**
+     * Liefert die minimale Anzahl des Elementes.
+     * @return die minimale Anzahl.
+     */
+    public int getMinNum()
+    {
+        return minnum;
+    }
+
+    /**
+     * Liefert die maximale Anzahl des Elementes.
+     * @return die maximale Anzahl. 0 bedeutet unbegrenzt.
+     */
+    public int getMaxNum()
+    {
+        return maxnum;
+    }
+
+    /**
+     * Liefert die minimale Laenge eines DE.
+     * @return die minimale Laenge.
+     */
+    public int getMinSize()
+    {
+        return minsize;
+    }
+
+    /**
+     * Liefert die maximale Laenge eines DE.
+     * @return die maximale Laenge. 0 bedeutet unbegrenzt.
+     */
+    public int getMaxSize()
+    {
+        return maxsize;
+    }
+
+    /**
+     * Liefert den bereits aufgeloesten Datentyp eines DE.
+     * @return der Datentyp oder NULL, wenn es sich nicht um ein DE handelt
+     * oder der Datentyp unbekannt ist.
+     */
+    public SyntaxDEType getDEType()
+    {
+        return deType;
+    }
+
+    /**
+     * Liefert die referenzierte Definition.
+     * @return die Definition oder NULL bei DEs.
+     */
+    public SyntaxDef getDef()
+    {
+        return def;
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        return kind+":"+name+"("+type+")";
+    }
+}
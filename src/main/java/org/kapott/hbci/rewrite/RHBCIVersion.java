@@ -22,7 +22,6 @@
 package org.kapott.hbci.rewrite;
 
 import org.kapott.hbci.manager.HBCIUtils;
-import org.kapott.hbci.manager.MsgGen;
 import org.kapott.hbci.status.HBCIMsgStatus;
 
 /** <p>Korrektur fehlender HBCI-Versionsnummern. Einige HBCI-Server
@@ -40,7 +39,7 @@ import org.kapott.hbci.status.HBCIMsgStatus;
 public class RHBCIVersion 
     extends Rewrite
 {
-    public String incomingCrypted(String st,MsgGen gen)
+    public String incomingCrypted(String st,RewriteContext ctx)
     {
         int idx=st.indexOf("+");
         if (idx!=-1) { // + after SegHead found
@@ -48,10 +47,10 @@ public class RHBCIVersion
             if (idx!=-1) { // + after msgsize found
                 int idx2=st.indexOf("+",idx+1);
                 if (idx2!=-1) { // + after hbciversion found
-                    HBCIMsgStatus msgStatus=(HBCIMsgStatus)getData("msgStatus");
-                    String        msgName=(String)getData("msgName");
+                    HBCIMsgStatus msgStatus=ctx.getMsgStatus();
+                    String        msgName=ctx.getMsgName();
                     String        version=st.substring(idx+1,idx2);
-                    String        origVersion=msgStatus.getData().getProperty("orig_"+msgName+".MsgHead.hbciversion");
+                    String        origVersion=msgStatus.getValue("orig_"+msgName+".MsgHead.hbciversion");
                     
                     if (version.length()==0 || version.equals("0")) {
                         HBCIUtils.log("received HBCI version of message ('"+version+"') is incorrect - replacing it with "+origVersion,
@@ -22,13 +22,12 @@
 package org.kapott.hbci.rewrite;
 
 import org.kapott.hbci.manager.HBCIUtils;
-import org.kapott.hbci.manager.MsgGen;
 
 public class RInvalidSegment
     extends Rewrite
 {
     // TODO: msgsize muss angepasst werden
-    public String incomingClearText(String st,MsgGen gen) 
+    public String incomingClearText(String st,RewriteContext ctx) 
     {
         StringBuffer sb=new StringBuffer(st);
 
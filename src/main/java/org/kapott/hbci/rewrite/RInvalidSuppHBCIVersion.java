@@ -24,7 +24,6 @@ package org.kapott.hbci.rewrite;
 import org.kapott.hbci.manager.HBCIUtils;
 import org.kapott.hbci.manager.HBCIUtilsInternal;
 import org.kapott.hbci.manager.HBCIVersion;
-import org.kapott.hbci.manager.MsgGen;
 import org.kapott.hbci.protocol.MSG;
 import org.kapott.hbci.protocol.SyntaxElement;
 import org.kapott.hbci.protocol.factory.MSGFactory;
@@ -35,9 +34,9 @@ import org.kapott.hbci.protocol.factory.MSGFactory;
 public class RInvalidSuppHBCIVersion extends Rewrite
 {
   /**
-   * @see org.kapott.hbci.rewrite.Rewrite#incomingClearText(java.lang.String, org.kapott.hbci.manager.MsgGen)
+   * @see org.kapott.hbci.rewrite.Rewrite#incomingClearText(java.lang.String, org.kapott.hbci.rewrite.RewriteContext)
    */
-  public String incomingClearText(String st, MsgGen gen)
+  public String incomingClearText(String st,RewriteContext ctx)
   {
     // Wir packen das Rewrite in ein try/catch, weil wir hier keine reinen String-Operationen
     // verwenden und nicht 100%ig sichergestellt ist, ob die Nachricht zu diesem Zeitpunkt schon
@@ -49,8 +48,8 @@ public class RInvalidSuppHBCIVersion extends Rewrite
     try
     {
       // empfangene Nachricht parsen, dabei die validvalues-Überprüfung weglassen
-      String myMsgName = (String) getData("msgName") + "Res";
-      msg = MSGFactory.getInstance().createMSG(myMsgName, st, st.length(), gen, MSG.DONT_CHECK_SEQ, MSG.DONT_CHECK_VALIDS);
+      String myMsgName = ctx.getMsgName() + "Res";
+      msg = MSGFactory.getInstance().createMSG(myMsgName, st, st.length(), ctx.getMsgGen(), MSG.DONT_CHECK_SEQ, MSG.DONT_CHECK_VALIDS);
 
       // in einer Schleife durch alle SuppVersions-Datensätze laufen
       // Limiter bei 1000 setzen. "msg.getElement" kann u.U. "this" (=msg) zurueckliefern.
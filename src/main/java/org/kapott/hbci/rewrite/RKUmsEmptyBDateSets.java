@@ -25,7 +25,6 @@ import java.util.Enumeration;
 import java.util.Properties;
 
 import org.kapott.hbci.manager.HBCIUtils;
-import org.kapott.hbci.manager.MsgGen;
 import org.kapott.hbci.protocol.MSG;
 import org.kapott.hbci.protocol.SyntaxElement;
 
@@ -50,7 +49,7 @@ public class RKUmsEmptyBDateSets
         return temp.toString();
     }
 
-    public MSG incomingData(MSG msg,MsgGen gen)
+    public MSG incomingData(MSG msg,RewriteContext ctx)
     {
         String     header="GVRes";
         Properties data=msg.getData();
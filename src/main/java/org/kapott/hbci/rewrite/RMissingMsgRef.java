@@ -23,14 +23,13 @@ package org.kapott.hbci.rewrite;
 
 import org.kapott.hbci.exceptions.HBCI_Exception;
 import org.kapott.hbci.manager.HBCIUtils;
-import org.kapott.hbci.manager.MsgGen;
 import org.kapott.hbci.status.HBCIMsgStatus;
 
 public class RMissingMsgRef
     extends Rewrite
 {
     // TODO: msgsize muss angepasst werden
-    public String incomingCrypted(String st, MsgGen gen) 
+    public String incomingCrypted(String st,RewriteContext ctx) 
     {
         int idx=st.indexOf("'");
         if (idx!=-1) {
@@ -43,9 +42,9 @@ public class RMissingMsgRef
                     HBCIUtils.log("MsgRef is missing, adding it", HBCIUtils.LOG_WARN);
                     String[] des={"dialogid","msgnum"};
                     for (int i=0;i<2;i++) {
-                        HBCIMsgStatus msgStatus=(HBCIMsgStatus)getData("msgStatus");
-                        String        msgName=(String)getData("msgName");
-                        String        temp=(msgStatus.getData().getProperty("orig_"+msgName+".MsgHead."+des[i]));
+                        HBCIMsgStatus msgStatus=ctx.getMsgStatus();
+                        String        msgName=ctx.getMsgName();
+                        String        temp=(msgStatus.getValue("orig_"+msgName+".MsgHead."+des[i]));
                         HBCIUtils.log("setting MsgRef."+des[i]+" to "+temp,HBCIUtils.LOG_WARN);
                         msghead_st+=(i==0?"+":":");
                         msghead_st+=temp;
@@ -25,7 +25,6 @@ import java.util.Iterator;
 
 import org.kapott.hbci.manager.HBCIUtils;
 import org.kapott.hbci.manager.HBCIUtilsInternal;
-import org.kapott.hbci.manager.MsgGen;
 import org.kapott.hbci.protocol.MSG;
 import org.kapott.hbci.protocol.MultipleSyntaxElements;
 import org.kapott.hbci.protocol.SyntaxElement;
@@ -41,9 +40,9 @@ import org.kapott.hbci.protocol.factory.MSGFactory;
 public class RSecTypeTAN extends Rewrite 
 {
     /**
-     * @see org.kapott.hbci.rewrite.Rewrite#incomingClearText(java.lang.String, org.kapott.hbci.manager.MsgGen)
+     * @see org.kapott.hbci.rewrite.Rewrite#incomingClearText(java.lang.String, org.kapott.hbci.rewrite.RewriteContext)
      */
-    public String incomingClearText(String st,MsgGen gen) 
+    public String incomingClearText(String st,RewriteContext ctx) 
     {
       // Wir packen das Rewrite in ein try/catch, weil wir hier keine reinen String-Operationen
       // verwenden und nicht 100%ig sichergestellt ist, ob die Nachricht zu diesem Zeitpunkt schon
@@ -55,8 +54,8 @@ public class RSecTypeTAN extends Rewrite
       try
       {
         // empfangene Nachricht parsen, dabei die validvalues-Überprüfung weglassen
-        String myMsgName = (String)getData("msgName")+"Res";
-        msg = MSGFactory.getInstance().createMSG(myMsgName,st,st.length(),gen,MSG.CHECK_SEQ,MSG.DONT_CHECK_VALIDS);
+        String myMsgName = ctx.getMsgName()+"Res";
+        msg = MSGFactory.getInstance().createMSG(myMsgName,st,st.length(),ctx.getMsgGen(),MSG.CHECK_SEQ,MSG.DONT_CHECK_VALIDS);
         
         // in einer Schleife durch alle SuppSecMethods-Datensätze laufen
         for (int i=0;;i++) {
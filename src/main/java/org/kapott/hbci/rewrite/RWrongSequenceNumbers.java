@@ -22,12 +22,11 @@
 package org.kapott.hbci.rewrite;
 
 import org.kapott.hbci.manager.HBCIUtils;
-import org.kapott.hbci.manager.MsgGen;
 
 public final class RWrongSequenceNumbers
     extends Rewrite
 {
-    public String incomingClearText(String st,MsgGen gen) 
+    public String incomingClearText(String st,RewriteContext ctx) 
     {
         StringBuffer sb=new StringBuffer(st);
 
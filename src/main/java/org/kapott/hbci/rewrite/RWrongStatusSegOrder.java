@@ -27,7 +27,6 @@ import java.util.List;
 import java.util.Properties;
 
 import org.kapott.hbci.manager.HBCIUtils;
-import org.kapott.hbci.manager.MsgGen;
 
 // dieser Rewriter muss *VOR* "WrongSequenceNumbers" ausgeführt werden,
 // weil hierbei u.U. die Segment-Sequenz-Nummern durcheinandergebracht werden
@@ -66,7 +65,7 @@ public class RWrongStatusSegOrder
         return segmentList;
     }
     
-    public String incomingClearText(String st,MsgGen gen)
+    public String incomingClearText(String st,RewriteContext ctx)
     {
         List<Properties> segmentList=createSegmentListFromMessage(st);
         
@@ -26,18 +26,30 @@ import java.util.Hashtable;
 import org.kapott.hbci.manager.MsgGen;
 import org.kapott.hbci.protocol.MSG;
 
+/**
+ * Basisklasse der Rewriter. Die Instanzen werden von der {@link RewriterChain}
+ * einmalig erzeugt und fuer alle Nachrichten und Threads wiederverwendet. Sie
+ * duerfen daher keinen Zustand besitzen; alle Informationen zum aktuellen
+ * Nachrichtenaustausch werden per {@link RewriteContext} uebergeben.
+ * <p>
+ * Rewriter, die noch die frueheren Methoden mit {@link MsgGen}-Parameter
+ * ueberschreiben, funktionieren weiterhin: die neuen Methoden rufen per Default
+ * die alten auf, waehrenddessen liefert {@link #getData(String)} die Daten
+ * aus dem aktuellen {@link RewriteContext}.
+ */
 public abstract class Rewrite
 {
-    private static Hashtable<String,Object> kernelData;
-    
-    static {
-        kernelData=new Hashtable<String, Object>();
-    }
+    private static Hashtable<String,Object> kernelData=new Hashtable<String,Object>();
+    private static final ThreadLocal<RewriteContext> current=new ThreadLocal<RewriteContext>();
     
     protected Rewrite()
     {
     }
     
+    /** @deprecated Die Daten des Nachrichtenaustauschs werden per
+        {@link RewriteContext} uebergeben, der Kernel setzt sie nicht mehr
+        global. */
+    @Deprecated
     public static synchronized void setData(String name,Object value)
     {
         ThreadGroup threadgroup=Thread.currentThread().getThreadGroup();
@@ -45,39 +57,156 @@ public abstract class Rewrite
                        value);
     }
 
-    public static synchronized Object getData(String name)
+    /** Liefert einen Wert des aktuellen Nachrichtenaustauschs (<code>msgName</code>,
+        <code>msgStatus</code>, <code>passports</code>, <code>signIt</code> oder
+        <code>cryptIt</code>). Ist nur innerhalb der alten Rewriter-Methoden mit
+        {@link MsgGen}-Parameter belegt.
+        @deprecated statt dessen {@link RewriteContext} verwenden */
+    @Deprecated
+    public static Object getData(String name)
     {
-        ThreadGroup threadgroup=Thread.currentThread().getThreadGroup();
-        return kernelData.get(threadgroup.getName()+"_"+name);
+        RewriteContext ctx=current.get();
+        if (ctx!=null) {
+            if (name.equals("msgName"))
+                return ctx.getMsgName();
+            if (name.equals("msgStatus"))
+                return ctx.getMsgStatus();
+            if (name.equals("passports"))
+                return ctx.getPassports();
+            if (name.equals("signIt"))
+                return Boolean.valueOf(ctx.isSignIt());
+            if (name.equals("cryptIt"))
+                return Boolean.valueOf(ctx.isCryptIt());
+        }
+        
+        synchronized (Rewrite.class) {
+            ThreadGroup threadgroup=Thread.currentThread().getThreadGroup();
+            return kernelData.get(threadgroup.getName()+"_"+name);
+        }
     }
-
+    
+    /* setzt den Kontext fuer getData() und liefert den vorherigen zurueck */
+    private static RewriteContext enter(RewriteContext ctx)
+    {
+        RewriteContext prev=current.get();
+        current.set(ctx);
+        return prev;
+    }
+    
+    private static void leave(RewriteContext prev)
+    {
+        if (prev!=null)
+            current.set(prev);
+        else
+            current.remove();
+    }
+    
+    private static MsgGen getMsgGen(RewriteContext ctx)
+    {
+        return ctx!=null?ctx.getMsgGen():null;
+    }
+    
+    public MSG outgoingClearText(MSG msg,RewriteContext ctx)
+    {
+        RewriteContext prev=enter(ctx);
+        try {
+            return outgoingClearText(msg,getMsgGen(ctx));
+        } finally {
+            leave(prev);
+        }
+    }
+    
+    public MSG outgoingSigned(MSG msg,RewriteContext ctx)
+    {
+        RewriteContext prev=enter(ctx);
+        try {
+            return outgoingSigned(msg,getMsgGen(ctx));
+        } finally {
+            leave(prev);
+        }
+    }
+    
+    public MSG outgoingCrypted(MSG msg,RewriteContext ctx)
+    {
+        RewriteContext prev=enter(ctx);
+        try {
+            return outgoingCrypted(msg,getMsgGen(ctx));
+        } finally {
+            leave(prev);
+        }
+    }
+    
+    
+    
+    public String incomingCrypted(String st,RewriteContext ctx)
+    {
+        RewriteContext prev=enter(ctx);
+        try {
+            return incomingCrypted(st,getMsgGen(ctx));
+        } finally {
+            leave(prev);
+        }
+    }
+    
+    public String incomingClearText(String st,RewriteContext ctx)
+    {
+        RewriteContext prev=enter(ctx);
+        try {
+            return incomingClearText(st,getMsgGen(ctx));
+        } finally {
+            leave(prev);
+        }
+    }
+    
+    public MSG incomingData(MSG msg,RewriteContext ctx)
+    {
+        RewriteContext prev=enter(ctx);
+        try {
+            return incomingData(msg,getMsgGen(ctx));
+        } finally {
+            leave(prev);
+        }
+    }
+    
+    
+    
+    /** @deprecated statt dessen {@link #outgoingClearText(MSG,RewriteContext)} ueberschreiben */
+    @Deprecated
     public MSG outgoingClearText(MSG msg,MsgGen gen)
     {
         return msg;
     }
     
+    /** @deprecated statt dessen {@link #outgoingSigned(MSG,RewriteContext)} ueberschreiben */
+    @Deprecated
     public MSG outgoingSigned(MSG msg,MsgGen gen)
     {
         return msg;
     }
     
+    /** @deprecated statt dessen {@link #outgoingCrypted(MSG,RewriteContext)} ueberschreiben */
+    @Deprecated
     public MSG outgoingCrypted(MSG msg,MsgGen gen)
     {
         return msg;
     }
     
-    
-    
+    /** @deprecated statt dessen {@link #incomingCrypted(String,RewriteContext)} ueberschreiben */
+    @Deprecated
     public String incomingCrypted(String st,MsgGen gen)
     {
         return st;
     }
     
+    /** @deprecated statt dessen {@link #incomingClearText(String,RewriteContext)} ueberschreiben */
+    @Deprecated
     public String incomingClearText(String st,MsgGen gen)
     {
         return st;
     }
     
+    /** @deprecated statt dessen {@link #incomingData(MSG,RewriteContext)} ueberschreiben */
+    @Deprecated
     public MSG incomingData(MSG msg,MsgGen gen)
     {
         return msg;
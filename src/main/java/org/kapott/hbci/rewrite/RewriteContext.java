@@ -0,0 +1,115 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci.rewrite;
+
+import org.kapott.hbci.manager.MsgGen;
+import org.kapott.hbci.passport.HBCIPassportList;
+import org.kapott.hbci.status.HBCIMsgStatus;
+
+/**
+ * Kontext eines einzelnen Nachrichtenaustauschs, der an die Rewriter uebergeben wird.
+ * Ersetzt die frueher global je ThreadGroup abgelegten Daten aus dem inzwischen
+ * veralteten <code>Rewrite.getData()</code>.
+ */
+public final class RewriteContext
+{
+    private final MsgGen gen;
+    private final String msgName;
+    private final HBCIPassportList passports;
+    private final HBCIMsgStatus msgStatus;
+    private final boolean signIt;
+    private final boolean cryptIt;
+
+    /**
+     * ct.
+     * @param gen der Nachrichten-Generator des Dialogs.
+     * @param msgName Name der gesendeten Nachricht, z.Bsp. "CustomMsg".
+     * @param passports die Passports des Dialogs.
+     * @param msgStatus der Status des Nachrichtenaustauschs.
+     * @param signIt true, wenn die Nachricht signiert wird.
+     * @param cryptIt true, wenn die Nachricht verschluesselt wird.
+     */
+    public RewriteContext(MsgGen gen, String msgName, HBCIPassportList passports, HBCIMsgStatus msgStatus, boolean signIt, boolean cryptIt)
+    {
+        this.gen = gen;
+        this.msgName = msgName;
+        this.passports = passports;
+        this.msgStatus = msgStatus;
+        this.signIt = signIt;
+        this.cryptIt = cryptIt;
+    }
+
+    /**
+     * Liefert den Nachrichten-Generator des Dialogs.
+     * @return der Nachrichten-Generator.
+     */
+    public MsgGen getMsgGen()
+    {
+        return this.gen;
+    }
+
+    /**
+     * Liefert den Namen der gesendeten Nachricht.
+     * @return der Name der gesendeten Nachricht, z.Bsp. "CustomMsg".
+     */
+    public String getMsgName()
+    {
+        return this.msgName;
+    }
+
+    /**
+     * Liefert die Passports des Dialogs.
+     * @return die Passports.
+     */
+    public HBCIPassportList getPassports()
+    {
+        return this.passports;
+    }
+
+    /**
+     * Liefert den Status des Nachrichtenaustauschs.
+     * Dieser enthaelt u.a. die Werte der gesendeten Nachricht.
+     * @return der Status.
+     */
+    public HBCIMsgStatus getMsgStatus()
+    {
+        return this.msgStatus;
+    }
+
+    /**
+     * Liefert true, wenn die Nachricht signiert wird.
+     * @return true, wenn die Nachricht signiert wird.
+     */
+    public boolean isSignIt()
+    {
+        return this.signIt;
+    }
+
+    /**
+     * Liefert true, wenn die Nachricht verschluesselt wird.
+     * @return true, wenn die Nachricht verschluesselt wird.
+     */
+    public boolean isCryptIt()
+    {
+        return this.cryptIt;
+    }
+}
@@ -0,0 +1,249 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci.rewrite;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.StringTokenizer;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.kapott.hbci.exceptions.HBCI_Exception;
+import org.kapott.hbci.manager.HBCIUtils;
+import org.kapott.hbci.protocol.MSG;
+import org.kapott.hbci.protocol.factory.MSGFactory;
+
+/**
+ * Unveraenderliche Kette der im Parameter <code>kernel.rewriter</code> konfigurierten Rewriter.
+ * Die Kette wird pro Konfiguration einmalig erzeugt und anschliessend fuer alle Nachrichten
+ * wiederverwendet. Fuer jede Stufe jedes Rewriters wird die Laufzeit erfasst und im
+ * Log-Level {@link HBCIUtils#LOG_DEBUG2} ausgegeben. Die aufsummierten Laufzeiten koennen
+ * ueber {@link #getTimings()} abgefragt werden.
+ */
+public final class RewriterChain
+{
+    private final static ConcurrentMap<String,RewriterChain> chains = new ConcurrentHashMap<String,RewriterChain>();
+
+    private final List<String> names;
+    private final Rewrite[] rewriters;
+    private final ConcurrentMap<String,LongAdder> timings = new ConcurrentHashMap<String,LongAdder>();
+
+    /**
+     * Eine Stufe der Rewriter.
+     * @param <T> Typ der Nachricht (String oder MSG).
+     */
+    private interface Stage<T>
+    {
+        /**
+         * Fuehrt die Stufe fuer einen Rewriter aus.
+         * @param r der Rewriter.
+         * @param data die Nachricht.
+         * @param ctx der Kontext.
+         * @return die ggf. geaenderte Nachricht.
+         */
+        T apply(Rewrite r, T data, RewriteContext ctx);
+    }
+
+    /**
+     * ct.
+     * @param config kommaseparierte Liste der Rewriter-Namen ohne das Prefix "R".
+     */
+    private RewriterChain(String config)
+    {
+        List<String> names = new ArrayList<String>();
+        List<Rewrite> list = new ArrayList<Rewrite>();
+        StringTokenizer tok = new StringTokenizer(config,",");
+        while (tok.hasMoreTokens())
+        {
+            String name = tok.nextToken().trim();
+            if (name.length() == 0)
+                continue;
+
+            try
+            {
+                Class<?> cl = RewriterChain.class.getClassLoader().loadClass("org.kapott.hbci.rewrite.R" + name);
+                list.add((Rewrite) cl.getConstructor().newInstance());
+                names.add(name);
+            }
+            catch (Exception e)
+            {
+                throw new HBCI_Exception("*** can not load rewriter " + name,e);
+            }
+        }
+        this.names = Collections.unmodifiableList(names);
+        this.rewriters = list.toArray(new Rewrite[list.size()]);
+    }
+
+    /**
+     * Liefert die Kette fuer die aktuelle Konfiguration (Parameter <code>kernel.rewriter</code>).
+     * @return die Kette.
+     */
+    public static RewriterChain getInstance()
+    {
+        return getInstance(HBCIUtils.getConfig().getParam("kernel.rewriter"));
+    }
+
+    /**
+     * Liefert die Kette fuer die angegebene Konfiguration.
+     * @param config kommaseparierte Liste der Rewriter-Namen ohne das Prefix "R". Kann NULL sein.
+     * @return die Kette.
+     */
+    public static RewriterChain getInstance(String config)
+    {
+        if (config == null)
+            config = "";
+
+        RewriterChain chain = chains.get(config);
+        if (chain == null)
+        {
+            chain = new RewriterChain(config);
+            RewriterChain existing = chains.putIfAbsent(config,chain);
+            if (existing != null)
+                chain = existing;
+        }
+        return chain;
+    }
+
+    /**
+     * Liefert die Namen der Rewriter in der Reihenfolge der Ausfuehrung.
+     * @return die Namen der Rewriter ohne das Prefix "R".
+     */
+    public List<String> getNames()
+    {
+        return this.names;
+    }
+
+    /**
+     * Liefert die bisher aufsummierten Laufzeiten.
+     * @return Map mit "&lt;Rewriter&gt;.&lt;Stufe&gt;" (z.Bsp. "KUmsDelimiters.incomingData")
+     * und der Laufzeit in Nanosekunden.
+     */
+    public Map<String,Long> getTimings()
+    {
+        Map<String,Long> result = new TreeMap<String,Long>();
+        for (Map.Entry<String,LongAdder> e:this.timings.entrySet())
+        {
+            result.put(e.getKey(),e.getValue().sum());
+        }
+        return result;
+    }
+
+    /**
+     * @see Rewrite#outgoingClearText(MSG, RewriteContext)
+     */
+    public MSG outgoingClearText(MSG msg, RewriteContext ctx)
+    {
+        return this.runMsg("outgoingClearText",Rewrite::outgoingClearText,msg,ctx);
+    }
+
+    /**
+     * @see Rewrite#outgoingSigned(MSG, RewriteContext)
+     */
+    public MSG outgoingSigned(MSG msg, RewriteContext ctx)
+    {
+        return this.runMsg("outgoingSigned",Rewrite::outgoingSigned,msg,ctx);
+    }
+
+    /**
+     * @see Rewrite#outgoingCrypted(MSG, RewriteContext)
+     */
+    public MSG outgoingCrypted(MSG msg, RewriteContext ctx)
+    {
+        return this.runMsg("outgoingCrypted",Rewrite::outgoingCrypted,msg,ctx);
+    }
+
+    /**
+     * @see Rewrite#incomingCrypted(String, RewriteContext)
+     */
+    public String incomingCrypted(String st, RewriteContext ctx)
+    {
+        return this.run("incomingCrypted",Rewrite::incomingCrypted,st,ctx);
+    }
+
+    /**
+     * @see Rewrite#incomingClearText(String, RewriteContext)
+     */
+    public String incomingClearText(String st, RewriteContext ctx)
+    {
+        return this.run("incomingClearText",Rewrite::incomingClearText,st,ctx);
+    }
+
+    /**
+     * @see Rewrite#incomingData(MSG, RewriteContext)
+     */
+    public MSG incomingData(MSG msg, RewriteContext ctx)
+    {
+        return this.runMsg("incomingData",Rewrite::incomingData,msg,ctx);
+    }
+
+    /**
+     * Fuehrt eine Stufe fuer Nachrichten-Objekte aus. Ersetzte Nachrichten werden
+     * an den Objekt-Pool zurueckgegeben.
+     * @param name Name der Stufe.
+     * @param stage die Stufe.
+     * @param msg die Nachricht.
+     * @param ctx der Kontext.
+     * @return die ggf. ersetzte Nachricht.
+     */
+    private MSG runMsg(String name, Stage<MSG> stage, MSG msg, RewriteContext ctx)
+    {
+        return this.run(name,(r,old,c) -> {
+            MSG result = stage.apply(r,old,c);
+            if (result != old)
+                MSGFactory.getInstance().unuseObject(old);
+            return result;
+        },msg,ctx);
+    }
+
+    /**
+     * Fuehrt eine Stufe fuer alle Rewriter aus und erfasst die Laufzeiten.
+     * @param name Name der Stufe.
+     * @param stage die Stufe.
+     * @param data die Nachricht.
+     * @param ctx der Kontext.
+     * @return die ggf. geaenderte Nachricht.
+     */
+    private <T> T run(String name, Stage<T> stage, T data, RewriteContext ctx)
+    {
+        for (int i=0;i<this.rewriters.length;i++)
+        {
+            long start = System.nanoTime();
+            data = stage.apply(this.rewriters[i],data,ctx);
+            long used = System.nanoTime() - start;
+
+            final String key = this.names.get(i) + "." + name;
+            LongAdder total = this.timings.get(key);
+            if (total == null)
+            {
+                this.timings.putIfAbsent(key,new LongAdder());
+                total = this.timings.get(key);
+            }
+            total.add(used);
+            HBCIUtils.log(() -> "rewriter " + key + " took " + (used / 1000L) + " micros",HBCIUtils.LOG_DEBUG2);
+        }
+        return data;
+    }
+}
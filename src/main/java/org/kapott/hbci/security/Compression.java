@@ -0,0 +1,283 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci.security;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.kapott.hbci.exceptions.HBCI_Exception;
+import org.kapott.hbci.manager.HBCIUtils;
+import org.kapott.hbci.passport.AbstractPinTanPassport;
+import org.kapott.hbci.passport.HBCIPassportInternal;
+import org.kapott.hbci.tools.IOUtils;
+
+/**
+ * Implementierung der Komprimierungsfunktionen (DE "compfunc" im Verschluesselungskopf).
+ * Die Nutzdaten werden vor der Verschluesselung komprimiert, wenn dies per
+ * {@link #PARAM_MINSIZE} aktiviert ist und die Bank laut BPD (Segment HIKPV) eine
+ * der unterstuetzten Funktionen anbietet. Bei PIN/TAN wird nie komprimiert.
+ * Unterstuetzt werden "5" (ZIP) und "6" (deflate).
+ */
+public final class Compression
+{
+    /**
+     * Keine Kompression.
+     */
+    public final static String COMPFUNC_NONE = "0";
+    
+    /**
+     * PKZIP.
+     */
+    public final static String COMPFUNC_ZIP = "5";
+    
+    /**
+     * deflate im zlib-Format. Beim Dekomprimieren werden auch GZIP und rohes deflate akzeptiert.
+     */
+    public final static String COMPFUNC_DEFLATE = "6";
+    
+    /**
+     * Parameter mit der Mindestgroesse der Nutzdaten in Bytes, ab der komprimiert wird.
+     * Werte kleiner oder gleich 0 (Default) deaktivieren die Kompression.
+     */
+    public final static String PARAM_MINSIZE = "client.compression.minsize";
+    
+    /**
+     * Parameter mit der maximalen Groesse dekomprimierter Daten in Bytes.
+     */
+    public final static String PARAM_MAXSIZE = "client.compression.maxsize";
+    
+    /**
+     * Default-Wert fuer {@link #PARAM_MAXSIZE}: 64 MB.
+     */
+    public final static int MAXSIZE_DEFAULT = 64 * 1024 * 1024;
+    
+    // Die von uns bevorzugten Funktionen in absteigender Reihenfolge
+    private final static String[] PREFERRED = {COMPFUNC_DEFLATE,COMPFUNC_ZIP};
+    
+    // Name des Eintrages im ZIP-Archiv
+    private final static String ZIP_ENTRY = "msg";
+    
+    /**
+     * ct.
+     */
+    private Compression()
+    {
+    }
+    
+    /**
+     * Prueft, ob die angegebene Komprimierungsfunktion unterstuetzt wird.
+     * @param func die Komprimierungsfunktion.
+     * @return true, wenn sie unterstuetzt wird.
+     */
+    public static boolean isSupported(String func)
+    {
+        if (COMPFUNC_NONE.equals(func))
+            return true;
+        
+        for (String s:PREFERRED)
+        {
+            if (s.equals(func))
+                return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Ermittelt die zu verwendende Komprimierungsfunktion fuer das Passport.
+     * Bei PIN/TAN werden die Nutzdaten nicht verschluesselt. Eine Kompression
+     * spart dort nur wenig und wird daher nicht verwendet.
+     * @param passport das Passport.
+     * @param size Groesse der Nutzdaten in Bytes.
+     * @return die Komprimierungsfunktion. {@link #COMPFUNC_NONE}, wenn nicht komprimiert werden soll.
+     */
+    public static String select(HBCIPassportInternal passport, int size)
+    {
+        if (passport instanceof AbstractPinTanPassport)
+            return COMPFUNC_NONE;
+        
+        return select(passport.getSuppCompMethods(),size);
+    }
+    
+    /**
+     * Ermittelt die zu verwendende Komprimierungsfunktion.
+     * @param supported die laut BPD von der Bank unterstuetzten Funktionen (siehe
+     * {@link org.kapott.hbci.passport.HBCIPassport#getSuppCompMethods()}).
+     * @param size Groesse der Nutzdaten in Bytes.
+     * @return die Komprimierungsfunktion. {@link #COMPFUNC_NONE}, wenn nicht komprimiert werden soll.
+     */
+    public static String select(String[][] supported, int size)
+    {
+        if (supported == null || supported.length == 0)
+            return COMPFUNC_NONE;
+        
+        final int minsize = HBCIUtils.getConfig().getInt(PARAM_MINSIZE,0);
+        if (minsize <= 0 || size < minsize)
+            return COMPFUNC_NONE;
+        
+        for (String func:PREFERRED)
+        {
+            for (String[] entry:supported)
+            {
+                if (func.equals(entry[0]))
+                    return func;
+            }
+        }
+        return COMPFUNC_NONE;
+    }
+    
+    /**
+     * Komprimiert die Daten.
+     * @param func die Komprimierungsfunktion.
+     * @param data die Daten.
+     * @return die komprimierten Daten.
+     */
+    public static byte[] compress(String func, byte[] data)
+    {
+        if (COMPFUNC_NONE.equals(func))
+            return data;
+        
+        try
+        {
+            final ByteArrayOutputStream bos = new ByteArrayOutputStream(data.length / 2 + 64);
+            if (COMPFUNC_DEFLATE.equals(func))
+            {
+                OutputStream os = new DeflaterOutputStream(bos);
+                os.write(data);
+                os.close();
+            }
+            else if (COMPFUNC_ZIP.equals(func))
+            {
+                ZipOutputStream os = new ZipOutputStream(bos);
+                os.putNextEntry(new ZipEntry(ZIP_ENTRY));
+                os.write(data);
+                os.closeEntry();
+                os.close();
+            }
+            else
+            {
+                throw new HBCI_Exception("*** compression function " + func + " not supported");
+            }
+            
+            final byte[] result = bos.toByteArray();
+            HBCIUtils.log("compressed " + data.length + " bytes to " + result.length + " bytes using compfunc " + func,HBCIUtils.LOG_DEBUG);
+            return result;
+        }
+        catch (IOException e)
+        {
+            throw new HBCI_Exception("*** error while compressing",e);
+        }
+    }
+    
+    /**
+     * Dekomprimiert die Daten.
+     * @param func die Komprimierungsfunktion.
+     * @param data die komprimierten Daten.
+     * @return die dekomprimierten Daten.
+     * @throws HBCI_Exception wenn die dekomprimierten Daten groesser als {@link #PARAM_MAXSIZE} sind.
+     */
+    public static byte[] decompress(String func, byte[] data)
+    {
+        if (COMPFUNC_NONE.equals(func))
+            return data;
+        
+        try
+        {
+            byte[] result;
+            if (COMPFUNC_DEFLATE.equals(func))
+            {
+                if (data.length > 1 && (data[0] & 0xff) == 0x1f && (data[1] & 0xff) == 0x8b)
+                {
+                    result = read(new GZIPInputStream(new ByteArrayInputStream(data)));
+                }
+                else
+                {
+                    try
+                    {
+                        result = read(new InflaterInputStream(new ByteArrayInputStream(data)));
+                    }
+                    catch (ZipException e)
+                    {
+                        // Kein zlib-Header, dann versuchen wir es als rohes deflate
+                        result = read(new InflaterInputStream(new ByteArrayInputStream(data),new Inflater(true)));
+                    }
+                }
+            }
+            else if (COMPFUNC_ZIP.equals(func))
+            {
+                ZipInputStream is = new ZipInputStream(new ByteArrayInputStream(data));
+                if (is.getNextEntry() == null)
+                    throw new HBCI_Exception("*** compressed data contains no zip entry");
+                result = read(is);
+            }
+            else
+            {
+                throw new HBCI_Exception("*** compression function " + func + " not supported");
+            }
+            
+            HBCIUtils.log("decompressed " + data.length + " bytes to " + result.length + " bytes using compfunc " + func,HBCIUtils.LOG_DEBUG);
+            return result;
+        }
+        catch (IOException e)
+        {
+            throw new HBCI_Exception("*** error while decompressing",e);
+        }
+    }
+    
+    /**
+     * Liest den Stream komplett und schliesst ihn.
+     * @param is der Stream.
+     * @return die gelesenen Daten.
+     * @throws IOException
+     */
+    private static byte[] read(InputStream is) throws IOException
+    {
+        final int maxsize = HBCIUtils.getConfig().getInt(PARAM_MAXSIZE,MAXSIZE_DEFAULT);
+        try
+        {
+            final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            final byte[] buf = new byte[8192];
+            int read;
+            while ((read = is.read(buf)) != -1)
+            {
+                if (maxsize > 0 && (long) bos.size() + read > maxsize)
+                    throw new HBCI_Exception("*** decompressed data exceeds " + maxsize + " bytes");
+                bos.write(buf,0,read);
+            }
+            return bos.toByteArray();
+        }
+        finally
+        {
+            IOUtils.close(is);
+        }
+    }
+}
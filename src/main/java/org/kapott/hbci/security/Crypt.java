@@ -22,6 +22,7 @@
 package org.kapott.hbci.security;
 
 import java.lang.reflect.Field;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
@@ -37,8 +38,7 @@ import org.kapott.hbci.protocol.MultipleSEGs;
 import org.kapott.hbci.protocol.MultipleSyntaxElements;
 import org.kapott.hbci.protocol.SEG;
 import org.kapott.hbci.protocol.SyntaxElement;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
+import org.kapott.hbci.protocol.syntax.SyntaxDef;
 
 public final class Crypt
 {
@@ -112,19 +112,21 @@ public final class Crypt
                 ret.append(childs.get(i).toString(0));
             }
 
-            // pad message
-            int padLength=8-(ret.length()%8);
-            for (int i=0;i<padLength-1;i++) {
-                ret.append((char)(0));
-            }
-            ret.append((char)(padLength));
-
             return ret.toString().getBytes(Comm.ENCODING);
         } catch (Exception ex) {
             throw new HBCI_Exception("*** error while extracting plain message string",ex);
         }
     }
 
+    private byte[] pad(byte[] data)
+    {
+        // pad message
+        int    padLength=8-(data.length%8);
+        byte[] ret=Arrays.copyOf(data,data.length+padLength);
+        ret[ret.length-1]=(byte)padLength;
+        return ret;
+    }
+
     public MSG cryptIt(String newName)
     {
         MSG                  newmsg=msg;
@@ -133,10 +135,9 @@ public final class Crypt
         if (passport.hasInstEncKey()) {
             String msgName = msg.getName();
             MsgGen gen=handlerdata.getMsgGen();
-            Node msgNode = msg.getSyntaxDef(msgName, gen.getSyntax());
-            String dontcryptAttr = ((Element)msgNode).getAttribute("dontcrypt");
+            SyntaxDef msgDef = msg.getSyntaxDef(msgName, gen.getSyntax());
 
-            if (dontcryptAttr.length() == 0) {
+            if (!msgDef.isDontCrypt()) {
                 try {
                     setParam("secfunc",passport.getCryptFunction());
                     setParam("keytype",passport.getCryptKeyType());
@@ -150,9 +151,22 @@ public final class Crypt
                     setParam("role","1");
                     setParam("alg",passport.getCryptAlg());
                     setParam("mode",passport.getCryptMode());
-                    setParam("compfunc","0"); // TODO: spaeter kompression implementieren
 
-                    byte[][] crypteds=passport.encrypt(getPlainString());
+                    // nutzdaten ggf. vor dem verschluesseln komprimieren
+                    byte[] plain=getPlainString();
+                    String compfunc=Compression.select(passport,plain.length);
+                    if (!compfunc.equals(Compression.COMPFUNC_NONE)) {
+                        byte[] compressed=Compression.compress(compfunc,plain);
+                        if (compressed.length<plain.length) {
+                            plain=compressed;
+                        } else {
+                            HBCIUtils.log("compression does not reduce message size, sending uncompressed",HBCIUtils.LOG_DEBUG);
+                            compfunc=Compression.COMPFUNC_NONE;
+                        }
+                    }
+                    setParam("compfunc",compfunc);
+
+                    byte[][] crypteds=passport.encrypt(pad(plain));
 
                     String msgPath=msg.getPath();
                     String dialogid=msg.getValueOfDE(msgPath+".MsgHead.dialogid");
@@ -311,12 +325,13 @@ public final class Crypt
                     }
                     */
 
-                    // TODO spaeter kompression implementieren
                     String compfunc=crypthead.getValueOfDE(msgName+".CryptHead.compfunc");
-                    if (!compfunc.equals("0")) {
+                    boolean decompress=!compfunc.equals(Compression.COMPFUNC_NONE);
+                    if (decompress && !Compression.isSupported(compfunc)) {
                         String errmsg=HBCIUtilsInternal.getLocMsg("EXCMSG_CRYPTCOMPFUNCFAIL",compfunc);
                         if (!HBCIUtilsInternal.ignoreError(null,"client.errors.ignoreCryptErrors",errmsg))
                             throw new HBCI_Exception(errmsg);
+                        decompress=false;
                     }
                     
                     // TODO: hier auch die DEG SecProfile lesen und überprüfen
@@ -328,10 +343,19 @@ public final class Crypt
                     // fo.write(plainMsg);
                     // fo.close();
 
+                    // nutzdaten ggf. dekomprimieren
+                    String plain;
+                    if (decompress) {
+                        byte[] data=Compression.decompress(compfunc,Arrays.copyOf(plainMsg,plainMsg.length-padLength));
+                        plain=new String(data,Comm.ENCODING);
+                    } else {
+                        plain=new String(plainMsg,0,plainMsg.length-padLength,Comm.ENCODING);
+                    }
+
                     // neuen nachrichtenstring zusammenbauen
                     ret=new StringBuffer(1024);
                     ret.append(msghead.toString(0)).
-                        append(new String(plainMsg,0,plainMsg.length-padLength,Comm.ENCODING)).
+                        append(plain).
                         append(msgtail.toString(0));
                     
                     HBCIUtils.log("decrypted message: "+ret,HBCIUtils.LOG_DEBUG2);
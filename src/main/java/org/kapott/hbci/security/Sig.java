@@ -41,8 +41,7 @@ import org.kapott.hbci.protocol.MultipleSyntaxElements;
 import org.kapott.hbci.protocol.SEG;
 import org.kapott.hbci.protocol.SyntaxElement;
 import org.kapott.hbci.protocol.factory.SEGFactory;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
+import org.kapott.hbci.protocol.syntax.SyntaxDef;
 
 public final class Sig
 {
@@ -244,10 +243,9 @@ public final class Sig
         if (mainPassport.hasMySigKey()) {
             String msgName = msg.getName();
             MsgGen gen=handlerdata.getMsgGen();
-            Node   msgNode = msg.getSyntaxDef(msgName, gen.getSyntax());
-            String dontsignAttr = ((Element)msgNode).getAttribute("dontsign");
+            SyntaxDef msgDef = msg.getSyntaxDef(msgName, gen.getSyntax());
 
-            if (dontsignAttr.length()==0) {
+            if (!msgDef.isDontSign()) {
                 try {
                     int numOfPassports=passports.size();
                     
@@ -509,10 +507,9 @@ public final class Sig
         if (mainPassport.hasInstSigKey()) {
             String msgName = msg.getName();
             MsgGen gen=handlerdata.getMsgGen();
-            Node msgNode = msg.getSyntaxDef(msgName, gen.getSyntax());
-            String dontsignAttr = ((Element)msgNode).getAttribute("dontsign");
+            SyntaxDef msgDef = msg.getSyntaxDef(msgName, gen.getSyntax());
 
-            if (dontsignAttr.length()==0) {
+            if (!msgDef.isDontSign()) {
                 if (hasSig()) {
                     readSigHead();
                     try {
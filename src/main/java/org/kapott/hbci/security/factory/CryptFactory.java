@@ -43,7 +43,7 @@ public class CryptFactory
     
     private CryptFactory()
     {
-    	super(Integer.parseInt(HBCIUtils.getParam("kernel.objpool.Crypt","8")));
+    	super(HBCIUtils.getConfig().getObjPoolSize("Crypt",8));
     }
     
     public Crypt createCrypt(IHandlerData handlerdata, MSG msg)
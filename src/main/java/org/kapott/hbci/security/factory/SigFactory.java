@@ -43,7 +43,7 @@ public class SigFactory
     
     private SigFactory()
     {
-    	super(Integer.parseInt(HBCIUtils.getParam("kernel.objpool.Sig","8")));
+    	super(HBCIUtils.getConfig().getObjPoolSize("Sig",8));
     }
     
     public Sig createSig(IHandlerData handlerdata, MSG msg, HBCIPassportList passports)
@@ -0,0 +1,317 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci.sepa;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import javax.xml.XMLConstants;
+import javax.xml.bind.DataBindingException;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.transform.Source;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+
+import org.kapott.hbci.exceptions.HBCI_Exception;
+
+/**
+ * Prozessweiter Cache fuer die beim Erzeugen von SEPA-XML benoetigten JAXB-Objekte.
+ * Der {@link JAXBContext} wird je Bean-Typ (und damit je {@link SepaVersion}) nur einmal
+ * erzeugt, das XSD-Schema je Datei nur einmal kompiliert. Beide sind thread-safe.
+ * Da ein {@link Marshaller} nicht thread-safe ist, werden diese in einem Pool je
+ * Context vorgehalten und per {@link #borrowMarshaller(Class)} und
+ * {@link #returnMarshaller(Class, Marshaller)} exklusiv ausgeliehen.
+ * Die SEPA-Parser lesen ihre Dokumente per {@link #unmarshal(InputStream, Class)}
+ * ebenfalls ueber den gecachten Context.
+ *
+ * Wie die SEPA-Generatoren funktioniert auch diese Klasse ohne initialisiertes HBCI-System
+ * und verwendet daher das Java-Logging.
+ */
+public final class SepaJAXBCache
+{
+    private final static Logger LOG = Logger.getLogger(SepaJAXBCache.class.getName());
+
+    private static SepaJAXBCache instance;
+
+    private final ConcurrentMap<Class<?>,JAXBContext>      contexts    = new ConcurrentHashMap<Class<?>,JAXBContext>();
+    private final ConcurrentMap<String,Schema>             schemas     = new ConcurrentHashMap<String,Schema>();
+    private final ConcurrentMap<Class<?>,Queue<Marshaller>> marshallers = new ConcurrentHashMap<Class<?>,Queue<Marshaller>>();
+
+    private final AtomicLong contextHits     = new AtomicLong();
+    private final AtomicLong contextLoads    = new AtomicLong();
+    private final AtomicLong schemaHits      = new AtomicLong();
+    private final AtomicLong schemaLoads     = new AtomicLong();
+    private final AtomicLong marshallerHits  = new AtomicLong();
+    private final AtomicLong marshallerLoads = new AtomicLong();
+
+    /**
+     * Liefert die Singleton-Instanz des Caches.
+     * @return die Singleton-Instanz.
+     */
+    public static synchronized SepaJAXBCache getInstance()
+    {
+        if (instance == null)
+            instance = new SepaJAXBCache();
+        return instance;
+    }
+
+    /**
+     * ct.
+     */
+    private SepaJAXBCache()
+    {
+    }
+
+    /**
+     * Liefert den JAXB-Context fuer den angegebenen Bean-Typ.
+     * @param type der Bean-Typ.
+     * @return der JAXB-Context.
+     * @throws JAXBException
+     */
+    public JAXBContext getContext(Class<?> type) throws JAXBException
+    {
+        JAXBContext ctx = this.contexts.get(type);
+        if (ctx != null)
+        {
+            this.contextHits.incrementAndGet();
+            return ctx;
+        }
+
+        // Schlimmstenfalls wird der Context bei gleichzeitigen Zugriffen doppelt
+        // erzeugt. Verwendet wird aber immer nur der zuerst eingetragene.
+        LOG.fine("creating JAXB context for " + type.getName());
+        ctx = JAXBContext.newInstance(type);
+        this.contextLoads.incrementAndGet();
+        JAXBContext prev = this.contexts.putIfAbsent(type,ctx);
+        return prev != null ? prev : ctx;
+    }
+
+    /**
+     * Liefert das kompilierte XSD-Schema.
+     * Die Datei wird zuerst im Classpath und anschliessend im Dateisystem gesucht.
+     * @param file Name der XSD-Datei (siehe {@link SepaVersion#getFile()}).
+     * @param loader der Classloader, ueber den die Datei gesucht wird.
+     * @return das kompilierte Schema.
+     * @throws Exception
+     */
+    public Schema getSchema(String file, ClassLoader loader) throws Exception
+    {
+        Schema schema = this.schemas.get(file);
+        if (schema != null)
+        {
+            this.schemaHits.incrementAndGet();
+            return schema;
+        }
+
+        Source source  = null;
+        InputStream is = loader.getResourceAsStream(file);
+
+        if (is != null)
+        {
+            source = new StreamSource(is);
+        }
+        else
+        {
+            // Fallback auf File-Objekt
+            File f = new File(file);
+            if (f.isFile() && f.canRead())
+                source = new StreamSource(f);
+        }
+
+        if (source == null)
+            throw new HBCI_Exception("schema validation activated against " + file + " - but schema file could not be found");
+
+        try
+        {
+            LOG.fine("compiling schema " + file);
+            SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+            schema = schemaFactory.newSchema(source);
+            this.schemaLoads.incrementAndGet();
+        }
+        finally
+        {
+            if (is != null)
+                is.close();
+        }
+
+        Schema prev = this.schemas.putIfAbsent(file,schema);
+        return prev != null ? prev : schema;
+    }
+
+    /**
+     * Leiht einen Marshaller fuer den angegebenen Bean-Typ aus.
+     * Der Marshaller darf bis zur Rueckgabe per {@link #returnMarshaller(Class, Marshaller)}
+     * nur vom Aufrufer verwendet werden. Da die Properties des vorherigen Ausleihers erhalten
+     * bleiben, muss der Aufrufer alle benoetigten Properties und das Schema selbst setzen.
+     * @param type der Bean-Typ.
+     * @return der Marshaller.
+     * @throws JAXBException
+     */
+    public Marshaller borrowMarshaller(Class<?> type) throws JAXBException
+    {
+        Queue<Marshaller> pool = this.marshallers.get(type);
+        Marshaller m = pool != null ? pool.poll() : null;
+        if (m != null)
+        {
+            this.marshallerHits.incrementAndGet();
+            return m;
+        }
+
+        m = this.getContext(type).createMarshaller();
+        this.marshallerLoads.incrementAndGet();
+        return m;
+    }
+
+    /**
+     * Gibt einen per {@link #borrowMarshaller(Class)} ausgeliehenen Marshaller zurueck.
+     * @param type der Bean-Typ.
+     * @param m der Marshaller.
+     */
+    public void returnMarshaller(Class<?> type, Marshaller m)
+    {
+        Queue<Marshaller> pool = this.marshallers.get(type);
+        if (pool == null)
+        {
+            pool = new ConcurrentLinkedQueue<Marshaller>();
+            Queue<Marshaller> prev = this.marshallers.putIfAbsent(type,pool);
+            if (prev != null)
+                pool = prev;
+        }
+        pool.offer(m);
+    }
+
+    /**
+     * Liest ein XML-Dokument ueber den gecachten JAXB-Context ein.
+     * Ersatz fuer {@link javax.xml.bind.JAXB#unmarshal(InputStream, Class)}, welches
+     * nur den zuletzt verwendeten Context vorhaelt und daher bei wechselnden
+     * SEPA-Versionen den Context immer wieder neu erzeugt.
+     * @param xml der Stream mit dem XML-Dokument.
+     * @param type der Bean-Typ des Dokuments.
+     * @return das Dokument.
+     * @throws DataBindingException wie bei {@link javax.xml.bind.JAXB#unmarshal(InputStream, Class)}.
+     */
+    public <T> T unmarshal(InputStream xml, Class<T> type)
+    {
+        try
+        {
+            // Unmarshaller sind billig im Vergleich zum Context. Daher kein Pool
+            Unmarshaller u = this.getContext(type).createUnmarshaller();
+            return u.unmarshal(new StreamSource(xml),type).getValue();
+        }
+        catch (JAXBException e)
+        {
+            throw new DataBindingException(e);
+        }
+    }
+
+    /**
+     * Entfernt alle Contexte, Schemas und Marshaller aus dem Cache.
+     */
+    public void clear()
+    {
+        this.marshallers.clear();
+        this.schemas.clear();
+        this.contexts.clear();
+    }
+
+    /**
+     * Liefert die Anzahl der Abrufe des JAXB-Context, die aus dem Cache bedient werden konnten.
+     * @return die Anzahl der Cache-Treffer.
+     */
+    public long getContextHits()
+    {
+        return this.contextHits.get();
+    }
+
+    /**
+     * Liefert die Anzahl der erzeugten JAXB-Contexte.
+     * @return die Anzahl der erzeugten Contexte.
+     */
+    public long getContextLoads()
+    {
+        return this.contextLoads.get();
+    }
+
+    /**
+     * Liefert die Anzahl der Abrufe von Schemas, die aus dem Cache bedient werden konnten.
+     * @return die Anzahl der Cache-Treffer.
+     */
+    public long getSchemaHits()
+    {
+        return this.schemaHits.get();
+    }
+
+    /**
+     * Liefert die Anzahl der kompilierten Schemas.
+     * @return die Anzahl der kompilierten Schemas.
+     */
+    public long getSchemaLoads()
+    {
+        return this.schemaLoads.get();
+    }
+
+    /**
+     * Liefert die Anzahl der wiederverwendeten Marshaller.
+     * @return die Anzahl der Cache-Treffer.
+     */
+    public long getMarshallerHits()
+    {
+        return this.marshallerHits.get();
+    }
+
+    /**
+     * Liefert die Anzahl der neu erzeugten Marshaller.
+     * @return die Anzahl der erzeugten Marshaller.
+     */
+    public long getMarshallerLoads()
+    {
+        return this.marshallerLoads.get();
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        StringBuffer ret = new StringBuffer();
+        ret.append("contexts:").append(this.contexts.size())
+           .append(" hits:").append(this.getContextHits())
+           .append(" loads:").append(this.getContextLoads())
+           .append(", schemas:").append(this.schemas.size())
+           .append(" hits:").append(this.getSchemaHits())
+           .append(" loads:").append(this.getSchemaLoads())
+           .append(", marshallers hits:").append(this.getMarshallerHits())
+           .append(" loads:").append(this.getMarshallerLoads());
+        return ret.toString();
+    }
+}
@@ -37,7 +37,9 @@ import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 
 import org.kapott.hbci.GV.generators.ISEPAGenerator;
+import org.kapott.hbci.GV.generators.SEPAGeneratorFactory;
 import org.kapott.hbci.GV.parsers.ISEPAParser;
+import org.kapott.hbci.GV.parsers.SEPAParserFactory;
 import org.kapott.hbci.comm.Comm;
 import org.kapott.hbci.manager.HBCIUtils;
 import org.w3c.dom.Document;
@@ -319,9 +321,13 @@ public class SepaVersion implements Comparable<SepaVersion>
      */
     public boolean canGenerate(String jobName)
     {
+        String className = this.getGeneratorClass(jobName);
+        if (SEPAGeneratorFactory.contains(className))
+            return true;
+        
         try
         {
-            Class.forName(this.getGeneratorClass(jobName));
+            Class.forName(className);
             return true;
         }
         catch (ClassNotFoundException e)
@@ -337,9 +343,13 @@ public class SepaVersion implements Comparable<SepaVersion>
      */
     public boolean canParse()
     {
+        String className = this.getParserClass();
+        if (SEPAParserFactory.contains(className))
+            return true;
+        
         try
         {
-            Class.forName(this.getParserClass());
+            Class.forName(className);
             return true;
         }
         catch (ClassNotFoundException e)
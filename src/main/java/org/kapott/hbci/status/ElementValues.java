@@ -0,0 +1,145 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) 2001-2008 Stefan Palme
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+
+package org.kapott.hbci.status;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.kapott.hbci.protocol.DE;
+import org.kapott.hbci.protocol.MultipleSyntaxElements;
+import org.kapott.hbci.protocol.SyntaxElement;
+
+/* Kompakter Schnappschuss der Werte aller gueltigen DEs unterhalb eines
+   Syntaxelementes. Es werden nur die Pfade der DEs und die Werte als
+   Strings gehalten, Keys mit Prefix oder ohne Nachrichten-Name werden erst
+   beim Kopieren in copyTo() bzw. toMap() erzeugt. */
+final class ElementValues
+{
+    private String[] paths=new String[16];
+    private String[] values=new String[16];
+    private int      size;
+
+    /** Uebernimmt die Werte aller gueltigen DEs unterhalb von <code>e</code>
+        (entspricht {@link SyntaxElement#extractValues(java.util.Hashtable)}). */
+    static ElementValues of(SyntaxElement e)
+    {
+        ElementValues ret=new ElementValues();
+        ret.collect(e);
+        return ret;
+    }
+
+    private void collect(SyntaxElement e)
+    {
+        if (e instanceof DE) {
+            if (e.isValid())
+                add(e.getPath(),((DE)e).getValue().toString());
+            return;
+        }
+
+        for (MultipleSyntaxElements l:e.getChildContainers()) {
+            if (l==null)
+                continue;
+
+            for (SyntaxElement child:l.getElements()) {
+                if (child!=null)
+                    collect(child);
+            }
+        }
+    }
+
+    private void add(String path,String value)
+    {
+        if (size==paths.length) {
+            paths=Arrays.copyOf(paths,size<<1);
+            values=Arrays.copyOf(values,size<<1);
+        }
+        paths[size]=path;
+        values[size++]=value;
+    }
+
+    /** Liefert den Wert zum vollstaendigen Pfad <code>path</code>. */
+    String get(String path)
+    {
+        for (int i=0;i<size;i++) {
+            if (paths[i].equals(path))
+                return values[i];
+        }
+        return null;
+    }
+
+    /** Liefert den Wert zum Pfad <code>parent+"."+name</code>, ohne diesen
+        Pfad zu erzeugen. */
+    String get(String parent,String name)
+    {
+        int len=parent.length()+1+name.length();
+        for (int i=0;i<size;i++) {
+            String path=paths[i];
+            if (path.length()==len &&
+                path.endsWith(name) &&
+                path.charAt(parent.length())=='.' &&
+                path.startsWith(parent))
+            {
+                return values[i];
+            }
+        }
+        return null;
+    }
+
+    /** Kopiert die Werte nach <code>p</code>. Die Keys ergeben sich aus
+        <code>keyprefix</code> und dem Pfad ohne die ersten <code>nameskip</code>
+        Zeichen; uebernommen werden nur Keys, die mit <code>prefix</code> beginnen
+        (<code>null</code> fuer alle). */
+    void copyTo(Properties p,int nameskip,String keyprefix,String prefix)
+    {
+        for (int i=0;i<size;i++) {
+            String path=paths[i];
+            if (matches(path,nameskip,keyprefix,prefix))
+                p.setProperty(keyprefix+path.substring(nameskip),values[i]);
+        }
+    }
+
+    private static boolean matches(String path,int nameskip,String keyprefix,String prefix)
+    {
+        if (prefix==null)
+            return true;
+
+        int skip=keyprefix.length();
+        if (prefix.length()<=skip)
+            return keyprefix.startsWith(prefix);
+
+        return prefix.startsWith(keyprefix) &&
+               path.regionMatches(nameskip,prefix,skip,prefix.length()-skip);
+    }
+
+    /** Liefert die Werte mit den vollstaendigen Pfaden als Keys. */
+    Map<String,String> toMap()
+    {
+        Map<String,String> ret=new HashMap<String,String>(size*4/3+1);
+        for (int i=0;i<size;i++) {
+            ret.put(paths[i],values[i]);
+        }
+        return ret;
+    }
+}
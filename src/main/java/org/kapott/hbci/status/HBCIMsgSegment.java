@@ -0,0 +1,135 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci.status;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+
+import org.kapott.hbci.protocol.SEG;
+
+/**
+ * Sicht auf ein einzelnes Segment einer empfangenen Nachricht.
+ * Die Werte des Segments werden beim Empfang einmalig aus dem geparsten
+ * {@link SEG} uebernommen, da das Nachrichten-Objekt anschliessend in den
+ * Objekt-Pool zurueckwandert. Dabei werden nur die Pfade und Werte der DEs
+ * gemerkt, Keys werden erst in {@link #getValues()} bzw. beim Kopieren erzeugt.
+ * Die Keys entsprechen dabei den Lowlevel-Namen inclusive Nachrichten-Name,
+ * z.Bsp. <code>CustomMsgRes.GVRes_3.KUmsZeitRes5.booked</code>.
+ */
+public final class HBCIMsgSegment
+{
+    private final String path;
+    private final String fullpath;
+    private final ElementValues values;
+
+    /**
+     * ct.
+     * @param seg das geparste Segment.
+     * @param nameskip Laenge des Nachrichten-Namens inclusive Punkt.
+     */
+    HBCIMsgSegment(SEG seg, int nameskip)
+    {
+        this.fullpath = seg.getPath();
+        this.path = this.fullpath.substring(nameskip);
+        this.values = ElementValues.of(seg);
+    }
+
+    /**
+     * Liefert den Pfad des Segments ohne Nachrichten-Name.
+     * @return der Pfad des Segments, z.Bsp. <code>GVRes_3.KUmsZeitRes5</code>.
+     */
+    public String getPath()
+    {
+        return this.path;
+    }
+
+    /**
+     * Liefert den Segment-Code.
+     * @return der Segment-Code, z.Bsp. "HIKAZ".
+     */
+    public String getCode()
+    {
+        return this.getValue("SegHead.code");
+    }
+
+    /**
+     * Liefert die Segment-Version.
+     * @return die Segment-Version.
+     */
+    public String getVersion()
+    {
+        return this.getValue("SegHead.version");
+    }
+
+    /**
+     * Liefert die Segment-Nummer in der empfangenen Nachricht.
+     * @return die Segment-Nummer.
+     */
+    public String getSeq()
+    {
+        return this.getValue("SegHead.seq");
+    }
+
+    /**
+     * Liefert die Nummer des Segments der gesendeten Nachricht, auf das sich dieses Segment bezieht.
+     * @return die Bezugs-Segment-Nummer oder NULL, wenn das Segment keinen Bezug hat.
+     */
+    public String getRef()
+    {
+        return this.getValue("SegHead.ref");
+    }
+
+    /**
+     * Liefert den Wert eines Datenelements des Segments.
+     * @param name Name des Datenelements relativ zum Segment, z.Bsp. "booked".
+     * @return der Wert oder NULL, wenn er nicht existiert.
+     */
+    public String getValue(String name)
+    {
+        return this.values.get(this.fullpath, name);
+    }
+
+    /**
+     * Liefert die Werte des Segments.
+     * @return die Werte mit den Lowlevel-Namen inclusive Nachrichten-Name.
+     */
+    public Map<String,String> getValues()
+    {
+        return Collections.unmodifiableMap(this.values.toMap());
+    }
+
+    /**
+     * Uebernimmt die Werte des Segments in die Properties.
+     * @param props die Properties.
+     * @param nameskip Laenge des Nachrichten-Namens inclusive Punkt, der von den Keys abgeschnitten wird.
+     * @param prefix optionaler Prefix, mit dem die Keys ohne Nachrichten-Name beginnen muessen.
+     */
+    void copyTo(Properties props, int nameskip, String prefix)
+    {
+        // Passt das Segment grundsaetzlich zum Prefix?
+        if (prefix != null && !prefix.startsWith(this.path) && !this.path.startsWith(prefix))
+            return;
+
+        this.values.copyTo(props, nameskip, "", prefix);
+    }
+}
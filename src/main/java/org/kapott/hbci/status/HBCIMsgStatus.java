@@ -23,12 +23,21 @@ package org.kapott.hbci.status;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.function.Function;
 
 import org.kapott.hbci.dialog.KnownReturncode;
 import org.kapott.hbci.manager.HBCIUtilsInternal;
+import org.kapott.hbci.protocol.ElementRefs;
+import org.kapott.hbci.protocol.MSG;
+import org.kapott.hbci.protocol.MultipleSyntaxElements;
+import org.kapott.hbci.protocol.SEG;
+import org.kapott.hbci.protocol.SyntaxElement;
 
 /** <p>Enthält alle Status-Informationen zu genau einem Nachrichtenaustausch.
     Es ist zu beachten, dass in einer Nachricht Informationen zu
@@ -50,46 +59,243 @@ public final class HBCIMsgStatus
         einzelne Segmente der gesendeten Nachricht beziehen. */
     public HBCIStatus segStatus;
     
+    // Pfade und Werte der gesendeten Nachricht
+    private ElementRefs   sentPaths=new ElementRefs();
+    private ElementValues sentValues=new ElementValues();
+
+    // Segmente der empfangenen Nachricht
+    private String                           recvName;
+    private String                           recvMsg;
+    private List<HBCIMsgSegment>             segments=new ArrayList<HBCIMsgSegment>();
+    private Map<String,HBCIMsgSegment>       segmentsByPath=new HashMap<String,HBCIMsgSegment>();
+    private Map<String,List<HBCIMsgSegment>> segmentsByRef=new HashMap<String,List<HBCIMsgSegment>>();
+
+    // Per addData hinzugefuegte Daten
+    private Properties extra=new Properties();
+
+    // Die flache Sicht, wird erst bei Bedarf in getData() erzeugt
     private Properties data;
-    
+
     public HBCIMsgStatus()
     {
         this.globStatus=new HBCIStatus();
         this.segStatus=new HBCIStatus();
-        this.data=new Properties();
     }
-    
+
     /** Wird von der <em>HBCI4Java</em>-Dialog-Engine aufgerufen */
     public void addException(Exception e)
     {
         globStatus.addException(e);
     }
-    
+
     /** Wird von der <em>HBCI4Java</em>-Dialog-Engine aufgerufen */
     public void setData(Properties data)
     {
+        this.sentPaths=new ElementRefs();
+        this.sentValues=new ElementValues();
+        this.recvName=null;
+        this.recvMsg=null;
+        this.segments=new ArrayList<HBCIMsgSegment>();
+        this.segmentsByPath=new HashMap<String,HBCIMsgSegment>();
+        this.segmentsByRef=new HashMap<String,List<HBCIMsgSegment>>();
+        this.extra=new Properties();
         this.data=data;
         extractStatusData();
     }
-    
+
     /** Wird von der <em>HBCI4Java</em>-Dialog-Engine aufgerufen */
     public void addData(Properties _data)
     {
-        this.data.putAll(_data);
+        if (this.data!=null)
+            this.data.putAll(_data);
+        else
+            this.extra.putAll(_data);
         extractStatusData();
     }
-     
+
+    /** Wird von der <em>HBCI4Java</em>-Dialog-Engine aufgerufen. Merkt sich
+        die Pfade der Syntaxelement-Referenzen sowie die Werte der zu sendenden
+        Nachricht. Die Keys (Referenzen bzw. <code>orig_</code>-Namen) werden
+        erst bei Bedarf erzeugt. */
+    public void setSentMsg(MSG msg)
+    {
+        ElementRefs paths=new ElementRefs();
+        msg.getElementPaths(paths,null,null,null);
+
+        this.sentPaths=paths;
+        this.sentValues=ElementValues.of(msg);
+
+        if (this.data!=null) {
+            copySentTo(this.data,null);
+        }
+    }
+
+    /** Wird von der <em>HBCI4Java</em>-Dialog-Engine aufgerufen. Uebernimmt
+        die Segmente der empfangenen Nachricht. Das muss geschehen, bevor
+        das Nachrichten-Objekt in den Objekt-Pool zurueckgegeben wird.
+        @param msg die empfangene Nachricht
+        @param rawmsg die unverschluesselte Nachricht im Rohformat */
+    public void setReceivedMsg(MSG msg,String rawmsg)
+    {
+        this.recvName=msg.getName();
+        this.recvMsg=rawmsg;
+        this.segments=new ArrayList<HBCIMsgSegment>();
+        this.segmentsByPath=new HashMap<String,HBCIMsgSegment>();
+        this.segmentsByRef=new HashMap<String,List<HBCIMsgSegment>>();
+        collectSegments(msg,this.recvName.length()+1);
+
+        if (this.data!=null) {
+            copyReceivedTo(this.data,null);
+        }
+
+        extractStatusData();
+    }
+
+    private void collectSegments(SyntaxElement parent,int nameskip)
+    {
+        for (MultipleSyntaxElements l:parent.getChildContainers()) {
+            if (l==null)
+                continue;
+
+            for (SyntaxElement child:l.getElements()) {
+                if (child instanceof SEG) {
+                    HBCIMsgSegment seg=new HBCIMsgSegment((SEG)child,nameskip);
+                    segments.add(seg);
+                    segmentsByPath.put(seg.getPath(),seg);
+
+                    String ref=seg.getRef();
+                    if (ref!=null) {
+                        List<HBCIMsgSegment> list=segmentsByRef.get(ref);
+                        if (list==null) {
+                            list=new ArrayList<HBCIMsgSegment>();
+                            segmentsByRef.put(ref,list);
+                        }
+                        list.add(seg);
+                    }
+                } else if (child!=null) {
+                    collectSegments(child,nameskip);
+                }
+            }
+        }
+    }
+
+    private void copyReceivedTo(Properties p,String prefix)
+    {
+        if (this.recvName==null)
+            return;
+
+        int nameskip=this.recvName.length()+1;
+        for (HBCIMsgSegment seg:this.segments) {
+            seg.copyTo(p,nameskip,prefix);
+        }
+        if (this.recvMsg!=null && (prefix==null || "_msg".startsWith(prefix))) {
+            p.setProperty("_msg",this.recvMsg);
+        }
+    }
+
+    /** Liefert die Segmente der empfangenen Nachricht in der Reihenfolge des Eintreffens.
+        @return Liste der Segmente, niemals <code>null</code> */
+    public List<HBCIMsgSegment> getSegments()
+    {
+        return Collections.unmodifiableList(segments);
+    }
+
+    /** Liefert das Segment der empfangenen Nachricht mit dem angegebenen Pfad.
+        @param path Pfad des Segments ohne Nachrichten-Name, z.B. <code>GVRes_3.KUmsZeitRes5</code>
+        @return das Segment oder <code>null</code>, wenn es nicht existiert */
+    public HBCIMsgSegment getSegment(String path)
+    {
+        return segmentsByPath.get(path);
+    }
+
+    /** Liefert die Segmente der empfangenen Nachricht, die sich auf das angegebene
+        Segment der gesendeten Nachricht beziehen.
+        @param ref Segment-Nummer in der gesendeten Nachricht
+        @return Liste der Segmente, niemals <code>null</code> */
+    public List<HBCIMsgSegment> getSegmentsByRef(int ref)
+    {
+        List<HBCIMsgSegment> list=segmentsByRef.get(Integer.toString(ref));
+        return list!=null ? Collections.unmodifiableList(list) : Collections.<HBCIMsgSegment>emptyList();
+    }
+
+    /** <p>Liefert einen einzelnen Wert aus den Daten dieses Nachrichtenaustauschs.
+        Die Namen entsprechen den Keys von {@link #getData()}, die flache Sicht
+        wird hierfuer jedoch nicht erzeugt.</p>
+        @param key Lowlevel-Name des Datenelements
+        @return der Wert oder <code>null</code>, wenn er nicht existiert */
+    public String getValue(String key)
+    {
+        if (this.data!=null)
+            return this.data.getProperty(key);
+
+        String value=this.extra.getProperty(key);
+        if (value!=null)
+            return value;
+
+        if (key.startsWith("orig_"))
+            return this.sentValues.get(key.substring(5));
+
+        if (key.equals("_msg"))
+            return this.recvMsg;
+
+        value=this.sentPaths.getPath(key);
+        if (value!=null || this.recvName==null)
+            return value;
+
+        // Segment anhand des Pfades suchen
+        for (int dot=key.indexOf('.');dot!=-1;dot=key.indexOf('.',dot+1)) {
+            HBCIMsgSegment seg=this.segmentsByPath.get(key.substring(0,dot));
+            if (seg!=null)
+                return seg.getValue(key.substring(dot+1));
+        }
+        return null;
+    }
+
+    /** <p>Liefert die Daten dieses Nachrichtenaustauschs, deren Namen mit dem
+        angegebenen Prefix beginnen. Im Gegensatz zu {@link #getData()} werden
+        dabei nur die betroffenen Segmente durchlaufen.</p>
+        @param prefix der Prefix, z.B. <code>TAN2StepRes</code>
+        @return die Daten mit den vollstaendigen Lowlevel-Namen */
+    public Properties getData(String prefix)
+    {
+        Properties ret=new Properties();
+        if (this.data!=null) {
+            for (String key:this.data.stringPropertyNames()) {
+                if (key.startsWith(prefix))
+                    ret.setProperty(key,this.data.getProperty(key));
+            }
+            return ret;
+        }
+
+        copySentTo(ret,prefix);
+        copyReceivedTo(ret,prefix);
+        for (String key:this.extra.stringPropertyNames()) {
+            if (key.startsWith(prefix))
+                ret.setProperty(key,this.extra.getProperty(key));
+        }
+        return ret;
+    }
+
+    private void copySentTo(Properties p,String prefix)
+    {
+        this.sentPaths.copyTo(p,prefix);
+        this.sentValues.copyTo(p,0,"orig_",prefix);
+    }
+
     private void extractStatusData()
     {
         this.globStatus=new HBCIStatus();
         this.segStatus=new HBCIStatus();
 
+        final Function<String,String> lookup=this::getValue;
+
         // globale return-codes extrahieren
         for (int i=0;true;i++) {
             HBCIRetVal rv=null;
             try {
-                rv=new HBCIRetVal(data,
-                                  HBCIUtilsInternal.withCounter("RetGlob.RetVal",i));
+                rv=new HBCIRetVal(lookup,
+                                  HBCIUtilsInternal.withCounter("RetGlob.RetVal",i),
+                                  null);
             } catch (Exception e) {
                 break;
             }
@@ -100,7 +306,7 @@ public final class HBCIMsgStatus
         // segment-codes extrahieren
         for (int i=0;true;i++) {
             String segheader=HBCIUtilsInternal.withCounter("RetSeg",i);
-            String segref=data.getProperty(segheader+".SegHead.ref");
+            String segref=getValue(segheader+".SegHead.ref");
             if (segref==null) {
                 break;
             }
@@ -108,7 +314,7 @@ public final class HBCIMsgStatus
             for (int j=0;true;j++) {
                 HBCIRetVal rv=null;
                 try {
-                    rv=new HBCIRetVal(data,
+                    rv=new HBCIRetVal(lookup,
                                       HBCIUtilsInternal.withCounter(segheader+".RetVal",j),
                                       segref);
                 } catch (Exception e) {
@@ -126,10 +332,20 @@ public final class HBCIMsgStatus
         <em>values</em> enthalten jeweils den Wert des entsprechenden Datenelementes.
         Die Bezeichnungen der Datenelemente der <em>gesendeten</em> Nachricht tragen
         zur Unterscheidung mit den Datenelementen der empfangenen Nachricht das
-        Prefix "<code>orig_</code>".</p> */
+        Prefix "<code>orig_</code>".</p><p>
+        Die flache Sicht wird erst beim ersten Aufruf dieser Methode aus den
+        Segmenten erzeugt. Fuer den Zugriff auf einzelne Werte sollten statt dessen
+        {@link #getValue(String)} bzw. {@link #getSegments()} verwendet werden.</p> */
     public Properties getData()
     {
-        return data;
+        if (this.data==null) {
+            Properties p=new Properties();
+            copySentTo(p,null);
+            copyReceivedTo(p,null);
+            p.putAll(this.extra);
+            this.data=p;
+        }
+        return this.data;
     }
     
     /** Gibt zurück, ob bei der Ausführung eines Nachrichtenaustauschs Exceptions
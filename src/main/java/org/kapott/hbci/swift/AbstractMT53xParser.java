@@ -0,0 +1,200 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci.swift;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.function.Consumer;
+
+import org.kapott.hbci.passport.HBCIPassport;
+import org.kapott.hbci.structures.BigDecimalValue;
+import org.kapott.hbci.structures.Konto;
+
+/**
+ * Gemeinsame Basis der Parser fuer Depotaufstellungen (MT535) und Depotumsaetze (MT536).
+ * Die Daten werden blockweise gelesen. Jeder Block wird mit dem {@link SwiftTokenizer}
+ * genau einmal durchlaufen, die Sequenzen (<code>:16R:</code> bis <code>:16S:</code>)
+ * werden dabei mitgefuehrt. Die Laufzeit waechst daher linear mit der Anzahl der
+ * Wertpapiergattungen. Die Datumsformate werden pro Parser nur einmal erzeugt, eine
+ * Instanz darf daher nicht von mehreren Threads gleichzeitig verwendet werden.
+ * @param <T> Typ der Eintraege (ein Eintrag je Block).
+ */
+public abstract class AbstractMT53xParser<T>
+{
+    protected final HBCIPassport     passport;
+    protected final SimpleDateFormat dateTimeFormat=new SimpleDateFormat("yyyyMMdd hhmmss");
+    protected final SimpleDateFormat dateFormat=new SimpleDateFormat("yyyyMMdd");
+
+    /**
+     * ct.
+     * @param passport optionaler Passport zum Vervollstaendigen der Depotdaten.
+     */
+    protected AbstractMT53xParser(HBCIPassport passport)
+    {
+        this.passport=passport;
+    }
+
+    /**
+     * Parst alle Bloecke aus dem Puffer und uebergibt die Eintraege an den Consumer.
+     * Die geparsten Daten werden aus dem Puffer entfernt. Tritt ein Fehler auf, beginnt
+     * der Puffer anschliessend mit dem fehlerhaften Block.
+     * @param buffer der Puffer mit den SWIFT-Daten.
+     * @param consumer der Empfaenger der Eintraege.
+     * @throws Exception
+     */
+    public void parse(StringBuffer buffer, Consumer<T> consumer) throws Exception
+    {
+        String text=buffer.toString();
+        int    pos=0;
+        try {
+            while (pos<text.length()) {
+                int end=SwiftTokenizer.findBlockEnd(text,pos);
+                consumer.accept(parseBlock(text,pos,end));
+                pos=end;
+            }
+        } finally {
+            buffer.delete(0,pos);
+        }
+    }
+
+    /**
+     * Parst einen Block.
+     * @param text die SWIFT-Daten.
+     * @param start Beginn des Blockes.
+     * @param end Ende (exklusiv) des Blockes.
+     * @return der Eintrag.
+     * @throws Exception
+     */
+    protected abstract T parseBlock(String text, int start, int end) throws Exception;
+
+    /**
+     * Prueft, ob der Wert eines Tags mit dem angegebenen Qualifier beginnt (<code>:QUAL//...</code>).
+     * @param value der Wert des Tags.
+     * @param qualifier der Qualifier, z.B. "STAT".
+     * @return true, wenn der Wert den Qualifier hat.
+     */
+    protected static boolean hasQualifier(String value, String qualifier)
+    {
+        return value.startsWith(qualifier,1);
+    }
+
+    /**
+     * Liefert den ersten Wert eines Tags.
+     * @param current der bisher gefundene Wert oder null.
+     * @param tokenizer der Tokenizer, der auf dem Tag steht.
+     * @return der bisher gefundene Wert, falls vorhanden, sonst der Wert des aktuellen Tags.
+     */
+    protected static String first(String current, SwiftTokenizer tokenizer)
+    {
+        return (current!=null)?current:tokenizer.getValue();
+    }
+
+    /**
+     * Parst einen Zeitpunkt aus Tag 98C bzw. 98A. Tag 98C (mit Uhrzeit) hat Vorrang.
+     * @param st_98C Wert von Tag 98C oder null.
+     * @param st_98A Wert von Tag 98A oder null.
+     * @return der Zeitpunkt oder null.
+     * @throws Exception
+     */
+    protected Date parseTimestamp(String st_98C, String st_98A) throws Exception
+    {
+        if (st_98C!=null)
+            return dateTimeFormat.parse(st_98C.substring(7,15)+" "+st_98C.substring(15,21));
+        if (st_98A!=null)
+            return dateFormat.parse(st_98A.substring(7,15));
+        return null;
+    }
+
+    /**
+     * Parst die Depotverbindung aus Tag 97A (<code>:SAFE//BLZ/Depotnummer</code>).
+     * @param st_depot Wert von Tag 97A.
+     * @return das Depot.
+     */
+    protected Konto parseDepot(String st_depot)
+    {
+        int pos1=st_depot.indexOf("//");
+        int pos2=st_depot.indexOf("/",pos1+2);
+        if (pos2<0)
+            pos2=st_depot.length();
+
+        Konto depot=new Konto();
+        depot.blz=st_depot.substring(pos1+2,pos2);
+        if (pos2<st_depot.length())
+            depot.number=st_depot.substring(pos2+1);
+        if (passport!=null)
+            passport.fillAccountInfo(depot);
+        return depot;
+    }
+
+    /**
+     * Parst die Bezeichnung des Wertpapiers aus Tag 35B.
+     * @param st Wert von Tag 35B.
+     * @return Array mit ISIN, WKN und Name. Nicht vorhandene Werte sind null.
+     */
+    protected static String[] parseSecurity(String st)
+    {
+        String isin=null;
+        String wkn=null;
+        String name=null;
+        int    pos1;
+
+        if (st.startsWith("ISIN ")) {
+            pos1=st.indexOf("\r\n");
+            isin=st.substring(5,pos1);
+            if (pos1+2<st.length() && st.startsWith("/DE/",pos1+2)) {
+                int pos2=st.indexOf("\r\n",pos1+6);
+                if (pos2==-1) {
+                    pos2=st.length();
+                }
+                wkn=st.substring(pos1+6,pos2);
+                pos1=pos2;
+            }
+        } else {
+            pos1=st.indexOf("\r\n");
+            wkn=st.substring(4,pos1);
+        }
+
+        pos1+=2;
+        if (pos1<st.length())
+            name=st.substring(pos1).replace("\r\n"," ");
+
+        return new String[] {isin,wkn,name};
+    }
+
+    /**
+     * Parst einen Betrag aus Tag 19A (<code>:QUAL//[N]WWWBetrag</code>).
+     * @param st Wert von Tag 19A.
+     * @return der Betrag.
+     */
+    protected static BigDecimalValue parseAmount(String st)
+    {
+        int off=7;
+        if (st.charAt(off)=='N')
+            off++;
+        BigDecimalValue value=new BigDecimalValue(
+                st.substring(off+3).replace(',','.'),
+                st.substring(off,off+3));
+        if (off>7)
+            value.setValue(value.getValue().negate());
+        return value;
+    }
+}
@@ -0,0 +1,416 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci.swift;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.kapott.hbci.GV_Result.GVRWPDepotList;
+import org.kapott.hbci.GV_Result.GVRWPDepotList.Entry.Gattung;
+import org.kapott.hbci.GV_Result.GVRWPDepotList.Entry.Gattung.SubSaldo;
+import org.kapott.hbci.manager.HBCIUtilsInternal;
+import org.kapott.hbci.passport.HBCIPassport;
+import org.kapott.hbci.structures.BigDecimalValue;
+
+/**
+ * Parser fuer Depotaufstellungen im MT535-Format.
+ * Von den Tags eines Blockes bzw. einer Sequenz wird - wie bisher ueber
+ * {@link Swift#getTagValue(String, String, int)} - jeweils das erste passende
+ * Vorkommen ausgewertet.
+ */
+public class MT535Parser extends AbstractMT53xParser<GVRWPDepotList.Entry>
+{
+    /**
+     * Die Werte der Tags einer Wertpapiergattung (<code>:16R:FIN</code>).
+     */
+    private static class Fin
+    {
+        private String st_35B;
+        private String st_90;
+        private String st_94B;
+        private String st_98C;
+        private String st_98A;
+        private String st_93B;
+        private String st_99A;
+        private String st_hold;
+        private String st_acru;
+        private String st_92B;
+        private String st_70E;
+        private List<SubBal> subbal=new ArrayList<SubBal>();
+    }
+
+    /**
+     * Die Werte der Tags eines Untersaldos (<code>:16R:SUBBAL</code>).
+     */
+    private static class SubBal
+    {
+        private String st_93C;
+        private String st_94C;
+        private String st_70C;
+    }
+
+    /**
+     * ct.
+     * @param passport optionaler Passport zum Vervollstaendigen der Depotdaten.
+     */
+    public MT535Parser(HBCIPassport passport)
+    {
+        super(passport);
+    }
+
+    /**
+     * @see org.kapott.hbci.swift.AbstractMT53xParser#parseBlock(java.lang.String, int, int)
+     */
+    @Override
+    protected GVRWPDepotList.Entry parseBlock(String text, int start, int end) throws Exception
+    {
+        String    st_98C=null;
+        String    st_98A=null;
+        String    st_depot=null;
+        String    st_total=null;
+        String    st_17B=null;
+        List<Fin> fins=new ArrayList<Fin>();
+        Fin       fin=null;
+        SubBal    subbal=null;
+
+        SwiftTokenizer tokenizer=new SwiftTokenizer(text,start,end);
+        while (tokenizer.next()) {
+            if (tokenizer.isTag("16R")) {
+                String seq=tokenizer.getValue();
+                if (seq.equals("FIN")) {
+                    fin=new Fin();
+                } else if (seq.equals("SUBBAL") && fin!=null) {
+                    subbal=new SubBal();
+                }
+                continue;
+            }
+            if (tokenizer.isTag("16S")) {
+                String seq=tokenizer.getValue();
+                if (seq.equals("FIN") && fin!=null) {
+                    fins.add(fin);
+                    fin=null;
+                    subbal=null;
+                } else if (seq.equals("SUBBAL") && subbal!=null) {
+                    fin.subbal.add(subbal);
+                    subbal=null;
+                }
+                continue;
+            }
+
+            // Tags des gesamten Blockes
+            if (tokenizer.isTag("98C")) {
+                String st=tokenizer.getValue();
+                if (st_98C==null && hasQualifier(st,"STAT"))
+                    st_98C=st;
+            } else if (tokenizer.isTag("98A")) {
+                String st=tokenizer.getValue();
+                if (st_98A==null && hasQualifier(st,"STAT"))
+                    st_98A=st;
+            } else if (tokenizer.isTag("97A")) {
+                st_depot=first(st_depot,tokenizer);
+            } else if (tokenizer.isTag("19A")) {
+                if (st_total==null) {
+                    String st=tokenizer.getValue();
+                    if (hasQualifier(st,"HOLP"))
+                        st_total=st;
+                }
+            } else if (tokenizer.isTag("17B")) {
+                st_17B=first(st_17B,tokenizer);
+            }
+
+            if (fin!=null)
+                collect(fin,tokenizer);
+            if (subbal!=null)
+                collect(subbal,tokenizer);
+        }
+
+        GVRWPDepotList.Entry entry=new GVRWPDepotList.Entry();
+        entry.timestamp=parseTimestamp(st_98C,st_98A);
+        entry.depot=parseDepot(st_depot);
+
+        if (st_total!=null)
+            entry.total=parseAmount(st_total);
+
+        if (st_17B!=null && st_17B.substring(st_17B.indexOf("//")+2).equals("Y")) {
+            for (Fin f:fins) {
+                entry.addEntry(parseGattung(f));
+            }
+        }
+
+        return entry;
+    }
+
+    /**
+     * Uebernimmt das aktuelle Tag in die Daten der Wertpapiergattung.
+     * @param fin die Daten der Wertpapiergattung.
+     * @param tokenizer der Tokenizer.
+     */
+    private static void collect(Fin fin, SwiftTokenizer tokenizer)
+    {
+        if (tokenizer.isTag("35B")) {
+            fin.st_35B=first(fin.st_35B,tokenizer);
+        } else if (tokenizer.isTag("90A") || tokenizer.isTag("90B")) {
+            fin.st_90=first(fin.st_90,tokenizer);
+        } else if (tokenizer.isTag("94B")) {
+            fin.st_94B=first(fin.st_94B,tokenizer);
+        } else if (tokenizer.isTag("98C")) {
+            if (fin.st_98C==null) {
+                String st=tokenizer.getValue();
+                if (hasQualifier(st,"PRIC"))
+                    fin.st_98C=st;
+            }
+        } else if (tokenizer.isTag("98A")) {
+            if (fin.st_98A==null) {
+                String st=tokenizer.getValue();
+                if (hasQualifier(st,"PRIC"))
+                    fin.st_98A=st;
+            }
+        } else if (tokenizer.isTag("93B")) {
+            fin.st_93B=first(fin.st_93B,tokenizer);
+        } else if (tokenizer.isTag("99A")) {
+            fin.st_99A=first(fin.st_99A,tokenizer);
+        } else if (tokenizer.isTag("19A")) {
+            String st=tokenizer.getValue();
+            if (fin.st_hold==null && hasQualifier(st,"HOLD"))
+                fin.st_hold=st;
+            else if (fin.st_acru==null && hasQualifier(st,"ACRU"))
+                fin.st_acru=st;
+        } else if (tokenizer.isTag("92B")) {
+            fin.st_92B=first(fin.st_92B,tokenizer);
+        } else if (tokenizer.isTag("70E")) {
+            fin.st_70E=first(fin.st_70E,tokenizer);
+        }
+    }
+
+    /**
+     * Uebernimmt das aktuelle Tag in die Daten des Untersaldos.
+     * @param subbal die Daten des Untersaldos.
+     * @param tokenizer der Tokenizer.
+     */
+    private static void collect(SubBal subbal, SwiftTokenizer tokenizer)
+    {
+        if (tokenizer.isTag("93C")) {
+            subbal.st_93C=first(subbal.st_93C,tokenizer);
+        } else if (tokenizer.isTag("94C")) {
+            subbal.st_94C=first(subbal.st_94C,tokenizer);
+        } else if (tokenizer.isTag("70C")) {
+            subbal.st_70C=first(subbal.st_70C,tokenizer);
+        }
+    }
+
+    /**
+     * Erzeugt die Wertpapiergattung aus den gesammelten Tags.
+     * @param fin die Daten der Wertpapiergattung.
+     * @return die Wertpapiergattung.
+     * @throws Exception
+     */
+    private Gattung parseGattung(Fin fin) throws Exception
+    {
+        Gattung gattung=new Gattung();
+
+        String[] security=parseSecurity(fin.st_35B);
+        gattung.isin=security[0];
+        gattung.wkn=security[1];
+        gattung.name=security[2];
+
+        String st=fin.st_90;
+        if (st!=null) {
+            gattung.pricequalifier=hasQualifier(st,"MRKT")?Gattung.PRICE_QUALIF_MRKT
+                                                         :Gattung.PRICE_QUALIF_HINT;
+
+            int    next=0;
+            String curr;
+
+            if (st.startsWith("PRCT",7)) {
+                gattung.pricetype=Gattung.PRICE_TYPE_PRCT;
+                curr="%";
+                next=12;
+            } else {
+                gattung.pricetype=Gattung.PRICE_TYPE_VALUE;
+                curr=st.substring(12,15);
+                next=15;
+            }
+
+            gattung.price=new BigDecimalValue(
+                st.substring(next).replace(',','.'),
+                curr);
+        }
+
+        st=fin.st_94B;
+        if (st!=null) {
+            String st_source=st.substring(7,11);
+            if (st_source.equals("LMAR"))
+                gattung.source=Gattung.SOURCE_LOC;
+            else if (st_source.equals("THEO"))
+                gattung.source=Gattung.SOURCE_THEOR;
+            else if (st_source.equals("VEND"))
+                gattung.source=Gattung.SOURCE_SELLER;
+
+            int pos=st.indexOf("/",11);
+            if (pos!=-1) {
+                gattung.source_comment=st.substring(pos+1);
+            }
+        }
+
+        gattung.timestamp_price=parseTimestamp(fin.st_98C,fin.st_98A);
+
+        st=fin.st_93B;
+        String st_type=st.substring(7,11);
+        String curr="EUR";
+
+        if (st_type.equals("FAMT")) {
+            gattung.saldo_type=GVRWPDepotList.Entry.SALDO_TYPE_WERT;
+            curr=""; // TODO
+        } else if (st_type.equals("UNIT")) {
+            gattung.saldo_type=GVRWPDepotList.Entry.SALDO_TYPE_STCK;
+            curr="";
+        }
+        gattung.saldo=parseSaldo(st,12,curr);
+
+        st=fin.st_99A;
+        if (st!=null) {
+            if (st.charAt(7)=='N') {
+                gattung.days=-1*Integer.parseInt(st.substring(8));
+            } else {
+                gattung.days=Integer.parseInt(st.substring(7));
+            }
+        }
+
+        if (fin.st_hold!=null)
+            gattung.depotwert=parseAmount(fin.st_hold);
+        if (fin.st_acru!=null)
+            gattung.stueckzinsbetrag=parseAmount(fin.st_acru);
+
+        st=fin.st_92B;
+        if (st!=null) {
+            gattung.xchg_cur1=st.substring(7,10);
+            gattung.xchg_cur2=st.substring(11,14);
+            gattung.xchg_kurs=Double.parseDouble(st.substring(15).replace(',','.'));
+        }
+
+        st=fin.st_70E;
+        if (st!=null) {
+            String formtext=st.substring(7);
+
+            gattung.curr=SwiftLegacy.getLineFieldValue(formtext,"1",0);
+            gattung.wptype=SwiftLegacy.getLineFieldValue(formtext,"1",1);
+            gattung.branche=SwiftLegacy.getLineFieldValue(formtext,"1",2);
+            gattung.countryEmittent=SwiftLegacy.getLineFieldValue(formtext,"1",3);
+
+            st=SwiftLegacy.getLineFieldValue(formtext,"1",4);
+            if (st!=null)
+                gattung.kauf=dateFormat.parse(st);
+            st=SwiftLegacy.getLineFieldValue(formtext,"1",5);
+            if (st!=null)
+                gattung.faellig=dateFormat.parse(st);
+
+            st=SwiftLegacy.getLineFieldValue(formtext,"2",0);
+            if (st!=null) {
+                gattung.einstandspreis=new BigDecimalValue(
+                    st.replace(',','.'),
+                    "%");
+            }
+            st=SwiftLegacy.getLineFieldValue(formtext,"2",1);
+            if (st!=null)
+                gattung.einstandspreis.setCurr(st);
+
+            st=SwiftLegacy.getLineFieldValue(formtext,"2",2);
+            if (st!=null)
+                gattung.zinssatz=HBCIUtilsInternal.string2Long(st.replace(',','.'), 1000);
+
+            // TODO: zeug fuer kontrakte
+        }
+
+        for (SubBal subbal:fin.subbal) {
+            gattung.addSubSaldo(parseSubSaldo(subbal));
+        }
+
+        return gattung;
+    }
+
+    /**
+     * Erzeugt den Untersaldo aus den gesammelten Tags.
+     * @param subbal die Daten des Untersaldos.
+     * @return der Untersaldo.
+     * @throws Exception
+     */
+    private SubSaldo parseSubSaldo(SubBal subbal) throws Exception
+    {
+        SubSaldo subsaldo=new SubSaldo();
+
+        String st=subbal.st_93C;
+        subsaldo.qualifier=st.substring(1,5);
+
+        String st_type=st.substring(7,11);
+        String curr="EUR";
+        if (st_type.equals("FAMT")) {
+            subsaldo.saldo_type=GVRWPDepotList.Entry.SALDO_TYPE_WERT;
+            curr="";
+        } else if (st_type.equals("UNIT")) {
+            subsaldo.saldo_type=GVRWPDepotList.Entry.SALDO_TYPE_STCK;
+            curr="";
+        }
+        subsaldo.locked=st.substring(12,16).equals("NAVL");
+        subsaldo.saldo=parseSaldo(st,17,curr);
+
+        st=subbal.st_94C;
+        if (st!=null)
+            subsaldo.country=st.substring(7);
+
+        String formtext=subbal.st_70C;
+        if (formtext!=null) {
+            st=SwiftLegacy.getLineFieldValue(formtext,"2",0);
+            if (st!=null)
+                subsaldo.verwahrung=Integer.parseInt(st);
+            subsaldo.lager=SwiftLegacy.getLineFieldValue(formtext,"2",1);
+
+            st=SwiftLegacy.getLineFieldValue(formtext,"2",2);
+            if (st!=null)
+                subsaldo.lockeduntil=dateFormat.parse(st);
+
+            subsaldo.comment=SwiftLegacy.getLineFieldValue(formtext,"3",0);
+            st=SwiftLegacy.getLineFieldValue(formtext,"4",0);
+            if (st!=null) {
+                if (subsaldo.comment==null)
+                    subsaldo.comment=st;
+                else
+                    subsaldo.comment+=" "+st;
+            }
+        }
+
+        return subsaldo;
+    }
+
+    /**
+     * Parst einen Saldo aus Tag 93B bzw. 93C.
+     * @param st Wert des Tags.
+     * @param pos Position des Betrages (ggf. mit vorangestelltem "N").
+     * @param curr die Waehrung.
+     * @return der Saldo.
+     */
+    private static BigDecimalValue parseSaldo(String st, int pos, String curr)
+    {
+        if (st.charAt(pos)=='N')
+            return new BigDecimalValue("-"+st.substring(pos+1).replace(',','.'),curr);
+        return new BigDecimalValue(st.substring(pos).replace(',','.'),curr);
+    }
+}
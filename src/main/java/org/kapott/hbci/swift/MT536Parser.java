@@ -0,0 +1,420 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci.swift;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.kapott.hbci.GV_Result.GVRWPDepotUms;
+import org.kapott.hbci.GV_Result.GVRWPDepotUms.Entry.FinancialInstrument;
+import org.kapott.hbci.GV_Result.GVRWPDepotUms.Entry.FinancialInstrument.Transaction;
+import org.kapott.hbci.manager.HBCIUtils;
+import org.kapott.hbci.passport.HBCIPassport;
+import org.kapott.hbci.structures.TypedValue;
+
+/**
+ * Parser fuer Depotumsaetze im MT536-Format.
+ * Ausgewertet werden je Wertpapiergattung (<code>:16R:FIN</code>) die Tags vor der
+ * ersten Transaktion sowie je Transaktion (<code>:16R:TRAN</code>) die jeweils erste
+ * Sequenz <code>LINK</code>, <code>TRANSDET</code> und <code>SETPRTY</code>.
+ */
+public class MT536Parser extends AbstractMT53xParser<GVRWPDepotUms.Entry>
+{
+    /**
+     * Die Werte der Tags der Transaktionsdetails (<code>:16R:TRANSDET</code>).
+     */
+    private static class Detail
+    {
+        private String       st_36B;
+        private String       st_99A;
+        private String       st_25D;
+        private String       st_70E;
+        private List<String> st_19A=new ArrayList<String>();
+        private List<String> st_22F=new ArrayList<String>();
+        private List<String> st_22H=new ArrayList<String>();
+        private List<String> st_98A=new ArrayList<String>();
+    }
+
+    /**
+     * ct.
+     * @param passport optionaler Passport zum Vervollstaendigen der Depotdaten.
+     */
+    public MT536Parser(HBCIPassport passport)
+    {
+        super(passport);
+    }
+
+    /**
+     * @see org.kapott.hbci.swift.AbstractMT53xParser#parseBlock(java.lang.String, int, int)
+     */
+    @Override
+    protected GVRWPDepotUms.Entry parseBlock(String text, int start, int end) throws Exception
+    {
+        String st_98C=null;
+        String st_98A=null;
+        String st_depot=null;
+        String st_17B=null;
+
+        List<FinancialInstrument> instruments=new ArrayList<FinancialInstrument>();
+        FinancialInstrument instrument=null;
+        String              st_35B=null;
+        TypedValue          preis_90A=null;
+        TypedValue          preis_90B=null;
+        boolean             header=false;
+
+        Transaction transaction=null;
+        boolean     haveLink=false;
+        boolean     haveDetail=false;
+        boolean     haveParty=false;
+        String      st_link=null;
+        String      st_party=null;
+        Detail      detail=null;
+        boolean     inLink=false;
+        boolean     inParty=false;
+
+        SwiftTokenizer tokenizer=new SwiftTokenizer(text,start,end);
+        while (tokenizer.next()) {
+            if (tokenizer.isTag("16R")) {
+                String seq=tokenizer.getValue();
+                if (seq.equals("FIN")) {
+                    instrument=new FinancialInstrument();
+                    st_35B=null;
+                    preis_90A=null;
+                    preis_90B=null;
+                    header=true;
+                    transaction=null;
+                } else if (seq.equals("TRAN") && instrument!=null) {
+                    transaction=new Transaction();
+                    header=false;
+                    haveLink=false;
+                    haveDetail=false;
+                    haveParty=false;
+                } else if (transaction!=null) {
+                    if (seq.equals("LINK") && !haveLink) {
+                        haveLink=true;
+                        inLink=true;
+                        st_link=null;
+                    } else if (seq.equals("TRANSDET") && !haveDetail) {
+                        haveDetail=true;
+                        detail=new Detail();
+                    } else if (seq.equals("SETPRTY") && !haveParty) {
+                        haveParty=true;
+                        inParty=true;
+                        st_party=null;
+                    }
+                }
+                continue;
+            }
+            if (tokenizer.isTag("16S")) {
+                String seq=tokenizer.getValue();
+                if (seq.equals("FIN") && instrument!=null) {
+                    finishInstrument(instrument,st_35B,preis_90A,preis_90B);
+                    instruments.add(instrument);
+                    instrument=null;
+                    transaction=null;
+                    detail=null;
+                    inLink=false;
+                    inParty=false;
+                } else if (seq.equals("TRAN") && transaction!=null) {
+                    instrument.transactions.add(transaction);
+                    transaction=null;
+                    detail=null;
+                    inLink=false;
+                    inParty=false;
+                } else if (seq.equals("LINK") && inLink) {
+                    if (st_link!=null)
+                        transaction.kundenreferenz=st_link.substring(7);
+                    inLink=false;
+                } else if (seq.equals("TRANSDET") && detail!=null) {
+                    parseDetail(transaction,detail);
+                    detail=null;
+                } else if (seq.equals("SETPRTY") && inParty) {
+                    if (st_party!=null)
+                        transaction.gegenpartei=st_party.substring(7);
+                    inParty=false;
+                }
+                continue;
+            }
+
+            // Tags des gesamten Blockes
+            if (tokenizer.isTag("98C")) {
+                String st=tokenizer.getValue();
+                if (st_98C==null && hasQualifier(st,"PREP"))
+                    st_98C=st;
+            } else if (tokenizer.isTag("98A")) {
+                String st=tokenizer.getValue();
+                if (st_98A==null && hasQualifier(st,"PREP"))
+                    st_98A=st;
+            } else if (tokenizer.isTag("97A")) {
+                st_depot=first(st_depot,tokenizer);
+            } else if (tokenizer.isTag("17B")) {
+                st_17B=first(st_17B,tokenizer);
+            }
+
+            // Tags der Wertpapiergattung vor der ersten Transaktion
+            if (header) {
+                if (tokenizer.isTag("35B")) {
+                    st_35B=first(st_35B,tokenizer);
+                } else if (tokenizer.isTag("93B")) {
+                    String st=tokenizer.getValue();
+                    String qualifier=st.substring(1,5);
+
+                    if ("FIOP".equals(qualifier) || (instrument.startSaldo==null && "INOP".equals(qualifier))) {
+                        instrument.startSaldo=parseTypedValue(st);
+                    } else if ("FICL".equals(qualifier) || (instrument.endSaldo==null && "INCL".equals(qualifier))) {
+                        instrument.endSaldo=parseTypedValue(st);
+                    } else {
+                        HBCIUtils.log("Unbekannter 93B: "+st,HBCIUtils.LOG_WARN);
+                    }
+                } else if (tokenizer.isTag("98A")) {
+                    String st=tokenizer.getValue();
+                    if (hasQualifier(st,"PRIC")) {
+                        instrument.preisdatum=dateFormat.parse(st.substring(7,15));
+                    } else {
+                        HBCIUtils.log("Unbekannter 98A: "+st,HBCIUtils.LOG_WARN);
+                    }
+                } else if (tokenizer.isTag("90A")) {
+                    preis_90A=parseTypedValue(tokenizer.getValue());
+                } else if (tokenizer.isTag("90B")) {
+                    preis_90B=parseTypedValue(tokenizer.getValue());
+                }
+            }
+
+            // Tags der Transaktion
+            if (inLink && tokenizer.isTag("20C")) {
+                st_link=first(st_link,tokenizer);
+            }
+            if (inParty && tokenizer.isTag("95Q")) {
+                st_party=first(st_party,tokenizer);
+            }
+            if (detail!=null) {
+                collect(detail,tokenizer);
+            }
+        }
+
+        GVRWPDepotUms.Entry entry=new GVRWPDepotUms.Entry();
+        entry.timestamp=parseTimestamp(st_98C,st_98A);
+        entry.depot=parseDepot(st_depot);
+
+        if (st_17B!=null && st_17B.substring(st_17B.indexOf("//")+2).equals("Y")) {
+            entry.instruments.addAll(instruments);
+        }
+
+        return entry;
+    }
+
+    /**
+     * Vervollstaendigt die Wertpapiergattung am Ende der Sequenz.
+     * @param instrument die Wertpapiergattung.
+     * @param st_35B Wert von Tag 35B.
+     * @param preis_90A Preis aus Tag 90A oder null.
+     * @param preis_90B Preis aus Tag 90B oder null. Hat Vorrang vor Tag 90A.
+     */
+    private static void finishInstrument(FinancialInstrument instrument, String st_35B, TypedValue preis_90A, TypedValue preis_90B)
+    {
+        String[] security=parseSecurity(st_35B);
+        instrument.isin=security[0];
+        instrument.wkn=security[1];
+        instrument.name=security[2];
+        instrument.preis=(preis_90B!=null)?preis_90B:preis_90A;
+    }
+
+    /**
+     * Uebernimmt das aktuelle Tag in die Transaktionsdetails.
+     * @param detail die Transaktionsdetails.
+     * @param tokenizer der Tokenizer.
+     */
+    private static void collect(Detail detail, SwiftTokenizer tokenizer)
+    {
+        if (tokenizer.isTag("36B")) {
+            detail.st_36B=first(detail.st_36B,tokenizer);
+        } else if (tokenizer.isTag("99A")) {
+            detail.st_99A=first(detail.st_99A,tokenizer);
+        } else if (tokenizer.isTag("19A")) {
+            detail.st_19A.add(tokenizer.getValue());
+        } else if (tokenizer.isTag("22F")) {
+            detail.st_22F.add(tokenizer.getValue());
+        } else if (tokenizer.isTag("22H")) {
+            detail.st_22H.add(tokenizer.getValue());
+        } else if (tokenizer.isTag("98A")) {
+            detail.st_98A.add(tokenizer.getValue());
+        } else if (tokenizer.isTag("25D")) {
+            detail.st_25D=first(detail.st_25D,tokenizer);
+        } else if (tokenizer.isTag("70E")) {
+            detail.st_70E=first(detail.st_70E,tokenizer);
+        }
+    }
+
+    /**
+     * Uebernimmt die Transaktionsdetails in die Transaktion.
+     * @param transaction die Transaktion.
+     * @param detail die Transaktionsdetails.
+     * @throws Exception
+     */
+    private void parseDetail(Transaction transaction, Detail detail) throws Exception
+    {
+        String quantity=detail.st_36B;
+        if (quantity!=null) {
+            if (quantity.startsWith(":PSTA")) {
+                transaction.anzahl=parseTypedValue(quantity);
+            } else {
+                HBCIUtils.log("Unbekannter 36B: "+quantity,HBCIUtils.LOG_WARN);
+            }
+        }
+
+        String t99a=detail.st_99A;
+        if (t99a!=null) {
+            if (t99a.startsWith(":DAAC")) {
+                if (t99a.charAt(7)=='N')
+                    transaction.stueckzins_tage=-Integer.parseInt(t99a.substring(8));
+                else
+                    transaction.stueckzins_tage=Integer.parseInt(t99a.substring(7));
+            } else {
+                HBCIUtils.log("Unbekannter 99A: "+t99a,HBCIUtils.LOG_WARN);
+            }
+        }
+
+        for (String t19a:detail.st_19A) {
+            if (t19a.startsWith(":PSTA")) {
+                transaction.betrag=parseAmount(t19a);
+            } else if (t19a.startsWith(":ACRU")) {
+                transaction.stueckzinsen=parseAmount(t19a);
+            } else {
+                HBCIUtils.log("Unbekannter 19A: "+t19a,HBCIUtils.LOG_WARN);
+            }
+        }
+
+        for (String t22f:detail.st_22F) {
+            if (t22f.startsWith(":TRAN")) {
+                if (t22f.endsWith("SETT")) {
+                    transaction.transaction_indicator=Transaction.INDICATOR_SETTLEMENT_CLEARING;
+                } else if (t22f.endsWith("CORP")) {
+                    transaction.transaction_indicator=Transaction.INDICATOR_CORPORATE_ACTION;
+                } else if (t22f.endsWith("BOLE")) {
+                    transaction.transaction_indicator=Transaction.INDICATOR_LEIHE;
+                } else if (t22f.endsWith("COLL")) {
+                    transaction.transaction_indicator=Transaction.INDICATOR_SICHERHEITEN;
+                } else {
+                    HBCIUtils.log("Unbekannter 22F->TRAN: "+t22f,HBCIUtils.LOG_WARN);
+                    transaction.transaction_indicator=-1;
+                }
+            } else if (t22f.startsWith(":CCPT")) {
+                if (t22f.endsWith("YCCP")) {
+                    transaction.ccp_eligibility=true;
+                } else {
+                    HBCIUtils.log("Unbekannter 22F->CCPT: "+t22f,HBCIUtils.LOG_WARN);
+                }
+            } else {
+                HBCIUtils.log("Unbekannter 22F: "+t22f,HBCIUtils.LOG_WARN);
+            }
+        }
+
+        for (String t22h:detail.st_22H) {
+            if (t22h.startsWith(":REDE")) {
+                if (t22h.endsWith("DELI")) {
+                    transaction.richtung=Transaction.RICHTUNG_LIEFERUNG;
+                } else if (t22h.endsWith("RECE")) {
+                    transaction.richtung=Transaction.RICHTUNG_ERHALT;
+                } else {
+                    HBCIUtils.log("Unbekannter 22H->REDE: "+t22h,HBCIUtils.LOG_WARN);
+                    transaction.richtung=-1;
+                }
+            } else if (t22h.startsWith(":PAYM")) {
+                if (t22h.endsWith("APMT")) {
+                    transaction.bezahlung=Transaction.BEZAHLUNG_GEGEN_ZAHLUNG;
+                } else if (t22h.endsWith("FREE")) {
+                    transaction.bezahlung=Transaction.BEZAHLUNG_FREI;
+                } else {
+                    HBCIUtils.log("Unbekannter 22H->PAYM: "+t22h,HBCIUtils.LOG_WARN);
+                    transaction.bezahlung=-1;
+                }
+            } else {
+                HBCIUtils.log("Unbekannter 22H: "+t22h,HBCIUtils.LOG_WARN);
+            }
+        }
+
+        for (String t98a:detail.st_98A) {
+            if (t98a.startsWith(":ESET")) {
+                transaction.datum=dateFormat.parse(t98a.substring(7));
+            } else if (t98a.startsWith(":SETT")) {
+                transaction.datum_valuta=dateFormat.parse(t98a.substring(7));
+            } else {
+                HBCIUtils.log("Unbekannter 98A: "+t98a,HBCIUtils.LOG_WARN);
+            }
+        }
+
+        String move=detail.st_25D;
+        if (move!=null) {
+            if (move.startsWith(":MOVE")) {
+                if (move.endsWith("REVE"))
+                    transaction.storno=true;
+            } else {
+                HBCIUtils.log("Unbekannter 25D: "+move,HBCIUtils.LOG_WARN);
+            }
+        }
+
+        String freitext=detail.st_70E;
+        if (freitext!=null) {
+            if (freitext.startsWith(":TRDE")) {
+                transaction.freitext_details=freitext.substring(7);
+            } else {
+                HBCIUtils.log("Unbekannter 70E: "+freitext,HBCIUtils.LOG_WARN);
+            }
+        }
+    }
+
+    /**
+     * Parst einen Wert mit Typ aus Tag 93B, 36B bzw. 90A/90B (<code>:QUAL//TYPE/[N][WWW]Betrag</code>).
+     * @param st Wert des Tags.
+     * @return der Wert.
+     */
+    private static TypedValue parseTypedValue(String st)
+    {
+        String  st_type=st.substring(7,11);
+        String  curr="";
+        boolean withCurr=false;
+
+        int saldo_type=-1;
+        if (st_type.equals("FAMT")) {
+            saldo_type=TypedValue.TYPE_WERT;
+        } else if (st_type.equals("ACTU")) {
+            saldo_type=TypedValue.TYPE_WERT;
+            withCurr=true;
+        } else if (st_type.equals("UNIT")) {
+            saldo_type=TypedValue.TYPE_STCK;
+        } else if (st_type.equals("PRCT")) {
+            saldo_type=TypedValue.TYPE_PROZENT;
+        }
+        int pos1=12;
+        boolean neg=(st.charAt(pos1)=='N');
+        if (neg)
+            pos1++;
+        if (withCurr) {
+            curr=st.substring(pos1,pos1+3);
+            pos1+=3;
+        }
+        return new TypedValue(
+                (neg?"-":"")+st.substring(pos1).replace(',','.'),
+                curr,
+                saldo_type);
+    }
+}
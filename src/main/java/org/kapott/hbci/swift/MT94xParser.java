@@ -0,0 +1,528 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci.swift;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.kapott.hbci.GV_Result.GVRKUms.BTag;
+import org.kapott.hbci.GV_Result.GVRKUms.UmsLine;
+import org.kapott.hbci.exceptions.HBCI_Exception;
+import org.kapott.hbci.manager.HBCIUtils;
+import org.kapott.hbci.manager.HBCIUtilsInternal;
+import org.kapott.hbci.passport.HBCIPassport;
+import org.kapott.hbci.structures.Konto;
+import org.kapott.hbci.structures.Saldo;
+import org.kapott.hbci.structures.Value;
+
+/**
+ * Parser fuer MT940- und MT942-Daten.
+ * Die Daten werden blockweise (ein Block je Kontoauszug bzw. Buchungstag) gelesen.
+ * Jeder Block wird mit dem {@link SwiftTokenizer} genau einmal durchlaufen, so dass
+ * die Laufzeit linear mit der Anzahl der Buchungen waechst. Die Buchungstage werden
+ * erst beim Aufruf von {@link #next()} erzeugt, der Aufrufer muss also nicht alle
+ * Buchungstage gleichzeitig im Speicher halten.
+ */
+public class MT94xParser implements Iterator<BTag>
+{
+    private final String           text;
+    private final HBCIPassport     passport;
+    private final SimpleDateFormat dateFormat=new SimpleDateFormat("yyMMdd");
+
+    private int pos;
+
+    /**
+     * ct.
+     * @param text die MT940- bzw. MT942-Daten.
+     * @param passport optionaler Passport zum Vervollstaendigen der Kontodaten.
+     */
+    public MT94xParser(String text, HBCIPassport passport)
+    {
+        this.text=text;
+        this.passport=passport;
+        this.pos=0;
+    }
+
+    /**
+     * @see java.util.Iterator#hasNext()
+     */
+    public boolean hasNext()
+    {
+        return pos<text.length();
+    }
+
+    /**
+     * Parst den naechsten Block.
+     * Tritt dabei ein Fehler auf, bleibt die Position am Anfang des fehlerhaften Blockes
+     * stehen, so dass die nicht geparsten Daten per {@link #getRest()} abgerufen werden koennen.
+     * @see java.util.Iterator#next()
+     */
+    public BTag next()
+    {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        int end=SwiftTokenizer.findBlockEnd(text,pos);
+        try {
+            BTag btag=parseBlock(pos,end);
+            pos=end;
+            return btag;
+        } catch (Exception e) {
+            HBCIUtils.log("There is unparsed MT94x data - an exception occured while parsing",HBCIUtils.LOG_ERR);
+            HBCIUtils.log("current MT94x buffer: "+getRest(),HBCIUtils.LOG_DEBUG2);
+            throw new HBCI_Exception(e);
+        }
+    }
+
+    /**
+     * Liefert die noch nicht geparsten Daten.
+     * Nach einem Fehler beginnen diese mit dem fehlerhaften Block.
+     * @return die noch nicht geparsten Daten.
+     */
+    public String getRest()
+    {
+        return text.substring(pos);
+    }
+
+    /**
+     * Parst einen Block.
+     * @param start Beginn des Blockes.
+     * @param end Ende des Blockes.
+     * @return der Buchungstag.
+     * @throws Exception
+     */
+    private BTag parseBlock(int start, int end) throws Exception
+    {
+        String       konto_info=null;
+        String       counter=null;
+        String       st_60F=null;
+        String       st_60M=null;
+        String       st_62F=null;
+        String       st_62M=null;
+        List<String> st_61=new ArrayList<String>();
+        List<String> st_86=new ArrayList<String>();
+
+        // Block einmal durchlaufen und die Tags einsammeln. Von 25, 28C, 60 und 62
+        // zaehlt jeweils nur das erste Vorkommen, das n-te 86 gehoert zum n-ten 61
+        SwiftTokenizer tokenizer=new SwiftTokenizer(text,start,end);
+        while (tokenizer.next()) {
+            if (tokenizer.isTag("61")) {
+                st_61.add(tokenizer.getValue());
+            } else if (tokenizer.isTag("86")) {
+                st_86.add(tokenizer.getValue());
+            } else if (tokenizer.isTag("25")) {
+                if (konto_info==null)
+                    konto_info=tokenizer.getValue();
+            } else if (tokenizer.isTag("28C")) {
+                if (counter==null)
+                    counter=tokenizer.getValue();
+            } else if (tokenizer.isTag("60F")) {
+                if (st_60F==null)
+                    st_60F=tokenizer.getValue();
+            } else if (tokenizer.isTag("60M")) {
+                if (st_60M==null)
+                    st_60M=tokenizer.getValue();
+            } else if (tokenizer.isTag("62F")) {
+                if (st_62F==null)
+                    st_62F=tokenizer.getValue();
+            } else if (tokenizer.isTag("62M")) {
+                if (st_62M==null)
+                    st_62M=tokenizer.getValue();
+            }
+        }
+
+        BTag btag=new BTag();
+
+        // extract konto data
+        int pos = konto_info != null ? konto_info.indexOf("/") : -1;
+        String blz;
+        String number;
+        String iban;
+        String curr;
+
+        if (pos!=-1) {
+            blz=konto_info.substring(0,pos);
+            number=konto_info.substring(pos+1);
+            iban="";
+            curr="";
+
+            for (pos=number.length();pos>0;pos--) {
+                char ch=number.charAt(pos-1);
+
+                if (ch>='0' && ch<='9')
+                    break;
+            }
+
+            if (pos<number.length()) {
+                curr=number.substring(pos);
+                number=number.substring(0,pos);
+            }
+        } else {
+            blz="";
+            number="";
+            iban=konto_info;
+            curr="";
+        }
+
+        btag.my=new Konto();
+        btag.my.blz=blz;
+        btag.my.number=number;
+        btag.my.iban=iban;
+        btag.my.curr=curr;
+        if (passport!=null) {
+            passport.fillAccountInfo(btag.my);
+        }
+
+        // extract "auszugsnummer"
+        btag.counter=counter;
+
+        // extract "anfangssaldo"
+        String st_start=st_60F;
+        char   starttype='F';
+        if (st_start==null) {
+            st_start=st_60M;
+            starttype='M';
+        }
+        if (st_start!=null) {
+            // Tag 60 (Anfangssaldo) gibt es in MT942 nicht,
+            // darum wird btag.start nur in MT940 gefuellt
+
+            btag.start=new Saldo();
+            btag.starttype=starttype;
+
+            String cd=st_start.substring(0,1);
+
+            try {
+                btag.start.timestamp=dateFormat.parse(st_start.substring(1,7));
+            } catch (Exception e) {
+                btag.start.timestamp=null;
+            }
+
+            // hier aus dem CD-Indikator und dem absoluten Saldo-Betrag
+            // einen String fuer den Saldo-Betrag zusamennbauen
+            btag.start.value=new Value(
+                (cd.equals("D")?"-":"")+st_start.substring(10).replace(',','.'),
+                st_start.substring(7,10));
+        }
+
+        // TODO: beim MT942 (btag.start==null) muesste als Initialwert
+        // fuer den Saldo hier eigentlich der Abschluss-Saldo aus den
+        // gebuchten Umsaetzen verwendet werden (den habe ich an dieser
+        // Stelle aber nicht so ohne weiteres)
+        long saldo = (btag.start!=null)?btag.start.value.getLongValue():0;
+
+        for (int i=0;i<st_61.size();i++) {
+            UmsLine line=parseLine(btag,st_61.get(i),(i<st_86.size())?st_86.get(i):null);
+
+            // update saldo
+            saldo+=line.value.getLongValue();
+
+            line.saldo=new Saldo();
+            line.saldo.timestamp=line.bdate;
+            // TODO: bei einem MT942 wird die waehrung hier automatisch auf EUR
+            // gesetzt, weil die auto-erkennung (anhand des anfangssaldos) hier nicht
+            // funktioniert, weil es im MT942 keinen anfangssaldo gibt
+            line.saldo.value=new Value(saldo, (btag.start!=null)?btag.start.value.getCurr():"EUR");
+
+            btag.addLine(line);
+        }
+
+        // extract "schlusssaldo"
+        String st_end=st_62F;
+        char   endtype='F';
+        btag.endtype='F';
+        if (st_end==null) {
+            st_end=st_62M;
+            endtype='M';
+        }
+        if (st_end!=null) {
+            // Tag 62 (Schlusssaldo) gibt es in MT942 nicht,
+            // darum wird btag.end nur in MT940 gefuellt
+
+            btag.end=new Saldo();
+            btag.endtype=endtype;
+
+            String cd=st_end.substring(0,1);
+
+            try {
+                btag.end.timestamp=dateFormat.parse(st_end.substring(1,7));
+            } catch (Exception e) {
+                btag.end.timestamp=null;
+            }
+
+            // set default values for optional non-given bdates
+            if (btag.start != null && btag.start.timestamp==null) {
+                btag.start.timestamp=btag.end.timestamp;
+            }
+            for (int i=0;i<btag.lines.size();i++) {
+                UmsLine line=btag.lines.get(i);
+                if (line.bdate==null) {
+                    line.bdate=btag.end.timestamp;
+                }
+            }
+
+            btag.end.value=new Value(
+                    (cd.equals("D")?"-":"")+st_end.substring(10).replaceAll("\\s","").replace(',','.'),
+                    st_end.substring(7,10));
+        }
+
+        // Now check if the end balance (Schlusssaldo) equals balance of last statement. If not, the bank sent a wrong start balance
+        // and we have to re-calculate the balances for each statement
+        int numLines = btag.lines.size();
+        if(numLines > 0 && btag.end != null) {
+            UmsLine lastLine = btag.lines.get(numLines-1);
+            saldo = btag.end.value.getLongValue();
+            if(lastLine.saldo.value.getLongValue() != saldo) {
+                for(int i=numLines-1; i>=0; i--) {
+                    lastLine = btag.lines.get(i);
+                    lastLine.saldo.value = new Value(saldo, btag.end.value.getCurr());
+                    saldo -= lastLine.value.getLongValue();
+                }
+            }
+        }
+
+        return btag;
+    }
+
+    /**
+     * Parst eine Umsatzzeile aus Tag 61 und dem zugehoerigen Tag 86.
+     * Der Saldo wird vom Aufrufer gesetzt.
+     * @param btag der Buchungstag.
+     * @param st_ums Wert von Tag 61.
+     * @param st_multi Wert von Tag 86 oder null.
+     * @return die Umsatzzeile.
+     * @throws Exception
+     */
+    private UmsLine parseLine(BTag btag, String st_ums, String st_multi) throws Exception
+    {
+        UmsLine line=new UmsLine();
+
+        // extract valuta
+        line.valuta=dateFormat.parse(st_ums.substring(0,6));
+
+        // extract bdate
+        int next=0;
+        if (st_ums.charAt(6)>'9') {
+            // [2012-01-27 - Patch von Frank/Pecunia]
+            // beim :61er Tag ist das Buchungsdatum optional. Wenn es nicht gesetzt ist, muss das Buchungsdatum des
+            // Umsatzes z.B. aus :60F kommen
+            if (btag.start !=  null && btag.start.timestamp != null) line.bdate = btag.start.timestamp;
+            else line.bdate=line.valuta;
+
+            next=6;
+
+        } else {
+            line.bdate=dateFormat.parse(st_ums.substring(0,2)+
+                st_ums.substring(6,10));
+
+            // wenn bdate und valuta um mehr als einen monat voneinander
+            // abweichen, dann ist das jahr des bdate falsch (1.1.2005 vs. 31.12.2004)
+            // korrektur des bdate-jahres in die richtige richtung notwendig
+            // FE: ein Monat reicht nicht, es sollte schon ein halbes Jahr sein - es gab verschiedene Probleme mit Umsaetzen im falschen Jahr!!
+            // http://www.onlinebanking-forum.de/phpBB2/viewtopic.php?p=75348
+            if (Math.abs(line.bdate.getTime()-line.valuta.getTime())>180L*24*3600*1000) {
+                int diff;
+
+                if (line.bdate.before(line.valuta)) {
+                    diff=+1;
+                } else {
+                    diff=-1;
+                }
+                Calendar cal=Calendar.getInstance();
+                cal.setTime(line.bdate);
+                cal.set(Calendar.YEAR,cal.get(Calendar.YEAR)+diff);
+                line.bdate=cal.getTime();
+            }
+
+            next=10;
+        }
+
+        // extract credit/debit
+        String cd;
+        if (st_ums.charAt(next)=='C' || st_ums.charAt(next)=='D') {
+            line.isStorno=false;
+            cd=st_ums.substring(next,next+1);
+            next++;
+        } else {
+            line.isStorno=true;
+            cd=st_ums.substring(next+1,next+2);
+            next+=2;
+        }
+
+        // skip part of currency
+        char currpart=st_ums.charAt(next);
+        if (currpart>'9')
+            next++;
+
+        line.value=new Value();
+
+        // TODO: bei einem MT942 wird die waehrung hier automatisch auf EUR
+        // gesetzt, weil die auto-erkennung (anhand des anfangssaldos) hier nicht
+        // funktioniert, weil es im MT942 keinen anfangssaldo gibt
+        line.value.setCurr((btag.start!=null)?btag.start.value.getCurr():"EUR");
+
+        // extract value and skip code
+        int    npos=st_ums.indexOf("N",next);
+        // welcher Code (C/D) zeigt einen negativen Buchungsbetrag
+        // an? Bei einer "normalen" Buchung ist das D(ebit). Bei
+        // einer Storno-Buchung ist der Betrag allerdings negativ,
+        // wenn eine ehemalige Gutschrift (Credit) storniert wird,
+        // in dem Fall waere als "C" der Indikator fuer den negativen
+        // Buchungsbetrag
+        String negValueIndikator=line.isStorno?"C":"D";
+        line.value.setValue(
+            HBCIUtilsInternal.string2Long(
+                (cd.equals(negValueIndikator)?"-":"") + st_ums.substring(next,npos).replace(',','.'),
+                100));
+        next=npos+4;
+
+        // extract customerref
+        npos=st_ums.indexOf("//",next);
+        if (npos==-1)
+            npos=st_ums.indexOf("\r\n",next);
+        if (npos==-1)
+            npos=st_ums.length();
+        line.customerref=st_ums.substring(next,npos);
+        next=npos;
+
+        // check for instref
+        if (next<st_ums.length() && st_ums.substring(next,next+2).equals("//")) {
+            // extract instref
+            next+=2;
+            npos=st_ums.indexOf("\r\n",next);
+            if (npos==-1)
+                npos=st_ums.length();
+            line.instref=st_ums.substring(next,npos);
+            next=npos+2;
+        }
+        if (line.instref==null)
+            line.instref="";
+
+        // check for additional information
+        if (next<st_ums.length() && st_ums.charAt(next)=='\r') {
+            next+=2;
+
+            // extract orig Value
+            int pos=st_ums.indexOf("/OCMT/",next);
+            if (pos!=-1) {
+                int slashpos=st_ums.indexOf("/",pos+9);
+                if (slashpos==-1)
+                    slashpos=st_ums.length();
+
+                try
+                {
+                  line.orig_value=new Value(
+                      st_ums.substring(pos+9,slashpos).replace(',','.'),
+                      st_ums.substring(pos+6,pos+9));
+                }
+                catch (NumberFormatException nfe)
+                {
+                  // Der Betrag darf fehlen. Tolerieren wir
+                }
+            }
+
+            // extract charge Value
+            pos=st_ums.indexOf("/CHGS/",next);
+            if (pos!=-1) {
+                int slashpos=st_ums.indexOf("/",pos+9);
+                if (slashpos==-1)
+                    slashpos=st_ums.length();
+
+                try
+                {
+                  line.charge_value=new Value(
+                      st_ums.substring(pos+9,slashpos).replace(',','.'),
+                      st_ums.substring(pos+6,pos+9));
+                }
+                catch (NumberFormatException nfe)
+                {
+                  // Der Betrag darf fehlen. Tolerieren wir
+                }
+            }
+        }
+
+        if (st_multi!=null) {
+            line.gvcode=st_multi.substring(0,3);
+            st_multi=Swift.packMulti(st_multi.substring(3));
+
+            if (!line.gvcode.equals("999")) {
+                line.isSepa = line.gvcode.startsWith("1");
+                line.text=Swift.getMultiTagValue(st_multi,"00");
+                line.primanota=Swift.getMultiTagValue(st_multi,"10");
+                for (int i=0;i<10;i++) {
+                    line.addUsage(Swift.getMultiTagValue(st_multi,Integer.toString(20+i)));
+                }
+
+                Konto acc=new Konto();
+                acc.blz=Swift.getMultiTagValue(st_multi,"30");
+                acc.number=Swift.getMultiTagValue(st_multi,"31");
+
+                // fuer den Fall, dass in der BLZ sowas hier drin steht: "GENODEF1S06 SVWZ+ ja"
+                // Siehe http://www.onlinebanking-forum.de/phpBB2/viewtopic.php?t=16182
+                if (acc.blz != null)
+                {
+                    int space = acc.blz.indexOf(" ");
+                    if (space != -1)
+                    {
+                        HBCIUtils.log("blz/bic \"" + acc.blz + "\" contains invalid chars, trimming after first space", HBCIUtils.LOG_DEBUG);
+                        acc.blz = acc.blz.substring(0,space);
+                    }
+                }
+
+                if (line.isSepa)
+                {
+                  acc.bic = acc.blz;
+                  acc.iban = acc.number;
+                }
+
+                acc.name=Swift.getMultiTagValue(st_multi,"32");
+                acc.name2=Swift.getMultiTagValue(st_multi,"33");
+                if (acc.blz!=null ||
+                        acc.number!=null ||
+                        acc.name!=null ||
+                        acc.name2!=null) {
+
+                    if (acc.blz==null)
+                        acc.blz="";
+                    if (acc.number==null)
+                        acc.number="";
+                    if (acc.name==null)
+                        acc.name="";
+                    line.other=acc;
+                }
+
+                line.addkey=Swift.getMultiTagValue(st_multi,"34");
+                for (int i=0;i<4;i++) {
+                    line.addUsage(Swift.getMultiTagValue(st_multi,Integer.toString(60+i)));
+                }
+            } else {
+                line.additional=st_multi;
+            }
+        }
+
+        return line;
+    }
+}
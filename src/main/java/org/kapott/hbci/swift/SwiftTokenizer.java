@@ -0,0 +1,229 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci.swift;
+
+/**
+ * Zerlegt einen Bereich von SWIFT-Daten (MT940, MT942, MT535, ...) in einem einzigen
+ * Durchlauf in seine Tags.
+ * Ein Tag beginnt mit einem Zeilenumbruch, gefolgt von <code>:NN:</code> bzw.
+ * <code>:NNX:</code>. Wie in {@link Swift#getTagValue(String, String, int)} werden
+ * auch die fehlerhaften Varianten mit einem "-" vor dem Tag (<code>\r\n-:NN:</code>
+ * und <code>\r\n-\r\n:NN:</code>) akzeptiert. Der Wert eines Tags reicht bis zum
+ * Beginn des naechsten Tags. Beim letzten Tag des Bereiches werden - ebenfalls wie
+ * in {@link Swift#getTagValue(String, String, int)} - alle Zeichen "\r", "\n" und "-"
+ * entfernt.
+ * Die Werte werden erst bei {@link #getValue()} aus den Daten kopiert.
+ */
+public final class SwiftTokenizer
+{
+    private final String text;
+    private final int    end;
+
+    private int nextMarker;
+    private int tagStart;
+    private int tagEnd;
+    private int valueStart;
+    private int valueEnd;
+
+    /**
+     * ct.
+     * @param text die SWIFT-Daten.
+     */
+    public SwiftTokenizer(String text)
+    {
+        this(text,0,text.length());
+    }
+
+    /**
+     * ct.
+     * @param text die SWIFT-Daten.
+     * @param start Beginn des zu zerlegenden Bereiches.
+     * @param end Ende (exklusiv) des zu zerlegenden Bereiches.
+     */
+    public SwiftTokenizer(String text, int start, int end)
+    {
+        this.text=text;
+        this.end=end;
+        this.tagStart=-1;
+        this.nextMarker=findMarker(start);
+    }
+
+    /**
+     * Liefert das Ende des Blockes, der an der angegebenen Position beginnt.
+     * Ein Block reicht wie bei {@link Swift#getOneBlock(StringBuffer)} bis zum
+     * naechsten <code>\r\n:20:</code>.
+     * @param text die SWIFT-Daten.
+     * @param start Beginn des Blockes.
+     * @return Ende (exklusiv) des Blockes.
+     */
+    public static int findBlockEnd(String text, int start)
+    {
+        int pos=text.indexOf("\r\n:20:",start+1);
+        return (pos==-1)?text.length():pos;
+    }
+
+    /**
+     * Springt zum naechsten Tag.
+     * @return true, wenn ein weiteres Tag gefunden wurde.
+     */
+    public boolean next()
+    {
+        if (nextMarker==-1) {
+            tagStart=-1;
+            return false;
+        }
+
+        int len=markerLength(nextMarker);
+        valueStart=nextMarker+len;
+        tagEnd=valueStart-1;
+        tagStart=text.lastIndexOf(':',tagEnd-1)+1;
+
+        nextMarker=findMarker(valueStart);
+        valueEnd=(nextMarker==-1)?end:nextMarker;
+        return true;
+    }
+
+    /**
+     * Liefert den Namen des aktuellen Tags, z.B. "61" oder "60F".
+     * @return der Name des Tags.
+     */
+    public String getTag()
+    {
+        return text.substring(tagStart,tagEnd);
+    }
+
+    /**
+     * Prueft, ob das aktuelle Tag den angegebenen Namen hat, ohne den Namen zu kopieren.
+     * @param tag der Name des Tags.
+     * @return true, wenn das aktuelle Tag den Namen hat.
+     */
+    public boolean isTag(String tag)
+    {
+        return tagEnd-tagStart==tag.length() && text.startsWith(tag,tagStart);
+    }
+
+    /**
+     * Liefert den Wert des aktuellen Tags.
+     * @return der Wert.
+     */
+    public String getValue()
+    {
+        if (nextMarker!=-1)
+            return text.substring(valueStart,valueEnd);
+
+        // Letztes Tag. Alle "\n", "\r" und "-" entfernen
+        StringBuilder sb=null;
+        for (int i=valueStart;i<valueEnd;i++) {
+            char ch=text.charAt(i);
+            if (ch=='\r' || ch=='\n' || ch=='-') {
+                if (sb==null)
+                    sb=new StringBuilder(valueEnd-valueStart).append(text,valueStart,i);
+            } else if (sb!=null) {
+                sb.append(ch);
+            }
+        }
+        return (sb!=null)?sb.toString():text.substring(valueStart,valueEnd);
+    }
+
+    /**
+     * Liefert den Beginn des Wertes des aktuellen Tags.
+     * @return Position des Wertes in den SWIFT-Daten.
+     */
+    public int getValueStart()
+    {
+        return valueStart;
+    }
+
+    /**
+     * Liefert das Ende (exklusiv) des Wertes des aktuellen Tags.
+     * @return Position des Endes in den SWIFT-Daten.
+     */
+    public int getValueEnd()
+    {
+        return valueEnd;
+    }
+
+    /**
+     * Sucht den Beginn des naechsten Tags.
+     * @param from Position, ab der gesucht wird.
+     * @return Position des Zeilenumbruchs vor dem Tag oder -1.
+     */
+    private int findMarker(int from)
+    {
+        int pos=from;
+        while (true) {
+            pos=text.indexOf('\r',pos);
+            if (pos==-1 || pos>=end)
+                return -1;
+            if (markerLength(pos)!=-1)
+                return pos;
+            pos++;
+        }
+    }
+
+    /**
+     * Prueft, ob an der Position ein Tag beginnt (<code>\r\n(-|-\r\n)?:\d{2}[A-Z]?:</code>).
+     * @param pos die Position.
+     * @return Laenge der Tag-Markierung bis einschliesslich des zweiten ":" oder -1.
+     */
+    private int markerLength(int pos)
+    {
+        int p=pos;
+        if (p+1>=end || text.charAt(p)!='\r' || text.charAt(p+1)!='\n')
+            return -1;
+        p+=2;
+
+        if (p<end && text.charAt(p)=='-') {
+            if (p+1<end && text.charAt(p+1)==':')
+                p++;
+            else if (p+3<end && text.charAt(p+1)=='\r' && text.charAt(p+2)=='\n' && text.charAt(p+3)==':')
+                p+=3;
+            else
+                return -1;
+        }
+
+        if (p>=end || text.charAt(p)!=':')
+            return -1;
+        p++;
+
+        if (p+1>=end || !isDigit(text.charAt(p)) || !isDigit(text.charAt(p+1)))
+            return -1;
+        p+=2;
+
+        if (p<end && text.charAt(p)>='A' && text.charAt(p)<='Z' && p+1<end && text.charAt(p+1)==':')
+            p++;
+
+        if (p>=end || text.charAt(p)!=':')
+            return -1;
+        return p+1-pos;
+    }
+
+    /**
+     * Prueft, ob das Zeichen eine Ziffer ist.
+     * @param ch das Zeichen.
+     * @return true, wenn es eine Ziffer ist.
+     */
+    private static boolean isDigit(char ch)
+    {
+        return ch>='0' && ch<='9';
+    }
+}
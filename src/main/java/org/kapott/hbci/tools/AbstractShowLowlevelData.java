@@ -21,16 +21,16 @@
 
 package org.kapott.hbci.tools;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import java.util.List;
+
+import org.kapott.hbci.protocol.syntax.SyntaxModel;
+import org.kapott.hbci.protocol.syntax.SyntaxRef;
 
 /** Basisklasse für die beiden <code>ShowLowlevelGV*</code>-Tools.
     Diese Klasse wird nur intern verwendet. */
 public class AbstractShowLowlevelData
 {
-    protected static void showData(String gvname,Document syntax,int minLevel)
+    protected static void showData(String gvname,SyntaxModel syntax,int minLevel)
     {
         int len=gvname.length();
         int versionpos=-1;
@@ -45,99 +45,55 @@ public class AbstractShowLowlevelData
                    
         System.out.println("jobname:"+gvname.substring(0,versionpos)+" version:"+gvname.substring(versionpos));
         
-        Element  gvdef=syntax.getElementById(gvname);
-        NodeList gvcontent=gvdef.getChildNodes();
-        len=gvcontent.getLength();
+        List<SyntaxRef> refs=syntax.getDef(gvname).getRefs();
         
-        boolean first=true;
-        for (int i=0;i<len;i++) {
-            Node contentref=gvcontent.item(i);
-            
-            if (contentref.getNodeType()==Node.ELEMENT_NODE) {
-                if (first) {
-                    first=false;
-                } else {
-                    displayContentRef("",(Element)contentref,syntax,2,0,minLevel);
-                }
-            }
+        // das erste Element ist der Segmentkopf
+        for (int i=1;i<refs.size();i++) {
+            displayContentRef("",refs.get(i),syntax,2,0,minLevel);
         }
     }
     
-    protected static void displayContentRef(String path,Element ref,Document syntax,int indent,int currentLevel,int minLevel)
+    protected static void displayContentRef(String path,SyntaxRef ref,SyntaxModel syntax,int indent,int currentLevel,int minLevel)
     {
-        if (ref.getAttribute("type").length()!=0) {
+        if (ref.getType().length()!=0) {
             StringBuffer spaces=new StringBuffer();
 
             for (int i=0;i<indent;i++)
                 spaces.append(" ");
 
-            if (ref.getNodeName().equals("DE")) {
+            if (ref.getKind()==SyntaxRef.Kind.DE) {
                 if (currentLevel>=minLevel) {
-                    String name=ref.getAttribute("name");
-
-                    String datatype=ref.getAttribute("type");
-
-                    String minlen=ref.getAttribute("minsize");
-                    String maxlen=ref.getAttribute("maxsize");
-
-                    int minnum=1;
-                    int maxnum=1;
-
-                    String st=ref.getAttribute("minnum");
-                    if (st.length()!=0)
-                        minnum=Integer.parseInt(st);
-
-                    st=ref.getAttribute("maxnum");
-                    if (st.length()!=0)
-                        maxnum=Integer.parseInt(st);
-
-                    System.out.println(spaces+pathWithDot(path)+name+":"+datatype+
-                            ((minlen.length()!=0)?(" min:"+minlen):"")+
-                            ((maxlen.length()!=0)?(" max:"+maxlen):"")+
-                            " {"+minnum+","+maxnum+"}");
+                    // minsize und maxsize werden nur ausgegeben, wenn sie
+                    // vom Default abweichen
+                    int minlen=ref.getMinSize();
+                    int maxlen=ref.getMaxSize();
+
+                    System.out.println(spaces+pathWithDot(path)+ref.getName()+":"+ref.getType()+
+                            ((minlen!=1)?(" min:"+minlen):"")+
+                            ((maxlen!=0)?(" max:"+maxlen):"")+
+                            " {"+ref.getMinNum()+","+ref.getMaxNum()+"}");
                 }
             } else {
                 String nextPath=path;
                 int    nextIndent=indent;
 
                 if (currentLevel>=minLevel) {
-                    String name=ref.getAttribute("name");
-                    if (name.length()==0)
-                        name=ref.getAttribute("type");
-                    
-                    int minnum=1;
-                    int maxnum=1;
-
-                    String st=ref.getAttribute("minnum");
-                    if (st.length()!=0)
-                        minnum=Integer.parseInt(st);
-
-                    st=ref.getAttribute("maxnum");
-                    if (st.length()!=0)
-                        maxnum=Integer.parseInt(st);
-
-                    System.out.println(spaces+"GROUP:"+name+" {"+minnum+","+maxnum+"}");
+                    System.out.println(spaces+"GROUP:"+ref.getName()+" {"+ref.getMinNum()+","+ref.getMaxNum()+"}");
                     
                     nextIndent+=2;
-                    nextPath=pathWithDot(path)+name;
+                    nextPath=pathWithDot(path)+ref.getName();
                 }
 
-                Element  def=syntax.getElementById(ref.getAttribute("type"));
-                NodeList defcontent=def.getChildNodes();
-                int      len=defcontent.getLength();
-
-                for (int i=0;i<len;i++) {
-                    Node content=defcontent.item(i);
-                    if (content.getNodeType()==Node.ELEMENT_NODE)
-                        displayContentRef(
-                                nextPath,(Element)content,syntax,
-                                nextIndent,currentLevel+1,minLevel);
+                for (SyntaxRef content:ref.getDef().getRefs()) {
+                    displayContentRef(
+                            nextPath,content,syntax,
+                            nextIndent,currentLevel+1,minLevel);
                 }
             }
         }
     }
     
-    protected static void showData(String gvname,Document syntax)
+    protected static void showData(String gvname,SyntaxModel syntax)
     {
         showData(gvname, syntax, 0);
     }
@@ -0,0 +1,149 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci.tools;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-freier Pool. Die freien Objekte liegen in einer gemeinsamen
+ * {@link ConcurrentLinkedQueue}, die benutzten in einem konkurrierenden Set.
+ * Die gepoolten Klassen ueberschreiben weder equals() noch hashCode(),
+ * so dass das Set die Objekte anhand ihrer Identitaet verwaltet.
+ */
+class LockFreeObjectPool implements ObjectPool
+{
+    private final Queue<Object> free = new ConcurrentLinkedQueue<Object>();
+    private final Set<Object> used = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger currentPoolSize = new AtomicInteger();
+    private final int maxPoolSize;
+
+    /**
+     * ct.
+     * @param maxPoolSize maximale Anzahl verwalteter Objekte.
+     */
+    LockFreeObjectPool(int maxPoolSize)
+    {
+        this.maxPoolSize = maxPoolSize;
+    }
+
+    @Override
+    public Object get()
+    {
+        return this.pollFree();
+    }
+
+    @Override
+    public void addUsed(Object o)
+    {
+        if (o != null && this.reserve())
+        {
+            if (!this.used.add(o))
+                this.currentPoolSize.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void addFree(Object o)
+    {
+        if (o != null && this.reserve())
+            this.offerFree(o);
+    }
+
+    @Override
+    public void release(Object o)
+    {
+        if (o != null && this.used.remove(o))
+            this.offerFree(o);
+    }
+
+    @Override
+    public Collection<Object> getUsedObjects()
+    {
+        return new ArrayList<Object>(this.used);
+    }
+
+    @Override
+    public Collection<Object> getFreeObjects()
+    {
+        return new ArrayList<Object>(this.free);
+    }
+
+    /**
+     * Reserviert einen Platz im Pool.
+     * @return true, wenn der Pool noch nicht voll war.
+     */
+    private boolean reserve()
+    {
+        for (;;)
+        {
+            int size = this.currentPoolSize.get();
+            if (size >= this.maxPoolSize)
+                return false;
+            if (this.currentPoolSize.compareAndSet(size,size + 1))
+                return true;
+        }
+    }
+
+    /**
+     * Gibt einen per {@link #reserve()} reservierten Platz wieder frei.
+     */
+    protected final void unreserve()
+    {
+        this.currentPoolSize.decrementAndGet();
+    }
+
+    /**
+     * Liefert die maximale Anzahl verwalteter Objekte.
+     * @return die maximale Anzahl verwalteter Objekte.
+     */
+    protected final int getMaxPoolSize()
+    {
+        return this.maxPoolSize;
+    }
+
+    /**
+     * Entnimmt ein freies Objekt und gibt dessen Platz im Pool frei.
+     * @return das Objekt oder NULL.
+     */
+    protected Object pollFree()
+    {
+        Object o = this.free.poll();
+        if (o != null)
+            this.unreserve();
+        return o;
+    }
+
+    /**
+     * Legt ein freies Objekt ab. Fuer das Objekt ist bereits ein Platz im Pool reserviert.
+     * @param o das Objekt.
+     */
+    protected void offerFree(Object o)
+    {
+        this.free.offer(o);
+    }
+}
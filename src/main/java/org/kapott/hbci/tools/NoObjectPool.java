@@ -0,0 +1,64 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci.tools;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Deaktiviert das Pooling, es werden immer neue Objekte erzeugt.
+ */
+final class NoObjectPool implements ObjectPool
+{
+    @Override
+    public Object get()
+    {
+        return null;
+    }
+
+    @Override
+    public void addUsed(Object o)
+    {
+    }
+
+    @Override
+    public void addFree(Object o)
+    {
+    }
+
+    @Override
+    public void release(Object o)
+    {
+    }
+
+    @Override
+    public Collection<Object> getUsedObjects()
+    {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public Collection<Object> getFreeObjects()
+    {
+        return Collections.emptyList();
+    }
+}
@@ -21,15 +21,19 @@
 
 package org.kapott.hbci.tools;
 
-import java.util.ArrayList;
 import java.util.Collection;
 
+import org.kapott.hbci.manager.HBCIUtils;
+
+/**
+ * Basisklasse der Object-Pools. Die eigentliche Verwaltung der Objekte
+ * uebernimmt der per Parameter <code>kernel.objpool.strategy</code>
+ * gewaehlte {@link ObjectPool}.
+ */
 public class ObjectFactory 
 {
-    protected final Collection<Object> freeObjects;
-    protected final Collection<Object> usedObjects;
-    private   final int        maxPoolSize;
-    protected int              currentPoolSize;
+    private final ObjectPool pool;
+    private final int        maxPoolSize;
     
     public ObjectFactory()
     {
@@ -38,83 +42,63 @@ public class ObjectFactory
     
     public ObjectFactory(int maxPoolSize)
     {
-        this.freeObjects=new ArrayList<Object>();
-        this.usedObjects=new ArrayList<Object>();
+        this(maxPoolSize,HBCIUtils.getConfig().getObjPoolStrategy());
+    }
+    
+    /**
+     * ct.
+     * @param maxPoolSize maximale Anzahl verwalteter Objekte.
+     * @param strategy die Pool-Strategie. Siehe ObjectPool.STRATEGY_*.
+     */
+    public ObjectFactory(int maxPoolSize,String strategy)
+    {
+        this.pool=ObjectPool.create(strategy,maxPoolSize);
         this.maxPoolSize=maxPoolSize;
-        this.currentPoolSize=0;
     }
     
-    public synchronized Object getFreeObject()
+    public Object getFreeObject()
     {
-    	if (freeObjects.isEmpty()) {
-    	    return null;
-        }
-        
-    	Object ret=freeObjects.iterator().next();
-    	freeObjects.remove(ret);
-    	currentPoolSize--;
-    	// HBCIUtils.log("returning unused object, new: "+toString(),HBCIUtils.LOG_DEBUG);
-    	return ret;
+    	return pool.get();
     }
     
-    public synchronized void addToUsedPool(Object o)
+    public void addToUsedPool(Object o)
     {
-    	// HBCIUtils.log("trying to add object to used pool",HBCIUtils.LOG_DEBUG);
-    	if (o!=null && currentPoolSize<maxPoolSize) {
-    		usedObjects.add(o);
-    		currentPoolSize++;
-    		// HBCIUtils.log("ok; new: "+toString(),HBCIUtils.LOG_DEBUG);
-    	}
+    	pool.addUsed(o);
     }
     
-    public synchronized void addToFreePool(Object o)
+    public void addToFreePool(Object o)
     {
-    	// HBCIUtils.log("trying to add object to free pool",HBCIUtils.LOG_DEBUG);
-    	if (o!=null && currentPoolSize<maxPoolSize) {
-    		freeObjects.add(o);
-    		currentPoolSize++;
-    		// HBCIUtils.log("ok; new: "+toString(),HBCIUtils.LOG_DEBUG);
-    	}
+    	pool.addFree(o);
     }
     
-    public synchronized void unuseObject(Object o)
+    public void unuseObject(Object o)
     {
-    	if (usedObjects.remove(o)) {
-    		freeObjects.add(o);
-    		// HBCIUtils.log("removed an object from used pool; new: "+toString(),HBCIUtils.LOG_DEBUG);
-    	}
+    	pool.release(o);
     }
     
     public String toString()
     {
         StringBuffer ret=new StringBuffer();
         
-        ret.append("used:").append(usedObjects.size()).append(" free:").append(freeObjects.size()).append(" maxsize:").append(maxPoolSize);
-        
-        /*
-        for (Iterator i=usedObjects.iterator();i.hasNext();) {
-            ret.append(System.getProperty("line.separator"));
-            
-            Object o=i.next();
-            if (o instanceof SyntaxElement)
-                ret.append("used: "+((SyntaxElement)o).toString(0));
-            else if (o instanceof MultipleSyntaxElements)
-                ret.append("used: "+((MultipleSyntaxElements)o).toString(0));
-            else 
-                ret.append("used: "+o.toString());
-        }
-        */
-        
+        ret.append("used:").append(getUsedObjects().size()).append(" free:").append(getFreeObjects().size()).append(" maxsize:").append(maxPoolSize);
         return ret.toString();
     }
     
-    public synchronized Collection<Object> getUsedObjects() 
+    /**
+     * Liefert eine Kopie der benutzten Objekte.
+     * @return Kopie der benutzten Objekte.
+     */
+    public Collection<Object> getUsedObjects() 
     {
-        return usedObjects;
+        return pool.getUsedObjects();
     }
     
-    public synchronized Collection<Object> getFreeObjects()
+    /**
+     * Liefert eine Kopie der freien Objekte.
+     * @return Kopie der freien Objekte.
+     */
+    public Collection<Object> getFreeObjects()
     {
-        return freeObjects;
+        return pool.getFreeObjects();
     }
 }
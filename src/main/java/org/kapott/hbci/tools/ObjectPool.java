@@ -0,0 +1,111 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci.tools;
+
+import java.util.Collection;
+
+import org.kapott.hbci.exceptions.HBCI_Exception;
+
+/**
+ * Strategie zur Verwaltung der Objekte einer {@link ObjectFactory}.
+ * Die Strategie wird per Parameter <code>kernel.objpool.strategy</code> festgelegt.
+ * Die Anzahl der verwalteten Objekte (benutzt und frei) ist auf die Pool-Groesse begrenzt.
+ */
+public interface ObjectPool
+{
+    /**
+     * Strategie mit globalem Lock.
+     */
+    public final static String STRATEGY_SYNCHRONIZED = "synchronized";
+
+    /**
+     * Strategie mit einem Stack freier Objekte je Thread.
+     */
+    public final static String STRATEGY_THREADLOCAL = "threadlocal";
+
+    /**
+     * Lock-freie Strategie mit einer gemeinsamen Queue freier Objekte.
+     */
+    public final static String STRATEGY_LOCKFREE = "lockfree";
+
+    /**
+     * Kein Pooling, es werden immer neue Objekte erzeugt.
+     */
+    public final static String STRATEGY_NONE = "none";
+
+    /**
+     * Liefert ein freies Objekt aus dem Pool.
+     * @return ein freies Objekt oder NULL, wenn keines verfuegbar ist.
+     */
+    public Object get();
+
+    /**
+     * Nimmt ein neu erzeugtes bzw. wiederverwendetes Objekt in die Liste der benutzten Objekte auf.
+     * @param o das Objekt.
+     */
+    public void addUsed(Object o);
+
+    /**
+     * Legt ein Objekt direkt als freies Objekt in den Pool.
+     * @param o das Objekt.
+     */
+    public void addFree(Object o);
+
+    /**
+     * Gibt ein benutztes Objekt zurueck in den Pool. Objekte, die nicht aus
+     * diesem Pool stammen oder bereits zurueckgegeben wurden, werden ignoriert.
+     * @param o das Objekt.
+     */
+    public void release(Object o);
+
+    /**
+     * Liefert eine Kopie der benutzten Objekte.
+     * @return Kopie der benutzten Objekte.
+     */
+    public Collection<Object> getUsedObjects();
+
+    /**
+     * Liefert eine Kopie der freien Objekte.
+     * @return Kopie der freien Objekte.
+     */
+    public Collection<Object> getFreeObjects();
+
+    /**
+     * Erzeugt einen Pool mit der angegebenen Strategie.
+     * @param strategy die Strategie. Siehe STRATEGY_*. NULL steht fuer {@link #STRATEGY_SYNCHRONIZED}.
+     * @param maxPoolSize maximale Anzahl verwalteter Objekte.
+     * @return der Pool.
+     */
+    public static ObjectPool create(String strategy, int maxPoolSize)
+    {
+        if (strategy == null || strategy.equals(STRATEGY_SYNCHRONIZED))
+            return new SynchronizedObjectPool(maxPoolSize);
+        if (strategy.equals(STRATEGY_THREADLOCAL))
+            return new ThreadLocalObjectPool(maxPoolSize);
+        if (strategy.equals(STRATEGY_LOCKFREE))
+            return new LockFreeObjectPool(maxPoolSize);
+        if (strategy.equals(STRATEGY_NONE))
+            return new NoObjectPool();
+
+        throw new HBCI_Exception("*** unknown object pool strategy: " + strategy);
+    }
+}
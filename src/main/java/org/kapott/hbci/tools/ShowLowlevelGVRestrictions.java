@@ -28,10 +28,8 @@ import org.kapott.hbci.callback.HBCICallbackConsole;
 import org.kapott.hbci.manager.HBCIKernelImpl;
 import org.kapott.hbci.manager.HBCIUtils;
 import org.kapott.hbci.manager.MsgGen;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import org.kapott.hbci.protocol.syntax.SyntaxModel;
+import org.kapott.hbci.protocol.syntax.SyntaxRef;
 
 /** TODO: doku fehlt (analog zu ShowLowlevelGVRs */
 public class ShowLowlevelGVRestrictions 
@@ -53,19 +51,10 @@ public class ShowLowlevelGVRestrictions
 
         HBCIKernelImpl kernel = new HBCIKernelImpl(null, hbciversion);
         MsgGen         msggen = kernel.getMsgGen();
-        Document       syntax = msggen.getSyntax();
+        SyntaxModel    syntax = msggen.getSyntax();
 
-        Element  paramlist = syntax.getElementById("Params");
-        NodeList paramnodes = paramlist.getChildNodes();
-        int      len = paramnodes.getLength();
-
-        for (int i = 0; i < len; i++) {
-            Node paramrefnode = paramnodes.item(i);
-
-            if (paramrefnode.getNodeType() == Node.ELEMENT_NODE) {
-                String paramname = ((Element) paramrefnode).getAttribute("type");
-                showData(paramname, syntax, 1);
-            }
+        for (SyntaxRef paramref : syntax.getDef("Params").getRefs()) {
+            showData(paramref.getType(), syntax, 1);
         }
     }
 
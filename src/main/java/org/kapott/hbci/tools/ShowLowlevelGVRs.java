@@ -28,10 +28,8 @@ import org.kapott.hbci.callback.HBCICallbackConsole;
 import org.kapott.hbci.manager.HBCIKernelImpl;
 import org.kapott.hbci.manager.HBCIUtils;
 import org.kapott.hbci.manager.MsgGen;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import org.kapott.hbci.protocol.syntax.SyntaxModel;
+import org.kapott.hbci.protocol.syntax.SyntaxRef;
 
 /** <p>Dieses Tool dient zum Anzeigen der Struktur von HBCI-Job-Ergebnisdaten im
     Rohformat. Diese Struktur wird benötigt, wenn Job-Ergebnisdaten nicht über
@@ -83,19 +81,10 @@ public class ShowLowlevelGVRs
         
         HBCIKernelImpl kernel=new HBCIKernelImpl(null,hbciversion);
         MsgGen         msggen=kernel.getMsgGen();
-        Document       syntax=msggen.getSyntax();
+        SyntaxModel    syntax=msggen.getSyntax();
         
-        Element  gvlist=syntax.getElementById("GVRes");
-        NodeList gvnodes=gvlist.getChildNodes();
-        int      len=gvnodes.getLength();
-        
-        for (int i=0;i<len;i++) {
-            Node gvrefnode=gvnodes.item(i);
-            
-            if (gvrefnode.getNodeType()==Node.ELEMENT_NODE) {
-                String gvname=((Element)gvrefnode).getAttribute("type");
-                showData(gvname,syntax);
-            }
+        for (SyntaxRef gvref:syntax.getDef("GVRes").getRefs()) {
+            showData(gvref.getType(),syntax);
         }
     }
 }
@@ -0,0 +1,97 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci.tools;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Pool mit globalem Lock. Entspricht dem frueheren Verhalten der {@link ObjectFactory},
+ * die benutzten Objekte werden jedoch in einem Identity-Set statt in einer Liste
+ * verwaltet, so dass das Zurueckgeben nicht mehr linear mit der Pool-Groesse waechst.
+ */
+final class SynchronizedObjectPool implements ObjectPool
+{
+    private final Deque<Object> free = new ArrayDeque<Object>();
+    private final Set<Object> used = Collections.newSetFromMap(new IdentityHashMap<Object,Boolean>());
+    private final int maxPoolSize;
+    private int currentPoolSize;
+
+    /**
+     * ct.
+     * @param maxPoolSize maximale Anzahl verwalteter Objekte.
+     */
+    SynchronizedObjectPool(int maxPoolSize)
+    {
+        this.maxPoolSize = maxPoolSize;
+    }
+
+    @Override
+    public synchronized Object get()
+    {
+        Object o = this.free.pollFirst();
+        if (o != null)
+            this.currentPoolSize--;
+        return o;
+    }
+
+    @Override
+    public synchronized void addUsed(Object o)
+    {
+        if (o != null && this.currentPoolSize < this.maxPoolSize && this.used.add(o))
+            this.currentPoolSize++;
+    }
+
+    @Override
+    public synchronized void addFree(Object o)
+    {
+        if (o != null && this.currentPoolSize < this.maxPoolSize)
+        {
+            this.free.addFirst(o);
+            this.currentPoolSize++;
+        }
+    }
+
+    @Override
+    public synchronized void release(Object o)
+    {
+        if (this.used.remove(o))
+            this.free.addFirst(o);
+    }
+
+    @Override
+    public synchronized Collection<Object> getUsedObjects()
+    {
+        return new ArrayList<Object>(this.used);
+    }
+
+    @Override
+    public synchronized Collection<Object> getFreeObjects()
+    {
+        return new ArrayList<Object>(this.free);
+    }
+}
@@ -35,8 +35,7 @@ import org.kapott.hbci.comm.Comm;
 import org.kapott.hbci.manager.HBCIUtils;
 import org.kapott.hbci.manager.MsgGen;
 import org.kapott.hbci.protocol.MSG;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
+import org.kapott.hbci.protocol.syntax.SyntaxDef;
 
 public final class SyntaxCheck 
 {
@@ -107,12 +106,10 @@ public final class SyntaxCheck
                 System.out.println(sa[i]+" = "+value+" ("+value.length()+" Bytes)");
             }
         } else {
-            NodeList list=gen.getSyntax().getElementsByTagName("MSGdef");
-            int      size=list.getLength();
-            MSG      msg;
+            MSG msg;
             
-            for (int i=0;i<size;i++) {
-                msgName=((Element)list.item(i)).getAttribute("id");
+            for (SyntaxDef msgdef:gen.getSyntax().getDefs(SyntaxDef.Kind.MSG)) {
+                msgName=msgdef.getId();
                 System.out.println("checking for '"+msgName+"'");
                 try {
                     msg=new MSG(msgName,st.toString(),st.length(),gen,checkSeq,checkValids);
@@ -0,0 +1,77 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci.tools;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+
+/**
+ * Pool mit einem Stack freier Objekte je Thread. Entnehmen und Zurueckgeben
+ * freier Objekte erfolgen ohne Synchronisierung; nur die benutzten Objekte
+ * werden wie in {@link LockFreeObjectPool} gemeinsam verwaltet und auf die
+ * maximale Groesse angerechnet. Die freien Objekte zaehlen nur gegen die
+ * ebenso grosse Obergrenze des Stacks ihres Threads. Sie werden nicht an
+ * andere Threads weitergegeben und mit dem Thread vom Garbage Collector
+ * entsorgt, ohne Platz im gemeinsamen Pool zu belegen.
+ */
+final class ThreadLocalObjectPool extends LockFreeObjectPool
+{
+    private final ThreadLocal<Deque<Object>> free = ThreadLocal.withInitial(() -> new ArrayDeque<Object>());
+
+    /**
+     * ct.
+     * @param maxPoolSize maximale Anzahl verwalteter Objekte.
+     */
+    ThreadLocalObjectPool(int maxPoolSize)
+    {
+        super(maxPoolSize);
+    }
+
+    @Override
+    protected Object pollFree()
+    {
+        return this.free.get().pollFirst();
+    }
+
+    @Override
+    protected void offerFree(Object o)
+    {
+        // Freie Objekte belegen keinen Platz im gemeinsamen Pool
+        this.unreserve();
+
+        Deque<Object> stack = this.free.get();
+        if (stack.size() < this.getMaxPoolSize())
+            stack.addFirst(o);
+    }
+
+    /**
+     * Liefert nur die freien Objekte des aktuellen Threads.
+     * @see org.kapott.hbci.tools.LockFreeObjectPool#getFreeObjects()
+     */
+    @Override
+    public Collection<Object> getFreeObjects()
+    {
+        return new ArrayList<Object>(this.free.get());
+    }
+}
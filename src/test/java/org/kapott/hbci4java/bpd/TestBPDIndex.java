@@ -0,0 +1,245 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci4java.bpd;
+
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.kapott.hbci.manager.HBCIKernelImpl;
+import org.kapott.hbci.manager.MsgGen;
+import org.kapott.hbci.passport.BPDIndex;
+import org.kapott.hbci.passport.HBCIPassportPinTan;
+import org.kapott.hbci.protocol.MSG;
+import org.kapott.hbci.protocol.factory.MSGFactory;
+import org.kapott.hbci.structures.Konto;
+import org.kapott.hbci4java.AbstractTest;
+
+/**
+ * Testet den Index ueber die BPD und den Cache der Konten aus den UPD.
+ */
+public class TestBPDIndex extends AbstractTest
+{
+  /**
+   * Liefert Pseudo-BPD aus der angegebenen Datei.
+   * @param file der Dateiname.
+   * @param version die HBCI-Version.
+   * @return die Pseudo-BPD.
+   * @throws Exception
+   */
+  private Properties getBPD(String file, String version) throws Exception
+  {
+    String data = getFile(file);
+    HBCIKernelImpl kernel = new HBCIKernelImpl(null,version);
+    kernel.rawNewMsg("DialogInitAnon");
+
+    MsgGen gen = kernel.getMsgGen();
+    MSG msg = MSGFactory.getInstance().createMSG("DialogInitAnonRes",data,data.length(),gen);
+    Hashtable<String,String> ht = new Hashtable<String,String>();
+    msg.extractValues(ht);
+
+    // Prefix abschneiden
+    Properties bpd = new Properties();
+    for (Enumeration<String> e=ht.keys();e.hasMoreElements();)
+    {
+      String name = e.nextElement();
+      String value = ht.get(name);
+
+      if (name.startsWith("DialogInitAnonRes."))
+        name = name.replace("DialogInitAnonRes.","");
+      if (name.startsWith("BPD."))
+        name = name.replace("BPD.","");
+      bpd.put(name,value);
+    }
+
+    return bpd;
+  }
+
+  /**
+   * Vergleicht die Ergebnisse des Index mit der frueheren linearen Suche.
+   * @throws Exception
+   */
+  @Test
+  public void test001() throws Exception
+  {
+    this.compare(getBPD("bpd2-formatted.txt","300"));
+    this.compare(getBPD("bpd3-formatted.txt","220"));
+  }
+
+  /**
+   * Testet die Versionen eines Geschaeftsvorfalls und das Invalidieren bei setBPD.
+   * @throws Exception
+   */
+  @Test
+  public void test002() throws Exception
+  {
+    Properties bpd = getBPD("bpd2-formatted.txt","300");
+    HBCIPassportPinTan passport = new HBCIPassportPinTan(null,0);
+    passport.setBPD(bpd);
+
+    BPDIndex index = passport.getBPDIndex();
+    Assert.assertSame(index,passport.getBPDIndex());
+
+    Map<Integer,String> versions = index.getVersions("TAN2Step");
+    Assert.assertEquals(Integer.valueOf(5),versions.keySet().iterator().next());
+    Assert.assertEquals("HITANS",versions.get(5));
+    Assert.assertEquals("HITANS",index.getSegmentCode("TAN2Step",5));
+    Assert.assertTrue(index.getVersions("GibtEsNicht").isEmpty());
+    Assert.assertNull(index.getSegmentCode("GibtEsNicht",1));
+
+    passport.setBPD(null);
+    Assert.assertNotSame(index,passport.getBPDIndex());
+    Assert.assertTrue(passport.getParamSegmentNames().isEmpty());
+  }
+
+  /**
+   * Testet die gecachten Konten aus den UPD.
+   * @throws Exception
+   */
+  @Test
+  public void test003() throws Exception
+  {
+    Properties upd = new Properties();
+    upd.setProperty("KInfo.KTV.number","1234567890");
+    upd.setProperty("KInfo.KTV.KIK.blz","12345678");
+    upd.setProperty("KInfo.KTV.KIK.country","DE");
+    upd.setProperty("KInfo.iban","DE12123456780001234567");
+    upd.setProperty("KInfo.customerid","kunde");
+    upd.setProperty("KInfo.AllowedGV.code","HKKAZ");
+    upd.setProperty("KInfo.AllowedGV_2.code","HKSAL");
+    upd.setProperty("KInfo_2.KTV.number","0987654321");
+    upd.setProperty("KInfo_2.KTV.KIK.blz","12345678");
+
+    HBCIPassportPinTan passport = new HBCIPassportPinTan(null,0);
+    passport.setUPD(upd);
+
+    Konto[] accounts = passport.getAccounts();
+    Assert.assertEquals(2,accounts.length);
+    Assert.assertEquals("DE12123456780001234567",accounts[0].iban);
+    Assert.assertEquals("[HKKAZ, HKSAL]",accounts[0].allowedGVs.toString());
+
+    // Aenderungen an den gelieferten Konten wirken sich nicht auf den Cache aus
+    accounts[0].customerid = "geaendert";
+    accounts[0].allowedGVs.clear();
+    Assert.assertEquals("kunde",passport.getAccounts()[0].customerid);
+    Assert.assertEquals(2,passport.getAccounts()[0].allowedGVs.size());
+
+    Konto k = new Konto();
+    k.number = "1234567890";
+    passport.fillAccountInfo(k);
+    Assert.assertEquals("kunde",k.customerid);
+    Assert.assertEquals("12345678",k.blz);
+
+    // Direkte Aenderungen an den UPD werden nach erneutem Setzen geliefert
+    upd.setProperty("KInfo_2.KTV.iban","DE98123456780987654321");
+    upd.setProperty("KInfo_2.iban","DE98123456780987654321");
+    upd.setProperty("KInfo_2.KTV.bic","ABCDDEFFXXX");
+    passport.setUPD(upd);
+    Assert.assertEquals("DE98123456780987654321",passport.getAccounts()[1].iban);
+    Assert.assertEquals("ABCDDEFFXXX",passport.getAccounts()[1].bic);
+
+    passport.setUPD(null);
+    Assert.assertEquals(0,passport.getAccounts().length);
+  }
+
+  /**
+   * Vergleicht Index und lineare Suche.
+   * @param bpd die BPD.
+   */
+  private void compare(Properties bpd)
+  {
+    HBCIPassportPinTan passport = new HBCIPassportPinTan(null,0);
+    passport.setBPD(bpd);
+
+    Properties names = passport.getParamSegmentNames();
+    Assert.assertFalse(names.isEmpty());
+    Assert.assertEquals(this.legacyParamSegmentNames(bpd),names);
+
+    for (String gvname:names.stringPropertyNames())
+    {
+      for (Integer version:passport.getBPDIndex().getVersions(gvname).keySet())
+      {
+        String v = version.toString();
+        Assert.assertEquals(gvname + v,this.legacyJobRestrictions(bpd,gvname,v),passport.getJobRestrictions(gvname,v));
+        Assert.assertEquals(gvname + v,this.legacyJobRestrictions(bpd,gvname,v),passport.getJobRestrictions(gvname + v));
+      }
+    }
+  }
+
+  /**
+   * Die fruehere Implementierung von getParamSegmentNames.
+   * @param bpd die BPD.
+   * @return die Geschaeftsvorfaelle mit der hoechsten Version.
+   */
+  private Properties legacyParamSegmentNames(Properties bpd)
+  {
+    Properties ret = new Properties();
+    for (Enumeration e=bpd.propertyNames();e.hasMoreElements();)
+    {
+      String key = (String)e.nextElement();
+      if (!key.startsWith("Params") || !key.endsWith(".SegHead.code"))
+        continue;
+
+      int dotPos = key.indexOf('.');
+      String gvname = key.substring(dotPos+1,key.indexOf('.',dotPos+1));
+      int versionPos = gvname.length();
+      while (versionPos > 0 && Character.isDigit(gvname.charAt(versionPos-1)))
+        versionPos--;
+
+      String version = gvname.substring(versionPos);
+      if (version.length() == 0)
+        continue;
+
+      gvname = gvname.substring(0,versionPos-3);
+      String known = ret.getProperty(gvname);
+      if (known == null || Integer.parseInt(version) > Integer.parseInt(known))
+        ret.setProperty(gvname,version);
+    }
+    return ret;
+  }
+
+  /**
+   * Die fruehere Implementierung von getJobRestrictions.
+   * @param bpd die BPD.
+   * @param gvname der Geschaeftsvorfall.
+   * @param version die Version.
+   * @return die Restriktionen.
+   */
+  private Properties legacyJobRestrictions(Properties bpd, String gvname, String version)
+  {
+    Properties result = new Properties();
+    String searchstring = gvname + "Par" + version;
+    for (Enumeration e=bpd.propertyNames();e.hasMoreElements();)
+    {
+      String key = (String)e.nextElement();
+      if (key.startsWith("Params") && key.indexOf("." + searchstring + ".Par") != -1)
+      {
+        int searchIdx = key.indexOf(searchstring);
+        result.setProperty(key.substring(key.indexOf(".",searchIdx + searchstring.length() + 4) + 1),bpd.getProperty(key));
+      }
+    }
+    return result;
+  }
+}
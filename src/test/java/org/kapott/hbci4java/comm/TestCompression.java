@@ -0,0 +1,308 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci4java.comm;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.kapott.hbci.callback.HBCICallback;
+import org.kapott.hbci.comm.Comm;
+import org.kapott.hbci.exceptions.HBCI_Exception;
+import org.kapott.hbci.manager.HBCIKernelImpl;
+import org.kapott.hbci.manager.HBCIUtils;
+import org.kapott.hbci.manager.IHandlerData;
+import org.kapott.hbci.manager.MsgGen;
+import org.kapott.hbci.passport.HBCIPassport;
+import org.kapott.hbci.passport.HBCIPassportInternal;
+import org.kapott.hbci.passport.HBCIPassportPinTan;
+import org.kapott.hbci.passport.HBCIPassportPinTanMemory;
+import org.kapott.hbci.protocol.MSG;
+import org.kapott.hbci.security.Compression;
+import org.kapott.hbci.status.HBCIMsgStatus;
+import org.kapott.hbci4java.callback.HBCICallbackTest;
+
+/**
+ * Testet die Kompression der Nachrichten (DE "compfunc" im Verschluesselungskopf).
+ */
+public class TestCompression
+{
+  private final static String DIALOGID = "AAAAAAAAAAAAAAAAAAAAAAAAAAAAAA";
+  private final static String PAYLOAD  = "HIRMG:2:2+0010::Nachricht entgegengenommen.'HIRMS:3:2:3+0100::Dialog beendet.'";
+
+  private HBCIPassportPinTan passport = null;
+  private StandInBank bank = null;
+
+  /**
+   * Testet die Komprimierungsfunktionen direkt.
+   * @throws Exception
+   */
+  @Test
+  public void test001() throws Exception
+  {
+    byte[] data = PAYLOAD.getBytes(StandardCharsets.ISO_8859_1);
+    for (String func:new String[]{Compression.COMPFUNC_NONE,Compression.COMPFUNC_ZIP,Compression.COMPFUNC_DEFLATE})
+    {
+      Assert.assertTrue(Compression.isSupported(func));
+      Assert.assertArrayEquals(data,Compression.decompress(func,Compression.compress(func,data)));
+    }
+    Assert.assertFalse(Compression.isSupported("7"));
+
+    // Per Default deaktiviert
+    String[][] supported = new String[][]{{"5","1"},{"6","1"}};
+    Assert.assertEquals(Compression.COMPFUNC_NONE,Compression.select(supported,2048));
+
+    // Auswahl anhand der BPD und der Mindestgroesse
+    HBCIUtils.setParam(Compression.PARAM_MINSIZE,"1024");
+    Assert.assertEquals(Compression.COMPFUNC_DEFLATE,Compression.select(supported,2048));
+    Assert.assertEquals(Compression.COMPFUNC_NONE,Compression.select(supported,100));
+    Assert.assertEquals(Compression.COMPFUNC_ZIP,Compression.select(new String[][]{{"1","1"},{"5","1"}},2048));
+    Assert.assertEquals(Compression.COMPFUNC_NONE,Compression.select(new String[0][],2048));
+
+    // Bei PIN/TAN wird nie komprimiert
+    Assert.assertEquals(Compression.COMPFUNC_NONE,Compression.select(this.passport,2048));
+
+    HBCIUtils.setParam(Compression.PARAM_MINSIZE,"-1");
+    Assert.assertEquals(Compression.COMPFUNC_NONE,Compression.select(supported,2048));
+  }
+
+  /**
+   * Testet, dass bei PIN/TAN auch bei aktivierter Kompression unkomprimiert
+   * gesendet, die komprimierte Antwort der Bank aber entpackt wird.
+   * @throws Exception
+   */
+  @Test
+  public void test002() throws Exception
+  {
+    HBCIUtils.setParam(Compression.PARAM_MINSIZE,"1");
+    HBCIMsgStatus status = this.sendDialogEnd();
+    Assert.assertTrue(status.isOK());
+    Assert.assertEquals("0100",status.getValue("RetSeg.RetVal.code"));
+
+    Assert.assertEquals(Compression.COMPFUNC_NONE,this.bank.compfunc);
+    Assert.assertTrue(this.bank.request.startsWith("HKEND:2:1+" + DIALOGID + "'"));
+  }
+
+  /**
+   * Testet, dass per Default nicht komprimiert wird.
+   * @throws Exception
+   */
+  @Test
+  public void test003() throws Exception
+  {
+    HBCIMsgStatus status = this.sendDialogEnd();
+    Assert.assertTrue(status.isOK());
+    Assert.assertEquals(Compression.COMPFUNC_NONE,this.bank.compfunc);
+    Assert.assertTrue(this.bank.request.startsWith("HKEND:2:1+" + DIALOGID + "'"));
+  }
+
+  /**
+   * Testet die Begrenzung der Groesse dekomprimierter Daten.
+   * @throws Exception
+   */
+  @Test
+  public void test004() throws Exception
+  {
+    byte[] data = new byte[100000];
+    for (String func:new String[]{Compression.COMPFUNC_ZIP,Compression.COMPFUNC_DEFLATE})
+    {
+      byte[] compressed = Compression.compress(func,data);
+      Assert.assertEquals(data.length,Compression.decompress(func,compressed).length);
+
+      HBCIUtils.setParam(Compression.PARAM_MAXSIZE,"65536");
+      try
+      {
+        Compression.decompress(func,compressed);
+        Assert.fail("HBCI_Exception erwartet");
+      }
+      catch (HBCI_Exception e)
+      {
+        // erwartet
+      }
+      finally
+      {
+        HBCIUtils.setParam(Compression.PARAM_MAXSIZE,null);
+      }
+    }
+  }
+
+  /**
+   * Sendet eine Dialog-Ende-Nachricht an die Bank.
+   * @return der Status.
+   * @throws Exception
+   */
+  private HBCIMsgStatus sendDialogEnd() throws Exception
+  {
+    final HBCIKernelImpl kernel = new HBCIKernelImpl(null,"300");
+    kernel.setParentHandlerData(new IHandlerData() {
+      public HBCIPassport getPassport()
+      {
+        return passport;
+      }
+      public MsgGen getMsgGen()
+      {
+        return kernel.getMsgGen();
+      }
+      public void sync(boolean force)
+      {
+      }
+    });
+
+    kernel.rawNewMsg("DialogEnd");
+    kernel.rawSet("DialogEndS.dialogid",DIALOGID);
+    kernel.rawSet("MsgHead.dialogid",DIALOGID);
+    kernel.rawSet("MsgHead.msgnum","1");
+    kernel.rawSet("MsgTail.msgnum","1");
+    return kernel.rawDoIt(false,true,true);
+  }
+
+  /**
+   * Erzeugt das Passport-Objekt.
+   * @throws Exception
+   */
+  @Before
+  public void before() throws Exception
+  {
+    final HBCICallbackTest callback = new HBCICallbackTest();
+    callback.put(HBCICallback.NEED_BLZ,"12345678");
+    callback.put(HBCICallback.NEED_COUNTRY,"DE");
+    callback.put(HBCICallback.NEED_HOST,"fints-demobank.local/fints/test123");
+    callback.put(HBCICallback.NEED_PORT,"443");
+    callback.put(HBCICallback.NEED_FILTER,"Base64");
+    callback.put(HBCICallback.NEED_USERID,"1234567890");
+    callback.put(HBCICallback.NEED_CUSTOMERID,"1234567890");
+    callback.put(HBCICallback.NEED_CONNECTION,"");
+    callback.put(HBCICallback.CLOSE_CONNECTION,"");
+
+    final Properties props = new Properties();
+    props.put("log.loglevel.default",Integer.toString(HBCIUtils.LOG_INFO));
+    HBCIUtils.init(props,callback);
+
+    this.passport = new HBCIPassportPinTanMemory(null) {
+      /**
+       * @see org.kapott.hbci.passport.AbstractPinTanPassport#getCommInstance()
+       */
+      @Override
+      public Comm getCommInstance()
+      {
+        if (bank == null)
+          bank = new StandInBank(this);
+        return bank;
+      }
+    };
+
+    // Die Bank unterstuetzt ZIP und deflate
+    Properties bpd = new Properties();
+    bpd.setProperty("CompMethod.SuppCompMethods.func","5");
+    bpd.setProperty("CompMethod.SuppCompMethods.version","1");
+    bpd.setProperty("CompMethod.SuppCompMethods_2.func","6");
+    bpd.setProperty("CompMethod.SuppCompMethods_2.version","1");
+    this.passport.setBPD(bpd);
+    this.passport.getComm();
+  }
+
+  /**
+   * Schliesst das Passport-Objekt.
+   * @throws Exception
+   */
+  @After
+  public void after() throws Exception
+  {
+    try
+    {
+      if (this.passport != null)
+        this.passport.close();
+    }
+    finally
+    {
+      HBCIUtils.done();
+    }
+  }
+
+  /**
+   * Lokale Stellvertreter-Bank. Entpackt die empfangene Nachricht und antwortet
+   * mit einer komprimierten Nachricht.
+   */
+  private static class StandInBank extends Comm
+  {
+    private String compfunc = null;
+    private String request  = null;
+
+    /**
+     * ct.
+     * @param passport
+     */
+    private StandInBank(HBCIPassportInternal passport)
+    {
+      super(passport);
+    }
+
+    /**
+     * @see org.kapott.hbci.comm.Comm#ping(org.kapott.hbci.protocol.MSG)
+     */
+    @Override
+    protected void ping(MSG msg)
+    {
+      final String s = msg.toString(0);
+
+      // Komprimierungsfunktion ist das letzte DE im Verschluesselungskopf
+      String crypthead = s.substring(s.indexOf("HNVSK:"),s.indexOf("'HNVSD:"));
+      this.compfunc = crypthead.substring(crypthead.lastIndexOf('+') + 1);
+
+      // Verschluesselte Daten lesen. Bei PIN/TAN sind sie nicht wirklich verschluesselt
+      int start = s.indexOf("HNVSD:999:1+@") + 13;
+      int end = s.indexOf('@',start);
+      int len = Integer.parseInt(s.substring(start,end));
+      byte[] data = s.substring(end + 1,end + 1 + len).getBytes(StandardCharsets.ISO_8859_1);
+      this.request = new String(Compression.decompress(this.compfunc,data),StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * @see org.kapott.hbci.comm.Comm#pong(org.kapott.hbci.manager.MsgGen)
+     */
+    @Override
+    protected StringBuffer pong(MsgGen gen)
+    {
+      final String func = Compression.COMPFUNC_DEFLATE;
+      final byte[] data = Compression.compress(func,PAYLOAD.getBytes(StandardCharsets.ISO_8859_1));
+
+      final String head = "HNHBK:1:3+";
+      final String rest = "+300+" + DIALOGID + "+1+" + DIALOGID + ":1'" +
+                          "HNVSK:998:3+PIN:1+998+1+2::0+1:20240612:142903+2:2:13:@8@        :5:1+280:12345678:1234567890:V:0:0+" + func + "'" +
+                          "HNVSD:999:1+@" + data.length + "@" + new String(data,StandardCharsets.ISO_8859_1) + "'" +
+                          "HNHBS:4:1+1'";
+      final int size = head.length() + 12 + rest.length();
+      return new StringBuffer(head + String.format("%012d",size) + rest);
+    }
+
+    /**
+     * @see org.kapott.hbci.comm.Comm#closeConnection()
+     */
+    @Override
+    protected void closeConnection()
+    {
+    }
+  }
+}
@@ -0,0 +1,234 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci4java.comm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLSession;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.kapott.hbci.comm.PinTanHttpClient;
+import org.kapott.hbci4java.AbstractTest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Testet den asynchronen HTTP-Client der PIN/TAN-Kommunikation gegen einen
+ * lokalen HTTP-Server, der die gesendeten Daten zurueckschickt.
+ */
+public class TestPinTanHttpClient extends AbstractTest
+{
+    private HttpServer server;
+    private URL url;
+    private final Set<Integer> clientPorts = new HashSet<Integer>();
+
+    /**
+     * Startet den Server.
+     * @throws Exception
+     */
+    @Before
+    public void before() throws Exception
+    {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1",0),0);
+        this.server.createContext("/echo",new HttpHandler() {
+            public void handle(HttpExchange ex) throws IOException
+            {
+                synchronized (clientPorts)
+                {
+                    clientPorts.add(ex.getRemoteAddress().getPort());
+                }
+                byte[] data = read(ex.getRequestBody());
+                ex.sendResponseHeaders(200,data.length);
+                OutputStream os = ex.getResponseBody();
+                os.write(data);
+                os.close();
+            }
+        });
+        this.server.createContext("/error",new HttpHandler() {
+            public void handle(HttpExchange ex) throws IOException
+            {
+                read(ex.getRequestBody());
+                ex.sendResponseHeaders(500,-1);
+                ex.close();
+            }
+        });
+        this.server.start();
+        this.url = new URL("http","127.0.0.1",this.server.getAddress().getPort(),"/echo");
+    }
+
+    /**
+     * Stoppt den Server.
+     */
+    @After
+    public void after()
+    {
+        this.server.stop(0);
+    }
+
+    /**
+     * Schickt mehrere Nachrichten gleichzeitig und prueft, dass jede ihre eigene Antwort erhaelt.
+     * @throws Exception
+     */
+    @Test
+    public void test001() throws Exception
+    {
+        PinTanHttpClient client = PinTanHttpClient.getInstance();
+        List<CompletableFuture<ByteBuffer>> futures = new ArrayList<CompletableFuture<ByteBuffer>>();
+        for (int i=0;i<20;i++)
+        {
+            futures.add(client.post(this.url,wrap("HNHBK:" + i + "'"),null,null));
+        }
+        for (int i=0;i<futures.size();i++)
+        {
+            ByteBuffer b = futures.get(i).join();
+            Assert.assertEquals("HNHBK:" + i + "'",new String(b.array(),b.arrayOffset() + b.position(),b.remaining(),"ISO-8859-1"));
+        }
+    }
+
+    /**
+     * Prueft, dass aufeinanderfolgende Nachrichten die Verbindung wiederverwenden.
+     * @throws Exception
+     */
+    @Test
+    public void test002() throws Exception
+    {
+        PinTanHttpClient client = PinTanHttpClient.getInstance();
+        for (int i=0;i<5;i++)
+        {
+            client.post(this.url,wrap("HNHBK:1'"),null,null).join();
+        }
+        Assert.assertEquals(1,this.clientPorts.size());
+    }
+
+    /**
+     * Prueft, dass HTTP-Fehler als Exception im Future landen.
+     * @throws Exception
+     */
+    @Test
+    public void test003() throws Exception
+    {
+        URL error = new URL("http","127.0.0.1",this.server.getAddress().getPort(),"/error");
+        try
+        {
+            PinTanHttpClient.getInstance().post(error,wrap("HNHBK:1'"),null,null).join();
+            Assert.fail("HTTP-Fehler nicht erkannt");
+        }
+        catch (CompletionException e)
+        {
+            Assert.assertTrue(e.getCause() instanceof IOException);
+            Assert.assertFalse(e.getCause() instanceof PinTanHttpClient.SendException);
+        }
+    }
+
+    /**
+     * Prueft den blockierenden Transport, der bei eigenem Hostname-Verifier verwendet wird.
+     * @throws Exception
+     */
+    @Test
+    public void test004() throws Exception
+    {
+        HostnameVerifier verifier = new HostnameVerifier() {
+            public boolean verify(String hostname, SSLSession session)
+            {
+                return true;
+            }
+        };
+
+        PinTanHttpClient client = PinTanHttpClient.getInstance();
+        List<CompletableFuture<ByteBuffer>> futures = new ArrayList<CompletableFuture<ByteBuffer>>();
+        for (int i=0;i<20;i++)
+        {
+            futures.add(client.post(this.url,wrap("HNHBK:" + i + "'"),null,verifier));
+        }
+        for (int i=0;i<futures.size();i++)
+        {
+            ByteBuffer b = futures.get(i).join();
+            Assert.assertEquals("HNHBK:" + i + "'",new String(b.array(),b.arrayOffset() + b.position(),b.remaining(),"ISO-8859-1"));
+        }
+    }
+
+    /**
+     * Prueft, dass ab Java 11 der nicht-blockierende Transport verwendet wird.
+     * @throws Exception
+     */
+    @Test
+    public void test005() throws Exception
+    {
+        boolean available = true;
+        try
+        {
+            Class.forName("java.net.http.HttpClient");
+        }
+        catch (ClassNotFoundException e)
+        {
+            available = false;
+        }
+        Assert.assertEquals(available,PinTanHttpClient.getInstance().isNonBlocking());
+    }
+
+    /**
+     * Liefert den String als Byte-Puffer.
+     * @param s der String.
+     * @return der Byte-Puffer.
+     * @throws IOException
+     */
+    private static ByteBuffer wrap(String s) throws IOException
+    {
+        return ByteBuffer.wrap(s.getBytes("ISO-8859-1"));
+    }
+
+    /**
+     * Liest den Stream komplett.
+     * @param is der Stream.
+     * @return die Daten.
+     * @throws IOException
+     */
+    private static byte[] read(InputStream is) throws IOException
+    {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] buf = new byte[1024];
+        int len = 0;
+        while ((len = is.read(buf)) != -1)
+        {
+            bos.write(buf,0,len);
+        }
+        return bos.toByteArray();
+    }
+}
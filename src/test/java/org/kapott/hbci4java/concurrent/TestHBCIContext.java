@@ -0,0 +1,297 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+
+package org.kapott.hbci4java.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.kapott.hbci.callback.HBCICallback;
+import org.kapott.hbci.comm.Comm;
+import org.kapott.hbci.concurrent.HBCIRunnable;
+import org.kapott.hbci.concurrent.HBCIVirtualThreadFactory;
+import org.kapott.hbci.manager.HBCIContext;
+import org.kapott.hbci.manager.HBCIKernelImpl;
+import org.kapott.hbci.manager.HBCIUtils;
+import org.kapott.hbci.manager.HBCIUtilsInternal;
+import org.kapott.hbci.manager.IHandlerData;
+import org.kapott.hbci.manager.MsgGen;
+import org.kapott.hbci.passport.HBCIPassport;
+import org.kapott.hbci.passport.HBCIPassportInternal;
+import org.kapott.hbci.passport.HBCIPassportPinTan;
+import org.kapott.hbci.passport.HBCIPassportPinTanMemory;
+import org.kapott.hbci.protocol.MSG;
+import org.kapott.hbci.status.HBCIMsgStatus;
+import org.kapott.hbci4java.AbstractTest;
+import org.kapott.hbci4java.callback.HBCICallbackTest;
+
+/**
+ * Testet die Ausfuehrung mit {@link HBCIContext} in Thread-Pools und virtuellen Threads.
+ */
+public class TestHBCIContext extends AbstractTest
+{
+  private final static String DIALOGID = "AAAAAAAAAAAAAAAAAAAAAAAAAAAAAA";
+  private final static String PAYLOAD  = "HIRMG:2:2+0010::Nachricht entgegengenommen.'HIRMS:3:2:3+0100::Dialog beendet.'";
+
+  /**
+   * Testet, dass sich zwei Kontexte in denselben Pool-Threads nicht gegenseitig beeinflussen.
+   * @throws Exception
+   */
+  @Test
+  public void test001() throws Exception
+  {
+    List<HBCIContext> contexts = new ArrayList<HBCIContext>();
+    for (int i=0;i<2;i++)
+    {
+      Properties props = new Properties();
+      props.setProperty("test.context",Integer.toString(i));
+      HBCIContext ctx = new HBCIContext("Test #" + i);
+      ctx.init(props,null);
+      contexts.add(ctx);
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try
+    {
+      List<Future<String>> results = new ArrayList<Future<String>>();
+      for (int i=0;i<20;i++)
+      {
+        final HBCIContext ctx = contexts.get(i % 2);
+        results.add(executor.submit(() -> ctx.call(() -> HBCIUtils.getParam("test.context") + "/" + HBCIUtils.getParam("log.loglevel.default") + "/" + (HBCIUtilsInternal.getCallback() != null))));
+      }
+      for (int i=0;i<results.size();i++)
+      {
+        // Parameter werden nicht geerbt, das Callback schon
+        Assert.assertEquals((i % 2) + "/null/true",results.get(i).get(10,TimeUnit.SECONDS));
+      }
+
+      // Ohne Kontext gilt weiterhin die ThreadGroup, per wrap() der Kontext des Aufrufers
+      Assert.assertNull(executor.submit(() -> HBCIUtils.getParam("test.context")).get(10,TimeUnit.SECONDS));
+      Assert.assertEquals("1",contexts.get(1).call(() -> executor.submit(HBCIContext.wrap(() -> HBCIUtils.getParam("test.context")))).get(10,TimeUnit.SECONDS));
+      Assert.assertNull(HBCIUtils.getParam("test.context"));
+    }
+    finally
+    {
+      executor.shutdown();
+      for (HBCIContext ctx:contexts)
+      {
+        ctx.done();
+      }
+    }
+  }
+
+  /**
+   * Fuehrt viele {@link HBCIRunnable} gleichzeitig aus, auf Java-Versionen mit virtuellen
+   * Threads in je einem eigenen virtuellen Thread. Jede Runnable erzeugt in ihrem Kontext
+   * ein eigenes PIN/TAN-Passport und einen Kernel und tauscht darueber eine komplette
+   * Nachricht (Dialog-Ende) mit einer lokalen Stellvertreter-Bank aus, die mit
+   * Verzoegerung antwortet.
+   * @throws Exception
+   */
+  @Test
+  public void test002() throws Exception
+  {
+    Assume.assumeTrue(Boolean.valueOf(System.getProperty(AbstractTest.SYSPROP_PERFORMANCE,Boolean.TRUE.toString())));
+
+    HBCIVirtualThreadFactory factory = new HBCIVirtualThreadFactory();
+    final int count = factory.isVirtual() ? 2000 : 500;
+    ExecutorService executor = factory.isVirtual() ? Executors.newCachedThreadPool(factory) : Executors.newFixedThreadPool(100,factory);
+
+    final HBCICallbackTest callback = new HBCICallbackTest();
+    callback.put(HBCICallback.NEED_BLZ,"12345678");
+    callback.put(HBCICallback.NEED_COUNTRY,"DE");
+    callback.put(HBCICallback.NEED_HOST,"fints-demobank.local/fints/test123");
+    callback.put(HBCICallback.NEED_PORT,"443");
+    callback.put(HBCICallback.NEED_FILTER,"Base64");
+    callback.put(HBCICallback.NEED_USERID,"1234567890");
+    callback.put(HBCICallback.NEED_CUSTOMERID,"1234567890");
+    callback.put(HBCICallback.NEED_CONNECTION,"");
+    callback.put(HBCICallback.CLOSE_CONNECTION,"");
+
+    final CountDownLatch done = new CountDownLatch(count);
+    final AtomicInteger errors = new AtomicInteger();
+    long start = System.currentTimeMillis();
+    try
+    {
+      for (int i=0;i<count;i++)
+      {
+        final String id = Integer.toString(i);
+        Properties props = new Properties();
+        props.setProperty("test.context",id);
+        props.setProperty("log.loglevel.default",Integer.toString(HBCIUtils.LOG_ERR));
+
+        executor.execute(new HBCIRunnable(props,callback,() -> null) {
+          @Override
+          protected void execute() throws Exception
+          {
+            HBCIPassportPinTan passport = null;
+            try
+            {
+              passport = createPassport();
+              HBCIMsgStatus status = sendDialogEnd(passport);
+              if (!status.isOK() || !"0100".equals(status.getValue("RetSeg.RetVal.code")) || !id.equals(HBCIUtils.getParam("test.context")))
+                errors.incrementAndGet();
+            }
+            catch (Exception e)
+            {
+              errors.incrementAndGet();
+              throw e;
+            }
+            finally
+            {
+              if (passport != null)
+                passport.close();
+              done.countDown();
+            }
+          }
+        });
+      }
+      Assert.assertTrue(done.await(120,TimeUnit.SECONDS));
+    }
+    finally
+    {
+      executor.shutdown();
+    }
+    System.out.println(count + " dialog messages (virtual: " + factory.isVirtual() + ") took " + (System.currentTimeMillis() - start) + " millis");
+    Assert.assertEquals(0,errors.get());
+  }
+
+  /**
+   * Erzeugt ein PIN/TAN-Passport, das mit der lokalen Stellvertreter-Bank kommuniziert.
+   * @return das Passport.
+   */
+  private static HBCIPassportPinTan createPassport()
+  {
+    HBCIPassportPinTan passport = new HBCIPassportPinTanMemory(null) {
+      private Comm bank = null;
+
+      /**
+       * @see org.kapott.hbci.passport.AbstractPinTanPassport#getCommInstance()
+       */
+      @Override
+      public Comm getCommInstance()
+      {
+        if (this.bank == null)
+          this.bank = new StandInBank(this);
+        return this.bank;
+      }
+    };
+    passport.getComm();
+    return passport;
+  }
+
+  /**
+   * Sendet eine Dialog-Ende-Nachricht ueber einen eigenen Kernel.
+   * @param passport das Passport.
+   * @return der Status.
+   * @throws Exception
+   */
+  private static HBCIMsgStatus sendDialogEnd(final HBCIPassportPinTan passport) throws Exception
+  {
+    final HBCIKernelImpl kernel = new HBCIKernelImpl(null,"300");
+    kernel.setParentHandlerData(new IHandlerData() {
+      public HBCIPassport getPassport()
+      {
+        return passport;
+      }
+      public MsgGen getMsgGen()
+      {
+        return kernel.getMsgGen();
+      }
+      public void sync(boolean force)
+      {
+      }
+    });
+
+    kernel.rawNewMsg("DialogEnd");
+    kernel.rawSet("DialogEndS.dialogid",DIALOGID);
+    kernel.rawSet("MsgHead.dialogid",DIALOGID);
+    kernel.rawSet("MsgHead.msgnum","1");
+    kernel.rawSet("MsgTail.msgnum","1");
+    return kernel.rawDoIt(false,true,true);
+  }
+
+  /**
+   * Lokale Stellvertreter-Bank. Simuliert beim Empfangen das Warten auf die Antwort der Bank.
+   */
+  private static class StandInBank extends Comm
+  {
+    /**
+     * ct.
+     * @param passport
+     */
+    private StandInBank(HBCIPassportInternal passport)
+    {
+      super(passport);
+    }
+
+    /**
+     * @see org.kapott.hbci.comm.Comm#ping(org.kapott.hbci.protocol.MSG)
+     */
+    @Override
+    protected void ping(MSG msg)
+    {
+    }
+
+    /**
+     * @see org.kapott.hbci.comm.Comm#pong(org.kapott.hbci.manager.MsgGen)
+     */
+    @Override
+    protected StringBuffer pong(MsgGen gen)
+    {
+      try
+      {
+        Thread.sleep(10L);
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+      }
+
+      final String head = "HNHBK:1:3+";
+      final String rest = "+300+" + DIALOGID + "+1+" + DIALOGID + ":1'" +
+                          "HNVSK:998:3+PIN:1+998+1+2::0+1:20240612:142903+2:2:13:@8@        :5:1+280:12345678:1234567890:V:0:0+0'" +
+                          "HNVSD:999:1+@" + PAYLOAD.length() + "@" + PAYLOAD + "'" +
+                          "HNHBS:4:1+1'";
+      final int size = head.length() + 12 + rest.length();
+      return new StringBuffer(head + String.format("%012d",size) + rest);
+    }
+
+    /**
+     * @see org.kapott.hbci.comm.Comm#closeConnection()
+     */
+    @Override
+    protected void closeConnection()
+    {
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci4java.datatypes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.kapott.hbci.datatypes.SyntaxDE;
+import org.kapott.hbci.datatypes.factory.SyntaxDEFactory;
+import org.kapott.hbci.datatypes.factory.SyntaxDEType;
+import org.kapott.hbci.exceptions.NoSuchSyntaxException;
+import org.kapott.hbci.exceptions.ParseErrorException;
+import org.kapott.hbci.protocol.ParseCursor;
+import org.kapott.hbci4java.AbstractTest;
+
+/**
+ * Testet die Erzeugung der Datenelemente ueber {@link SyntaxDEType}.
+ */
+public class TestSyntaxDEFactory extends AbstractTest
+{
+  /**
+   * Testet, dass alle Datentypen registriert sind und ohne Reflection erzeugt werden.
+   * @throws Exception
+   */
+  @Test
+  public void test001() throws Exception
+  {
+    List<String> names = new ArrayList<String>();
+    for (SyntaxDEType type:SyntaxDEType.getTypes())
+    {
+      names.add(type.getName());
+      Assert.assertSame(type,SyntaxDEType.forName(type.getName()));
+    }
+    Assert.assertEquals(Arrays.asList("AN","Bin","Code","Ctr","Cur","DTAUS","Date","Dig","Float","ID","JN","Num","Time","Wrt"),names);
+
+    SyntaxDEFactory factory = SyntaxDEFactory.getInstance();
+    SyntaxDE de = factory.createSyntaxDE("AN","Test.Value","a+b",0,0);
+    Assert.assertEquals("org.kapott.hbci.datatypes.SyntaxAN",de.getClass().getName());
+    Assert.assertEquals("a?+b",de.toString(0));
+    factory.unuseObject(de,"AN");
+
+    // Wiederverwendung aus dem Pool
+    SyntaxDE de2 = factory.createSyntaxDE(SyntaxDEType.forName("AN"),"Test.Value","xyz",0,0);
+    Assert.assertSame(de,de2);
+    Assert.assertEquals("xyz",de2.toString());
+    factory.unuseObject(de2,SyntaxDEType.forName("AN"));
+
+    // Parsen
+    SyntaxDE num = factory.createSyntaxDE("Num","Test.Num",new ParseCursor("42+"),1,3);
+    Assert.assertEquals("42",num.toString());
+    factory.unuseObject(num,"Num");
+  }
+
+  /**
+   * Testet die Fehlerbehandlung.
+   * @throws Exception
+   */
+  @Test
+  public void test002() throws Exception
+  {
+    Assert.assertNull(SyntaxDEType.forName("GibtEsNicht"));
+    try
+    {
+      SyntaxDEFactory.getInstance().createSyntaxDE("GibtEsNicht","Test.Value","x",0,0);
+      Assert.fail("NoSuchSyntaxException erwartet");
+    }
+    catch (NoSuchSyntaxException e)
+    {
+      // erwartet
+    }
+
+    try
+    {
+      SyntaxDEFactory.getInstance().createSyntaxDE("Num","Test.Num",new ParseCursor("abc+"),1,3);
+      Assert.fail("ParseErrorException erwartet");
+    }
+    catch (ParseErrorException e)
+    {
+      Assert.assertNotNull(e.getCause());
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+
+package org.kapott.hbci4java.manager;
+
+import java.io.File;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.kapott.hbci.GV.GVRegistry;
+import org.kapott.hbci.GV.GVTemplate;
+import org.kapott.hbci.GV.HBCIJobImpl;
+import org.kapott.hbci.GV.generators.SEPAGeneratorFactory;
+import org.kapott.hbci.GV.parsers.SEPAParserFactory;
+import org.kapott.hbci4java.AbstractTest;
+
+/**
+ * Testet, dass alle mitgelieferten Jobs, SEPA-Generatoren und -Parser ohne Reflection erzeugt werden.
+ */
+public class TestGVRegistry extends AbstractTest
+{
+  /**
+   * Vergleicht die registrierten Jobs mit den Klassen im Package.
+   * @throws Exception
+   */
+  @Test
+  public void test001() throws Exception
+  {
+    Set<String> expected = new TreeSet<String>();
+    for (String name:list(HBCIJobImpl.class))
+    {
+      if (!name.startsWith("GV") || name.contains("$") || name.equals(GVTemplate.class.getSimpleName()) || name.equals(GVRegistry.class.getSimpleName()))
+        continue;
+      expected.add(name.substring(2));
+    }
+    Assert.assertFalse(expected.isEmpty());
+    Assert.assertTrue(GVRegistry.getJobNames().containsAll(expected));
+
+    for (String name:expected)
+    {
+      Class<?> cl = Class.forName(HBCIJobImpl.class.getPackage().getName() + ".GV" + name);
+      Assert.assertEquals(name,cl.getMethod("getLowlevelName").invoke(null),GVRegistry.getLowlevelName(name));
+    }
+
+    Assert.assertFalse(GVRegistry.contains("GibtEsNicht"));
+    Assert.assertNull(GVRegistry.getLowlevelName("GibtEsNicht"));
+  }
+
+  /**
+   * Prueft, dass alle SEPA-Generatoren und -Parser registriert sind.
+   * @throws Exception
+   */
+  @Test
+  public void test002() throws Exception
+  {
+    int count = 0;
+    for (String name:list(SEPAGeneratorFactory.class))
+    {
+      if (name.startsWith("Gen") && !name.contains("$"))
+      {
+        Assert.assertTrue(name,SEPAGeneratorFactory.contains(SEPAGeneratorFactory.class.getPackage().getName() + "." + name));
+        count++;
+      }
+    }
+    for (String name:list(SEPAParserFactory.class))
+    {
+      if (name.startsWith("Parse") && !name.contains("$") && !name.endsWith("Stax"))
+      {
+        Assert.assertTrue(name,SEPAParserFactory.contains(SEPAParserFactory.class.getPackage().getName() + "." + name));
+        count++;
+      }
+    }
+    Assert.assertTrue(count > 0);
+  }
+
+  /**
+   * Liefert die Namen der Klassen im Package der angegebenen Klasse.
+   * @param type die Klasse.
+   * @return die Namen der Klassen ohne Package.
+   * @throws Exception
+   */
+  private Set<String> list(Class<?> type) throws Exception
+  {
+    File dir = new File(type.getResource(type.getSimpleName() + ".class").toURI()).getParentFile();
+    Set<String> result = new TreeSet<String>();
+    for (String name:dir.list())
+    {
+      if (name.endsWith(".class"))
+        result.add(name.substring(0,name.length() - 6));
+    }
+    return result;
+  }
+}
@@ -0,0 +1,117 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+
+package org.kapott.hbci4java.manager;
+
+import java.util.Hashtable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.kapott.hbci.exceptions.HBCI_Exception;
+import org.kapott.hbci.manager.HBCIExecution;
+import org.kapott.hbci.status.HBCIExecStatus;
+import org.kapott.hbci.status.HBCIExecThreadedStatus;
+import org.kapott.hbci4java.AbstractTest;
+
+/**
+ * Testet die Uebergabe zwischen HBCI-Thread und Anwendung in {@link HBCIExecution}.
+ */
+public class TestHBCIExecution extends AbstractTest
+{
+  /**
+   * Testet einen Ablauf mit zwei Callbacks.
+   * @throws Exception
+   */
+  @Test
+  public void test001() throws Exception
+  {
+    final HBCIExecution execution = new HBCIExecution();
+    final HBCIExecStatus execStatus = new HBCIExecStatus();
+    final StringBuffer answers = new StringBuffer();
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try
+    {
+      CompletableFuture<HBCIExecThreadedStatus> f = execution.getNext();
+      executor.execute(() -> {
+        for (int i=0;i<2;i++)
+        {
+          Hashtable<String,Object> data = new Hashtable<String,Object>();
+          data.put("msg","TAN " + i);
+          answers.append(execution.callback(data));
+        }
+        execution.finish(execStatus);
+      });
+
+      HBCIExecThreadedStatus status = f.get(10,TimeUnit.SECONDS);
+      Assert.assertTrue(status.isCallback());
+      Assert.assertEquals("TAN 0",status.getCallbackData().get("msg"));
+
+      status = execution.answer("111").get(10,TimeUnit.SECONDS);
+      Assert.assertTrue(status.isCallback());
+      Assert.assertEquals("TAN 1",status.getCallbackData().get("msg"));
+
+      status = execution.answer("222").get(10,TimeUnit.SECONDS);
+      Assert.assertFalse(status.isCallback());
+      Assert.assertTrue(status.isFinished());
+      Assert.assertSame(execStatus,status.getExecStatus());
+      Assert.assertEquals("111222",answers.toString());
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Testet, dass eine Antwort ohne wartenden Callback abgelehnt wird und
+   * die gelieferte Future die Ausfuehrung nicht beeinflusst.
+   * @throws Exception
+   */
+  @Test
+  public void test002() throws Exception
+  {
+    HBCIExecution execution = new HBCIExecution();
+    try
+    {
+      execution.answer("123");
+      Assert.fail("HBCI_Exception erwartet");
+    }
+    catch (HBCI_Exception e)
+    {
+      // erwartet
+    }
+
+    CompletableFuture<HBCIExecThreadedStatus> f = execution.getNext();
+    f.complete(new HBCIExecThreadedStatus());
+    Assert.assertFalse(execution.getNext().isDone());
+
+    execution.finish(null);
+    HBCIExecThreadedStatus status = execution.getNext().get(10,TimeUnit.SECONDS);
+    Assert.assertFalse(status.isCallback());
+    Assert.assertFalse(status.isFinished());
+  }
+}
@@ -0,0 +1,151 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci4java.manager;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.kapott.hbci.manager.HBCIUtils;
+import org.kapott.hbci.manager.KernelConfig;
+import org.kapott.hbci4java.AbstractTest;
+
+/**
+ * Testet den Schnappschuss der Kernel-Parameter per {@link HBCIUtils#getConfig()}.
+ */
+public class TestKernelConfig extends AbstractTest
+{
+    /**
+     * Entfernt die im Test gesetzten Parameter.
+     */
+    @After
+    public void cleanup()
+    {
+        HBCIUtils.setParam("kernel.objpool.Test",null);
+        HBCIUtils.setParam("kernel.gv.HKTEST.segversion.max",null);
+        HBCIUtils.setParam("test.flag",null);
+    }
+
+    /**
+     * Testet, dass der Schnappschuss wiederverwendet und bei Aenderungen ersetzt wird.
+     * @throws Exception
+     */
+    @Test
+    public void test001() throws Exception
+    {
+        KernelConfig config = HBCIUtils.getConfig();
+        Assert.assertSame(config,HBCIUtils.getConfig());
+        Assert.assertEquals(64,config.getObjPoolSize("Test",64));
+        Assert.assertEquals(0,config.getSegVersionMax("HKTEST"));
+
+        HBCIUtils.setParam("kernel.objpool.Test","16");
+        HBCIUtils.setParam("kernel.gv.HKTEST.segversion.max","5");
+
+        // Der alte Schnappschuss bleibt unveraendert
+        Assert.assertEquals(64,config.getObjPoolSize("Test",64));
+        Assert.assertEquals(0,config.getSegVersionMax("HKTEST"));
+
+        KernelConfig current = HBCIUtils.getConfig();
+        Assert.assertNotSame(config,current);
+        Assert.assertEquals(16,current.getObjPoolSize("Test",64));
+        Assert.assertEquals(5,current.getSegVersionMax("HKTEST"));
+        Assert.assertEquals("5",current.getParam("kernel.gv.HKTEST.segversion.max"));
+        Assert.assertEquals(HBCIUtils.getParam("log.filter","2"),Integer.toString(current.getLogFilter()));
+    }
+
+    /**
+     * Testet das Parsen von Zahlen und Wahrheitswerten.
+     * @throws Exception
+     */
+    @Test
+    public void test002() throws Exception
+    {
+        Assert.assertFalse(HBCIUtils.getConfig().getBoolean("test.flag",false));
+        Assert.assertTrue(HBCIUtils.getConfig().getBoolean("test.flag",true));
+
+        HBCIUtils.setParam("test.flag","yes");
+        Assert.assertTrue(HBCIUtils.getConfig().getBoolean("test.flag",false));
+        HBCIUtils.setParam("test.flag","0");
+        Assert.assertFalse(HBCIUtils.getConfig().getBoolean("test.flag",true));
+
+        HBCIUtils.setParam("test.flag","abc");
+        try
+        {
+            HBCIUtils.getConfig().getInt("test.flag",0);
+            Assert.fail("NumberFormatException erwartet");
+        }
+        catch (NumberFormatException e)
+        {
+            // erwartet
+        }
+    }
+
+    /**
+     * Testet, dass direkte Aenderungen an {@link HBCIUtils#getParams()} den Schnappschuss ersetzen.
+     * @throws Exception
+     */
+    @Test
+    public void test003() throws Exception
+    {
+        KernelConfig config = HBCIUtils.getConfig();
+        Assert.assertEquals(64,config.getObjPoolSize("Test",64));
+
+        HBCIUtils.getParams().setProperty("kernel.objpool.Test","8");
+        KernelConfig current = HBCIUtils.getConfig();
+        Assert.assertNotSame(config,current);
+        Assert.assertEquals(8,current.getObjPoolSize("Test",64));
+        Assert.assertSame(current,HBCIUtils.getConfig());
+
+        HBCIUtils.getParams().remove("kernel.objpool.Test");
+        Assert.assertEquals(64,HBCIUtils.getConfig().getObjPoolSize("Test",64));
+
+        // Aenderungen ueber die Views
+        HBCIUtils.getParams().setProperty("kernel.objpool.Test","8");
+        Assert.assertEquals(8,HBCIUtils.getConfig().getObjPoolSize("Test",64));
+        HBCIUtils.getParams().keySet().remove("kernel.objpool.Test");
+        Assert.assertEquals(64,HBCIUtils.getConfig().getObjPoolSize("Test",64));
+
+        HBCIUtils.getParams().setProperty("kernel.objpool.Test","8");
+        Assert.assertEquals(8,HBCIUtils.getConfig().getObjPoolSize("Test",64));
+        for (Map.Entry<Object,Object> e:HBCIUtils.getParams().entrySet())
+        {
+            if (e.getKey().equals("kernel.objpool.Test"))
+                e.setValue("4");
+        }
+        Assert.assertEquals(4,HBCIUtils.getConfig().getObjPoolSize("Test",64));
+
+        Iterator<Map.Entry<Object,Object>> it = HBCIUtils.getParams().entrySet().iterator();
+        while (it.hasNext())
+        {
+            if (it.next().getKey().equals("kernel.objpool.Test"))
+                it.remove();
+        }
+        Assert.assertEquals(64,HBCIUtils.getConfig().getObjPoolSize("Test",64));
+
+        HBCIUtils.getParams().setProperty("kernel.objpool.Test","17");
+        Assert.assertEquals(17,HBCIUtils.getConfig().getObjPoolSize("Test",64));
+        HBCIUtils.getParams().values().removeIf(v -> v.equals("17"));
+        Assert.assertEquals(64,HBCIUtils.getConfig().getObjPoolSize("Test",64));
+    }
+}
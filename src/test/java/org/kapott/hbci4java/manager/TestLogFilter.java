@@ -0,0 +1,265 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci4java.manager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.kapott.hbci.manager.LogFilter;
+import org.kapott.hbci4java.AbstractTest;
+
+/**
+ * Testet das Maskieren geheimer Daten per {@link LogFilter}.
+ */
+public class TestLogFilter extends AbstractTest
+{
+    private LogFilter filter = LogFilter.getInstance();
+
+    /**
+     * Entfernt alle registrierten Daten.
+     */
+    @Before
+    @After
+    public void clear()
+    {
+        this.filter.clearSecretData();
+    }
+
+    /**
+     * Testet das Maskieren abhaengig vom Filter-Level.
+     * @throws Exception
+     */
+    @Test
+    public void test001() throws Exception
+    {
+        this.filter.addSecretData("4711","X",LogFilter.FILTER_SECRETS);
+        this.filter.addSecretData("1234567890","X",LogFilter.FILTER_IDS);
+        this.filter.addSecretData("12030000","*",LogFilter.FILTER_MOST);
+
+        String line = "HKTAN+4711+1234567890:280:12030000+pin 4711'";
+        Assert.assertEquals(line,this.filter.filterLine(line,LogFilter.FILTER_NONE));
+        Assert.assertEquals("HKTAN+XXXX+1234567890:280:12030000+pin XXXX'",this.filter.filterLine(line,LogFilter.FILTER_SECRETS));
+        Assert.assertEquals("HKTAN+XXXX+XXXXXXXXXX:280:12030000+pin XXXX'",this.filter.filterLine(line,LogFilter.FILTER_IDS));
+        Assert.assertEquals("HKTAN+XXXX+XXXXXXXXXX:280:********+pin XXXX'",this.filter.filterLine(line,LogFilter.FILTER_MOST));
+        Assert.assertNull(this.filter.filterLine(null,LogFilter.FILTER_MOST));
+
+        // Nach dem Entfernen wird nicht mehr gefiltert
+        this.filter.clearSecretData();
+        Assert.assertEquals(line,this.filter.filterLine(line,LogFilter.FILTER_MOST));
+    }
+
+    /**
+     * Testet ueberlappende Treffer und Ersetzungen mit abweichender Laenge.
+     * @throws Exception
+     */
+    @Test
+    public void test002() throws Exception
+    {
+        this.filter.addSecretData("aa","X",LogFilter.FILTER_SECRETS);
+        this.filter.addSecretData("bcd","X",LogFilter.FILTER_SECRETS);
+        this.filter.addSecretData("cde","X",LogFilter.FILTER_SECRETS);
+        this.filter.addSecretData("geheim","<PIN>",LogFilter.FILTER_SECRETS);
+
+        Assert.assertEquals("XXX-aXXXXf",this.filter.filterLine("aaa-abcdef",LogFilter.FILTER_SECRETS));
+        Assert.assertEquals("pin=<PIN>;tan=<PIN>",this.filter.filterLine("pin=geheim;tan=geheim",LogFilter.FILTER_SECRETS));
+    }
+
+    /**
+     * Vergleicht das Ergebnis fuer nicht ueberlappende Daten mit dem frueheren Algorithmus.
+     * @throws Exception
+     */
+    @Test
+    public void test003() throws Exception
+    {
+        List<String> secrets = this.createSecrets(200);
+        List<Integer> levels = new ArrayList<Integer>();
+        for (int i=0;i<secrets.size();i++)
+        {
+            levels.add(1 + (i % 3));
+            this.filter.addSecretData(secrets.get(i),"X",levels.get(i));
+        }
+
+        String line = this.createLine(secrets,20000);
+        for (int level=0;level<=3;level++)
+        {
+            Assert.assertEquals(this.legacy(secrets,levels,line,level),this.filter.filterLine(line,level));
+        }
+    }
+
+    /**
+     * Prueft, dass die Laufzeit nicht mehr mit der Anzahl der Daten waechst.
+     * @throws Exception
+     */
+    @Test
+    public void test004() throws Exception
+    {
+        Assume.assumeTrue(Boolean.valueOf(System.getProperty(AbstractTest.SYSPROP_PERFORMANCE,Boolean.TRUE.toString())));
+
+        List<String> secrets = this.createSecrets(2000);
+        for (String s:secrets)
+        {
+            this.filter.addSecretData(s,"X",LogFilter.FILTER_IDS);
+        }
+
+        String line = this.createLine(secrets,500 * 1024);
+
+        // Aufwaermen
+        this.filter.filterLine(line,LogFilter.FILTER_IDS);
+
+        long start = System.currentTimeMillis();
+        String filtered = this.filter.filterLine(line,LogFilter.FILTER_IDS);
+        long used = System.currentTimeMillis() - start;
+
+        start = System.currentTimeMillis();
+        String expected = this.legacy(secrets,Collections.nCopies(secrets.size(),LogFilter.FILTER_IDS),line,LogFilter.FILTER_IDS);
+        long legacy = System.currentTimeMillis() - start;
+
+        System.out.println(secrets.size() + " secrets, " + line.length() + " chars: " + used + " millis, legacy " + legacy + " millis");
+        Assert.assertEquals(expected,filtered);
+        Assert.assertTrue("Filtern zu langsam: " + used + " millis, legacy " + legacy + " millis",used < Math.max(legacy,100));
+    }
+
+    /**
+     * Filtert aus mehreren Threads, waehrend weitere Daten registriert werden.
+     * @throws Exception
+     */
+    @Test
+    public void test005() throws Exception
+    {
+        final List<String> secrets = this.createSecrets(500);
+        final String line = this.createLine(secrets,10000);
+        final List<Throwable> errors = new ArrayList<Throwable>();
+
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i=0;i<4;i++)
+        {
+            Thread t = new Thread(new Runnable() {
+                public void run()
+                {
+                    try
+                    {
+                        for (int k=0;k<200;k++)
+                        {
+                            Assert.assertEquals(line.length(),filter.filterLine(line,LogFilter.FILTER_IDS).length());
+                        }
+                    }
+                    catch (Throwable t)
+                    {
+                        synchronized (errors)
+                        {
+                            errors.add(t);
+                        }
+                    }
+                }
+            });
+            threads.add(t);
+            t.start();
+        }
+
+        for (String s:secrets)
+        {
+            this.filter.addSecretData(s,"X",LogFilter.FILTER_IDS);
+        }
+
+        for (Thread t:threads)
+        {
+            t.join();
+        }
+
+        Assert.assertEquals(errors.toString(),0,errors.size());
+        Assert.assertEquals(this.legacy(secrets,Collections.nCopies(secrets.size(),LogFilter.FILTER_IDS),line,LogFilter.FILTER_IDS),this.filter.filterLine(line,LogFilter.FILTER_IDS));
+    }
+
+    /**
+     * Erzeugt Daten, die sich nicht ueberlappen koennen.
+     * @param count Anzahl der Daten.
+     * @return die Daten.
+     */
+    private List<String> createSecrets(int count)
+    {
+        List<String> list = new ArrayList<String>();
+        for (int i=0;i<count;i++)
+        {
+            list.add("#" + (1000000 + i * 7919) + "#");
+        }
+        return list;
+    }
+
+    /**
+     * Erzeugt eine Zeile, in der die Daten vorkommen.
+     * @param secrets die Daten.
+     * @param length Mindestlaenge der Zeile.
+     * @return die Zeile.
+     */
+    private String createLine(List<String> secrets, int length)
+    {
+        StringBuilder sb = new StringBuilder();
+        int i = 0;
+        while (sb.length() < length)
+        {
+            sb.append("HIKAZ:5:7:3+@1234@ Buchung ").append(i).append(' ');
+            if (i % 3 == 0)
+                sb.append(secrets.get((i * 31) % secrets.size()));
+            sb.append("'");
+            i++;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Der fruehere Algorithmus: alle Daten nacheinander per indexOf ersetzen.
+     * @param secrets die Daten.
+     * @param levels die Level der Daten.
+     * @param line die Zeile.
+     * @param filterLevel der Filter-Level.
+     * @return die gefilterte Zeile.
+     */
+    private String legacy(List<String> secrets, List<Integer> levels, String line, int filterLevel)
+    {
+        StringBuffer sb = new StringBuffer(line);
+        for (int i=0;i<secrets.size();i++)
+        {
+            String secret = secrets.get(i);
+            if (levels.get(i).intValue() > filterLevel)
+                continue;
+
+            char[] ca = new char[secret.length()];
+            Arrays.fill(ca,'X');
+            String replacement = new String(ca);
+
+            int pos = 0;
+            while ((pos = sb.indexOf(secret,pos)) != -1)
+            {
+                sb.replace(pos,pos + secret.length(),replacement);
+                pos += replacement.length();
+            }
+        }
+        return sb.toString();
+    }
+}
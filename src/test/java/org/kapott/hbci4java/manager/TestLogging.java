@@ -0,0 +1,244 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci4java.manager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.kapott.hbci.callback.HBCICallbackConsole;
+import org.kapott.hbci.manager.HBCIUtils;
+import org.kapott.hbci.manager.LogDispatcher;
+import org.kapott.hbci4java.AbstractTest;
+
+/**
+ * Testet das Logging ueber {@link HBCIUtils#log(String, int)}.
+ */
+public class TestLogging extends AbstractTest
+{
+    /**
+     * Testet, dass Aenderungen des Log-Levels trotz Cache sofort wirken
+     * und der Supplier nur bei Bedarf aufgerufen wird.
+     * @throws Exception
+     */
+    @Test
+    public void test001() throws Exception
+    {
+        final Recorder recorder = new Recorder();
+        this.run(recorder,new Properties(),new Runnable() {
+            public void run()
+            {
+                final AtomicInteger calls = new AtomicInteger();
+
+                HBCIUtils.setParam("log.loglevel.default",Integer.toString(HBCIUtils.LOG_ERR));
+                Assert.assertFalse(HBCIUtils.isLogEnabled(HBCIUtils.LOG_DEBUG));
+                HBCIUtils.log("hidden",HBCIUtils.LOG_DEBUG);
+                HBCIUtils.log(() -> "hidden " + calls.incrementAndGet(),HBCIUtils.LOG_DEBUG);
+                HBCIUtils.log("error",HBCIUtils.LOG_ERR);
+
+                HBCIUtils.setParam("log.loglevel.default",Integer.toString(HBCIUtils.LOG_DEBUG));
+                Assert.assertTrue(HBCIUtils.isLogEnabled(HBCIUtils.LOG_DEBUG));
+                HBCIUtils.log(() -> "visible " + calls.incrementAndGet(),HBCIUtils.LOG_DEBUG);
+
+                Assert.assertEquals(1,calls.get());
+            }
+        });
+        Assert.assertEquals("[error, visible 1]",recorder.messages.toString());
+    }
+
+    /**
+     * Testet, dass auch direkte Aenderungen an {@link HBCIUtils#getParams()} sofort wirken.
+     * @throws Exception
+     */
+    @Test
+    public void test004() throws Exception
+    {
+        final Recorder recorder = new Recorder();
+        this.run(recorder,new Properties(),new Runnable() {
+            public void run()
+            {
+                HBCIUtils.log("info 1",HBCIUtils.LOG_INFO);
+                HBCIUtils.getParams().setProperty("log.loglevel.default",Integer.toString(HBCIUtils.LOG_ERR));
+                Assert.assertFalse(HBCIUtils.isLogEnabled(HBCIUtils.LOG_INFO));
+                HBCIUtils.log("info 2",HBCIUtils.LOG_INFO);
+                HBCIUtils.getParams().put("log.loglevel.default",Integer.toString(HBCIUtils.LOG_INFO));
+                Assert.assertTrue(HBCIUtils.isLogEnabled(HBCIUtils.LOG_INFO));
+                HBCIUtils.log("info 3",HBCIUtils.LOG_INFO);
+            }
+        });
+        Assert.assertEquals("[info 1, info 3]",recorder.messages.toString());
+    }
+
+    /**
+     * Testet das Ermitteln der aufrufenden Stelle.
+     * @throws Exception
+     */
+    @Test
+    public void test002() throws Exception
+    {
+        final Recorder recorder = new Recorder();
+        this.run(recorder,new Properties(),new Runnable() {
+            public void run()
+            {
+                HBCIUtils.log("with caller",HBCIUtils.LOG_ERR);
+                HBCIUtils.log(new Exception("with caller"),HBCIUtils.LOG_ERR);
+                HBCIUtils.setParam("log.caller","0");
+                HBCIUtils.log("without caller",HBCIUtils.LOG_ERR);
+            }
+        });
+        Assert.assertEquals(3,recorder.traces.size());
+        Assert.assertTrue(recorder.traces.get(0).getClassName().startsWith(TestLogging.class.getName()));
+        Assert.assertTrue(recorder.traces.get(1).getClassName().startsWith(TestLogging.class.getName()));
+        Assert.assertEquals(HBCIUtils.class.getName(),recorder.traces.get(2).getClassName());
+    }
+
+    /**
+     * Testet die asynchrone Uebergabe aus vielen Threads. Es darf keine Meldung verloren gehen.
+     * @throws Exception
+     */
+    @Test
+    public void test003() throws Exception
+    {
+        final Recorder recorder = new Recorder();
+        final int threads = 8;
+        final int count   = 2000;
+        long async = LogDispatcher.getInstance().getAsyncCount();
+
+        Properties props = new Properties();
+        props.setProperty("log.async","1");
+        props.setProperty("log.async.capacity","256");
+        this.run(recorder,props,new Runnable() {
+            public void run()
+            {
+                List<Thread> list = new ArrayList<Thread>();
+                for (int i=0;i<threads;i++)
+                {
+                    final int n = i;
+                    Thread t = new Thread(new Runnable() {
+                        public void run()
+                        {
+                            for (int k=0;k<count;k++)
+                            {
+                                HBCIUtils.log(n + "/" + k,HBCIUtils.LOG_INFO);
+                            }
+                        }
+                    });
+                    list.add(t);
+                    t.start();
+                }
+                try
+                {
+                    for (Thread t:list)
+                    {
+                        t.join();
+                    }
+                    Assert.assertTrue(LogDispatcher.getInstance().flush(10000L));
+                }
+                catch (InterruptedException e)
+                {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+
+        Assert.assertEquals(threads * count,recorder.messages.size());
+        Assert.assertTrue(LogDispatcher.getInstance().getAsyncCount() > async);
+        Assert.assertTrue(recorder.threads.contains("hbci4java-log"));
+
+        // Auch der Log-Thread ruft den Callback im Kontext des loggenden Threads auf
+        Assert.assertEquals(Collections.singleton("256"),new HashSet<String>(recorder.capacities));
+    }
+
+    /**
+     * Fuehrt den Code in einer eigenen, mit dem Callback initialisierten ThreadGroup aus.
+     * @param recorder der Callback.
+     * @param props die Kernel-Parameter.
+     * @param r der auszufuehrende Code.
+     * @throws Exception
+     */
+    private void run(final Recorder recorder, final Properties props, final Runnable r) throws Exception
+    {
+        final Throwable[] error = new Throwable[1];
+        ThreadGroup group = new ThreadGroup("test-logging");
+        Thread t = new Thread(group,new Runnable() {
+            public void run()
+            {
+                try
+                {
+                    props.setProperty("log.loglevel.default",Integer.toString(HBCIUtils.LOG_INFO));
+                    props.setProperty("log.filter","0");
+                    HBCIUtils.initThread(props,recorder);
+                    r.run();
+                }
+                catch (Throwable t)
+                {
+                    error[0] = t;
+                }
+                finally
+                {
+                    HBCIUtils.doneThread();
+                }
+            }
+        });
+        t.start();
+        t.join();
+
+        if (error[0] instanceof Error)
+            throw (Error) error[0];
+        if (error[0] != null)
+            throw new Exception(error[0]);
+    }
+
+    /**
+     * Callback, der alle Log-Meldungen aufzeichnet.
+     */
+    private static class Recorder extends HBCICallbackConsole
+    {
+        private final List<String> messages = Collections.synchronizedList(new ArrayList<String>());
+        private final List<StackTraceElement> traces = Collections.synchronizedList(new ArrayList<StackTraceElement>());
+        private final List<String> threads = Collections.synchronizedList(new ArrayList<String>());
+        private final List<String> capacities = Collections.synchronizedList(new ArrayList<String>());
+
+        /**
+         * @see org.kapott.hbci.callback.HBCICallbackIOStreams#log(java.lang.String, int, java.util.Date, java.lang.StackTraceElement)
+         */
+        @Override
+        public void log(String msg, int level, Date date, StackTraceElement trace)
+        {
+            if (msg.startsWith("initialized") || msg.startsWith("removing"))
+                return;
+
+            this.messages.add(msg.indexOf('\n') != -1 ? msg.substring(0,msg.indexOf('\n')) : msg);
+            this.traces.add(trace);
+            this.capacities.add(HBCIUtils.getParam("log.async.capacity","none"));
+            String name = Thread.currentThread().getName();
+            if (!this.threads.contains(name))
+                this.threads.add(name);
+        }
+    }
+}
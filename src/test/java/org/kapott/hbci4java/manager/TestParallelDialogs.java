@@ -0,0 +1,254 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+
+package org.kapott.hbci4java.manager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.kapott.hbci.callback.HBCICallback;
+import org.kapott.hbci.comm.Comm;
+import org.kapott.hbci.manager.HBCIDialogLock;
+import org.kapott.hbci.manager.HBCIKernelImpl;
+import org.kapott.hbci.manager.HBCIUtils;
+import org.kapott.hbci.manager.IHandlerData;
+import org.kapott.hbci.manager.MsgGen;
+import org.kapott.hbci.passport.HBCIPassport;
+import org.kapott.hbci.passport.HBCIPassportInternal;
+import org.kapott.hbci.passport.HBCIPassportPinTan;
+import org.kapott.hbci.passport.HBCIPassportPinTanMemory;
+import org.kapott.hbci.protocol.MSG;
+import org.kapott.hbci.status.HBCIMsgStatus;
+import org.kapott.hbci4java.callback.HBCICallbackTest;
+
+/**
+ * Testet die parallele Ausfuehrung von Dialogen mit gemeinsam genutztem Passport.
+ */
+public class TestParallelDialogs
+{
+  private final static String DIALOGID = "AAAAAAAAAAAAAAAAAAAAAAAAAAAAAA";
+  private final static String PAYLOAD  = "HIRMG:2:2+0010::Nachricht entgegengenommen.'HIRMS:3:2:3+0100::Dialog beendet.'";
+  private final static int DIALOGS     = 3;
+
+  private HBCIPassportPinTan passport = null;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final CyclicBarrier barrier = new CyclicBarrier(DIALOGS);
+
+  /**
+   * Testet, dass die Sperre waehrend der Kommunikation freigegeben wird, so dass
+   * alle Dialoge gleichzeitig auf die Antwort der Bank warten koennen, und dass
+   * danach wieder die Kunden-ID des jeweiligen Dialogs im Passport steht.
+   * @throws Exception
+   */
+  @Test
+  public void test001() throws Exception
+  {
+    ExecutorService executor = Executors.newFixedThreadPool(DIALOGS);
+    try
+    {
+      List<Future<HBCIMsgStatus>> results = new ArrayList<Future<HBCIMsgStatus>>();
+      for (int i=0;i<DIALOGS;i++)
+      {
+        final String customerId = "kunde" + i;
+        results.add(executor.submit(() -> {
+          HBCIDialogLock dialogLock = new HBCIDialogLock(lock,passport,customerId);
+          dialogLock.acquire();
+          try
+          {
+            HBCIMsgStatus status = sendDialogEnd(dialogLock);
+            Assert.assertTrue(lock.isHeldByCurrentThread());
+            Assert.assertEquals(customerId,passport.getCustomerId());
+            return status;
+          }
+          finally
+          {
+            dialogLock.release();
+          }
+        }));
+      }
+
+      for (Future<HBCIMsgStatus> f:results)
+      {
+        HBCIMsgStatus status = f.get(30,TimeUnit.SECONDS);
+        Assert.assertTrue(status.isOK());
+        Assert.assertEquals("0100",status.getValue("RetSeg.RetVal.code"));
+      }
+      Assert.assertFalse(lock.isLocked());
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Sendet eine Dialog-Ende-Nachricht ueber einen eigenen Kernel und eine eigene Verbindung.
+   * @param dialogLock die Sperre des Dialogs.
+   * @return der Status.
+   * @throws Exception
+   */
+  private HBCIMsgStatus sendDialogEnd(HBCIDialogLock dialogLock) throws Exception
+  {
+    final HBCIKernelImpl kernel = new HBCIKernelImpl(null,"300");
+    kernel.setParentHandlerData(new IHandlerData() {
+      public HBCIPassport getPassport()
+      {
+        return passport;
+      }
+      public MsgGen getMsgGen()
+      {
+        return kernel.getMsgGen();
+      }
+      public void sync(boolean force)
+      {
+      }
+    });
+    kernel.setDialogComm(passport.getCommInstance(),dialogLock);
+
+    kernel.rawNewMsg("DialogEnd");
+    kernel.rawSet("DialogEndS.dialogid",DIALOGID);
+    kernel.rawSet("MsgHead.dialogid",DIALOGID);
+    kernel.rawSet("MsgHead.msgnum","1");
+    kernel.rawSet("MsgTail.msgnum","1");
+    return kernel.rawDoIt(false,true,true);
+  }
+
+  /**
+   * Erzeugt das Passport-Objekt.
+   * @throws Exception
+   */
+  @Before
+  public void before() throws Exception
+  {
+    final HBCICallbackTest callback = new HBCICallbackTest();
+    callback.put(HBCICallback.NEED_BLZ,"12345678");
+    callback.put(HBCICallback.NEED_COUNTRY,"DE");
+    callback.put(HBCICallback.NEED_HOST,"fints-demobank.local/fints/test123");
+    callback.put(HBCICallback.NEED_PORT,"443");
+    callback.put(HBCICallback.NEED_FILTER,"Base64");
+    callback.put(HBCICallback.NEED_USERID,"1234567890");
+    callback.put(HBCICallback.NEED_CUSTOMERID,"1234567890");
+    callback.put(HBCICallback.NEED_CONNECTION,"");
+    callback.put(HBCICallback.CLOSE_CONNECTION,"");
+
+    final Properties props = new Properties();
+    props.put("log.loglevel.default",Integer.toString(HBCIUtils.LOG_INFO));
+    HBCIUtils.init(props,callback);
+
+    this.passport = new HBCIPassportPinTanMemory(null) {
+      /**
+       * @see org.kapott.hbci.passport.AbstractPinTanPassport#getCommInstance()
+       */
+      @Override
+      public Comm getCommInstance()
+      {
+        return new StandInBank(this);
+      }
+    };
+  }
+
+  /**
+   * Schliesst das Passport-Objekt.
+   * @throws Exception
+   */
+  @After
+  public void after() throws Exception
+  {
+    try
+    {
+      if (this.passport != null)
+        this.passport.close();
+    }
+    finally
+    {
+      HBCIUtils.done();
+    }
+  }
+
+  /**
+   * Lokale Stellvertreter-Bank. Wartet beim Senden, bis alle Dialoge gleichzeitig
+   * senden. Das gelingt nur, wenn die Sperre waehrend der Kommunikation frei ist.
+   */
+  private class StandInBank extends Comm
+  {
+    /**
+     * ct.
+     * @param passport
+     */
+    private StandInBank(HBCIPassportInternal passport)
+    {
+      super(passport);
+    }
+
+    /**
+     * @see org.kapott.hbci.comm.Comm#ping(org.kapott.hbci.protocol.MSG)
+     */
+    @Override
+    protected void ping(MSG msg)
+    {
+      Assert.assertFalse(lock.isHeldByCurrentThread());
+      try
+      {
+        barrier.await(10,TimeUnit.SECONDS);
+      }
+      catch (Exception e)
+      {
+        throw new RuntimeException("dialogs were not executed in parallel",e);
+      }
+    }
+
+    /**
+     * @see org.kapott.hbci.comm.Comm#pong(org.kapott.hbci.manager.MsgGen)
+     */
+    @Override
+    protected StringBuffer pong(MsgGen gen)
+    {
+      final String head = "HNHBK:1:3+";
+      final String rest = "+300+" + DIALOGID + "+1+" + DIALOGID + ":1'" +
+                          "HNVSK:998:3+PIN:1+998+1+2::0+1:20240612:142903+2:2:13:@8@        :5:1+280:12345678:1234567890:V:0:0+0'" +
+                          "HNVSD:999:1+@" + PAYLOAD.length() + "@" + PAYLOAD + "'" +
+                          "HNHBS:4:1+1'";
+      final int size = head.length() + 12 + rest.length();
+      return new StringBuffer(head + String.format("%012d",size) + rest);
+    }
+
+    /**
+     * @see org.kapott.hbci.comm.Comm#closeConnection()
+     */
+    @Override
+    protected void closeConnection()
+    {
+    }
+  }
+}
@@ -0,0 +1,102 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci4java.manager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.kapott.hbci.manager.HBCIKernelImpl;
+import org.kapott.hbci.manager.SyntaxCache;
+import org.kapott.hbci.protocol.syntax.SyntaxModel;
+import org.kapott.hbci4java.AbstractTest;
+
+/**
+ * Testet den Cache fuer die Syntax-Spezifikationen.
+ */
+public class TestSyntaxCache extends AbstractTest
+{
+    /**
+     * Testet, dass mehrere Kernel-Instanzen dieselbe Syntax verwenden.
+     * @throws Exception
+     */
+    @Test
+    public void test001() throws Exception
+    {
+        SyntaxCache cache = SyntaxCache.getInstance();
+        HBCIKernelImpl k1 = new HBCIKernelImpl(null,"300");
+        long loads = cache.getLoads();
+        long hits  = cache.getHits();
+
+        HBCIKernelImpl k2 = new HBCIKernelImpl(null,"300");
+        Assert.assertSame(k1.getMsgGen().getSyntax(),k2.getMsgGen().getSyntax());
+        Assert.assertEquals(loads,cache.getLoads());
+        Assert.assertEquals(hits+1,cache.getHits());
+
+        // Andere Version - andere Syntax
+        HBCIKernelImpl k3 = new HBCIKernelImpl(null,"plus");
+        Assert.assertNotSame(k1.getMsgGen().getSyntax(),k3.getMsgGen().getSyntax());
+    }
+
+    /**
+     * Testet den gleichzeitigen Zugriff aus mehreren Threads.
+     * @throws Exception
+     */
+    @Test
+    public void test002() throws Exception
+    {
+        final SyntaxCache cache = SyntaxCache.getInstance();
+        cache.clear();
+        long loads = cache.getLoads();
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try
+        {
+            List<Future<SyntaxModel>> results = new ArrayList<Future<SyntaxModel>>();
+            for (int i=0;i<16;++i)
+            {
+                results.add(pool.submit(new Callable<SyntaxModel>() {
+                    public SyntaxModel call() throws Exception
+                    {
+                        return cache.getSyntax(null,"300");
+                    }
+                }));
+            }
+
+            SyntaxModel first = results.get(0).get();
+            for (Future<SyntaxModel> f:results)
+            {
+                Assert.assertSame(first,f.get());
+            }
+            Assert.assertEquals(loads+1,cache.getLoads());
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci4java.msg;
+
+import java.util.Hashtable;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.kapott.hbci.exceptions.ParseErrorException;
+import org.kapott.hbci.manager.HBCIKernelImpl;
+import org.kapott.hbci.manager.MsgGen;
+import org.kapott.hbci.protocol.MSG;
+import org.kapott.hbci.protocol.factory.MSGFactory;
+import org.kapott.hbci4java.AbstractTest;
+
+/**
+ * Testet das Parsen mit Vorab-Pruefung der Segment-Codes und Predelimiter.
+ */
+public class TestBacktracking extends AbstractTest
+{
+    /**
+     * Parst eine grosse Dialog-Init-Antwort und prueft, dass optionale und
+     * alternative Elemente ohne nennenswerte Anzahl von Backtracks erkannt werden.
+     * @throws Exception
+     */
+    @Test
+    public void test001() throws Exception
+    {
+        String data = getFile("TestMultipleDEGs-01.txt");
+        MsgGen gen = new HBCIKernelImpl(null,"300").getMsgGen();
+
+        MSG msg = MSGFactory.getInstance().createMSG("DialogInitRes",data,data.length(),gen);
+        Hashtable<String,String> ht = new Hashtable<String,String>();
+        msg.extractValues(ht);
+        int backtracks = msg.getBacktracks();
+        MSGFactory.getInstance().unuseObject(msg);
+
+        System.out.println("values: " + ht.size() + ", backtracks: " + backtracks);
+        Assert.assertEquals("HNHBK",ht.get("DialogInitRes.MsgHead.SegHead.code"));
+
+        // Ohne Vorab-Pruefung waren das ueber 900 Backtracks
+        Assert.assertTrue("zu viele Backtracks: " + backtracks,backtracks < 100);
+    }
+
+    /**
+     * Prueft, dass ein fehlendes Pflicht-Segment weiterhin als Fehler gemeldet wird.
+     * @throws Exception
+     */
+    @Test
+    public void test002() throws Exception
+    {
+        MsgGen gen = new HBCIKernelImpl(null,"300").getMsgGen();
+        String data = "HNHBK:1:3+000000000061+300+4711+1+4711:1'HNHBS:2:1+1'";
+        try
+        {
+            MSGFactory.getInstance().createMSG("CustomMsgRes",data,data.length(),gen);
+            Assert.fail("Nachricht ohne HIRMG haette nicht geparst werden duerfen");
+        }
+        catch (ParseErrorException e)
+        {
+            // erwartet
+            Throwable root = e;
+            while (root.getCause() != null)
+                root = root.getCause();
+            Assert.assertTrue(root.getMessage(),root.getMessage().indexOf("HIRMG") != -1);
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci4java.msg;
+
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.kapott.hbci.manager.HBCIKernelImpl;
+import org.kapott.hbci.manager.MsgGen;
+import org.kapott.hbci.protocol.MSG;
+import org.kapott.hbci.protocol.factory.MSGFactory;
+import org.kapott.hbci.status.HBCIMsgSegment;
+import org.kapott.hbci.status.HBCIMsgStatus;
+import org.kapott.hbci4java.AbstractTest;
+
+/**
+ * Testet die Segment-Sicht in {@link HBCIMsgStatus}.
+ */
+public class TestMsgStatus extends AbstractTest
+{
+  /**
+   * Vergleicht die Segment-Sicht mit den frueheren flachen Properties.
+   * @throws Exception
+   */
+  @Test
+  public void test001() throws Exception
+  {
+    String data = getFile("bugzilla-1806.txt");
+    HBCIKernelImpl kernel = new HBCIKernelImpl(null,"300");
+    kernel.rawNewMsg("SepaDauerList");
+
+    MsgGen gen = kernel.getMsgGen();
+    MSG msg = MSGFactory.getInstance().createMSG("CustomMsgRes",data,data.length(),gen);
+
+    // So wurden die Daten frueher in HBCIKernelImpl#rawDoIt befuellt
+    Properties legacy = msg.getData();
+    legacy.setProperty("_msg",data);
+
+    HBCIMsgStatus status = new HBCIMsgStatus();
+    status.setReceivedMsg(msg,data);
+
+    // Einzelwerte ohne flache Sicht
+    for (String key:legacy.stringPropertyNames())
+    {
+      Assert.assertEquals(key,legacy.getProperty(key),status.getValue(key));
+    }
+    Assert.assertNull(status.getValue("GVRes.GibtEsNicht"));
+
+    // Die Antwortsegmente des Auftrages
+    List<HBCIMsgSegment> segments = status.getSegmentsByRef(3);
+    Assert.assertFalse(segments.isEmpty());
+    for (HBCIMsgSegment seg:segments)
+    {
+      Assert.assertEquals("3",seg.getRef());
+      Assert.assertSame(seg,status.getSegment(seg.getPath()));
+      Assert.assertEquals(legacy.getProperty(seg.getPath() + ".SegHead.code"),seg.getCode());
+
+      Properties p = status.getData(seg.getPath() + ".");
+      Assert.assertFalse(p.isEmpty());
+      for (String key:p.stringPropertyNames())
+      {
+        Assert.assertEquals(legacy.getProperty(key),p.getProperty(key));
+      }
+    }
+
+    // Die flache Sicht wird nur einmal erzeugt
+    Properties result = status.getData();
+    Assert.assertEquals(legacy,result);
+    Assert.assertSame(result,status.getData());
+    Assert.assertTrue(status.globStatus.getRetVals().length > 0);
+  }
+
+  /**
+   * Testet, dass per addData hinzugefuegte Daten in beiden Sichten enthalten sind.
+   * @throws Exception
+   */
+  @Test
+  public void test002() throws Exception
+  {
+    HBCIMsgStatus status = new HBCIMsgStatus();
+
+    Properties p = new Properties();
+    p.setProperty("RetGlob.RetVal.code","0010");
+    p.setProperty("RetGlob.RetVal.text","Nachricht entgegengenommen");
+    status.addData(p);
+
+    Assert.assertEquals("0010",status.getValue("RetGlob.RetVal.code"));
+    Assert.assertEquals(1,status.globStatus.getRetVals().length);
+    Assert.assertEquals(p,status.getData());
+
+    p = new Properties();
+    p.setProperty("RetGlob.RetVal_2.code","3060");
+    status.addData(p);
+    Assert.assertEquals("3060",status.getData().getProperty("RetGlob.RetVal_2.code"));
+    Assert.assertEquals(2,status.globStatus.getRetVals().length);
+  }
+
+  /**
+   * Testet, dass die Pfade und Werte der gesendeten Nachricht erst bei Bedarf
+   * in Keys umgewandelt werden und den frueheren flachen Properties entsprechen.
+   * @throws Exception
+   */
+  @Test
+  public void test003() throws Exception
+  {
+    String data = getFile("bugzilla-1806.txt");
+    HBCIKernelImpl kernel = new HBCIKernelImpl(null,"300");
+    kernel.rawNewMsg("SepaDauerList");
+
+    MsgGen gen = kernel.getMsgGen();
+    MSG msg = MSGFactory.getInstance().createMSG("CustomMsgRes",data,data.length(),gen);
+
+    // So wurden die Daten frueher in HBCIMsgStatus#setSentMsg befuellt
+    Properties legacy = new Properties();
+    msg.getElementPaths(legacy,null,null,null);
+    Hashtable<String,String> values = new Hashtable<String,String>();
+    msg.extractValues(values);
+    for (Map.Entry<String,String> e:values.entrySet())
+    {
+      legacy.setProperty("orig_" + e.getKey(),e.getValue());
+    }
+    Assert.assertEquals("CustomMsgRes.MsgHead",legacy.getProperty("1"));
+    Assert.assertEquals("CustomMsgRes.MsgHead.SegHead",legacy.getProperty("1:1"));
+    Assert.assertEquals("CustomMsgRes.MsgHead.SegHead.code",legacy.getProperty("1:1,1"));
+
+    HBCIMsgStatus status = new HBCIMsgStatus();
+    status.setSentMsg(msg);
+
+    for (String key:legacy.stringPropertyNames())
+    {
+      Assert.assertEquals(key,legacy.getProperty(key),status.getValue(key));
+    }
+    Assert.assertNull(status.getValue("01"));
+    Assert.assertNull(status.getValue("1:1,"));
+    Assert.assertNull(status.getValue("999:1"));
+
+    Properties p = status.getData("orig_CustomMsgRes.MsgHead.");
+    Assert.assertFalse(p.isEmpty());
+    for (String key:p.stringPropertyNames())
+    {
+      Assert.assertTrue(key,key.startsWith("orig_CustomMsgRes.MsgHead."));
+      Assert.assertEquals(legacy.getProperty(key),p.getProperty(key));
+    }
+    Assert.assertEquals("CustomMsgRes.MsgHead.SegHead",status.getData("1:").getProperty("1:1"));
+
+    Assert.assertEquals(legacy,status.getData());
+  }
+}
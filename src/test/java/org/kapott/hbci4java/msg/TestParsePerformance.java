@@ -0,0 +1,229 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci4java.msg;
+
+import java.lang.management.ManagementFactory;
+import java.text.DecimalFormat;
+import java.util.Hashtable;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.kapott.hbci.manager.HBCIKernelImpl;
+import org.kapott.hbci.manager.MsgGen;
+import org.kapott.hbci.protocol.MSG;
+import org.kapott.hbci.protocol.MsgBuffer;
+import org.kapott.hbci.protocol.factory.MSGFactory;
+import org.kapott.hbci4java.AbstractTest;
+
+/**
+ * Misst die Parse-Zeit grosser Umsatz-Antworten (HIKAZ) in Abhaengigkeit
+ * von der Nachrichtengroesse sowie den Speicherverbrauch beim Serialisieren.
+ */
+public class TestParsePerformance extends AbstractTest
+{
+    private final static String MT940 =
+        ":20:STARTUMS\r\n" +
+        ":25:12345678/0123456789\r\n" +
+        ":28C:0\r\n" +
+        ":60F:C120402EUR1234,56\r\n" +
+        ":61:1204020402DR12,34N005NONREF\r\n" +
+        ":86:005?00LASTSCHRIFT?20Verwendungszweck 1?21Verwendungszweck 2?30\r\n" +
+        "12345678?31987654321?32Max Mustermann\r\n" +
+        ":62F:C120402EUR1222,22\r\n" +
+        "-";
+
+    /**
+     * Deaktiviert den Test, wenn das System-Property nicht auf "true" steht.
+     * @throws Exception
+     */
+    @BeforeClass
+    public static void beforeClass() throws Exception
+    {
+        Assume.assumeTrue(Boolean.valueOf(System.getProperty(AbstractTest.SYSPROP_PERFORMANCE,Boolean.TRUE.toString())));
+    }
+
+    /**
+     * Erzeugt eine Umsatz-Antwort mit der angegebenen Anzahl von HIKAZ-Segmenten.
+     * @param count Anzahl der Segmente.
+     * @return die Nachricht.
+     */
+    private String createMessage(int count)
+    {
+        return this.createMessage(count,MT940);
+    }
+
+    /**
+     * Erzeugt eine Umsatz-Antwort mit der angegebenen Anzahl von HIKAZ-Segmenten.
+     * @param count Anzahl der Segmente.
+     * @param mt940 die gebuchten Umsaetze je Segment.
+     * @return die Nachricht.
+     */
+    private String createMessage(int count, String mt940)
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append("HIRMG:2:2+0010::Nachricht entgegengenommen.'");
+        sb.append("HIRMS:3:2:3+0020::Der Auftrag wurde ausgefuehrt.'");
+
+        int seg = 4;
+        for (int i=0;i<count;i++)
+        {
+            sb.append("HIKAZ:").append(seg++).append(":7:3+@").append(mt940.length()).append("@").append(mt940).append("'");
+        }
+        sb.append("HNHBS:").append(seg).append(":1+1'");
+
+        // Der Nachrichtenkopf hat wegen der 12-stelligen Groessenangabe eine feste Laenge
+        String head = "HNHBK:1:3+%s+300+4711+1+4711:1'";
+        int size = String.format(head,"000000000000").length() + sb.length();
+        return String.format(head,new DecimalFormat("000000000000").format(size)) + sb.toString();
+    }
+
+    /**
+     * Parst Nachrichten wachsender Groesse und gibt die Parse-Zeiten aus.
+     * Die Zeiten werden nicht geprueft, da sie stark von der Last der Maschine abhaengen.
+     * @throws Exception
+     */
+    @Test
+    public void test001() throws Exception
+    {
+        HBCIKernelImpl kernel = new HBCIKernelImpl(null,"300");
+        MsgGen gen = kernel.getMsgGen();
+
+        // Aufwaermen
+        this.parse(gen,this.createMessage(100),100);
+
+        // Segment-Nummern sind maximal dreistellig
+        int[] counts = new int[]{120,240,480,960};
+        for (int count:counts)
+        {
+            String data = this.createMessage(count);
+
+            long start = System.currentTimeMillis();
+            this.parse(gen,data,count);
+            long used = System.currentTimeMillis() - start;
+
+            System.out.println(count + " segments, " + data.length() + " bytes: " + used + " millis");
+        }
+    }
+
+    /**
+     * Parst eine einzelne grosse Umsatz-Antwort (mehr als 1 MB) mit wenigen,
+     * dafuer sehr grossen HIKAZ-Segmenten und gibt die Parse-Zeit aus.
+     * @throws Exception
+     */
+    @Test
+    public void test003() throws Exception
+    {
+        HBCIKernelImpl kernel = new HBCIKernelImpl(null,"300");
+        MsgGen gen = kernel.getMsgGen();
+
+        // Je Segment etwa 400 KB gebuchte Umsaetze
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < 400 * 1024)
+        {
+            sb.append(MT940).append("\r\n");
+        }
+        String mt940 = sb.toString();
+        String data = this.createMessage(3,mt940);
+        Assert.assertTrue(data.length() >= 1024 * 1024);
+
+        long start = System.currentTimeMillis();
+        MSG msg = MSGFactory.getInstance().createMSG("CustomMsgRes",data,data.length(),gen);
+        Hashtable<String,String> ht = new Hashtable<String,String>();
+        msg.extractValues(ht);
+        MSGFactory.getInstance().unuseObject(msg);
+        long used = System.currentTimeMillis() - start;
+        System.out.println("KUmsZeitRes with " + data.length() + " bytes: " + used + " millis");
+
+        Assert.assertEquals(mt940,ht.get("CustomMsgRes.GVRes.KUmsZeitRes7.booked"));
+        Assert.assertEquals(mt940,ht.get("CustomMsgRes.GVRes_3.KUmsZeitRes7.booked"));
+        Assert.assertNull(ht.get("CustomMsgRes.GVRes_4.KUmsZeitRes7.booked"));
+    }
+
+    /**
+     * Misst die beim Serialisieren einer grossen Nachricht allokierten Bytes.
+     * Frueher erzeugte jede Ebene (Nachricht, Segment, DEG, DE) einen eigenen
+     * String, den die naechsthoehere Ebene wieder kopiert hat. Jetzt schreiben
+     * sich alle Elemente direkt in einen wiederverwendbaren Puffer.
+     * @throws Exception
+     */
+    @Test
+    public void test002() throws Exception
+    {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled());
+        long tid = Thread.currentThread().getId();
+
+        HBCIKernelImpl kernel = new HBCIKernelImpl(null,"300");
+        MsgGen gen = kernel.getMsgGen();
+        String data = this.createMessage(960);
+        MSG msg = MSGFactory.getInstance().createMSG("CustomMsgRes",data,data.length(),gen);
+
+        MsgBuffer buf = new MsgBuffer(data.length());
+        for (int i=0;i<3;i++)
+        {
+            // Aufwaermen
+            msg.toString(0);
+            buf.clear();
+            msg.appendTo(buf);
+        }
+
+        long start = bean.getThreadAllocatedBytes(tid);
+        String st = msg.toString(0);
+        long legacy = bean.getThreadAllocatedBytes(tid) - start;
+
+        start = bean.getThreadAllocatedBytes(tid);
+        buf.clear();
+        msg.appendTo(buf);
+        long direct = bean.getThreadAllocatedBytes(tid) - start;
+
+        MSGFactory.getInstance().unuseObject(msg);
+
+        Assert.assertEquals(data,st);
+        Assert.assertEquals(data,buf.toString());
+        System.out.println(data.length() + " bytes, toString(0): " + legacy + " bytes allocated, appendTo(MsgBuffer): " + direct + " bytes allocated");
+
+        // Der wiederverwendete Puffer muss nicht wachsen. Es bleiben nur die
+        // Laengenangaben der Binaerdaten und die Iteratoren.
+        Assert.assertTrue("appendTo allokiert " + direct + " bytes",direct < data.length() / 2);
+    }
+
+    /**
+     * Parst die Nachricht und prueft die Anzahl der Segmente.
+     * @param gen der Nachrichten-Generator.
+     * @param data die Nachricht.
+     * @param count die erwartete Anzahl der HIKAZ-Segmente.
+     */
+    private void parse(MsgGen gen, String data, int count)
+    {
+        MSG msg = MSGFactory.getInstance().createMSG("CustomMsgRes",data,data.length(),gen);
+        Hashtable<String,String> ht = new Hashtable<String,String>();
+        msg.extractValues(ht);
+        MSGFactory.getInstance().unuseObject(msg);
+
+        Assert.assertNotNull(ht.get("CustomMsgRes.GVRes.KUmsZeitRes7.booked"));
+        Assert.assertNotNull(ht.get("CustomMsgRes.GVRes_" + count + ".KUmsZeitRes7.booked"));
+        Assert.assertNull(ht.get("CustomMsgRes.GVRes_" + (count+1) + ".KUmsZeitRes7.booked"));
+    }
+}
@@ -0,0 +1,136 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci4java.msg;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.kapott.hbci.manager.HBCIKernelImpl;
+import org.kapott.hbci.manager.SyntaxCache;
+import org.kapott.hbci.protocol.syntax.SyntaxDef;
+import org.kapott.hbci.protocol.syntax.SyntaxModel;
+import org.kapott.hbci.protocol.syntax.SyntaxRef;
+import org.kapott.hbci4java.AbstractTest;
+
+/**
+ * Testet die kompilierte Syntax-Spezifikation.
+ */
+public class TestSyntaxModel extends AbstractTest
+{
+    /**
+     * Testet Referenzen, Attribute und vorgegebene Werte einer Segment-Definition.
+     * @throws Exception
+     */
+    @Test
+    public void test001() throws Exception
+    {
+        SyntaxModel syntax = SyntaxCache.getInstance().getSyntax(null,"300");
+        SyntaxDef def = syntax.getDef("MsgHeadUser");
+        Assert.assertNotNull(def);
+        Assert.assertEquals(SyntaxDef.Kind.SEG,def.getKind());
+
+        List<SyntaxRef> refs = def.getRefs();
+        Assert.assertEquals(5,refs.size());
+
+        // DEG mit abweichendem Namen - Definition muss aufgeloest sein
+        SyntaxRef seghead = refs.get(0);
+        Assert.assertEquals(SyntaxRef.Kind.DEG,seghead.getKind());
+        Assert.assertEquals("SegHead",seghead.getName());
+        Assert.assertEquals("SegHeadUser",seghead.getType());
+        Assert.assertSame(syntax.getDef("SegHeadUser"),seghead.getDef());
+
+        // DE mit minsize/maxsize
+        SyntaxRef msgsize = def.getRef("msgsize");
+        Assert.assertEquals(1,msgsize.getIndex());
+        Assert.assertEquals("Dig",msgsize.getType());
+        Assert.assertEquals(12,msgsize.getMinSize());
+        Assert.assertEquals(12,msgsize.getMaxSize());
+        Assert.assertEquals(1,msgsize.getMinNum());
+        Assert.assertEquals(1,msgsize.getMaxNum());
+        Assert.assertNull(msgsize.getDef());
+
+        // Defaults
+        SyntaxRef dialogid = def.getRef("dialogid");
+        Assert.assertEquals(1,dialogid.getMinSize());
+        Assert.assertEquals(0,dialogid.getMaxSize());
+
+        Assert.assertEquals("HNHBK",def.getValue("SegHead.code"));
+        Assert.assertEquals("3",def.getValue("SegHead.version"));
+        Assert.assertEquals("300",def.getValue("hbciversion"));
+        Assert.assertNull(def.getRef("gibtsnicht"));
+    }
+
+    /**
+     * Testet die Attribute von Nachrichten-Definitionen.
+     * @throws Exception
+     */
+    @Test
+    public void test002() throws Exception
+    {
+        SyntaxModel syntax = SyntaxCache.getInstance().getSyntax(null,"300");
+
+        List<SyntaxDef> msgs = syntax.getDefs(SyntaxDef.Kind.MSG);
+        Assert.assertFalse(msgs.isEmpty());
+
+        SyntaxDef res = syntax.getDef("DialogInitAnonRes");
+        Assert.assertTrue(msgs.contains(res));
+        Assert.assertTrue(res.isDontSign());
+        Assert.assertTrue(res.isDontCrypt());
+
+        SyntaxDef init = syntax.getDef("DialogInit");
+        Assert.assertFalse(init.isDontSign());
+        Assert.assertFalse(init.isDontCrypt());
+    }
+
+    /**
+     * Testet, dass der Kernel die HBCI-Version aus der kompilierten Syntax ermittelt.
+     * @throws Exception
+     */
+    @Test
+    public void test003() throws Exception
+    {
+        Assert.assertEquals("300",new HBCIKernelImpl(null,"300").getHBCIVersion(0));
+    }
+
+    /**
+     * Testet den Segment-Index einer Segmentfolge.
+     * @throws Exception
+     */
+    @Test
+    public void test004() throws Exception
+    {
+        SyntaxModel syntax = SyntaxCache.getInstance().getSyntax(null,"300");
+        SyntaxDef gvres = syntax.getDef("GVRes");
+        int size = gvres.getRefs().size();
+
+        int kaz7 = gvres.getRef("KUmsZeitRes7").getIndex();
+        Assert.assertEquals(kaz7,gvres.getNextSegCandidate(0,"HIKAZ","7"));
+        Assert.assertEquals(kaz7,gvres.getNextSegCandidate(kaz7,"HIKAZ","7"));
+
+        // Hinter der Referenz gibt es kein passendes Segment mehr
+        Assert.assertEquals(size,gvres.getNextSegCandidate(kaz7+1,"HIKAZ","7"));
+
+        // Unbekanntes Segment
+        Assert.assertEquals(size,gvres.getNextSegCandidate(0,"HIXYZ","1"));
+    }
+}
@@ -0,0 +1,194 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci4java.passport.storage;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Hashtable;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.kapott.hbci.manager.HBCIUtils;
+import org.kapott.hbci.passport.HBCIPassport;
+import org.kapott.hbci.passport.storage.PassportData;
+import org.kapott.hbci.passport.storage.format.AESFormat;
+import org.kapott.hbci4java.AbstractTest;
+
+/**
+ * Testet den Schluessel-Cache von {@link AESFormat}.
+ */
+public class TestAESFormat extends AbstractTest
+{
+  private final static String PARAM = "client.passport.keycache.timeout";
+
+  // Position des Salt in der Datei: Formatname (6 Bytes), Version (1 Byte), Laenge des Salt (1 Byte)
+  private final static int SALT_POS = 8;
+  private final static int SALT_SIZE = 8;
+
+  /**
+   * Setzt den Parameter zurueck.
+   * @throws Exception
+   */
+  @After
+  public void after() throws Exception
+  {
+    HBCIUtils.setParam(PARAM,null);
+  }
+
+  /**
+   * Testet, dass der Schluessel bei aktiviertem Cache wiederverwendet wird.
+   * @throws Exception
+   */
+  @Test
+  public void test001() throws Exception
+  {
+    HBCIUtils.setParam(PARAM,"60");
+
+    AESFormat format = new AESFormat();
+    HBCIPassport passport = this.createPassport();
+
+    byte[] b1 = format.save(passport,this.createData());
+    byte[] b2 = format.save(passport,this.createData());
+    Assert.assertArrayEquals(this.getSalt(b1),this.getSalt(b2));
+    Assert.assertFalse(Arrays.equals(b1,b2)); // neuer IV
+
+    Assert.assertEquals("12345678",format.load(passport,b1).blz);
+    Assert.assertEquals("12345678",format.load(passport,b2).blz);
+
+    // Nach dem Schliessen wird ein neuer Schluessel abgeleitet
+    AESFormat.clearKeyCache(passport);
+    byte[] b3 = format.save(passport,this.createData());
+    Assert.assertFalse(Arrays.equals(this.getSalt(b1),this.getSalt(b3)));
+
+    // Eine Datei mit fremdem Salt kann trotzdem gelesen werden
+    Assert.assertEquals("12345678",format.load(passport,b1).blz);
+  }
+
+  /**
+   * Testet, dass ohne Cache bei jedem Speichern ein neues Salt verwendet wird.
+   * @throws Exception
+   */
+  @Test
+  public void test002() throws Exception
+  {
+    AESFormat format = new AESFormat();
+    HBCIPassport passport = this.createPassport();
+
+    byte[] b1 = format.save(passport,this.createData());
+    byte[] b2 = format.save(passport,this.createData());
+    Assert.assertFalse(Arrays.equals(this.getSalt(b1),this.getSalt(b2)));
+    Assert.assertEquals("12345678",format.load(passport,b2).blz);
+  }
+
+  /**
+   * Misst die eingesparte Zeit pro Dialog.
+   * Pro Dialog wird der Passport typischerweise einmal gelesen und mehrfach gespeichert.
+   * @throws Exception
+   */
+  @Test
+  public void test003() throws Exception
+  {
+    Assume.assumeTrue(Boolean.valueOf(System.getProperty(AbstractTest.SYSPROP_PERFORMANCE,Boolean.TRUE.toString())));
+
+    final int saves = 4;
+    long[] used = new long[2];
+    for (int i=0;i<used.length;++i)
+    {
+      HBCIUtils.setParam(PARAM,i == 0 ? null : "60");
+      AESFormat format = new AESFormat();
+      HBCIPassport passport = this.createPassport();
+      byte[] data = format.save(passport,this.createData());
+      AESFormat.clearKeyCache(passport);
+
+      long start = System.nanoTime();
+      format.load(passport,data);
+      for (int k=0;k<saves;++k)
+        data = format.save(passport,this.createData());
+      used[i] = (System.nanoTime() - start) / 1000000L;
+    }
+    System.out.println("AES passport, 1 load + " + saves + " saves per dialog: without key cache " + used[0] + " millis, with key cache " + used[1] + " millis");
+  }
+
+  /**
+   * Liefert das Salt aus der Passport-Datei.
+   * @param data die Passport-Datei.
+   * @return das Salt.
+   */
+  private byte[] getSalt(byte[] data)
+  {
+    Assert.assertEquals(SALT_SIZE,data[SALT_POS - 1]);
+    return Arrays.copyOfRange(data,SALT_POS,SALT_POS + SALT_SIZE);
+  }
+
+  /**
+   * Erzeugt die zu speichernden Daten.
+   * @return die Daten.
+   */
+  private PassportData createData()
+  {
+    PassportData data = new PassportData();
+    data.blz = "12345678";
+    return data;
+  }
+
+  /**
+   * Erzeugt einen Passport, der lediglich die Client-Daten verwaltet.
+   * Das Passwort ist bereits hinterlegt, sodass kein Callback noetig ist.
+   * @return der Passport.
+   */
+  private HBCIPassport createPassport()
+  {
+    final Map<String,Object> clientData = new Hashtable<String,Object>();
+    clientData.put("__cached_passphrase__","geheim".toCharArray());
+
+    return (HBCIPassport) Proxy.newProxyInstance(this.getClass().getClassLoader(),new Class[]{HBCIPassport.class},new InvocationHandler() {
+      public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+      {
+        String name = method.getName();
+        if (name.equals("getClientData"))
+          return clientData.get(args[0]);
+
+        if (name.equals("setClientData"))
+        {
+          if (args[1] != null)
+            clientData.put((String) args[0],args[1]);
+          else
+            clientData.remove(args[0]);
+          return null;
+        }
+
+        if (name.equals("toString"))
+          return "TestPassport";
+        if (name.equals("hashCode"))
+          return System.identityHashCode(proxy);
+        if (name.equals("equals"))
+          return proxy == args[0];
+        return null;
+      }
+    });
+  }
+}
@@ -0,0 +1,105 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci4java.rewrite;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.kapott.hbci.exceptions.HBCI_Exception;
+import org.kapott.hbci.manager.HBCIUtils;
+import org.kapott.hbci.manager.MsgGen;
+import org.kapott.hbci.rewrite.Rewrite;
+import org.kapott.hbci.rewrite.RewriteContext;
+import org.kapott.hbci.rewrite.RewriterChain;
+import org.kapott.hbci4java.AbstractTest;
+
+/**
+ * Testet die {@link RewriterChain}.
+ */
+public class TestRewriterChain extends AbstractTest
+{
+  /**
+   * Testet das Wiederverwenden der Kette und das Erfassen der Laufzeiten.
+   * @throws Exception
+   */
+  @Test
+  public void test001() throws Exception
+  {
+    RewriterChain chain = RewriterChain.getInstance(" WrongSequenceNumbers,,SigIdLeadingZero ");
+    Assert.assertSame(chain,RewriterChain.getInstance(" WrongSequenceNumbers,,SigIdLeadingZero "));
+    Assert.assertEquals(Arrays.asList("WrongSequenceNumbers","SigIdLeadingZero"),chain.getNames());
+
+    RewriteContext ctx = new RewriteContext(null,"CustomMsg",null,null,false,false);
+    Assert.assertEquals("HNHBK:1:3+x'HIRMG:2:2+y'",chain.incomingClearText("HNHBK:1:3+x'HIRMG:5:2+y'",ctx));
+
+    Map<String,Long> timings = chain.getTimings();
+    Assert.assertTrue(timings.containsKey("WrongSequenceNumbers.incomingClearText"));
+    Assert.assertTrue(timings.containsKey("SigIdLeadingZero.incomingClearText"));
+    Assert.assertFalse(timings.containsKey("WrongSequenceNumbers.incomingData"));
+  }
+
+  /**
+   * Testet die Default-Konfiguration und unbekannte Rewriter.
+   * @throws Exception
+   */
+  @Test
+  public void test002() throws Exception
+  {
+    Assert.assertSame(RewriterChain.getInstance(HBCIUtils.getParam("kernel.rewriter")),RewriterChain.getInstance());
+    Assert.assertTrue(RewriterChain.getInstance(null).getNames().isEmpty());
+
+    try
+    {
+      RewriterChain.getInstance("GibtEsNicht");
+      Assert.fail("HBCI_Exception erwartet");
+    }
+    catch (HBCI_Exception e)
+    {
+      // erwartet
+    }
+  }
+
+  /**
+   * Testet, dass Rewriter mit den frueheren Methoden-Signaturen weiterhin aufgerufen werden.
+   * @throws Exception
+   */
+  @SuppressWarnings("deprecation")
+  @Test
+  public void test003() throws Exception
+  {
+    Rewrite legacy = new Rewrite()
+    {
+      @Override
+      public String incomingClearText(String st, MsgGen gen)
+      {
+        return st + getData("msgName") + getData("cryptIt");
+      }
+    };
+
+    RewriteContext ctx = new RewriteContext(null,"CustomMsg",null,null,false,true);
+    Assert.assertEquals("xCustomMsgtrue",legacy.incomingClearText("x",ctx));
+    Assert.assertEquals("y",legacy.incomingCrypted("y",ctx));
+    Assert.assertNull(Rewrite.getData("msgName"));
+  }
+}
@@ -25,6 +25,7 @@ import java.io.InputStream;
 import java.math.BigDecimal;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -33,6 +34,15 @@ import java.util.Map.Entry;
 import org.junit.Assert;
 import org.junit.Test;
 import org.kapott.hbci.GV.parsers.ISEPAParser;
+import org.kapott.hbci.GV.parsers.ParseCamt05200102;
+import org.kapott.hbci.GV.parsers.ParseCamt05200103;
+import org.kapott.hbci.GV.parsers.ParseCamt05200104;
+import org.kapott.hbci.GV.parsers.ParseCamt05200105;
+import org.kapott.hbci.GV.parsers.ParseCamt05200106;
+import org.kapott.hbci.GV.parsers.ParseCamt05200107;
+import org.kapott.hbci.GV.parsers.ParseCamt05200108;
+import org.kapott.hbci.GV.parsers.ParseCamt05200109;
+import org.kapott.hbci.GV.parsers.ParseCamt052Stax;
 import org.kapott.hbci.GV.parsers.SEPAParserFactory;
 import org.kapott.hbci.GV_Result.GVRKUms;
 import org.kapott.hbci.GV_Result.GVRKUms.BTag;
@@ -375,5 +385,81 @@ public class TestCamtParse extends AbstractTest
         }
     }
 
+    /**
+     * Testet, dass der Streaming-Parser dieselben Ergebnisse liefert wie die JAXB-Parser.
+     * @throws Exception
+     */
+    @Test
+    public void test007() throws Exception
+    {
+        Map<String,ISEPAParser<List<BTag>>> files = new HashMap<String,ISEPAParser<List<BTag>>>();
+        files.put("test-camt-parse-05200102.xml",new ParseCamt05200102());
+        files.put("test-camt-ruecklastschrift.xml",new ParseCamt05200102());
+        files.put("test-camt-parse-05200103.xml",new ParseCamt05200103());
+        files.put("test-camt-parse-05200104.xml",new ParseCamt05200104());
+        files.put("test-camt-parse-05200105.xml",new ParseCamt05200105());
+        files.put("test-camt-parse-05200106.xml",new ParseCamt05200106());
+        files.put("test-camt-parse-05200107.xml",new ParseCamt05200107());
+        files.put("test-camt-parse-05200108.xml",new ParseCamt05200108());
+        files.put("test-camt-parse-05200109.xml",new ParseCamt05200109());
+
+        for (Entry<String,ISEPAParser<List<BTag>>> entry:files.entrySet())
+        {
+            String file = entry.getKey();
+            List<BTag> expected = new ArrayList<BTag>();
+            List<BTag> actual = new ArrayList<BTag>();
+
+            InputStream is = null;
+            try
+            {
+                is = this.getStream(file);
+                SepaVersion version = SepaVersion.autodetect(is);
+                is.close();
+
+                is = this.getStream(file);
+                entry.getValue().parse(is,expected);
+                is.close();
+
+                is = this.getStream(file);
+                new ParseCamt052Stax(version).parse(is,actual);
+            }
+            finally
+            {
+                if (is != null)
+                    is.close();
+            }
 
+            Assert.assertFalse("Keine Buchungstage in " + file,expected.isEmpty());
+            Assert.assertEquals("Anzahl Buchungstage falsch in " + file,expected.size(),actual.size());
+            for (int i=0;i<expected.size();i++)
+            {
+                Assert.assertEquals("Buchungstag falsch in " + file,this.toString(expected.get(i)),this.toString(actual.get(i)));
+            }
+        }
+    }
+
+    /**
+     * Liefert eine Text-Repraesentation des Buchungstages incl. aller Buchungen zum Vergleichen.
+     * @param tag der Buchungstag.
+     * @return die Text-Repraesentation.
+     */
+    private String toString(BTag tag)
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append(tag.my.iban).append('|').append(tag.my.bic).append('|').append(tag.my.curr).append('|')
+          .append(tag.starttype).append('|').append(tag.start.value).append('|').append(tag.start.timestamp).append('|')
+          .append(tag.endtype).append('|').append(tag.end.value).append('|').append(tag.end.timestamp).append('\n');
+
+        for (UmsLine l:tag.lines)
+        {
+            sb.append(l.id).append('|').append(l.endToEndId).append('|').append(l.mandateId).append('|')
+              .append(l.customerref).append('|').append(l.text).append('|').append(l.purposecode).append('|')
+              .append(l.gvcode).append('|').append(l.primanota).append('|').append(l.addkey).append('|')
+              .append(l.bdate).append('|').append(l.valuta).append('|').append(l.isStorno).append('|')
+              .append(l.value).append('|').append(l.saldo.value).append('|').append(l.saldo.timestamp).append('|')
+              .append(l.other.iban).append('|').append(l.other.bic).append('|').append(l.other.name).append('|')
+              .append(l.other.name2).append('|').append(l.other.creditorid).append('|').append(l.usage).append('\n');
+        }
+        return sb.toString();
+    }
 }
@@ -0,0 +1,214 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci4java.sepa;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.kapott.hbci.GV.parsers.ParseCamt05200108;
+import org.kapott.hbci.GV.parsers.ParseCamt052Stax;
+import org.kapott.hbci.GV_Result.GVRKUms.BTag;
+import org.kapott.hbci.GV_Result.GVRKUms.UmsLine;
+import org.kapott.hbci.sepa.SepaVersion;
+import org.kapott.hbci4java.AbstractTest;
+
+/**
+ * Vergleicht Laufzeit und Speicherverbrauch beim Parsen grosser CAMT.052-Dokumente
+ * zwischen dem Streaming-Parser und dem JAXB-Parser.
+ */
+public class TestCamtParsePerformance extends AbstractTest
+{
+    /**
+     * Deaktiviert den Test, wenn das System-Property nicht auf "true" steht.
+     * @throws Exception
+     */
+    @BeforeClass
+    public static void beforeClass() throws Exception
+    {
+        Assume.assumeTrue(Boolean.valueOf(System.getProperty(AbstractTest.SYSPROP_PERFORMANCE,Boolean.TRUE.toString())));
+    }
+
+    /**
+     * Erzeugt ein CAMT.052.001.08-Dokument mit der angegebenen Anzahl von Buchungen.
+     * @param count Anzahl der Buchungen.
+     * @return das Dokument.
+     * @throws Exception
+     */
+    private byte[] createDocument(int count) throws Exception
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        sb.append("<Document xmlns=\"urn:iso:std:iso:20022:tech:xsd:camt.052.001.08\">\n");
+        sb.append("<BkToCstmrAcctRpt><GrpHdr><MsgId>TEST</MsgId><CreDtTm>2023-11-11T19:28:52+01:00</CreDtTm></GrpHdr>\n");
+        sb.append("<Rpt><Id>TEST</Id><CreDtTm>2023-11-11T19:28:52+01:00</CreDtTm>\n");
+        sb.append("<Acct><Id><IBAN>DE12345678901234567890</IBAN></Id><Ccy>EUR</Ccy><Svcr><FinInstnId><BICFI>ABCDEFG1ABC</BICFI></FinInstnId></Svcr></Acct>\n");
+        sb.append("<Bal><Tp><CdOrPrtry><Cd>OPBD</Cd></CdOrPrtry></Tp><Amt Ccy=\"EUR\">100.00</Amt><CdtDbtInd>CRDT</CdtDbtInd><Dt><Dt>2023-11-08</Dt></Dt></Bal>\n");
+        sb.append("<Bal><Tp><CdOrPrtry><Cd>CLBD</Cd></CdOrPrtry></Tp><Amt Ccy=\"EUR\">").append(100 + count).append(".00</Amt><CdtDbtInd>CRDT</CdtDbtInd><Dt><Dt>2023-11-10</Dt></Dt></Bal>\n");
+        for (int i=0;i<count;i++)
+        {
+            sb.append("<Ntry><Amt Ccy=\"EUR\">1.00</Amt><CdtDbtInd>CRDT</CdtDbtInd><Sts><Cd>BOOK</Cd></Sts>");
+            sb.append("<BookgDt><Dt>2023-11-10</Dt></BookgDt><ValDt><Dt>2023-11-10</Dt></ValDt><AcctSvcrRef>REF-").append(i).append("</AcctSvcrRef>");
+            sb.append("<BkTxCd/><NtryDtls><TxDtls><Refs><EndToEndId>E2E-").append(i).append("</EndToEndId><Prtry><Tp>FI-UMSATZ-ID</Tp><Ref>ID-").append(i).append("</Ref></Prtry></Refs>");
+            sb.append("<Amt Ccy=\"EUR\">1.00</Amt><BkTxCd><Prtry><Cd>NTRF+166+9310+000</Cd><Issr>DK</Issr></Prtry></BkTxCd>");
+            sb.append("<RltdPties><Dbtr><Pty><Nm>Max Mustermann</Nm></Pty></Dbtr><DbtrAcct><Id><IBAN>DE12345678901234567891</IBAN></Id></DbtrAcct></RltdPties>");
+            sb.append("<RltdAgts><DbtrAgt><FinInstnId><BICFI>ABCDEFG2ABC</BICFI></FinInstnId></DbtrAgt></RltdAgts>");
+            sb.append("<RmtInf><Ustrd>Test ").append(i).append("</Ustrd><Ustrd>Zeile 2</Ustrd></RmtInf></TxDtls></NtryDtls>");
+            sb.append("<AddtlNtryInf>GUTSCHRIFT</AddtlNtryInf></Ntry>\n");
+        }
+        sb.append("</Rpt></BkToCstmrAcctRpt></Document>\n");
+        return sb.toString().getBytes("UTF-8");
+    }
+
+    /**
+     * Parst Dokumente wachsender Groesse mit beiden Parsern, prueft die Ergebnisse
+     * und dass die Parse-Zeit des Streaming-Parsers etwa linear waechst.
+     * @throws Exception
+     */
+    @Test
+    public void test001() throws Exception
+    {
+        // Aufwaermen
+        byte[] warmup = this.createDocument(1000);
+        this.check(this.parseStax(warmup),1000);
+        this.check(this.parseJaxb(warmup),1000);
+
+        long first = 0;
+        long last  = 0;
+        int[] counts = new int[]{2500,5000,10000,20000};
+        for (int count:counts)
+        {
+            byte[] data = this.createDocument(count);
+
+            long start = System.currentTimeMillis();
+            this.check(this.parseStax(data),count);
+            long stax = System.currentTimeMillis() - start;
+
+            start = System.currentTimeMillis();
+            this.check(this.parseJaxb(data),count);
+            long jaxb = System.currentTimeMillis() - start;
+
+            System.out.println(count + " entries, " + data.length + " bytes: StAX " + stax + " millis, JAXB " + jaxb + " millis");
+            if (first == 0)
+                first = Math.max(stax,1);
+            last = stax;
+        }
+
+        // 8-fache Groesse. Bei linearem Aufwand sollte die Zeit hoechstens
+        // um den Faktor 8 steigen. Wir lassen grosszuegig Luft fuer GC und JIT.
+        Assert.assertTrue("Parse-Zeit waechst nicht linear: " + first + " -> " + last + " millis", last < Math.max(first * 32,2000));
+    }
+
+    /**
+     * Vergleicht den Speicherverbrauch von Streaming- und JAXB-Parser.
+     * Der Streaming-Parser haelt nie das ganze Dokument als Objektbaum im Speicher
+     * und sollte daher auch insgesamt weniger Speicher allokieren.
+     * @throws Exception
+     */
+    @Test
+    public void test002() throws Exception
+    {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled());
+        long tid = Thread.currentThread().getId();
+
+        int count = 10000;
+        byte[] data = this.createDocument(count);
+
+        // Aufwaermen
+        this.parseStax(data);
+        this.parseJaxb(data);
+
+        long start = bean.getThreadAllocatedBytes(tid);
+        this.check(this.parseJaxb(data),count);
+        long jaxb = bean.getThreadAllocatedBytes(tid) - start;
+
+        start = bean.getThreadAllocatedBytes(tid);
+        this.check(this.parseStax(data),count);
+        long stax = bean.getThreadAllocatedBytes(tid) - start;
+
+        // Gestreamt, ohne die Buchungstage zu sammeln
+        final int[] lines = new int[1];
+        start = bean.getThreadAllocatedBytes(tid);
+        new ParseCamt052Stax(SepaVersion.CAMT_052_001_08).parse(new ByteArrayInputStream(data),new Consumer<BTag>() {
+            public void accept(BTag tag)
+            {
+                lines[0] += tag.lines.size();
+            }
+        });
+        long streamed = bean.getThreadAllocatedBytes(tid) - start;
+
+        Assert.assertEquals(count,lines[0]);
+        System.out.println(count + " entries, " + data.length + " bytes: JAXB " + jaxb + " bytes allocated, StAX " + stax + " bytes allocated, StAX streamed " + streamed + " bytes allocated");
+        Assert.assertTrue("StAX-Parser allokiert mehr Speicher als JAXB: " + stax + " > " + jaxb,stax < jaxb);
+    }
+
+    /**
+     * Parst das Dokument mit dem Streaming-Parser.
+     * @param data das Dokument.
+     * @return die Buchungstage.
+     */
+    private List<BTag> parseStax(byte[] data)
+    {
+        List<BTag> result = new ArrayList<BTag>();
+        new ParseCamt052Stax(SepaVersion.CAMT_052_001_08).parse(new ByteArrayInputStream(data),result);
+        return result;
+    }
+
+    /**
+     * Parst das Dokument mit dem JAXB-Parser.
+     * @param data das Dokument.
+     * @return die Buchungstage.
+     */
+    private List<BTag> parseJaxb(byte[] data)
+    {
+        List<BTag> result = new ArrayList<BTag>();
+        new ParseCamt05200108().parse(new ByteArrayInputStream(data),result);
+        return result;
+    }
+
+    /**
+     * Prueft Anzahl der Buchungen und Salden.
+     * @param result die Buchungstage.
+     * @param count die erwartete Anzahl der Buchungen.
+     */
+    private void check(List<BTag> result, int count)
+    {
+        Assert.assertEquals(1,result.size());
+        List<UmsLine> lines = result.get(0).lines;
+        Assert.assertEquals(count,lines.size());
+
+        UmsLine line = lines.get(count-1);
+        Assert.assertEquals("ID-" + (count-1),line.id);
+        Assert.assertEquals("Test " + (count-1),line.usage.get(0));
+        Assert.assertEquals("Max Mustermann",line.other.name);
+        Assert.assertEquals("166",line.gvcode);
+        Assert.assertEquals((100 + count) * 100L,line.saldo.value.getLongValue());
+    }
+}
@@ -22,12 +22,19 @@
 package org.kapott.hbci4java.sepa;
 
 import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Assert;
 import org.junit.Test;
 import org.kapott.hbci.GV.generators.ISEPAGenerator;
 import org.kapott.hbci.GV.generators.SEPAGeneratorFactory;
+import org.kapott.hbci.sepa.SepaJAXBCache;
 import org.kapott.hbci.sepa.SepaVersion;
 import org.kapott.hbci.sepa.SepaVersion.Type;
 
@@ -256,4 +263,72 @@ public class TestSepaGen
         }
     }
 
-}
+    /**
+     * Testet, dass JAXB-Context, Schema und Marshaller bei wiederholtem und
+     * parallelem Erzeugen aus dem Cache kommen.
+     * @throws Exception
+     */
+    @Test
+    public void test007() throws Exception
+    {
+        final Properties props = new Properties();
+        props.setProperty("src.bic",    "ABCDEFAA123");
+        props.setProperty("src.iban",   "DE1234567890");
+        props.setProperty("src.name",   "Max Mustermann");
+        props.setProperty("dst.bic",    "ABCDEFAA123");
+        props.setProperty("dst.iban",   "DE0987654321");
+        props.setProperty("dst.name",   "SEPAstian");
+        props.setProperty("btg.value",  "100.00");
+        props.setProperty("btg.curr",   "EUR");
+        props.setProperty("usage",      "Verwendungszweck");
+        props.setProperty("sepaid",     "abcde");
+        props.setProperty("endtoendid", "fghij");
+
+        final List<SepaVersion> versions = SepaVersion.getKnownVersions(Type.PAIN_001);
+
+        // Einmal alle Versionen erzeugen, damit alles im Cache ist
+        for (SepaVersion version:versions)
+        {
+            ISEPAGenerator gen = SEPAGeneratorFactory.get("UebSEPA", version);
+            gen.generate(props, new ByteArrayOutputStream(), true);
+        }
+
+        SepaJAXBCache cache = SepaJAXBCache.getInstance();
+        long contexts = cache.getContextLoads();
+        long schemas  = cache.getSchemaLoads();
+        long hits     = cache.getMarshallerHits();
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try
+        {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for (int i=0;i<10;i++)
+            {
+                for (final SepaVersion version:versions)
+                {
+                    results.add(pool.submit(new Callable<String>() {
+                        public String call() throws Exception
+                        {
+                            ISEPAGenerator gen = SEPAGeneratorFactory.get("UebSEPA", version);
+                            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                            gen.generate(props, bos, true);
+                            return bos.toString(ISEPAGenerator.ENCODING);
+                        }
+                    }));
+                }
+            }
+            for (Future<String> f:results)
+            {
+                Assert.assertTrue(f.get().contains("SEPAstian"));
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        Assert.assertEquals(contexts,cache.getContextLoads());
+        Assert.assertEquals(schemas,cache.getSchemaLoads());
+        Assert.assertTrue(cache.toString(),cache.getMarshallerHits() > hits);
+    }
+}
\ No newline at end of file
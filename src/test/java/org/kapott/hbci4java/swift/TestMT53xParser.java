@@ -0,0 +1,284 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci4java.swift;
+
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.kapott.hbci.GV_Result.GVRWPDepotList;
+import org.kapott.hbci.GV_Result.GVRWPDepotList.Entry.Gattung;
+import org.kapott.hbci.GV_Result.GVRWPDepotList.Entry.Gattung.SubSaldo;
+import org.kapott.hbci.GV_Result.GVRWPDepotUms;
+import org.kapott.hbci.GV_Result.GVRWPDepotUms.Entry.FinancialInstrument;
+import org.kapott.hbci.GV_Result.GVRWPDepotUms.Entry.FinancialInstrument.Transaction;
+import org.kapott.hbci.structures.TypedValue;
+import org.kapott.hbci.swift.MT535Parser;
+import org.kapott.hbci.swift.MT536Parser;
+import org.kapott.hbci4java.AbstractTest;
+
+/**
+ * Testet die Parser fuer MT535 (Depotaufstellung) und MT536 (Depotumsaetze).
+ * Die erwarteten Werte entsprechen dem, was die bisherige Implementierung in
+ * GVWPDepotList bzw. GVWPDepotUms aus denselben Daten geliefert hat.
+ */
+public class TestMT53xParser extends AbstractTest
+{
+  private final SimpleDateFormat df = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+
+  /**
+   * Parst eine Depotaufstellung.
+   * @throws Exception
+   */
+  @Test
+  public void test001() throws Exception
+  {
+    StringBuffer buffer = new StringBuffer(this.read("test-mt535-001.txt"));
+    GVRWPDepotList result = new GVRWPDepotList();
+    new MT535Parser(null).parse(buffer,result::addEntry);
+    Assert.assertEquals(0,buffer.length());
+
+    GVRWPDepotList.Entry[] entries = result.getEntries();
+    Assert.assertEquals(1,entries.length);
+    GVRWPDepotList.Entry entry = entries[0];
+    Assert.assertEquals("2023-02-15 00:00:00",df.format(entry.timestamp));
+    Assert.assertEquals("12345678",entry.depot.blz);
+    Assert.assertEquals("1234567890",entry.depot.number);
+    Assert.assertEquals("6025 EUR",entry.total.toString());
+
+    Gattung[] gattungen = entry.getEntries();
+    Assert.assertEquals(2,gattungen.length);
+
+    Gattung g = gattungen[0];
+    Assert.assertEquals("DE0005140008",g.isin);
+    Assert.assertEquals("514000",g.wkn);
+    Assert.assertEquals("DEUTSCHE BANK AG NAMENS-AKTIEN O.N.",g.name);
+    Assert.assertEquals(Gattung.PRICE_TYPE_VALUE,g.pricetype);
+    Assert.assertEquals(Gattung.PRICE_QUALIF_MRKT,g.pricequalifier);
+    Assert.assertEquals("10.5 EUR",g.price.toString());
+    Assert.assertEquals(Gattung.SOURCE_LOC,g.source);
+    Assert.assertEquals("XETR",g.source_comment);
+    Assert.assertEquals("2023-02-14 17:30:00",df.format(g.timestamp_price));
+    Assert.assertEquals(GVRWPDepotList.Entry.SALDO_TYPE_STCK,g.saldo_type);
+    Assert.assertEquals("100 ",g.saldo.toString());
+    Assert.assertEquals("1050 EUR",g.depotwert.toString());
+    Assert.assertNull(g.stueckzinsbetrag);
+    Assert.assertEquals("EUR",g.curr);
+    Assert.assertEquals("Banken",g.branche);
+    Assert.assertEquals("2020-01-15 00:00:00",df.format(g.kauf));
+    Assert.assertNull(g.faellig);
+    Assert.assertEquals("101.25 EUR",g.einstandspreis.toString());
+
+    SubSaldo[] saldi = g.getEntries();
+    Assert.assertEquals(2,saldi.length);
+    Assert.assertEquals("TAVI",saldi[0].qualifier);
+    Assert.assertFalse(saldi[0].locked);
+    Assert.assertEquals("DE",saldi[0].country);
+    Assert.assertEquals(1,saldi[0].verwahrung);
+    Assert.assertEquals("Frankfurt",saldi[0].lager);
+    Assert.assertEquals("2023-03-01 00:00:00",df.format(saldi[0].lockeduntil));
+    Assert.assertEquals("Bemerkung weiter",saldi[0].comment);
+    Assert.assertEquals("BLOK",saldi[1].qualifier);
+    Assert.assertTrue(saldi[1].locked);
+    Assert.assertEquals("-5 ",saldi[1].saldo.toString());
+
+    g = gattungen[1];
+    Assert.assertEquals("DE0001102580",g.isin);
+    Assert.assertEquals("BUNDESREP.DEUTSCHLAND",g.name);
+    Assert.assertEquals(Gattung.PRICE_TYPE_PRCT,g.pricetype);
+    Assert.assertEquals("99.5 %",g.price.toString());
+    Assert.assertEquals(Gattung.SOURCE_THEOR,g.source);
+    Assert.assertNull(g.source_comment);
+    Assert.assertEquals("2023-02-14 00:00:00",df.format(g.timestamp_price));
+    Assert.assertEquals(GVRWPDepotList.Entry.SALDO_TYPE_WERT,g.saldo_type);
+    Assert.assertEquals(-12,g.days);
+    Assert.assertEquals("-12.34 EUR",g.stueckzinsbetrag.toString());
+    Assert.assertEquals("EUR",g.xchg_cur1);
+    Assert.assertEquals("USD",g.xchg_cur2);
+    Assert.assertEquals(1.07d,g.xchg_kurs,0.0001d);
+    Assert.assertEquals("2030-02-15 00:00:00",df.format(g.faellig));
+    Assert.assertEquals(1750L,g.zinssatz);
+    Assert.assertEquals(0,g.getEntries().length);
+  }
+
+  /**
+   * Parst Depotumsaetze.
+   * @throws Exception
+   */
+  @Test
+  public void test002() throws Exception
+  {
+    StringBuffer buffer = new StringBuffer(this.read("test-mt536-001.txt"));
+    GVRWPDepotUms result = new GVRWPDepotUms();
+    new MT536Parser(null).parse(buffer,result::addEntry);
+    Assert.assertEquals(0,buffer.length());
+
+    GVRWPDepotUms.Entry[] entries = result.getEntries();
+    Assert.assertEquals(1,entries.length);
+    GVRWPDepotUms.Entry entry = entries[0];
+    Assert.assertEquals("2023-02-01 08:15:00",df.format(entry.timestamp));
+    Assert.assertEquals("12345678",entry.depot.blz);
+    Assert.assertEquals("1234567890",entry.depot.number);
+    Assert.assertEquals(2,entry.instruments.size());
+
+    FinancialInstrument fi = entry.instruments.get(0);
+    Assert.assertEquals("DE0005140008",fi.isin);
+    Assert.assertEquals("514000",fi.wkn);
+    Assert.assertEquals("DEUTSCHE BANK AG",fi.name);
+    Assert.assertEquals(TypedValue.TYPE_STCK,fi.startSaldo.getType());
+    Assert.assertEquals("100",fi.startSaldo.getValue().toPlainString());
+    Assert.assertEquals("150",fi.endSaldo.getValue().toPlainString());
+    Assert.assertNull(fi.preis);
+    Assert.assertNull(fi.preisdatum);
+    Assert.assertEquals(2,fi.transactions.size());
+
+    Transaction t = fi.transactions.get(0);
+    Assert.assertEquals("REF0001",t.kundenreferenz);
+    Assert.assertEquals("50",t.anzahl.getValue().toPlainString());
+    Assert.assertEquals("-525 EUR",t.betrag.toString());
+    Assert.assertEquals(Transaction.INDICATOR_SETTLEMENT_CLEARING,t.transaction_indicator);
+    Assert.assertEquals(Transaction.RICHTUNG_ERHALT,t.richtung);
+    Assert.assertEquals(Transaction.BEZAHLUNG_GEGEN_ZAHLUNG,t.bezahlung);
+    Assert.assertEquals("2023-01-10 00:00:00",df.format(t.datum));
+    Assert.assertEquals("2023-01-12 00:00:00",df.format(t.datum_valuta));
+    Assert.assertTrue(t.storno);
+    Assert.assertEquals("Gegenpartei",t.gegenpartei);
+    Assert.assertEquals("Kauf Xetra",t.freitext_details);
+
+    t = fi.transactions.get(1);
+    Assert.assertNull(t.kundenreferenz);
+    Assert.assertEquals(Transaction.INDICATOR_LEIHE,t.transaction_indicator);
+    Assert.assertEquals(Transaction.RICHTUNG_LIEFERUNG,t.richtung);
+    Assert.assertEquals(Transaction.BEZAHLUNG_FREI,t.bezahlung);
+    Assert.assertNull(t.datum_valuta);
+    Assert.assertFalse(t.storno);
+    Assert.assertNull(t.gegenpartei);
+
+    fi = entry.instruments.get(1);
+    Assert.assertNull(fi.isin);
+    Assert.assertEquals("110258",fi.wkn);
+    Assert.assertEquals("BUNDESREP.DEUTSCHLAND",fi.name);
+    Assert.assertEquals(TypedValue.TYPE_WERT,fi.startSaldo.getType());
+    Assert.assertEquals("5000",fi.endSaldo.getValue().toPlainString());
+    Assert.assertEquals(TypedValue.TYPE_PROZENT,fi.preis.getType());
+    Assert.assertEquals("2023-01-30 00:00:00",df.format(fi.preisdatum));
+    Assert.assertEquals(1,fi.transactions.size());
+
+    t = fi.transactions.get(0);
+    Assert.assertEquals("12.34 EUR",t.stueckzinsen.toString());
+    Assert.assertEquals(12,t.stueckzins_tage);
+    Assert.assertEquals(Transaction.INDICATOR_CORPORATE_ACTION,t.transaction_indicator);
+    Assert.assertTrue(t.ccp_eligibility);
+    Assert.assertEquals("2023-01-15 00:00:00",df.format(t.datum));
+  }
+
+  /**
+   * Parst Depotaufstellungen und Depotumsaetze wachsender Groesse und prueft,
+   * dass die Parse-Zeit etwa linear mit der Anzahl der Wertpapiergattungen waechst.
+   * @throws Exception
+   */
+  @Test
+  public void test003() throws Exception
+  {
+    Assume.assumeTrue(Boolean.valueOf(System.getProperty(AbstractTest.SYSPROP_PERFORMANCE,Boolean.TRUE.toString())));
+
+    String mt535 = this.read("test-mt535-001.txt");
+    String mt536 = this.read("test-mt536-001.txt");
+
+    // Aufwaermen
+    this.parse(this.createDepot(mt535,500),this.createDepot(mt536,500),500);
+
+    long first = 0;
+    long last  = 0;
+    int[] counts = new int[]{1000,2000,4000,8000};
+    for (int count:counts)
+    {
+      String d535 = this.createDepot(mt535,count);
+      String d536 = this.createDepot(mt536,count);
+
+      long start = System.currentTimeMillis();
+      this.parse(d535,d536,count);
+      long used = System.currentTimeMillis() - start;
+
+      System.out.println(count + " instruments, " + (d535.length() + d536.length()) + " bytes: " + used + " millis");
+      if (first == 0)
+        first = Math.max(used,1);
+      last = used;
+    }
+
+    // 8-fache Groesse. Bei linearem Aufwand sollte die Zeit hoechstens
+    // um den Faktor 8 steigen. Wir lassen grosszuegig Luft fuer GC und JIT.
+    Assert.assertTrue("Parse-Zeit waechst nicht linear: " + first + " -> " + last + " millis", last < Math.max(first * 32,2000));
+  }
+
+  /**
+   * Parst die Daten und prueft die Anzahl der Wertpapiergattungen.
+   * @param mt535 die Depotaufstellung.
+   * @param mt536 die Depotumsaetze.
+   * @param count Anzahl der Wiederholungen der Wertpapiergattungen.
+   * @throws Exception
+   */
+  private void parse(String mt535, String mt536, int count) throws Exception
+  {
+    GVRWPDepotList list = new GVRWPDepotList();
+    new MT535Parser(null).parse(new StringBuffer(mt535),list::addEntry);
+    Assert.assertEquals(2 * count,list.getEntries()[0].getEntries().length);
+    Assert.assertEquals("6025 EUR",list.getEntries()[0].total.toString());
+
+    GVRWPDepotUms ums = new GVRWPDepotUms();
+    new MT536Parser(null).parse(new StringBuffer(mt536),ums::addEntry);
+    Assert.assertEquals(2 * count,ums.getEntries()[0].instruments.size());
+  }
+
+  /**
+   * Erzeugt ein grosses Depot, indem die Wertpapiergattungen der Vorlage wiederholt werden.
+   * @param data die Vorlage.
+   * @param count Anzahl der Wiederholungen.
+   * @return das Depot.
+   */
+  private String createDepot(String data, int count)
+  {
+    int start = data.indexOf("\r\n:16R:FIN");
+    int end   = data.lastIndexOf("\r\n:16S:FIN") + 10;
+
+    StringBuilder sb = new StringBuilder(data.substring(0,start));
+    for (int i=0;i<count;i++)
+    {
+      sb.append(data,start,end);
+    }
+    sb.append(data.substring(end));
+    return sb.toString();
+  }
+
+  /**
+   * Liest die Testdaten.
+   * @param name Name der Datei.
+   * @return die Testdaten.
+   * @throws Exception
+   */
+  private String read(String name) throws Exception
+  {
+    return new String(this.getBytes(name),StandardCharsets.ISO_8859_1);
+  }
+}
@@ -0,0 +1,188 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci4java.swift;
+
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.kapott.hbci.GV_Result.GVRKUms;
+import org.kapott.hbci.GV_Result.GVRKUms.BTag;
+import org.kapott.hbci.GV_Result.GVRKUms.UmsLine;
+import org.kapott.hbci.swift.Swift;
+import org.kapott.hbci.swift.SwiftTokenizer;
+import org.kapott.hbci4java.AbstractTest;
+
+/**
+ * Misst die Parse-Zeit grosser MT940-Kontoauszuege in Abhaengigkeit von der
+ * Anzahl der Buchungen.
+ */
+public class TestMT940Performance extends AbstractTest
+{
+    /**
+     * Deaktiviert den Test, wenn das System-Property nicht auf "true" steht.
+     * @throws Exception
+     */
+    @BeforeClass
+    public static void beforeClass() throws Exception
+    {
+        Assume.assumeTrue(Boolean.valueOf(System.getProperty(AbstractTest.SYSPROP_PERFORMANCE,Boolean.TRUE.toString())));
+    }
+
+    /**
+     * Erzeugt einen Kontoauszug mit der angegebenen Anzahl von Buchungen.
+     * @param count Anzahl der Buchungen.
+     * @return der Kontoauszug im MT940-Format.
+     */
+    private String createStatement(int count)
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append("\r\n:20:STARTUMS\r\n");
+        sb.append(":25:12345678/1234567890\r\n");
+        sb.append(":28C:1\r\n");
+        sb.append(":60F:C230209EUR100,00\r\n");
+        for (int i=0;i<count;i++)
+        {
+            sb.append(":61:2302090209CR1,00NTRFNONREF//").append(i).append("\r\n");
+            sb.append(":86:152?00GUTSCHRIFT UEBERWEISUNG?109245?20Test ").append(i).append("?21Zeile 2\r\n?32Max Mustermann?34000\r\n");
+        }
+        sb.append(":62F:C230209EUR").append(100 + count).append(",00\r\n");
+        sb.append("-\r\n");
+        return sb.toString();
+    }
+
+    /**
+     * Parst Kontoauszuege wachsender Groesse und prueft, dass die Parse-Zeit
+     * etwa linear mit der Anzahl der Buchungen waechst.
+     * @throws Exception
+     */
+    @Test
+    public void test001() throws Exception
+    {
+        // Aufwaermen
+        this.parse(this.createStatement(1000),1000);
+
+        long first = 0;
+        long last  = 0;
+        int[] counts = new int[]{2500,5000,10000,20000};
+        for (int count:counts)
+        {
+            String data = this.createStatement(count);
+
+            long start = System.currentTimeMillis();
+            this.parse(data,count);
+            long used = System.currentTimeMillis() - start;
+
+            System.out.println(count + " bookings, " + data.length() + " bytes: " + used + " millis");
+            if (first == 0)
+                first = Math.max(used,1);
+            last = used;
+        }
+
+        // 8-fache Groesse. Bei linearem Aufwand sollte die Zeit hoechstens
+        // um den Faktor 8 steigen. Wir lassen grosszuegig Luft fuer GC und JIT.
+        Assert.assertTrue("Parse-Zeit waechst nicht linear: " + first + " -> " + last + " millis", last < Math.max(first * 32,2000));
+    }
+
+    /**
+     * Prueft, dass der Tokenizer dieselben Werte liefert wie {@link Swift#getTagValue(String, String, int)}.
+     * @throws Exception
+     */
+    @Test
+    public void test002() throws Exception
+    {
+        int count = 500;
+        String data = this.createStatement(count);
+
+        int n61 = 0;
+        int n86 = 0;
+        SwiftTokenizer tokenizer = new SwiftTokenizer(data);
+        while (tokenizer.next())
+        {
+            String tag = tokenizer.getTag();
+            int counter = 0;
+            if (tag.equals("61"))
+                counter = n61++;
+            else if (tag.equals("86"))
+                counter = n86++;
+            Assert.assertEquals(tag + "/" + counter,Swift.getTagValue(data,tag,counter),tokenizer.getValue());
+        }
+        Assert.assertEquals(count,n61);
+        Assert.assertEquals(count,n86);
+    }
+
+    /**
+     * Prueft, dass der Iterator dieselben Buchungstage liefert wie die vollstaendig geparste Liste.
+     * @throws Exception
+     */
+    @Test
+    public void test003() throws Exception
+    {
+        StringBuilder sb = new StringBuilder();
+        for (int i=0;i<100;i++)
+        {
+            sb.append(this.createStatement(100));
+        }
+
+        GVRKUms streamed = new GVRKUms();
+        streamed.appendMT940Data(sb.toString());
+        int days  = 0;
+        int lines = 0;
+        for (Iterator<BTag> i=streamed.iterateDataPerDay();i.hasNext();)
+        {
+            BTag tag = i.next();
+            days++;
+            lines += tag.lines.size();
+        }
+
+        GVRKUms parsed = new GVRKUms();
+        parsed.appendMT940Data(sb.toString());
+        List<BTag> list = parsed.getDataPerDay();
+        Assert.assertEquals(list.size(),days);
+        Assert.assertEquals(parsed.getFlatData().size(),lines);
+        Assert.assertEquals(100,days);
+        Assert.assertEquals(10000,lines);
+    }
+
+    /**
+     * Parst den Kontoauszug und prueft Anzahl der Buchungen und Salden.
+     * @param data der Kontoauszug.
+     * @param count die erwartete Anzahl der Buchungen.
+     */
+    private void parse(String data, int count)
+    {
+        GVRKUms ums = new GVRKUms();
+        ums.appendMT940Data(data);
+        List<UmsLine> lines = ums.getFlatData();
+        Assert.assertEquals(count,lines.size());
+        Assert.assertEquals(0,ums.restMT940.length());
+
+        UmsLine line = lines.get(count-1);
+        Assert.assertEquals(Integer.toString(count-1),line.instref);
+        Assert.assertEquals("Test " + (count-1),line.usage.get(0));
+        Assert.assertEquals("Max Mustermann",line.other.name);
+        Assert.assertEquals((100 + count) * 100L,line.saldo.value.getLongValue());
+    }
+}
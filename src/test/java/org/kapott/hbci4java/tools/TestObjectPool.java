@@ -0,0 +1,181 @@
+/**********************************************************************
+ *
+ * This file is part of HBCI4Java.
+ * Copyright (c) Olaf Willuhn
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ *
+ **********************************************************************/
+
+package org.kapott.hbci4java.tools;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.kapott.hbci.exceptions.HBCI_Exception;
+import org.kapott.hbci.tools.ObjectFactory;
+import org.kapott.hbci.tools.ObjectPool;
+import org.kapott.hbci4java.AbstractTest;
+
+/**
+ * Testet die Strategien der Object-Pools.
+ */
+public class TestObjectPool extends AbstractTest
+{
+    private final static String[] STRATEGIES = {ObjectPool.STRATEGY_SYNCHRONIZED,ObjectPool.STRATEGY_LOCKFREE,ObjectPool.STRATEGY_THREADLOCAL};
+
+    /**
+     * Testet Entnehmen, Zurueckgeben und die Groessenbeschraenkung.
+     * @throws Exception
+     */
+    @Test
+    public void test001() throws Exception
+    {
+        for (String strategy:STRATEGIES)
+        {
+            ObjectFactory factory = new ObjectFactory(2,strategy);
+            Assert.assertNull(strategy,factory.getFreeObject());
+
+            Object a = new Object();
+            Object b = new Object();
+            Object c = new Object();
+            factory.addToUsedPool(a);
+            factory.addToUsedPool(b);
+            factory.addToUsedPool(c); // Pool voll
+            Assert.assertEquals(strategy,2,factory.getUsedObjects().size());
+
+            factory.unuseObject(c); // nicht im Pool
+            factory.unuseObject(a);
+            factory.unuseObject(a); // doppelt
+            Assert.assertEquals(strategy,1,factory.getFreeObjects().size());
+
+            Assert.assertSame(strategy,a,factory.getFreeObject());
+            Assert.assertNull(strategy,factory.getFreeObject());
+        }
+
+        ObjectFactory none = new ObjectFactory(2,ObjectPool.STRATEGY_NONE);
+        Object o = new Object();
+        none.addToUsedPool(o);
+        none.unuseObject(o);
+        Assert.assertNull(none.getFreeObject());
+
+        try
+        {
+            new ObjectFactory(2,"gibtesnicht");
+            Assert.fail("HBCI_Exception erwartet");
+        }
+        catch (HBCI_Exception e)
+        {
+            // erwartet
+        }
+    }
+
+    /**
+     * Testet, dass freie Objekte beendeter Threads bei der Strategie "threadlocal"
+     * keinen Platz im Pool belegen und der Stack je Thread begrenzt ist.
+     * @throws Exception
+     */
+    @Test
+    public void test003() throws Exception
+    {
+        final ObjectFactory factory = new ObjectFactory(2,ObjectPool.STRATEGY_THREADLOCAL);
+        Thread t = new Thread(() -> {
+            Object a = new Object();
+            Object b = new Object();
+            factory.addToUsedPool(a);
+            factory.addToUsedPool(b);
+            factory.unuseObject(a);
+            factory.unuseObject(b);
+        });
+        t.start();
+        t.join();
+
+        // Die freien Objekte des beendeten Threads sind hier nicht sichtbar,
+        // belegen aber auch keinen Platz mehr
+        Assert.assertNull(factory.getFreeObject());
+        factory.addToUsedPool(new Object());
+        factory.addToUsedPool(new Object());
+        Assert.assertEquals(2,factory.getUsedObjects().size());
+
+        ObjectFactory local = new ObjectFactory(2,ObjectPool.STRATEGY_THREADLOCAL);
+        for (int i=0;i<5;i++)
+            local.addToFreePool(new Object());
+        Assert.assertEquals(2,local.getFreeObjects().size());
+    }
+
+    /**
+     * Vergleicht den Durchsatz der Strategien bei mehreren Threads.
+     * Wie bei der Nachrichten-Analyse werden dabei viele Objekte entnommen
+     * und anschliessend wieder zurueckgegeben.
+     * @throws Exception
+     */
+    @Test
+    public void test002() throws Exception
+    {
+        Assume.assumeTrue(Boolean.valueOf(System.getProperty(AbstractTest.SYSPROP_PERFORMANCE,Boolean.TRUE.toString())));
+
+        final int threads = Math.max(4,Runtime.getRuntime().availableProcessors());
+        final int rounds  = 200;
+        final int objects = 1024;
+
+        List<String> all = new ArrayList<String>();
+        for (String s:STRATEGIES)
+            all.add(s);
+        all.add(ObjectPool.STRATEGY_NONE);
+
+        for (int pass=0;pass<2;pass++) // 1. Durchlauf zum Aufwaermen
+        {
+            for (String strategy:all)
+            {
+                final ObjectFactory factory = new ObjectFactory(objects * threads,strategy);
+                List<Thread> list = new ArrayList<Thread>();
+                for (int t=0;t<threads;t++)
+                {
+                    list.add(new Thread(() -> {
+                        Object[] used = new Object[objects];
+                        for (int r=0;r<rounds;r++)
+                        {
+                            for (int i=0;i<objects;i++)
+                            {
+                                Object o = factory.getFreeObject();
+                                if (o == null)
+                                    o = new StringBuilder();
+                                factory.addToUsedPool(o);
+                                used[i] = o;
+                            }
+                            for (int i=0;i<objects;i++)
+                            {
+                                factory.unuseObject(used[i]);
+                            }
+                        }
+                    }));
+                }
+
+                long start = System.nanoTime();
+                for (Thread t:list)
+                    t.start();
+                for (Thread t:list)
+                    t.join();
+                long used = (System.nanoTime() - start) / 1000000L;
+
+                if (pass == 1)
+                    System.out.println("object pool " + strategy + ": " + threads + " threads, " + (threads * rounds * objects) + " objects: " + used + " millis");
+            }
+        }
+    }
+}